@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -22,6 +22,7 @@ package se.uu.ub.cora.xmlconverter;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 
@@ -29,7 +30,14 @@ import se.uu.ub.cora.converter.ConverterFactory;
 import se.uu.ub.cora.converter.ConverterInitializationException;
 import se.uu.ub.cora.converter.ExternallyConvertibleToStringConverter;
 import se.uu.ub.cora.converter.StringToExternallyConvertibleConverter;
+import se.uu.ub.cora.xmlconverter.converter.CoraXmlParser;
 import se.uu.ub.cora.xmlconverter.converter.ExternallyConvertibleToXml;
+import se.uu.ub.cora.xmlconverter.converter.OutputSizeEstimates;
+import se.uu.ub.cora.xmlconverter.converter.RecordInfoExtractor;
+import se.uu.ub.cora.xmlconverter.converter.XmlEnvelopeToExternallyConvertible;
+import se.uu.ub.cora.xmlconverter.converter.XmlLinkExtractor;
+import se.uu.ub.cora.xmlconverter.converter.XmlLinkInjector;
+import se.uu.ub.cora.xmlconverter.converter.XmlPathProjector;
 import se.uu.ub.cora.xmlconverter.converter.XmlToExternallyConvertible;
 
 /**
@@ -38,13 +46,15 @@ import se.uu.ub.cora.xmlconverter.converter.XmlToExternallyConvertible;
 public class XmlConverterFactory implements ConverterFactory {
 
 	private static final String NAME = "xml";
+	private OutputSizeEstimates outputSizeEstimates = new OutputSizeEstimates();
 
 	@Override
 	public ExternallyConvertibleToStringConverter factorExternallyConvertableToStringConverter() {
 		DocumentBuilderFactory documentBuilderFactory = createDocumentBuilder();
 
 		TransformerFactory transformerFactory = createTransformerFactory();
-		return new ExternallyConvertibleToXml(documentBuilderFactory, transformerFactory);
+		return new ExternallyConvertibleToXml(documentBuilderFactory, transformerFactory,
+				outputSizeEstimates);
 	}
 
 	private DocumentBuilderFactory createDocumentBuilder() {
@@ -96,13 +106,71 @@ public class XmlConverterFactory implements ConverterFactory {
 	@Override
 	public StringToExternallyConvertibleConverter factorStringToExternallyConvertableConverter() {
 		DocumentBuilderFactory documentBuilderFactory = createDocumentBuilder();
-		return new XmlToExternallyConvertible(documentBuilderFactory);
+		XMLInputFactory xmlInputFactory = createXmlInputFactory();
+		return new XmlToExternallyConvertible(documentBuilderFactory, xmlInputFactory);
 	}
 
 	DocumentBuilderFactory getNewDocumentBuilder() {
 		return DocumentBuilderFactory.newInstance();
 	}
 
+	public XmlLinkInjector factorXmlLinkInjector() {
+		XMLInputFactory xmlInputFactory = createXmlInputFactory();
+		return new XmlLinkInjector(xmlInputFactory);
+	}
+
+	public CoraXmlParser factorCoraXmlParser() {
+		XMLInputFactory xmlInputFactory = createXmlInputFactory();
+		return new CoraXmlParser(xmlInputFactory);
+	}
+
+	public XmlEnvelopeToExternallyConvertible factorXmlEnvelopeToExternallyConvertible() {
+		XMLInputFactory xmlInputFactory = createXmlInputFactory();
+		return new XmlEnvelopeToExternallyConvertible(xmlInputFactory);
+	}
+
+	public RecordInfoExtractor factorRecordInfoExtractor() {
+		XMLInputFactory xmlInputFactory = createXmlInputFactory();
+		return new RecordInfoExtractor(xmlInputFactory);
+	}
+
+	public XmlPathProjector factorXmlPathProjector() {
+		XMLInputFactory xmlInputFactory = createXmlInputFactory();
+		return new XmlPathProjector(xmlInputFactory);
+	}
+
+	public XmlLinkExtractor factorXmlLinkExtractor() {
+		XMLInputFactory xmlInputFactory = createXmlInputFactory();
+		return new XmlLinkExtractor(xmlInputFactory);
+	}
+
+	private XMLInputFactory createXmlInputFactory() {
+		XMLInputFactory xmlInputFactory = getNewXmlInputFactory();
+		try {
+			xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		} catch (Exception exception) {
+			throw new ConverterInitializationException(
+					"Unable to set security features for XMLInputFactory", exception);
+		}
+		return xmlInputFactory;
+	}
+
+	XMLInputFactory getNewXmlInputFactory() {
+		return XMLInputFactory.newInstance();
+	}
+
+	/**
+	 * getOutputSizeEstimates returns the output size estimates shared by all converters factored
+	 * by this factory, for example for capacity planning.
+	 * 
+	 * @return The shared OutputSizeEstimates
+	 */
+	public OutputSizeEstimates getOutputSizeEstimates() {
+		return outputSizeEstimates;
+	}
+
 	@Override
 	public String getName() {
 		return NAME;
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ActionLinkTemplate is one action link compiled into pre-encoded XML literals separated by slots.
+ * Rendering only escapes and appends the slot values, everything else is copied as is.
+ */
+class ActionLinkTemplate {
+
+	private final String[] literals;
+	private final Slot[] slots;
+
+	private ActionLinkTemplate(List<String> literals, List<Slot> slots) {
+		this.literals = literals.toArray(new String[0]);
+		this.slots = slots.toArray(new Slot[0]);
+	}
+
+	static Builder startActionLink(String action, String requestMethod) {
+		return new Builder(action, requestMethod);
+	}
+
+	void renderTo(StringBuilder out, String... slotValues) {
+		for (int i = 0; i < slots.length; i++) {
+			out.append(literals[i]);
+			slots[i].renderTo(out, slotValues);
+		}
+		out.append(literals[slots.length]);
+	}
+
+	private record Slot(int position, String elementName) {
+
+		void renderTo(StringBuilder out, String... slotValues) {
+			String value = slotValues[position];
+			if (elementName == null) {
+				XmlEscaper.appendEscapedText(out, String.valueOf(value));
+			} else {
+				renderElementTo(out, value);
+			}
+		}
+
+		private void renderElementTo(StringBuilder out, String value) {
+			if (value == null || value.isEmpty()) {
+				out.append('<').append(elementName).append("/>");
+			} else {
+				out.append('<').append(elementName).append('>');
+				XmlEscaper.appendEscapedText(out, value);
+				out.append("</").append(elementName).append('>');
+			}
+		}
+	}
+
+	static class Builder {
+		private final String action;
+		private final List<String> literals = new ArrayList<>();
+		private final List<Slot> slots = new ArrayList<>();
+		private StringBuilder currentLiteral = new StringBuilder();
+
+		private Builder(String action, String requestMethod) {
+			this.action = action;
+			appendStartTag(action);
+			appendElement("requestMethod", requestMethod);
+			appendElement("rel", action);
+		}
+
+		Builder url(String baseUrl, Object... urlParts) {
+			appendStartTag("url");
+			appendText(String.valueOf(baseUrl));
+			for (int i = 0; i < urlParts.length; i++) {
+				possiblyAppendSeparator(i);
+				appendUrlPart(urlParts[i]);
+			}
+			appendEndTag("url");
+			return this;
+		}
+
+		private void possiblyAppendSeparator(int position) {
+			if (position > 0) {
+				currentLiteral.append('/');
+			}
+		}
+
+		private void appendUrlPart(Object urlPart) {
+			if (urlPart instanceof Integer position) {
+				appendSlot(new Slot(position, null));
+			} else {
+				appendText((String) urlPart);
+			}
+		}
+
+		Builder element(String tagName, String text) {
+			appendElement(tagName, text);
+			return this;
+		}
+
+		Builder elementWithSlot(String tagName, int position) {
+			appendSlot(new Slot(position, tagName));
+			return this;
+		}
+
+		Builder startElement(String tagName) {
+			appendStartTag(tagName);
+			return this;
+		}
+
+		Builder endElement(String tagName) {
+			appendEndTag(tagName);
+			return this;
+		}
+
+		ActionLinkTemplate build() {
+			appendEndTag(action);
+			literals.add(currentLiteral.toString());
+			return new ActionLinkTemplate(literals, slots);
+		}
+
+		private void appendElement(String tagName, String text) {
+			appendStartTag(tagName);
+			appendText(text);
+			appendEndTag(tagName);
+		}
+
+		private void appendStartTag(String tagName) {
+			currentLiteral.append('<').append(tagName).append('>');
+		}
+
+		private void appendEndTag(String tagName) {
+			currentLiteral.append("</").append(tagName).append('>');
+		}
+
+		private void appendText(String text) {
+			XmlEscaper.appendEscapedText(currentLiteral, text);
+		}
+
+		private void appendSlot(Slot slot) {
+			literals.add(currentLiteral.toString());
+			slots.add(slot);
+			currentLiteral = new StringBuilder();
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static se.uu.ub.cora.xmlconverter.converter.ActionLinkTemplate.startActionLink;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import se.uu.ub.cora.data.Action;
+
+/**
+ * ActionLinkTemplates holds all action links compiled for one base url. Record action links are
+ * rendered in the same order as they have always been written, and only the recordType, recordId
+ * and searchId slots differ between records.
+ * <p>
+ * A converter holds one ActionLinkTemplates at a time, see {@link #reuseOrCompile}, as all calls
+ * normally use the same base url.
+ */
+class ActionLinkTemplates {
+
+	private static final List<Action> RECORD_ACTION_ORDER = List.of(Action.READ, Action.UPDATE,
+			Action.DELETE, Action.READ_INCOMING_LINKS, Action.INDEX, Action.UPLOAD, Action.SEARCH,
+			Action.CREATE, Action.LIST, Action.BATCH_INDEX, Action.VALIDATE);
+	private static final int TYPE = 0;
+	private static final int ID = 1;
+	private static final int SEARCH_ID = 2;
+	private static final int NAME_IN_DATA = 2;
+	private static final int MIME_TYPE = 3;
+	private static final String ACTION_LINKS_START = "<actionLinks>";
+	private static final String ACTION_LINKS_END = "</actionLinks>";
+	private static final String ACTION_LINKS_EMPTY = "<actionLinks/>";
+	private static final String ACCEPT = "accept";
+	private static final String CONTENT_TYPE = "contentType";
+	private static final String INDEX = "index";
+	private static final String WORK_ORDER = "workOrder";
+	private static final String GET = "GET";
+	private static final String POST = "POST";
+	private static final String APPLICATION_VND_CORA_RECORD_LIST_XML = "application/vnd.cora.recordList+xml";
+	private static final String APPLICATION_VND_CORA_RECORD_XML = "application/vnd.cora.record+xml";
+	private static final String APPLICATION_VND_CORA_RECORDGROUP_XML = "application/vnd.cora.recordgroup+xml";
+
+	private final String baseUrl;
+	private final Map<Action, ActionLinkTemplate> recordTemplates = new EnumMap<>(Action.class);
+	private final ActionLinkTemplate resourceReadTemplate;
+
+	/**
+	 * reuseOrCompile returns the current templates if they are compiled for the given base url,
+	 * otherwise new templates for the base url.
+	 * 
+	 * @param current
+	 *            An ActionLinkTemplates or null if none is compiled yet
+	 * @param baseUrl
+	 *            A String with the base url the links should use
+	 * @return An ActionLinkTemplates compiled for the base url
+	 */
+	static ActionLinkTemplates reuseOrCompile(ActionLinkTemplates current, String baseUrl) {
+		if (current != null && current.baseUrl.equals(baseUrl)) {
+			return current;
+		}
+		return new ActionLinkTemplates(baseUrl);
+	}
+
+	ActionLinkTemplates(String baseUrl) {
+		this.baseUrl = baseUrl;
+		compileRecordTemplates(baseUrl);
+		resourceReadTemplate = startActionLink("read", GET)
+				.url(baseUrl, TYPE, ID, NAME_IN_DATA).elementWithSlot(ACCEPT, MIME_TYPE).build();
+	}
+
+	private void compileRecordTemplates(String baseUrl) {
+		recordTemplates.put(Action.READ, startActionLink("read", GET).url(baseUrl, TYPE, ID)
+				.element(ACCEPT, APPLICATION_VND_CORA_RECORD_XML).build());
+		recordTemplates.put(Action.UPDATE, startActionLink("update", POST).url(baseUrl, TYPE, ID)
+				.element(CONTENT_TYPE, APPLICATION_VND_CORA_RECORDGROUP_XML)
+				.element(ACCEPT, APPLICATION_VND_CORA_RECORD_XML).build());
+		recordTemplates.put(Action.DELETE,
+				startActionLink("delete", "DELETE").url(baseUrl, TYPE, ID).build());
+		recordTemplates.put(Action.READ_INCOMING_LINKS,
+				startActionLink("read_incoming_links", GET).url(baseUrl, TYPE, ID, "incomingLinks")
+						.element(ACCEPT, APPLICATION_VND_CORA_RECORD_LIST_XML).build());
+		recordTemplates.put(Action.INDEX, compileIndexTemplate(baseUrl));
+		recordTemplates.put(Action.UPLOAD, startActionLink("upload", POST)
+				.url(baseUrl, TYPE, ID, "master").element(CONTENT_TYPE, "multipart/form-data")
+				.build());
+		recordTemplates.put(Action.SEARCH,
+				startActionLink("search", GET).url(baseUrl, "searchResult", SEARCH_ID)
+						.element(ACCEPT, APPLICATION_VND_CORA_RECORD_LIST_XML).build());
+		recordTemplates.put(Action.CREATE, startActionLink("create", POST).url(baseUrl, ID)
+				.element(CONTENT_TYPE, APPLICATION_VND_CORA_RECORDGROUP_XML)
+				.element(ACCEPT, APPLICATION_VND_CORA_RECORD_XML).build());
+		recordTemplates.put(Action.LIST, startActionLink("list", GET).url(baseUrl, ID)
+				.element(ACCEPT, APPLICATION_VND_CORA_RECORD_LIST_XML).build());
+		recordTemplates.put(Action.BATCH_INDEX,
+				startActionLink("batch_index", POST).url(baseUrl, INDEX, ID)
+						.element(CONTENT_TYPE, APPLICATION_VND_CORA_RECORD_XML)
+						.element(ACCEPT, APPLICATION_VND_CORA_RECORD_XML).build());
+		recordTemplates.put(Action.VALIDATE, startActionLink("validate", POST)
+				.url(baseUrl, WORK_ORDER)
+				.element(CONTENT_TYPE, "application/vnd.cora.workorder+xml")
+				.element(ACCEPT, APPLICATION_VND_CORA_RECORD_XML).build());
+	}
+
+	private ActionLinkTemplate compileIndexTemplate(String baseUrl) {
+		return startActionLink(INDEX, POST).url(baseUrl, WORK_ORDER)
+				.element(CONTENT_TYPE, APPLICATION_VND_CORA_RECORDGROUP_XML)
+				.element(ACCEPT, APPLICATION_VND_CORA_RECORD_XML).startElement("body")
+				.startElement(WORK_ORDER).startElement("recordType")
+				.element("linkedRecordType", "recordType").elementWithSlot("linkedRecordId", TYPE)
+				.elementWithSlot("recordId", ID).element("type", INDEX).endElement("recordType")
+				.endElement(WORK_ORDER).endElement("body").build();
+	}
+
+	String renderRecordActionLinks(Set<Action> actions, String recordType, String recordId,
+			String searchId) {
+		StringBuilder out = new StringBuilder(ACTION_LINKS_START);
+		for (Action action : RECORD_ACTION_ORDER) {
+			if (actions.contains(action)) {
+				recordTemplates.get(action).renderTo(out, recordType, recordId, searchId);
+			}
+		}
+		return closeActionLinks(out);
+	}
+
+	private String closeActionLinks(StringBuilder out) {
+		if (out.length() == ACTION_LINKS_START.length()) {
+			return ACTION_LINKS_EMPTY;
+		}
+		return out.append(ACTION_LINKS_END).toString();
+	}
+
+	String renderRecordLinkActionLinks(String linkedRecordType, String linkedRecordId) {
+		StringBuilder out = new StringBuilder(ACTION_LINKS_START);
+		recordTemplates.get(Action.READ).renderTo(out, linkedRecordType, linkedRecordId);
+		return out.append(ACTION_LINKS_END).toString();
+	}
+
+	String renderResourceLinkActionLinks(String type, String id, String nameInData,
+			String mimeType) {
+		StringBuilder out = new StringBuilder(ACTION_LINKS_START);
+		resourceReadTemplate.renderTo(out, type, id, nameInData, mimeType);
+		return out.append(ACTION_LINKS_END).toString();
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ChunkedXml is converted xml held as an immutable sequence of fixed size chunks instead of as
+ * one contiguous String. No single allocation is larger than the chunk size, which keeps large
+ * responses out of humongous allocations. The xml can be written out chunk by chunk without ever
+ * being copied into one String.
+ */
+public final class ChunkedXml implements CharSequence {
+	/**
+	 * DEFAULT_CHUNK_SIZE is the number of chars in a chunk, chosen so that a chunk stays well
+	 * below half of the smallest G1 region size.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private final char[][] chunks;
+	private final int chunkSize;
+	private final int length;
+
+	ChunkedXml(char[][] chunks, int chunkSize, int length) {
+		this.chunks = chunks;
+		this.chunkSize = chunkSize;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return chunks[index / chunkSize][index % chunkSize];
+	}
+
+	/**
+	 * subSequence returns the requested part as a String, copying only the requested chars.
+	 */
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException(
+					"start " + start + ", end " + end + ", length " + length);
+		}
+		StringBuilder part = new StringBuilder(end - start);
+		for (int index = start; index < end; index++) {
+			part.append(charAt(index));
+		}
+		return part.toString();
+	}
+
+	public int getNumberOfChunks() {
+		return chunks.length;
+	}
+
+	/**
+	 * getChunk returns a read only view of one chunk, all chunks except the last one are full.
+	 * 
+	 * @param chunkNumber
+	 *            An int with the number of the chunk, starting at 0
+	 * @return A CharBuffer with the chars in the chunk
+	 */
+	public CharBuffer getChunk(int chunkNumber) {
+		return CharBuffer.wrap(chunks[chunkNumber], 0, lengthOfChunk(chunkNumber))
+				.asReadOnlyBuffer();
+	}
+
+	private int lengthOfChunk(int chunkNumber) {
+		if (chunkNumber == chunks.length - 1) {
+			return length - chunkNumber * chunkSize;
+		}
+		return chunkSize;
+	}
+
+	/**
+	 * writeTo writes the xml to the writer, one chunk at a time. The writer is not flushed or
+	 * closed.
+	 * 
+	 * @param writer
+	 *            A Writer to write to
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void writeTo(Writer writer) throws IOException {
+		for (int chunkNumber = 0; chunkNumber < chunks.length; chunkNumber++) {
+			writer.write(chunks[chunkNumber], 0, lengthOfChunk(chunkNumber));
+		}
+	}
+
+	/**
+	 * writeTo writes the xml to the outputStream encoded as UTF-8, one chunk at a time. The
+	 * outputStream is flushed but not closed.
+	 * 
+	 * @param outputStream
+	 *            An OutputStream to write to
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+		writeTo(writer);
+		writer.flush();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder xml = new StringBuilder(length);
+		for (int chunkNumber = 0; chunkNumber < chunks.length; chunkNumber++) {
+			xml.append(chunks[chunkNumber], 0, lengthOfChunk(chunkNumber));
+		}
+		return xml.toString();
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * ChunkedXmlWriter collects written chars in chunks of a fixed size, new chunks are added as the
+ * previous ones are filled. Already written chars are never copied.
+ */
+class ChunkedXmlWriter extends Writer {
+
+	private final int chunkSize;
+	private final List<char[]> chunks = new ArrayList<>();
+	private char[] currentChunk;
+	private int positionInCurrentChunk;
+	private int length = 0;
+
+	ChunkedXmlWriter(int chunkSize) {
+		if (chunkSize < 1) {
+			throw new ConverterException("Chunk size must be at least 1, was: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		positionInCurrentChunk = chunkSize;
+	}
+
+	@Override
+	public void write(char[] chars, int offset, int numOfChars) {
+		int written = 0;
+		while (written < numOfChars) {
+			ensureRoomInCurrentChunk();
+			int toCopy = Math.min(numOfChars - written, chunkSize - positionInCurrentChunk);
+			System.arraycopy(chars, offset + written, currentChunk, positionInCurrentChunk, toCopy);
+			positionInCurrentChunk += toCopy;
+			written += toCopy;
+		}
+		length += numOfChars;
+	}
+
+	@Override
+	public void write(String text, int offset, int numOfChars) {
+		int written = 0;
+		while (written < numOfChars) {
+			ensureRoomInCurrentChunk();
+			int toCopy = Math.min(numOfChars - written, chunkSize - positionInCurrentChunk);
+			text.getChars(offset + written, offset + written + toCopy, currentChunk,
+					positionInCurrentChunk);
+			positionInCurrentChunk += toCopy;
+			written += toCopy;
+		}
+		length += numOfChars;
+	}
+
+	private void ensureRoomInCurrentChunk() {
+		if (positionInCurrentChunk == chunkSize) {
+			currentChunk = new char[chunkSize];
+			chunks.add(currentChunk);
+			positionInCurrentChunk = 0;
+		}
+	}
+
+	@Override
+	public void flush() {
+		// nothing is buffered
+	}
+
+	@Override
+	public void close() {
+		// nothing to close
+	}
+
+	ChunkedXml toChunkedXml() {
+		return new ChunkedXml(chunks.toArray(new char[0][]), chunkSize, length);
+	}
+}
@@ -0,0 +1,649 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * CoraXmlParser reads Cora xml in one forward pass and reports each group, atomic, record link and
+ * resource link to a {@link CoraXmlVisitor}, without building any data. Elements are classified
+ * in the same way as in {@link XmlToExternallyConvertible}, and the same errors are reported.
+ * <p>
+ * Memory use does not grow with the size of the xml. The only children held in memory are the
+ * children of an element that still can turn out to be a link, that is children named
+ * linkedRecordType, linkedRecordId or mimeType. They are reported as soon as the element is known
+ * to be a group.
+ * <p>
+ * Exceptions thrown by the visitor are not caught. As elements are reported while reading, the
+ * visitor may have received some elements before an error in the xml is found.
+ * <p>
+ * For pulling data elements one at a time instead, use {@link #createReader(String)}. For only
+ * checking if xml would convert, use {@link #check(String)}.
+ * <p>
+ * CoraXmlParser is not thread safe.
+ */
+public class CoraXmlParser {
+
+	private static final String CONVERSION_ERROR = "Unable to convert from xml to dataElement: ";
+	private static final String REPEAT_ID = "repeatId";
+	private static final String LINKED_RECORD_TYPE = "linkedRecordType";
+	private static final String LINKED_RECORD_ID = "linkedRecordId";
+	private static final String MIME_TYPE = "mimeType";
+	private static final List<String> LINK_CHILD_NAMES = List.of(LINKED_RECORD_TYPE,
+			LINKED_RECORD_ID, MIME_TYPE);
+	private static final int NUM_OF_RECORD_LINK_CHILDREN = 2;
+	private static final int NUM_OF_RESOURCE_LINK_CHILDREN = 3;
+	private static final CoraXmlVisitor IGNORING_VISITOR = new IgnoringVisitor();
+
+	private XMLInputFactory xmlInputFactory;
+	private CoraXmlVisitor visitor;
+	private String topElementName;
+	private OpenElement currentElement;
+	private HeldElement currentHeldElement;
+	private int skippedDepth;
+	private List<XmlViolation> violations;
+	private XMLStreamReader currentReader;
+
+	public CoraXmlParser(XMLInputFactory xmlInputFactory) {
+		this.xmlInputFactory = xmlInputFactory;
+	}
+
+	/**
+	 * parse reads the xml and reports its data elements to the visitor.
+	 * 
+	 * @param xml
+	 *            A String with the xml to parse
+	 * @param visitor
+	 *            The CoraXmlVisitor to report the data elements to
+	 */
+	public void parse(String xml, CoraXmlVisitor visitor) {
+		XmlHeader.validate(xml);
+		try {
+			parseUsingReader(xmlInputFactory.createXMLStreamReader(new StringReader(xml)),
+					visitor);
+		} catch (XMLStreamException exception) {
+			throw createMalformedXmlException(exception);
+		}
+	}
+
+	private ConverterException createMalformedXmlException(XMLStreamException exception) {
+		return new ConverterException(
+				"Unable to convert from xml to dataElement due to malformed XML: "
+						+ exception.getMessage(),
+				exception);
+	}
+
+	/**
+	 * check reads the xml and returns all places where it breaks the rules for converting xml to
+	 * data, without building any data. The rules are the same as in
+	 * {@link XmlToExternallyConvertible}, so xml that is checked without violations can be
+	 * converted.
+	 * <p>
+	 * Checking goes on after a violation, so that all violations are found in one pass, except for
+	 * malformed xml, which ends the check. The position of a violation in an element is where the
+	 * start tag of the element ends.
+	 * 
+	 * @param xml
+	 *            A String with the xml to check
+	 * @return A List with the violations found, empty if the xml can be converted
+	 */
+	public List<XmlViolation> check(String xml) {
+		List<XmlViolation> foundViolations = new ArrayList<>();
+		if (!XmlHeader.startsWithXmlHeader(xml)) {
+			foundViolations.add(new XmlViolation(1, 1, XmlHeader.HEADER_ERROR));
+		}
+		try {
+			checkUsingReader(xmlInputFactory.createXMLStreamReader(new StringReader(xml)),
+					foundViolations);
+		} catch (XMLStreamException exception) {
+			foundViolations.add(createMalformedXmlViolation(exception));
+		}
+		return foundViolations;
+	}
+
+	private void checkUsingReader(XMLStreamReader reader, List<XmlViolation> foundViolations)
+			throws XMLStreamException {
+		violations = foundViolations;
+		currentReader = reader;
+		try {
+			parseUsingReader(reader, IGNORING_VISITOR);
+		} finally {
+			violations = null;
+			currentReader = null;
+		}
+	}
+
+	private XmlViolation createMalformedXmlViolation(XMLStreamException exception) {
+		Location location = exception.getLocation();
+		return new XmlViolation(location.getLineNumber(), location.getColumnNumber(),
+				"Unable to convert from xml to dataElement due to malformed XML: "
+						+ exception.getMessage());
+	}
+
+	/**
+	 * check reads UTF-8 encoded xml from the bytes in the same way as {@link #check(String)}.
+	 * 
+	 * @param xml
+	 *            A byte array with UTF-8 encoded xml to check
+	 * @return A List with the violations found, empty if the xml can be converted
+	 */
+	public List<XmlViolation> check(byte[] xml) {
+		List<XmlViolation> foundViolations = new ArrayList<>();
+		if (!XmlHeader.startsWithXmlHeader(xml)) {
+			foundViolations.add(new XmlViolation(1, 1, XmlHeader.HEADER_ERROR));
+		}
+		try {
+			checkUsingReader(
+					xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(xml), "UTF-8"),
+					foundViolations);
+		} catch (XMLStreamException exception) {
+			foundViolations.add(createMalformedXmlViolation(exception));
+		}
+		return foundViolations;
+	}
+
+	/**
+	 * parse reads xml from the inputStream and reports its data elements to the visitor.
+	 * Compressed xml is inflated as it is read. The inputStream is not closed.
+	 * 
+	 * @param inputStream
+	 *            An InputStream to read UTF-8 encoded xml from
+	 * @param compression
+	 *            The XmlCompression of the xml in the inputStream
+	 * @param visitor
+	 *            The CoraXmlVisitor to report the data elements to
+	 */
+	public void parse(InputStream inputStream, XmlCompression compression,
+			CoraXmlVisitor visitor) {
+		try {
+			InputStream xmlStream = XmlHeader.decompressAndValidate(inputStream, compression);
+			parseUsingReader(xmlInputFactory.createXMLStreamReader(xmlStream, "UTF-8"), visitor);
+		} catch (XMLStreamException exception) {
+			throw createMalformedXmlException(exception);
+		} catch (IOException exception) {
+			throw new ConverterException(CONVERSION_ERROR + exception.getMessage(), exception);
+		}
+	}
+
+	/**
+	 * createReader returns a {@link CoraXmlReader} positioned before the first data element in the
+	 * xml.
+	 * 
+	 * @param xml
+	 *            A String with the xml to read
+	 * @return A CoraXmlReader over the xml
+	 */
+	public CoraXmlReader createReader(String xml) {
+		XmlHeader.validate(xml);
+		try {
+			return new CoraXmlReader(xmlInputFactory.createXMLStreamReader(new StringReader(xml)),
+					new CoraXmlParser(xmlInputFactory));
+		} catch (XMLStreamException exception) {
+			throw createMalformedXmlException(exception);
+		}
+	}
+
+	/**
+	 * createReader returns a {@link CoraXmlReader} positioned before the first data element in the
+	 * xml read from the inputStream. Compressed xml is inflated as it is read. Closing the reader
+	 * does not close the inputStream.
+	 * 
+	 * @param inputStream
+	 *            An InputStream to read UTF-8 encoded xml from
+	 * @param compression
+	 *            The XmlCompression of the xml in the inputStream
+	 * @return A CoraXmlReader over the xml
+	 */
+	public CoraXmlReader createReader(InputStream inputStream, XmlCompression compression) {
+		try {
+			InputStream xmlStream = XmlHeader.decompressAndValidate(inputStream, compression);
+			return new CoraXmlReader(xmlInputFactory.createXMLStreamReader(xmlStream, "UTF-8"),
+					new CoraXmlParser(xmlInputFactory));
+		} catch (XMLStreamException exception) {
+			throw createMalformedXmlException(exception);
+		} catch (IOException exception) {
+			throw new ConverterException(CONVERSION_ERROR + exception.getMessage(), exception);
+		}
+	}
+
+	private void parseUsingReader(XMLStreamReader reader, CoraXmlVisitor visitor)
+			throws XMLStreamException {
+		startParsing(visitor);
+		try {
+			readEvents(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	void startParsing(CoraXmlVisitor visitor) {
+		this.visitor = visitor;
+		topElementName = null;
+		currentElement = null;
+		currentHeldElement = null;
+		skippedDepth = 0;
+	}
+
+	private void readEvents(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			readEvent(reader, reader.next());
+		}
+	}
+
+	void readEvent(XMLStreamReader reader, int event) {
+		if (event == XMLStreamConstants.START_ELEMENT) {
+			startElement(reader);
+		} else if (isText(event)) {
+			addText(reader.getText());
+		} else if (event == XMLStreamConstants.END_ELEMENT) {
+			endElement();
+		}
+	}
+
+	/**
+	 * skipRestOfCurrentGroup skips everything not yet read in the innermost group that has been
+	 * started, so that the next event reported is the end of that group.
+	 */
+	void skipRestOfCurrentGroup() {
+		OpenElement group = currentElement;
+		skippedDepth = 0;
+		currentHeldElement = null;
+		while (!group.startedAsGroup) {
+			group = group.parent;
+			skippedDepth++;
+		}
+		group.skipRestOfChildren = true;
+		currentElement = group;
+	}
+
+	private boolean isText(int event) {
+		return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+				|| event == XMLStreamConstants.SPACE;
+	}
+
+	private void startElement(XMLStreamReader reader) {
+		if (skippedDepth > 0) {
+			skippedDepth++;
+			return;
+		}
+		String name = qualifiedName(reader.getPrefix(), reader.getLocalName());
+		XmlAttributes xmlAttributes = readAttributes(reader);
+		Position position = possiblyReadPosition();
+		if (currentHeldElement != null) {
+			startHeldChildElement(name, xmlAttributes, position);
+		} else if (currentElement == null) {
+			startTopElement(name, xmlAttributes, position);
+		} else {
+			startChildElement(name, xmlAttributes, position);
+		}
+	}
+
+	private Position possiblyReadPosition() {
+		if (violations == null) {
+			return null;
+		}
+		Location location = currentReader.getLocation();
+		return new Position(location.getLineNumber(), location.getColumnNumber());
+	}
+
+	private String qualifiedName(String prefix, String localName) {
+		if (prefix == null || prefix.isEmpty()) {
+			return localName;
+		}
+		return prefix + ":" + localName;
+	}
+
+	private XmlAttributes readAttributes(XMLStreamReader reader) {
+		XmlAttributes xmlAttributes = new XmlAttributes();
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String name = qualifiedName(reader.getAttributePrefix(i),
+					reader.getAttributeLocalName(i));
+			possiblyReadAttributeOrRepeatId(xmlAttributes, name, reader.getAttributeValue(i));
+		}
+		return xmlAttributes;
+	}
+
+	private void possiblyReadAttributeOrRepeatId(XmlAttributes xmlAttributes, String name,
+			String value) {
+		if (REPEAT_ID.equals(name)) {
+			xmlAttributes.repeatId = value;
+		} else {
+			xmlAttributes.setAttribute(name, value);
+		}
+	}
+
+	private void startTopElement(String name, XmlAttributes xmlAttributes, Position position) {
+		ensureNoRepeatId(xmlAttributes.repeatId, position);
+		topElementName = name;
+		currentElement = new OpenElement(name, xmlAttributes, position, null);
+		startGroup(currentElement, "");
+	}
+
+	private void ensureNoRepeatId(String repeatId, Position position) {
+		if (!repeatId.isBlank()) {
+			reportViolation("Top dataGroup can not have repeatId", position);
+		}
+	}
+
+	private void reportViolation(String message, Position position) {
+		if (violations == null) {
+			throw new ConverterException(CONVERSION_ERROR + message);
+		}
+		violations.add(new XmlViolation(position.lineNumber(), position.columnNumber(),
+				CONVERSION_ERROR + message));
+	}
+
+	private void startHeldChildElement(String name, XmlAttributes xmlAttributes,
+			Position position) {
+		if (LinkOnlySubtrees.isLinkOnlySubtreeInLink(currentHeldElement.childNames(), name)) {
+			skippedDepth = 1;
+		} else {
+			currentHeldElement = currentHeldElement.addChild(name, xmlAttributes, position);
+		}
+	}
+
+	private void startChildElement(String name, XmlAttributes xmlAttributes, Position position) {
+		OpenElement parent = currentElement;
+		if (isLinkOnlySubtree(parent, name)) {
+			skippedDepth = 1;
+			return;
+		}
+		possiblySetFirstChildName(parent, name);
+		parent.hasElementChildren = true;
+		if (parent.skipRestOfChildren) {
+			parent.numOfChildren++;
+			skippedDepth = 1;
+		} else if (canBeHeldAsLinkChild(parent, name)) {
+			currentHeldElement = new HeldElement(name, xmlAttributes, position, null);
+			parent.heldChildren.add(currentHeldElement);
+		} else {
+			possiblyStartAsGroup(parent);
+			parent.numOfChildren++;
+			currentElement = new OpenElement(name, xmlAttributes, position, parent);
+		}
+	}
+
+	private boolean isLinkOnlySubtree(OpenElement parent, String name) {
+		if (parent.parent == null) {
+			return LinkOnlySubtrees.isLinkOnlySubtreeInRecord(topElementName,
+					parent.firstChildName, name);
+		}
+		return LinkOnlySubtrees.isLinkOnlySubtreeInLink(parent.heldChildNames(), name);
+	}
+
+	private void possiblySetFirstChildName(OpenElement parent, String name) {
+		if (parent.firstChildName == null) {
+			parent.firstChildName = name;
+		}
+	}
+
+	private boolean canBeHeldAsLinkChild(OpenElement parent, String name) {
+		return !parent.startedAsGroup && LINK_CHILD_NAMES.contains(name)
+				&& !parent.heldChildNames().contains(name);
+	}
+
+	private void possiblyStartAsGroup(OpenElement element) {
+		if (!element.startedAsGroup) {
+			startGroup(element, element.xmlAttributes.repeatId);
+			visitHeldElements(element);
+		}
+	}
+
+	private void startGroup(OpenElement element, String repeatId) {
+		element.startedAsGroup = true;
+		visitor.startGroup(element.name, attributesOf(element.xmlAttributes), repeatId);
+	}
+
+	private Map<String, String> attributesOf(XmlAttributes xmlAttributes) {
+		return Collections.unmodifiableMap(xmlAttributes.attributes);
+	}
+
+	private void visitHeldElements(OpenElement element) {
+		for (HeldElement heldElement : element.heldChildren) {
+			visitHeldElement(heldElement);
+		}
+		element.numOfChildren += element.heldChildren.size();
+		element.heldChildren.clear();
+	}
+
+	private void addText(String text) {
+		if (skippedDepth > 0) {
+			return;
+		}
+		if (currentHeldElement != null) {
+			currentHeldElement.addText(text);
+		} else if (currentElement != null && !currentElement.hasElementChildren) {
+			currentElement.text.append(text);
+		}
+	}
+
+	private void endElement() {
+		if (skippedDepth > 0) {
+			skippedDepth--;
+		} else if (currentHeldElement != null) {
+			currentHeldElement = currentHeldElement.parent;
+		} else {
+			OpenElement element = currentElement;
+			currentElement = element.parent;
+			endOpenElement(element);
+		}
+	}
+
+	private void endOpenElement(OpenElement element) {
+		if (element.startedAsGroup) {
+			endGroup(element);
+		} else if (!element.hasElementChildren) {
+			visitAtomic(element.name, element.text.toString(), element.xmlAttributes,
+					element.position);
+		} else {
+			visitElementWithChildren(element.name, element.xmlAttributes, element.position,
+					element.heldChildren);
+		}
+	}
+
+	private void endGroup(OpenElement element) {
+		if (element.numOfChildren == 0) {
+			reportViolation("Root element must be a DataGroup", element.position);
+		}
+		visitor.endGroup(element.name);
+	}
+
+	private void visitAtomic(String name, String textContent, XmlAttributes xmlAttributes,
+			Position position) {
+		String value = textContent.trim();
+		if (value.isBlank()) {
+			reportViolation("Tag " + name + " has no value. Tags without values are not allowed.",
+					position);
+		} else {
+			visitor.atomic(name, value, attributesOf(xmlAttributes), xmlAttributes.repeatId);
+		}
+	}
+
+	private void visitElementWithChildren(String name, XmlAttributes xmlAttributes,
+			Position position, List<HeldElement> children) {
+		List<String> childNames = children.stream().map(child -> child.name).toList();
+		if (isRecordLink(childNames)) {
+			visitor.recordLink(name, textContentOf(children, LINKED_RECORD_TYPE),
+					textContentOf(children, LINKED_RECORD_ID), attributesOf(xmlAttributes),
+					xmlAttributes.repeatId);
+		} else if (isResourceLink(childNames)) {
+			visitor.resourceLink(name, textContentOf(children, LINKED_RECORD_TYPE),
+					textContentOf(children, LINKED_RECORD_ID), textContentOf(children, MIME_TYPE),
+					xmlAttributes.repeatId);
+		} else {
+			visitGroup(name, xmlAttributes, position, children);
+		}
+	}
+
+	private boolean isRecordLink(List<String> childNames) {
+		return childNames.size() == NUM_OF_RECORD_LINK_CHILDREN
+				&& childNames.contains(LINKED_RECORD_TYPE) && childNames.contains(LINKED_RECORD_ID);
+	}
+
+	private boolean isResourceLink(List<String> childNames) {
+		return childNames.size() == NUM_OF_RESOURCE_LINK_CHILDREN
+				&& childNames.contains(LINKED_RECORD_TYPE) && childNames.contains(LINKED_RECORD_ID)
+				&& childNames.contains(MIME_TYPE);
+	}
+
+	private String textContentOf(List<HeldElement> children, String name) {
+		String textContent = "";
+		for (HeldElement child : children) {
+			if (child.name.equals(name)) {
+				textContent = child.textContent.toString().trim();
+			}
+		}
+		return textContent;
+	}
+
+	private void visitGroup(String name, XmlAttributes xmlAttributes, Position position,
+			List<HeldElement> children) {
+		if (children.isEmpty()) {
+			reportViolation("Root element must be a DataGroup", position);
+		}
+		visitor.startGroup(name, attributesOf(xmlAttributes), xmlAttributes.repeatId);
+		for (HeldElement child : children) {
+			visitHeldElement(child);
+		}
+		visitor.endGroup(name);
+	}
+
+	private void visitHeldElement(HeldElement element) {
+		if (element.children.isEmpty()) {
+			visitAtomic(element.name, element.textContent.toString(), element.xmlAttributes,
+					element.position);
+		} else {
+			visitElementWithChildren(element.name, element.xmlAttributes, element.position,
+					element.children);
+		}
+	}
+
+	public XMLInputFactory getXmlInputFactoryOnlyForTest() {
+		return xmlInputFactory;
+	}
+
+	private static class OpenElement {
+		private final String name;
+		private final XmlAttributes xmlAttributes;
+		private final Position position;
+		private final OpenElement parent;
+		private final StringBuilder text = new StringBuilder();
+		private final List<HeldElement> heldChildren = new ArrayList<>();
+		private boolean hasElementChildren = false;
+		private boolean startedAsGroup = false;
+		private boolean skipRestOfChildren = false;
+		private int numOfChildren = 0;
+		private String firstChildName;
+
+		OpenElement(String name, XmlAttributes xmlAttributes, Position position,
+				OpenElement parent) {
+			this.name = name;
+			this.xmlAttributes = xmlAttributes;
+			this.position = position;
+			this.parent = parent;
+		}
+
+		List<String> heldChildNames() {
+			return heldChildren.stream().map(child -> child.name).toList();
+		}
+	}
+
+	private static class HeldElement {
+		private final String name;
+		private final XmlAttributes xmlAttributes;
+		private final Position position;
+		private final HeldElement parent;
+		private final StringBuilder textContent = new StringBuilder();
+		private final List<HeldElement> children = new ArrayList<>();
+
+		HeldElement(String name, XmlAttributes xmlAttributes, Position position,
+				HeldElement parent) {
+			this.name = name;
+			this.xmlAttributes = xmlAttributes;
+			this.position = position;
+			this.parent = parent;
+		}
+
+		HeldElement addChild(String name, XmlAttributes xmlAttributes, Position position) {
+			HeldElement child = new HeldElement(name, xmlAttributes, position, this);
+			children.add(child);
+			return child;
+		}
+
+		List<String> childNames() {
+			return children.stream().map(child -> child.name).toList();
+		}
+
+		void addText(String text) {
+			for (HeldElement element = this; element != null; element = element.parent) {
+				element.textContent.append(text);
+			}
+		}
+	}
+
+	private record Position(int lineNumber, int columnNumber) {
+	}
+
+	private static class IgnoringVisitor implements CoraXmlVisitor {
+
+		@Override
+		public void startGroup(String nameInData, Map<String, String> attributes,
+				String repeatId) {
+			// only checking, nothing to report to
+		}
+
+		@Override
+		public void atomic(String nameInData, String value, Map<String, String> attributes,
+				String repeatId) {
+			// only checking, nothing to report to
+		}
+
+		@Override
+		public void recordLink(String nameInData, String linkedRecordType, String linkedRecordId,
+				Map<String, String> attributes, String repeatId) {
+			// only checking, nothing to report to
+		}
+
+		@Override
+		public void resourceLink(String nameInData, String linkedRecordType,
+				String linkedRecordId, String mimeType, String repeatId) {
+			// only checking, nothing to report to
+		}
+
+		@Override
+		public void endGroup(String nameInData) {
+			// only checking, nothing to report to
+		}
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * CoraXmlReader is a pull cursor over Cora xml. Each call to {@link #next()} moves the cursor to
+ * the next group start, group end, atomic, record link or resource link, classified and trimmed
+ * in the same way as in {@link XmlToExternallyConvertible}. Subtrees that only hold links are
+ * skipped, see {@link LinkOnlySubtrees}.
+ * <p>
+ * The xml is read lazily, only as far as needed to know what the next data element is. Use
+ * {@link #skipGroup()} to pass over a group that is not needed without classifying its content.
+ * <p>
+ * CoraXmlReader instances are created by {@link CoraXmlParser#createReader(String)} and are not
+ * thread safe.
+ */
+public class CoraXmlReader implements AutoCloseable {
+
+	private XMLStreamReader xmlStreamReader;
+	private CoraXmlParser parser;
+	private Deque<Token> readTokens = new ArrayDeque<>();
+	private Token currentToken;
+
+	CoraXmlReader(XMLStreamReader xmlStreamReader, CoraXmlParser parser) {
+		this.xmlStreamReader = xmlStreamReader;
+		this.parser = parser;
+		parser.startParsing(new TokenCollector());
+	}
+
+	/**
+	 * hasNext returns true if there is another data element to move to.
+	 * 
+	 * @return A boolean, true if {@link #next()} can be called
+	 */
+	public boolean hasNext() {
+		try {
+			readUntilTokenOrEndOfDocument();
+		} catch (XMLStreamException exception) {
+			throw new ConverterException(
+					"Unable to convert from xml to dataElement due to malformed XML: "
+							+ exception.getMessage(),
+					exception);
+		}
+		return !readTokens.isEmpty();
+	}
+
+	private void readUntilTokenOrEndOfDocument() throws XMLStreamException {
+		while (readTokens.isEmpty() && xmlStreamReader.hasNext()) {
+			parser.readEvent(xmlStreamReader, xmlStreamReader.next());
+		}
+	}
+
+	/**
+	 * next moves the cursor to the next data element.
+	 * 
+	 * @return The CoraXmlKind of the data element the cursor is now positioned at
+	 * @throws NoSuchElementException
+	 *             if there are no more data elements
+	 */
+	public CoraXmlKind next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more data elements in xml");
+		}
+		currentToken = readTokens.removeFirst();
+		return currentToken.kind();
+	}
+
+	/**
+	 * skipGroup moves the cursor to the end of the group it is positioned at the start of. The
+	 * children of the group are read past without being classified.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the cursor is not positioned at the start of a group
+	 */
+	public void skipGroup() {
+		if (currentKind() != CoraXmlKind.START_GROUP) {
+			throw new IllegalStateException("skipGroup can only be called at the start of a group");
+		}
+		if (!possiblySkipReadTokensUntilEndOfGroup()) {
+			readTokens.clear();
+			parser.skipRestOfCurrentGroup();
+		}
+		next();
+	}
+
+	private boolean possiblySkipReadTokensUntilEndOfGroup() {
+		int depth = 0;
+		int numOfTokensToSkip = 0;
+		for (Token token : readTokens) {
+			if (token.kind() == CoraXmlKind.END_GROUP && depth == 0) {
+				skipReadTokens(numOfTokensToSkip);
+				return true;
+			}
+			depth += depthChange(token.kind());
+			numOfTokensToSkip++;
+		}
+		return false;
+	}
+
+	private int depthChange(CoraXmlKind kind) {
+		if (kind == CoraXmlKind.START_GROUP) {
+			return 1;
+		}
+		if (kind == CoraXmlKind.END_GROUP) {
+			return -1;
+		}
+		return 0;
+	}
+
+	private void skipReadTokens(int numOfTokensToSkip) {
+		for (int i = 0; i < numOfTokensToSkip; i++) {
+			readTokens.removeFirst();
+		}
+	}
+
+	/**
+	 * currentKind returns the kind of data element the cursor is positioned at.
+	 * 
+	 * @return The current CoraXmlKind, or null if {@link #next()} has not been called
+	 */
+	public CoraXmlKind currentKind() {
+		return currentToken == null ? null : currentToken.kind();
+	}
+
+	public String nameInData() {
+		return currentToken().nameInData();
+	}
+
+	private Token currentToken() {
+		if (currentToken == null) {
+			throw new IllegalStateException("next must be called before reading data elements");
+		}
+		return currentToken;
+	}
+
+	/**
+	 * attributes returns the attributes of the current data element, in document order and
+	 * without repeatId. Resource links and group ends have no attributes.
+	 * 
+	 * @return An unmodifiable Map with the attributes
+	 */
+	public Map<String, String> attributes() {
+		return currentToken().attributes();
+	}
+
+	/**
+	 * repeatId returns the repeatId of the current data element.
+	 * 
+	 * @return A String with the repeatId, empty if the data element has none
+	 */
+	public String repeatId() {
+		return currentToken().repeatId();
+	}
+
+	/**
+	 * value returns the trimmed value of the current atomic.
+	 * 
+	 * @return A String with the value, or null if the cursor is not at an atomic
+	 */
+	public String value() {
+		return currentToken().value();
+	}
+
+	/**
+	 * linkedRecordType returns the linked record type of the current record or resource link.
+	 * 
+	 * @return A String with the linked record type, or null if the cursor is not at a link
+	 */
+	public String linkedRecordType() {
+		return currentToken().linkedRecordType();
+	}
+
+	/**
+	 * linkedRecordId returns the linked record id of the current record or resource link.
+	 * 
+	 * @return A String with the linked record id, or null if the cursor is not at a link
+	 */
+	public String linkedRecordId() {
+		return currentToken().linkedRecordId();
+	}
+
+	/**
+	 * mimeType returns the mime type of the current resource link.
+	 * 
+	 * @return A String with the mime type, or null if the cursor is not at a resource link
+	 */
+	public String mimeType() {
+		return currentToken().mimeType();
+	}
+
+	/**
+	 * copyCurrentTo reports the current data element to the visitor. At the start of a group, the
+	 * whole group is reported and the cursor is moved to the end of the group.
+	 * 
+	 * @param visitor
+	 *            The CoraXmlVisitor to report to
+	 */
+	void copyCurrentTo(CoraXmlVisitor visitor) {
+		int depth = reportCurrentTo(visitor);
+		while (depth > 0) {
+			next();
+			depth += reportCurrentTo(visitor);
+		}
+	}
+
+	private int reportCurrentTo(CoraXmlVisitor visitor) {
+		Token token = currentToken();
+		switch (token.kind()) {
+			case START_GROUP -> visitor.startGroup(token.nameInData(), token.attributes(),
+					token.repeatId());
+			case END_GROUP -> visitor.endGroup(token.nameInData());
+			case ATOMIC -> visitor.atomic(token.nameInData(), token.value(), token.attributes(),
+					token.repeatId());
+			case RECORD_LINK -> visitor.recordLink(token.nameInData(), token.linkedRecordType(),
+					token.linkedRecordId(), token.attributes(), token.repeatId());
+			default -> visitor.resourceLink(token.nameInData(), token.linkedRecordType(),
+					token.linkedRecordId(), token.mimeType(), token.repeatId());
+		}
+		return depthChange(token.kind());
+	}
+
+	@Override
+	public void close() {
+		try {
+			xmlStreamReader.close();
+		} catch (XMLStreamException exception) {
+			throw new ConverterException("Unable to close xml reader: " + exception.getMessage(),
+					exception);
+		}
+	}
+
+	private record Token(CoraXmlKind kind, String nameInData, Map<String, String> attributes,
+			String repeatId, String value, String linkedRecordType, String linkedRecordId,
+			String mimeType) {
+	}
+
+	private class TokenCollector implements CoraXmlVisitor {
+
+		@Override
+		public void startGroup(String nameInData, Map<String, String> attributes,
+				String repeatId) {
+			readTokens.add(new Token(CoraXmlKind.START_GROUP, nameInData, attributes, repeatId,
+					null, null, null, null));
+		}
+
+		@Override
+		public void atomic(String nameInData, String value, Map<String, String> attributes,
+				String repeatId) {
+			readTokens.add(new Token(CoraXmlKind.ATOMIC, nameInData, attributes, repeatId, value,
+					null, null, null));
+		}
+
+		@Override
+		public void recordLink(String nameInData, String linkedRecordType, String linkedRecordId,
+				Map<String, String> attributes, String repeatId) {
+			readTokens.add(new Token(CoraXmlKind.RECORD_LINK, nameInData, attributes, repeatId,
+					null, linkedRecordType, linkedRecordId, null));
+		}
+
+		@Override
+		public void resourceLink(String nameInData, String linkedRecordType,
+				String linkedRecordId, String mimeType, String repeatId) {
+			readTokens.add(new Token(CoraXmlKind.RESOURCE_LINK, nameInData,
+					Collections.emptyMap(), repeatId, null, linkedRecordType, linkedRecordId,
+					mimeType));
+		}
+
+		@Override
+		public void endGroup(String nameInData) {
+			readTokens.add(new Token(CoraXmlKind.END_GROUP, nameInData, Collections.emptyMap(),
+					"", null, null, null, null));
+		}
+	}
+}
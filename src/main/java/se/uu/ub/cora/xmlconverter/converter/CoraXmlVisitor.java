@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.Map;
+
+/**
+ * CoraXmlVisitor receives the data elements found by {@link CoraXmlParser}, in document order.
+ * Elements are classified as groups, atomics, record links and resource links using the same rules
+ * as {@link XmlToExternallyConvertible}.
+ * <p>
+ * Attributes are given in document order, without repeatId. The repeatId is given as an empty
+ * String if the element has none.
+ */
+public interface CoraXmlVisitor {
+
+	/**
+	 * startGroup is called when a group starts, before any of its children.
+	 * 
+	 * @param nameInData
+	 *            A String with the name of the group
+	 * @param attributes
+	 *            An unmodifiable Map with the attributes of the group
+	 * @param repeatId
+	 *            A String with the repeatId of the group, empty if it has none
+	 */
+	void startGroup(String nameInData, Map<String, String> attributes, String repeatId);
+
+	/**
+	 * atomic is called for each atomic, with its trimmed value.
+	 * 
+	 * @param nameInData
+	 *            A String with the name of the atomic
+	 * @param value
+	 *            A String with the trimmed value of the atomic, never empty
+	 * @param attributes
+	 *            An unmodifiable Map with the attributes of the atomic
+	 * @param repeatId
+	 *            A String with the repeatId of the atomic, empty if it has none
+	 */
+	void atomic(String nameInData, String value, Map<String, String> attributes, String repeatId);
+
+	/**
+	 * recordLink is called for each record link.
+	 * 
+	 * @param nameInData
+	 *            A String with the name of the link
+	 * @param linkedRecordType
+	 *            A String with the trimmed type of the linked record
+	 * @param linkedRecordId
+	 *            A String with the trimmed id of the linked record
+	 * @param attributes
+	 *            An unmodifiable Map with the attributes of the link
+	 * @param repeatId
+	 *            A String with the repeatId of the link, empty if it has none
+	 */
+	void recordLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			Map<String, String> attributes, String repeatId);
+
+	/**
+	 * resourceLink is called for each resource link. Attributes on resource links are not kept
+	 * when converting xml to data, and are therefore not given here either.
+	 * 
+	 * @param nameInData
+	 *            A String with the name of the link
+	 * @param linkedRecordType
+	 *            A String with the trimmed type of the linked record
+	 * @param linkedRecordId
+	 *            A String with the trimmed id of the linked record
+	 * @param mimeType
+	 *            A String with the trimmed mime type of the resource
+	 * @param repeatId
+	 *            A String with the repeatId of the link, empty if it has none
+	 */
+	void resourceLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			String mimeType, String repeatId);
+
+	/**
+	 * endGroup is called when a group ends, after all its children.
+	 * 
+	 * @param nameInData
+	 *            A String with the name of the group
+	 */
+	void endGroup(String nameInData);
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * CoraXmlWriter writes Cora xml from events straight to a Writer, without building any data. The
+ * xml written is identical to the xml {@link ExternallyConvertibleToXml#convert} writes for the
+ * same data, so producers of large groups or lists never need to hold the whole tree.
+ * <p>
+ * Groups are started and ended explicitly, while atomics and links are written in one call. A
+ * record is written by wrapping its top group with {@link #startRecord()} and {@link #endRecord()},
+ * and a list by wrapping its records or groups with
+ * {@link #startDataList(String, String, String, String)} and {@link #endDataList()}.
+ * <p>
+ * As CoraXmlWriter implements {@link CoraXmlVisitor}, it can also be given to
+ * {@link CoraXmlParser} to write parsed xml back out.
+ * <p>
+ * The xml is serialized by {@link XmlCharWriter}, the same writer that canonical conversion
+ * uses. Written xml is buffered, call {@link #flush()} when done. CoraXmlWriter is not thread
+ * safe.
+ */
+public class CoraXmlWriter implements CoraXmlVisitor {
+
+	private static final String REPEAT_ID = "repeatId";
+	private static final String DATA_LIST = "dataList";
+	private static final String RECORD = "record";
+	private static final String DATA = "data";
+	private static final String LINKED_RECORD_TYPE = "linkedRecordType";
+	private static final String LINKED_RECORD_ID = "linkedRecordId";
+
+	private XmlCharWriter charWriter;
+	private Deque<OpenElement> openElements = new ArrayDeque<>();
+	private boolean declarationIsWritten = false;
+
+	public CoraXmlWriter(Writer writer) {
+		charWriter = new XmlCharWriter(writer);
+	}
+
+	/**
+	 * startDataList writes the start of a dataList envelope, up to where the data in the list
+	 * starts.
+	 * 
+	 * @param fromNo
+	 *            A String with the number of the first data in the list
+	 * @param toNo
+	 *            A String with the number of the last data in the list
+	 * @param totalNo
+	 *            A String with the total number of data in storage
+	 * @param containDataOfType
+	 *            A String with the type of data in the list
+	 */
+	public void startDataList(String fromNo, String toNo, String totalNo,
+			String containDataOfType) {
+		startElement(DATA_LIST, true);
+		writeTextElement("fromNo", fromNo);
+		writeTextElement("toNo", toNo);
+		writeTextElement("totalNo", totalNo);
+		writeTextElement("containDataOfType", containDataOfType);
+		startElement(DATA, true);
+	}
+
+	/**
+	 * endDataList writes the end of the dataList envelope started by
+	 * {@link #startDataList(String, String, String, String)}.
+	 */
+	public void endDataList() {
+		endElement(DATA, true);
+		endElement(DATA_LIST, true);
+	}
+
+	/**
+	 * startRecord writes the start of a record envelope. The top group of the record is to be
+	 * written next.
+	 */
+	public void startRecord() {
+		startElement(RECORD, true);
+		startElement(DATA, true);
+	}
+
+	/**
+	 * endRecord writes the end of the record envelope started by {@link #startRecord()}.
+	 */
+	public void endRecord() {
+		endElement(DATA, true);
+		endElement(RECORD, true);
+	}
+
+	@Override
+	public void startGroup(String nameInData, Map<String, String> attributes, String repeatId) {
+		startElement(nameInData, false);
+		appendAttributes(attributes, repeatId);
+	}
+
+	private void startElement(String name, boolean envelope) {
+		possiblyWriteDeclaration();
+		charWriter.startElement(name);
+		openElements.push(new OpenElement(name, envelope));
+	}
+
+	private void possiblyWriteDeclaration() {
+		if (!declarationIsWritten) {
+			charWriter.writeDeclaration();
+			declarationIsWritten = true;
+		}
+	}
+
+	private void writeTextElement(String name, String text) {
+		charWriter.startElement(name);
+		charWriter.text(text);
+		charWriter.endElement(name);
+	}
+
+	private void appendAttributes(Map<String, String> attributes, String repeatId) {
+		for (Entry<String, String> attribute : sortAttributes(attributes, repeatId).entrySet()) {
+			charWriter.attribute(attribute.getKey(), attribute.getValue());
+		}
+	}
+
+	private Map<String, String> sortAttributes(Map<String, String> attributes, String repeatId) {
+		Map<String, String> sortedAttributes = new TreeMap<>();
+		if (repeatId != null && !repeatId.isEmpty()) {
+			sortedAttributes.put(REPEAT_ID, repeatId);
+		}
+		sortedAttributes.putAll(attributes);
+		return sortedAttributes;
+	}
+
+	@Override
+	public void atomic(String nameInData, String value, Map<String, String> attributes,
+			String repeatId) {
+		startGroup(nameInData, attributes, repeatId);
+		charWriter.text(value);
+		endElement(nameInData, false);
+	}
+
+	@Override
+	public void recordLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			Map<String, String> attributes, String repeatId) {
+		startGroup(nameInData, attributes, repeatId);
+		writeTextElement(LINKED_RECORD_TYPE, linkedRecordType);
+		writeTextElement(LINKED_RECORD_ID, linkedRecordId);
+		endElement(nameInData, false);
+	}
+
+	@Override
+	public void resourceLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			String mimeType, String repeatId) {
+		resourceLink(nameInData, linkedRecordType, linkedRecordId, mimeType,
+				Collections.emptyMap(), repeatId);
+	}
+
+	/**
+	 * resourceLink writes a resource link with attributes.
+	 * 
+	 * @param nameInData
+	 *            A String with the name of the link
+	 * @param linkedRecordType
+	 *            A String with the type of the linked record
+	 * @param linkedRecordId
+	 *            A String with the id of the linked record
+	 * @param mimeType
+	 *            A String with the mime type of the resource
+	 * @param attributes
+	 *            A Map with the attributes of the link
+	 * @param repeatId
+	 *            A String with the repeatId of the link, null or empty if it has none
+	 */
+	public void resourceLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			String mimeType, Map<String, String> attributes, String repeatId) {
+		startGroup(nameInData, attributes, repeatId);
+		writeTextElement(LINKED_RECORD_TYPE, linkedRecordType);
+		writeTextElement(LINKED_RECORD_ID, linkedRecordId);
+		writeTextElement("mimeType", mimeType);
+		endElement(nameInData, false);
+	}
+
+	@Override
+	public void endGroup(String nameInData) {
+		endElement(nameInData, false);
+	}
+
+	/**
+	 * endGroup ends the innermost started group.
+	 */
+	public void endGroup() {
+		ensureOpenGroup();
+		endGroup(openElements.peek().name());
+	}
+
+	private void ensureOpenGroup() {
+		if (openElements.isEmpty() || openElements.peek().envelope()) {
+			throw new ConverterException("Unable to write xml: there is no started group to end");
+		}
+	}
+
+	private void endElement(String name, boolean envelope) {
+		ensureElementToEndIs(name, envelope);
+		openElements.pop();
+		charWriter.endElement(name);
+	}
+
+	private void ensureElementToEndIs(String name, boolean envelope) {
+		OpenElement expected = new OpenElement(name, envelope);
+		if (!expected.equals(openElements.peek())) {
+			throw new ConverterException(
+					"Unable to write xml: " + name + " can not be ended as it is not started last");
+		}
+	}
+
+	/**
+	 * flush writes all buffered xml to the writer and flushes it. The writer is not closed.
+	 */
+	public void flush() {
+		charWriter.flush();
+	}
+
+	private record OpenElement(String name, boolean envelope) {
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import se.uu.ub.cora.data.DataAtomic;
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataParent;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.DataRecordLink;
+import se.uu.ub.cora.data.DataResourceLink;
+
+/**
+ * DataGroupBuilder builds data from the elements reported by {@link CoraXmlParser}, it is what
+ * {@link XmlToExternallyConvertible} uses to build data from xml. The top group is created either
+ * as a {@link DataGroup} or as a {@link DataRecordGroup}.
+ */
+class DataGroupBuilder implements CoraXmlVisitor {
+
+	private final boolean topAsRecordGroup;
+	private final Deque<DataParent> openParents = new ArrayDeque<>();
+	private DataGroup topDataGroup;
+	private DataRecordGroup topDataRecordGroup;
+
+	private DataGroupBuilder(boolean topAsRecordGroup) {
+		this.topAsRecordGroup = topAsRecordGroup;
+	}
+
+	static DataGroupBuilder forDataGroup() {
+		return new DataGroupBuilder(false);
+	}
+
+	static DataGroupBuilder forDataRecordGroup() {
+		return new DataGroupBuilder(true);
+	}
+
+	@Override
+	public void startGroup(String nameInData, Map<String, String> attributes, String repeatId) {
+		if (openParents.isEmpty()) {
+			openParents.push(createTopGroup(nameInData, attributes));
+		} else {
+			DataGroup dataGroup = DataProvider.createGroupUsingNameInData(nameInData);
+			addToCurrentParent(dataGroup, attributes, repeatId);
+			openParents.push(dataGroup);
+		}
+	}
+
+	private DataParent createTopGroup(String nameInData, Map<String, String> attributes) {
+		if (topAsRecordGroup) {
+			return createTopDataRecordGroup(nameInData, attributes);
+		}
+		return createTopDataGroup(nameInData, attributes);
+	}
+
+	private DataParent createTopDataRecordGroup(String nameInData,
+			Map<String, String> attributes) {
+		topDataRecordGroup = DataProvider.createRecordGroupUsingNameInData(nameInData);
+		for (Entry<String, String> attribute : attributes.entrySet()) {
+			topDataRecordGroup.addAttributeByIdWithValue(attribute.getKey(), attribute.getValue());
+		}
+		return topDataRecordGroup;
+	}
+
+	private DataParent createTopDataGroup(String nameInData, Map<String, String> attributes) {
+		topDataGroup = DataProvider.createGroupUsingNameInData(nameInData);
+		addAttributes(topDataGroup, attributes);
+		return topDataGroup;
+	}
+
+	private void addToCurrentParent(DataChild dataChild, Map<String, String> attributes,
+			String repeatId) {
+		addAttributes(dataChild, attributes);
+		possiblySetRepeatId(dataChild, repeatId);
+		openParents.peek().addChild(dataChild);
+	}
+
+	private void addAttributes(DataChild dataChild, Map<String, String> attributes) {
+		for (Entry<String, String> attribute : attributes.entrySet()) {
+			dataChild.addAttributeByIdWithValue(attribute.getKey(), attribute.getValue());
+		}
+	}
+
+	private void possiblySetRepeatId(DataChild dataChild, String repeatId) {
+		if (!repeatId.isEmpty()) {
+			dataChild.setRepeatId(repeatId);
+		}
+	}
+
+	@Override
+	public void atomic(String nameInData, String value, Map<String, String> attributes,
+			String repeatId) {
+		DataAtomic dataAtomic = DataProvider.createAtomicUsingNameInDataAndValue(nameInData,
+				value);
+		addToCurrentParent(dataAtomic, attributes, repeatId);
+	}
+
+	@Override
+	public void recordLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			Map<String, String> attributes, String repeatId) {
+		DataRecordLink dataRecordLink = DataProvider
+				.createRecordLinkUsingNameInDataAndTypeAndId(nameInData, linkedRecordType,
+						linkedRecordId);
+		addToCurrentParent(dataRecordLink, attributes, repeatId);
+	}
+
+	@Override
+	public void resourceLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			String mimeType, String repeatId) {
+		DataResourceLink dataResourceLink = DataProvider
+				.createResourceLinkUsingNameInDataAndTypeAndIdAndMimeType(nameInData,
+						linkedRecordType, linkedRecordId, mimeType);
+		addToCurrentParent(dataResourceLink, Map.of(), repeatId);
+	}
+
+	@Override
+	public void endGroup(String nameInData) {
+		openParents.pop();
+	}
+
+	DataGroup getDataGroup() {
+		return topDataGroup;
+	}
+
+	DataRecordGroup getDataRecordGroup() {
+		return topDataRecordGroup;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.data.DataList;
+
+/**
+ * DataListEnvelope writes the dataList envelope around data that is already encoded as xml, so
+ * that the encoded data can be copied into the list as is. The envelope is written in the same
+ * way as when a DataList is converted.
+ * <p>
+ * A leading xml declaration, as written when converting, is left out of each encoded data.
+ */
+final class DataListEnvelope {
+	static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String DATA_START = "<data>";
+	private static final String DATA_END = "</data></dataList>";
+	private static final String EMPTY_DATA_END = "<data/></dataList>";
+	private static final byte[] XML_DECLARATION_BYTES = XML_DECLARATION
+			.getBytes(StandardCharsets.UTF_8);
+	private static final ByteBuffer DATA_END_BUFFER = toReadOnlyBuffer(DATA_END);
+	private static final ByteBuffer EMPTY_DATA_END_BUFFER = toReadOnlyBuffer(EMPTY_DATA_END);
+
+	private DataListEnvelope() {
+	}
+
+	static String encode(DataList dataList, List<String> encodedData, boolean checkBoundaries) {
+		String start = encodeStart(dataList);
+		StringBuilder out = new StringBuilder(
+				start.length() + DATA_START.length() + DATA_END.length() + sumOfLengths(encodedData));
+		out.append(start);
+		if (encodedData.isEmpty()) {
+			return out.append(EMPTY_DATA_END).toString();
+		}
+		out.append(DATA_START);
+		for (int position = 0; position < encodedData.size(); position++) {
+			appendEncodedData(out, encodedData.get(position), position, checkBoundaries);
+		}
+		return out.append(DATA_END).toString();
+	}
+
+	private static ByteBuffer toReadOnlyBuffer(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+	}
+
+	static EncodedDataList encodeToByteBuffers(DataList dataList, List<ByteBuffer> encodedData) {
+		ByteBuffer[] byteBuffers = new ByteBuffer[encodedData.size() + 2];
+		if (encodedData.isEmpty()) {
+			byteBuffers[0] = toReadOnlyBuffer(encodeStart(dataList));
+			byteBuffers[1] = EMPTY_DATA_END_BUFFER.duplicate();
+			return new EncodedDataList(byteBuffers);
+		}
+		byteBuffers[0] = toReadOnlyBuffer(encodeStart(dataList) + DATA_START);
+		for (int i = 0; i < encodedData.size(); i++) {
+			byteBuffers[i + 1] = withoutXmlDeclaration(encodedData.get(i));
+		}
+		byteBuffers[byteBuffers.length - 1] = DATA_END_BUFFER.duplicate();
+		return new EncodedDataList(byteBuffers);
+	}
+
+	static ByteBuffer withoutXmlDeclaration(ByteBuffer encodedData) {
+		ByteBuffer view = encodedData.asReadOnlyBuffer();
+		if (startsWithXmlDeclaration(view)) {
+			view.position(view.position() + XML_DECLARATION_BYTES.length);
+		}
+		return view;
+	}
+
+	private static boolean startsWithXmlDeclaration(ByteBuffer view) {
+		if (view.remaining() < XML_DECLARATION_BYTES.length) {
+			return false;
+		}
+		int start = view.position();
+		for (int i = 0; i < XML_DECLARATION_BYTES.length; i++) {
+			if (view.get(start + i) != XML_DECLARATION_BYTES[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static String encodeStart(DataList dataList) {
+		StringBuilder out = new StringBuilder(XML_DECLARATION);
+		out.append("<dataList>");
+		EncodedElement.appendElementWithText(out, "fromNo", dataList.getFromNo());
+		EncodedElement.appendElementWithText(out, "toNo", dataList.getToNo());
+		EncodedElement.appendElementWithText(out, "totalNo",
+				dataList.getTotalNumberOfTypeInStorage());
+		EncodedElement.appendElementWithText(out, "containDataOfType",
+				dataList.getContainDataOfType());
+		return out.toString();
+	}
+
+	private static int sumOfLengths(List<String> encodedData) {
+		int sum = 0;
+		for (String data : encodedData) {
+			sum += data.length();
+		}
+		return sum;
+	}
+
+	private static void appendEncodedData(StringBuilder out, String data, int position,
+			boolean checkBoundaries) {
+		int start = startOfElement(data);
+		if (checkBoundaries) {
+			ensureDataIsOneElement(data, start, position);
+		}
+		out.append(data, start, data.length());
+	}
+
+	static int startOfElement(String data) {
+		if (data.startsWith(XML_DECLARATION)) {
+			return XML_DECLARATION.length();
+		}
+		return 0;
+	}
+
+	/**
+	 * ensureDataIsOneElement only checks the boundaries of the data, that it starts with a start
+	 * tag and ends with the matching end tag, or is one empty element. The content between the
+	 * boundaries is not checked.
+	 */
+	static void ensureDataIsOneElement(String data, int start, int position) {
+		String name = readStartTagName(data, start);
+		if (name.isEmpty() || !endsWithEndTagFor(data, start, name)) {
+			throw new ConverterException(
+					"Encoded data at position " + position + " is not one xml element");
+		}
+	}
+
+	private static String readStartTagName(String data, int start) {
+		if (data.length() <= start + 1 || data.charAt(start) != '<') {
+			return "";
+		}
+		int end = start + 1;
+		while (end < data.length() && isNameCharacter(data.charAt(end))) {
+			end++;
+		}
+		return data.substring(start + 1, end);
+	}
+
+	private static boolean isNameCharacter(char character) {
+		return !Character.isWhitespace(character) && "<>/?!=\"'".indexOf(character) == -1;
+	}
+
+	private static boolean endsWithEndTagFor(String data, int start, String name) {
+		if (data.endsWith("</" + name + ">")) {
+			return true;
+		}
+		return data.endsWith("/>") && data.indexOf('<', start + 1) == -1;
+	}
+}
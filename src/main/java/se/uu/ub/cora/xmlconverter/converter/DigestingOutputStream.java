@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32C;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * DigestingOutputStream passes all bytes on to the underlying stream, updating a SHA-256 digest,
+ * a CRC32C checksum and a byte count with the same bytes on the way.
+ */
+class DigestingOutputStream extends FilterOutputStream {
+
+	private final MessageDigest sha256;
+	private final CRC32C crc32c = new CRC32C();
+	private long length = 0;
+
+	DigestingOutputStream(OutputStream outputStream) {
+		super(outputStream);
+		sha256 = createSha256Digest();
+	}
+
+	static MessageDigest createSha256Digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException exception) {
+			throw new ConverterException("Unable to create SHA-256 digest", exception);
+		}
+	}
+
+	@Override
+	public void write(int oneByte) throws IOException {
+		out.write(oneByte);
+		sha256.update((byte) oneByte);
+		crc32c.update(oneByte);
+		length++;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int numOfBytes) throws IOException {
+		out.write(bytes, offset, numOfBytes);
+		sha256.update(bytes, offset, numOfBytes);
+		crc32c.update(bytes, offset, numOfBytes);
+		length += numOfBytes;
+	}
+
+	XmlDigest toXmlDigest() {
+		return new XmlDigest(sha256.digest(), crc32c.getValue(), length);
+	}
+}
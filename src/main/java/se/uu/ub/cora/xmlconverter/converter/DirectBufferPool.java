@@ -0,0 +1,179 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DirectBufferPool keeps reusable direct ByteBuffers in a few size classes, so that the encoded
+ * bytes of converted xml end up in off heap memory that is reused between responses and can be
+ * written to NIO channels without a further copy. Only the buffers holding the result are pooled,
+ * the conversion itself still allocates on the heap as usual.
+ * <p>
+ * Buffers are handed out as part of a {@link PooledXml} and are returned to the pool when it is
+ * released. A PooledXml that becomes unreachable without being released is counted as a leak,
+ * its buffers are then left to the garbage collector instead of being returned to the pool.
+ * Released buffers that do not match a size class of the pool, or are not direct, are never
+ * pooled.
+ * <p>
+ * The pool is thread safe and is intended to be shared between converters.
+ */
+public final class DirectBufferPool {
+	static final int[] SIZE_CLASSES = { 4 * 1024, 32 * 1024, 256 * 1024 };
+	private static final int NO_SIZE_CLASS = -1;
+	private static final Cleaner LEAK_DETECTOR = Cleaner.create();
+
+	private final int maxPooledBuffersPerSizeClass;
+	private final List<Queue<ByteBuffer>> pooledBuffers = new ArrayList<>();
+	private final List<AtomicInteger> numOfPooledBuffers = new ArrayList<>();
+	private final AtomicInteger numOfBuffersInUse = new AtomicInteger();
+	private final AtomicLong numOfLeakedBuffers = new AtomicLong();
+
+	/**
+	 * DirectBufferPool creates an empty pool, buffers are allocated when needed.
+	 * 
+	 * @param maxPooledBuffersPerSizeClass
+	 *            An int with the maximum number of free buffers kept for each size class, buffers
+	 *            released when a size class is full are left to the garbage collector
+	 */
+	public DirectBufferPool(int maxPooledBuffersPerSizeClass) {
+		this.maxPooledBuffersPerSizeClass = maxPooledBuffersPerSizeClass;
+		for (int sizeClass = 0; sizeClass < SIZE_CLASSES.length; sizeClass++) {
+			pooledBuffers.add(new ConcurrentLinkedQueue<>());
+			numOfPooledBuffers.add(new AtomicInteger());
+		}
+	}
+
+	ByteBuffer acquire(int sizeClass) {
+		numOfBuffersInUse.incrementAndGet();
+		ByteBuffer pooledBuffer = pooledBuffers.get(sizeClass).poll();
+		if (pooledBuffer == null) {
+			return ByteBuffer.allocateDirect(SIZE_CLASSES[sizeClass]);
+		}
+		numOfPooledBuffers.get(sizeClass).decrementAndGet();
+		return pooledBuffer.clear();
+	}
+
+	void release(ByteBuffer buffer) {
+		numOfBuffersInUse.decrementAndGet();
+		int sizeClass = findSizeClass(buffer.capacity());
+		if (sizeClass == NO_SIZE_CLASS || !buffer.isDirect()) {
+			return;
+		}
+		possiblyPoolBuffer(buffer, sizeClass);
+	}
+
+	private void possiblyPoolBuffer(ByteBuffer buffer, int sizeClass) {
+		AtomicInteger numInSizeClass = numOfPooledBuffers.get(sizeClass);
+		if (numInSizeClass.incrementAndGet() <= maxPooledBuffersPerSizeClass) {
+			pooledBuffers.get(sizeClass).offer(buffer);
+		} else {
+			numInSizeClass.decrementAndGet();
+		}
+	}
+
+	private int findSizeClass(int capacity) {
+		for (int sizeClass = 0; sizeClass < SIZE_CLASSES.length; sizeClass++) {
+			if (SIZE_CLASSES[sizeClass] == capacity) {
+				return sizeClass;
+			}
+		}
+		return NO_SIZE_CLASS;
+	}
+
+	/**
+	 * trackUntilReleased starts leak detection for buffers owned by owner. The returned Runnable
+	 * returns the buffers to the pool, running it more than once has no further effect. If the
+	 * owner becomes unreachable before the Runnable is run, the buffers are counted as leaked.
+	 */
+	Runnable trackUntilReleased(Object owner, List<ByteBuffer> buffers) {
+		BuffersInUse buffersInUse = new BuffersInUse(buffers);
+		Cleanable cleanable = LEAK_DETECTOR.register(owner, buffersInUse);
+		return () -> {
+			buffersInUse.released = true;
+			cleanable.clean();
+		};
+	}
+
+	/**
+	 * getNumberOfBuffersInUse returns the number of buffers that are handed out and not yet
+	 * released or detected as leaked.
+	 * 
+	 * @return An int with the number of buffers in use
+	 */
+	public int getNumberOfBuffersInUse() {
+		return numOfBuffersInUse.get();
+	}
+
+	/**
+	 * getNumberOfPooledBuffers returns the number of free buffers, in all size classes, that are
+	 * kept for reuse.
+	 * 
+	 * @return An int with the number of pooled buffers
+	 */
+	public int getNumberOfPooledBuffers() {
+		int sum = 0;
+		for (AtomicInteger numInSizeClass : numOfPooledBuffers) {
+			sum += numInSizeClass.get();
+		}
+		return sum;
+	}
+
+	/**
+	 * getNumberOfLeakedBuffers returns the number of buffers whose owner became unreachable
+	 * without first releasing them. A number above zero means that some caller does not release
+	 * its {@link PooledXml}.
+	 * 
+	 * @return A long with the number of leaked buffers
+	 */
+	public long getNumberOfLeakedBuffers() {
+		return numOfLeakedBuffers.get();
+	}
+
+	private final class BuffersInUse implements Runnable {
+		private final List<ByteBuffer> buffers;
+		private volatile boolean released = false;
+
+		private BuffersInUse(List<ByteBuffer> buffers) {
+			this.buffers = buffers;
+		}
+
+		@Override
+		public void run() {
+			if (released) {
+				buffers.forEach(DirectBufferPool.this::release);
+			} else {
+				registerLeak();
+			}
+		}
+
+		private void registerLeak() {
+			numOfBuffersInUse.addAndGet(-buffers.size());
+			numOfLeakedBuffers.addAndGet(buffers.size());
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.xml.transform.Result;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * DomXmlOutput builds elements in a DOM document, to be serialized by a transformer. An element
+ * started outside any other element becomes the document element, replacing any earlier one, so
+ * one document can be reused for several data written one at a time.
+ * <p>
+ * Pre-encoded xml is added as a text node between processing instructions that disable and enable
+ * output escaping, both named {@link WithAndWithoutLinksHandler#LINK_FRAGMENT}, so the transformer
+ * writes it as is and {@link WithAndWithoutLinksHandler} can recognize it.
+ */
+class DomXmlOutput implements XmlOutput {
+
+	private Document document;
+	private Deque<Element> openElements = new ArrayDeque<>();
+
+	DomXmlOutput(Document document) {
+		this.document = document;
+	}
+
+	@Override
+	public void startElement(String name) {
+		Element element = document.createElement(name);
+		if (openElements.isEmpty()) {
+			replaceDocumentElement(element);
+		} else {
+			openElements.peek().appendChild(element);
+		}
+		openElements.push(element);
+	}
+
+	private void replaceDocumentElement(Element element) {
+		Element previousDocumentElement = document.getDocumentElement();
+		if (previousDocumentElement != null) {
+			document.removeChild(previousDocumentElement);
+		}
+		document.appendChild(element);
+	}
+
+	@Override
+	public void attribute(String name, String value) {
+		openElements.peek().setAttribute(name, value);
+	}
+
+	@Override
+	public void text(String text) {
+		if (text != null && !text.isEmpty()) {
+			openElements.peek().appendChild(document.createTextNode(text));
+		}
+	}
+
+	@Override
+	public void preEncoded(PreEncodedFragment fragment) {
+		Element element = openElements.peek();
+		element.appendChild(document.createProcessingInstruction(
+				Result.PI_DISABLE_OUTPUT_ESCAPING, WithAndWithoutLinksHandler.LINK_FRAGMENT));
+		element.appendChild(document.createTextNode(fragment.encode()));
+		element.appendChild(document.createProcessingInstruction(Result.PI_ENABLE_OUTPUT_ESCAPING,
+				WithAndWithoutLinksHandler.LINK_FRAGMENT));
+	}
+
+	@Override
+	public void endElement(String name) {
+		openElements.pop();
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * EncodedDataList is a dataList encoded as UTF-8 xml held as a sequence of ByteBuffers, a header
+ * with the list information, one buffer for each data and a footer. The buffers can be written
+ * using gathering writes without first being copied into one large buffer.
+ */
+public final class EncodedDataList {
+
+	private final ByteBuffer[] byteBuffers;
+	private final long length;
+
+	EncodedDataList(ByteBuffer[] byteBuffers) {
+		this.byteBuffers = byteBuffers;
+		length = calculateLength(byteBuffers);
+	}
+
+	private static long calculateLength(ByteBuffer[] byteBuffers) {
+		long sum = 0;
+		for (ByteBuffer byteBuffer : byteBuffers) {
+			sum += byteBuffer.remaining();
+		}
+		return sum;
+	}
+
+	/**
+	 * getByteBuffers returns read only views of the buffers, in order, that can be used for
+	 * scatter/gather I/O. Each call returns new views, so the list can be written more than once.
+	 * 
+	 * @return An array of ByteBuffers with the encoded dataList
+	 */
+	public ByteBuffer[] getByteBuffers() {
+		ByteBuffer[] views = new ByteBuffer[byteBuffers.length];
+		for (int i = 0; i < byteBuffers.length; i++) {
+			views[i] = byteBuffers[i].asReadOnlyBuffer();
+		}
+		return views;
+	}
+
+	/**
+	 * getLength returns the total number of bytes in the encoded dataList.
+	 * 
+	 * @return A long with the number of bytes
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * writeTo writes the encoded dataList to the channel using gathering writes. On a blocking
+	 * channel this is normally one write. Writing continues until all bytes are written, so a non
+	 * blocking channel should instead use {@link #getByteBuffers()}.
+	 * 
+	 * @param channel
+	 *            A GatheringByteChannel to write to
+	 * @return A long with the number of bytes written
+	 * @throws IOException
+	 *             if writing to the channel fails
+	 */
+	public long writeTo(GatheringByteChannel channel) throws IOException {
+		ByteBuffer[] views = getByteBuffers();
+		long written = 0;
+		while (written < length) {
+			written += channel.write(views);
+		}
+		return written;
+	}
+}
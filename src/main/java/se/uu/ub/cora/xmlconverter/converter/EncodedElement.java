@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+/**
+ * EncodedElement appends encoded elements with text in the same way as the elements are
+ * serialized from the dom, where an element without text is written as an empty element.
+ */
+final class EncodedElement {
+
+	private EncodedElement() {
+	}
+
+	static void appendElementWithText(StringBuilder out, String tagName, String text) {
+		if (text == null || text.isEmpty()) {
+			out.append('<').append(tagName).append("/>");
+		} else {
+			out.append('<').append(tagName).append('>');
+			XmlEscaper.appendEscapedText(out, text);
+			out.append("</").append(tagName).append('>');
+		}
+	}
+}
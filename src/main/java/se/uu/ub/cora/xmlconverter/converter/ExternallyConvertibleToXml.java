@@ -1,5 +1,5 @@
 /*
- * Copyright 2019, 2021, 2024, 2025 Uppsala University Library
+ * Copyright 2019, 2021, 2024, 2025, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -18,645 +18,476 @@
  */
 package se.uu.ub.cora.xmlconverter.converter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
-import java.util.Collection;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 import se.uu.ub.cora.converter.ConverterException;
 import se.uu.ub.cora.converter.ExternalUrls;
 import se.uu.ub.cora.converter.ExternallyConvertibleToStringConverter;
-import se.uu.ub.cora.data.Action;
 import se.uu.ub.cora.data.Data;
-import se.uu.ub.cora.data.DataAtomic;
-import se.uu.ub.cora.data.DataAttribute;
-import se.uu.ub.cora.data.DataChild;
 import se.uu.ub.cora.data.DataGroup;
-import se.uu.ub.cora.data.DataLink;
 import se.uu.ub.cora.data.DataList;
-import se.uu.ub.cora.data.DataProvider;
 import se.uu.ub.cora.data.DataRecord;
 import se.uu.ub.cora.data.DataRecordGroup;
-import se.uu.ub.cora.data.DataRecordLink;
-import se.uu.ub.cora.data.DataResourceLink;
 import se.uu.ub.cora.data.ExternallyConvertible;
 
 public class ExternallyConvertibleToXml implements ExternallyConvertibleToStringConverter {
 
-	private static final String ACCEPT = "accept";
-	private static final String INDEX = "index";
-	private static final String WORK_ORDER = "workOrder";
-	private static final String GET = "GET";
-	private static final String POST = "POST";
-	private static final String CONTENT_TYPE = "contentType";
-	private static final String APPLICATION_VND_CORA_RECORD_LIST_XML = "application/vnd.cora.recordList+xml";
-	private static final String APPLICATION_VND_CORA_RECORD_XML = "application/vnd.cora.record+xml";
-	private static final String APPLICATION_VND_CORA_RECORDGROUP_XML = "application/vnd.cora.recordgroup+xml";
+	private static final String UNABLE_TO_CONVERT = "Unable to convert from dataElement to xml";
 	private DocumentBuilderFactory documentBuilderFactory;
 	private TransformerFactory transformerFactory;
-	private Document domDocument;
-	private boolean linksMustBeAdded;
-	private String recordType;
-	private String recordId;
-	private ExternalUrls externalUrls;
+	private Transformer transformer;
+	private ActionLinkTemplates actionLinkTemplates;
+	private OutputSizeEstimates outputSizeEstimates;
 
 	public ExternallyConvertibleToXml(DocumentBuilderFactory documentBuildeFactory,
 			TransformerFactory transformerFactory) {
+		this(documentBuildeFactory, transformerFactory, new OutputSizeEstimates());
+	}
+
+	/**
+	 * ExternallyConvertibleToXml creates a converter that pre-sizes its output using, and
+	 * updates, the given outputSizeEstimates, which can be shared between converters.
+	 */
+	public ExternallyConvertibleToXml(DocumentBuilderFactory documentBuildeFactory,
+			TransformerFactory transformerFactory, OutputSizeEstimates outputSizeEstimates) {
 		this.documentBuilderFactory = documentBuildeFactory;
 		this.transformerFactory = transformerFactory;
+		this.outputSizeEstimates = outputSizeEstimates;
 	}
 
 	@Override
 	public String convert(ExternallyConvertible externallyConvertible) {
-		linksMustBeAdded = false;
-		return tryToConvertExternallyConvertibleToXml(externallyConvertible);
+		return convert(externallyConvertible, XmlConversionOptions.withoutLinks());
 	}
 
 	@Override
 	public String convertWithLinks(ExternallyConvertible externallyConvertible,
 			ExternalUrls externalUrls) {
-		linksMustBeAdded = true;
-		this.externalUrls = externalUrls;
-		return tryToConvertExternallyConvertibleToXml(externallyConvertible);
-	}
-
-	private String tryToConvertExternallyConvertibleToXml(
-			ExternallyConvertible externallyConvertible) {
+		return convert(externallyConvertible, XmlConversionOptions.withLinks(externalUrls));
+	}
+
+	/**
+	 * convert converts the externallyConvertible as told by the options, see
+	 * {@link XmlConversionOptions}.
+	 * 
+	 * @param externallyConvertible
+	 *            An ExternallyConvertible to convert
+	 * @param options
+	 *            The XmlConversionOptions to convert with
+	 * @return A String with the converted xml
+	 */
+	public String convert(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options) {
+		String outputSizeKey = createOutputSizeKey(externallyConvertible, options);
+		StringWriter xmlWriter = new StringWriter(outputSizeEstimates.getEstimate(outputSizeKey));
+		tryToWriteXml(externallyConvertible, options, new StreamResult(xmlWriter));
+		String xml = xmlWriter.toString();
+		outputSizeEstimates.registerSize(outputSizeKey, xml.length());
+		return xml;
+	}
+
+	/**
+	 * convertWithAndWithoutLinks converts the externallyConvertible once and returns both the xml
+	 * that {@link #convert(ExternallyConvertible)} and the xml that
+	 * {@link #convertWithLinks(ExternallyConvertible, ExternalUrls)} would have returned.
+	 * 
+	 * @param externallyConvertible
+	 *            An ExternallyConvertible to convert
+	 * @param externalUrls
+	 *            The ExternalUrls to use when creating links
+	 * @return A XmlWithAndWithoutLinks with both results
+	 */
+	public XmlWithAndWithoutLinks convertWithAndWithoutLinks(
+			ExternallyConvertible externallyConvertible, ExternalUrls externalUrls) {
 		try {
-			return convertExternallyConvertibleToXml(externallyConvertible);
-		} catch (ParserConfigurationException exception) {
-			throw new ConverterException("Unable to convert from dataElement to xml", exception);
+			Document domDocument = createDomDocument(externallyConvertible,
+					XmlConversionOptions.withLinks(externalUrls));
+			return convertDomDocumentToXmlWithAndWithoutLinks(domDocument);
+		} catch (ParserConfigurationException | TransformerException exception) {
+			throw new ConverterException(UNABLE_TO_CONVERT, exception);
 		}
 	}
 
-	private String convertExternallyConvertibleToXml(ExternallyConvertible externallyConvertible)
-			throws ParserConfigurationException {
-		createDomDocumentForExternallyConvertible(externallyConvertible);
-		return tryToConvertDomDocumentToXml();
-	}
-
-	private void createDomDocumentForExternallyConvertible(
-			ExternallyConvertible externallyConvertible) throws ParserConfigurationException {
-		domDocument = createAndInitializeDomDocument();
-		if (isDataList(externallyConvertible)) {
-			addDataListToDomDocument((DataList) externallyConvertible);
-		} else if (isDataRecord(externallyConvertible)) {
-			addDataRecordToDomDocument((DataRecord) externallyConvertible);
-		} else {
-			addDataGroupToDomDocument((DataGroup) externallyConvertible);
+	/**
+	 * convertDataListWithEncodedData writes a dataList using the list information from the
+	 * dataList and the already encoded xml for each data. The encoded data is copied into the list
+	 * as is, without being converted again. The data in the dataList is not used.
+	 * 
+	 * @param dataList
+	 *            A DataList with the list information to write
+	 * @param encodedData
+	 *            A List with encoded xml for each data in the list, with or without a leading xml
+	 *            declaration
+	 * @return A String with the dataList xml
+	 */
+	public String convertDataListWithEncodedData(DataList dataList, List<String> encodedData) {
+		return DataListEnvelope.encode(dataList, encodedData, false);
+	}
+
+	/**
+	 * convertDataListWithCheckedEncodedData works as
+	 * {@link #convertDataListWithEncodedData(DataList, List)} but first checks that each encoded
+	 * data starts with a start tag and ends with the matching end tag, or is one empty element.
+	 * Only the boundaries are checked, not the content between them.
+	 * 
+	 * @throws ConverterException
+	 *             if an encoded data does not have the boundaries of one xml element
+	 */
+	public String convertDataListWithCheckedEncodedData(DataList dataList,
+			List<String> encodedData) {
+		return DataListEnvelope.encode(dataList, encodedData, true);
+	}
+
+	/**
+	 * convertDataListToByteBuffers converts the dataList in the same way as
+	 * {@link #convert(ExternallyConvertible, XmlConversionOptions)}, but returns the result as an
+	 * {@link EncodedDataList} with one buffer for each data instead of as one String.
+	 * 
+	 * @param dataList
+	 *            A DataList to convert
+	 * @param options
+	 *            The XmlConversionOptions to convert with
+	 * @return An EncodedDataList with the converted dataList
+	 */
+	public EncodedDataList convertDataListToByteBuffers(DataList dataList,
+			XmlConversionOptions options) {
+		try {
+			return encodeEachDataToByteBuffer(dataList, options);
+		} catch (ParserConfigurationException | TransformerException exception) {
+			throw new ConverterException(UNABLE_TO_CONVERT, exception);
 		}
 	}
 
-	private Document createAndInitializeDomDocument() throws ParserConfigurationException {
-		DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
-		Document newDomDocument = builder.newDocument();
-		newDomDocument.setXmlStandalone(true);
-		return newDomDocument;
-	}
-
-	private boolean isDataList(ExternallyConvertible externallyConvertible) {
-		return externallyConvertible instanceof DataList;
-	}
-
-	private void addDataListToDomDocument(DataList dataList) {
-		Element listDomElement = domDocument.createElement("dataList");
-		domDocument.appendChild(listDomElement);
-		addListInfoToDomDocument(dataList, listDomElement);
-		Element dataDomElement = createDataElement(listDomElement);
-		addAllDatasFromDataListToDomDocument(dataList, dataDomElement);
-	}
-
-	private void addListInfoToDomDocument(DataList dataList, Element listDomElement) {
-		listDomElement.appendChild(createElementWithTextContent("fromNo", dataList.getFromNo()));
-		listDomElement.appendChild(createElementWithTextContent("toNo", dataList.getToNo()));
-		listDomElement.appendChild(
-				createElementWithTextContent("totalNo", dataList.getTotalNumberOfTypeInStorage()));
-		listDomElement.appendChild(
-				createElementWithTextContent("containDataOfType", dataList.getContainDataOfType()));
-	}
-
-	private Element createDataElement(Element listDomElement) {
-		Element dataDomElement = domDocument.createElement("data");
-		listDomElement.appendChild(dataDomElement);
-		return dataDomElement;
-	}
-
-	private void addAllDatasFromDataListToDomDocument(DataList dataList, Element dataDomElement) {
-		for (Data data : dataList.getDataList()) {
-			Element element = createDomElementForData(data);
-			dataDomElement.appendChild(element);
+	/**
+	 * convertDataListWithEncodedDataToByteBuffers works as
+	 * {@link #convertDataListWithEncodedData(DataList, List)}, but takes the encoded data as
+	 * UTF-8 ByteBuffers and returns an {@link EncodedDataList} that refers to them without
+	 * copying them.
+	 * 
+	 * @param dataList
+	 *            A DataList with the list information to write
+	 * @param encodedData
+	 *            A List with UTF-8 encoded xml for each data in the list, with or without a
+	 *            leading xml declaration
+	 * @return An EncodedDataList with the dataList
+	 */
+	public EncodedDataList convertDataListWithEncodedDataToByteBuffers(DataList dataList,
+			List<ByteBuffer> encodedData) {
+		return DataListEnvelope.encodeToByteBuffers(dataList, encodedData);
+	}
+
+	/**
+	 * convertToChunkedXml converts in the same way as
+	 * {@link #convert(ExternallyConvertible, XmlConversionOptions)}, but returns the xml as a
+	 * {@link ChunkedXml} made of chunks of at most chunkSize chars instead of as one String. The
+	 * xml is written into the chunks as it is serialized, so no allocation grows with the size of
+	 * the xml.
+	 * 
+	 * @param externallyConvertible
+	 *            An ExternallyConvertible to convert
+	 * @param options
+	 *            The XmlConversionOptions to convert with
+	 * @param chunkSize
+	 *            An int with the number of chars in each chunk, see
+	 *            {@link ChunkedXml#DEFAULT_CHUNK_SIZE}
+	 * @return A ChunkedXml with the converted xml
+	 */
+	public ChunkedXml convertToChunkedXml(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options, int chunkSize) {
+		ChunkedXmlWriter xmlWriter = new ChunkedXmlWriter(chunkSize);
+		tryToWriteXml(externallyConvertible, options, new StreamResult(xmlWriter));
+		return xmlWriter.toChunkedXml();
+	}
+
+	/**
+	 * convertToStream converts in the same way as
+	 * {@link #convert(ExternallyConvertible, XmlConversionOptions)}, but writes the xml as UTF-8
+	 * to the outputStream, compressed as it is written. The outputStream is not closed.
+	 * 
+	 * @param externallyConvertible
+	 *            An ExternallyConvertible to convert
+	 * @param options
+	 *            The XmlConversionOptions to convert with
+	 * @param outputStream
+	 *            An OutputStream to write the xml to
+	 * @param compression
+	 *            The XmlCompression to write the xml with
+	 * @param compressionLevel
+	 *            An int with the compression level, 0-9 or -1 for the default level, ignored for
+	 *            {@link XmlCompression#NONE}
+	 */
+	public void convertToStream(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options, OutputStream outputStream, XmlCompression compression,
+			int compressionLevel) {
+		try {
+			OutputStream compressingStream = compression.compress(outputStream, compressionLevel);
+			writeXmlAndFinish(externallyConvertible, options, compressingStream, compression,
+					compressingStream);
+		} catch (ParserConfigurationException | TransformerException | IOException exception) {
+			throw new ConverterException(UNABLE_TO_CONVERT, exception);
 		}
 	}
 
-	private String tryToConvertDomDocumentToXml() {
+	private void writeXmlAndFinish(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options, OutputStream xmlStream, XmlCompression compression,
+			OutputStream compressingStream)
+			throws ParserConfigurationException, TransformerException, IOException {
 		try {
-			return convertDomDocumentToXml();
-		} catch (TransformerException exception) {
-			throw new ConverterException("Unable to convert from dataElement to xml", exception);
+			writeXml(externallyConvertible, options, new StreamResult(xmlStream));
+			compression.finish(compressingStream);
+		} finally {
+			compression.end(compressingStream);
 		}
 	}
 
-	private String convertDomDocumentToXml() throws TransformerException {
-		DOMSource domSource = new DOMSource(domDocument);
-		StringWriter xmlWriter = new StringWriter();
-		StreamResult xmlResult = new StreamResult(xmlWriter);
-
-		Transformer transformer = transformerFactory.newTransformer();
-		transformer.transform(domSource, xmlResult);
-
-		return xmlWriter.toString();
-	}
-
-	private boolean isDataRecord(ExternallyConvertible externallyConvertible) {
-		return externallyConvertible instanceof DataRecord;
-	}
-
-	private Element createDomElementForData(Data data) {
-		if (isDataRecord(data)) {
-			return createDomElementFromDataRecord((DataRecord) data);
+	/**
+	 * convertToStreamWithDigest works as
+	 * {@link #convertToStream(ExternallyConvertible, XmlConversionOptions, OutputStream, XmlCompression, int)},
+	 * and also computes checksums and the length of the xml as it is written. The digest covers
+	 * the uncompressed xml, before it is compressed, so it is the same whichever compression is
+	 * used. Its ETag is therefore weak, and its length is the length of the uncompressed xml.
+	 * 
+	 * @return An XmlDigest for the uncompressed xml
+	 */
+	public XmlDigest convertToStreamWithDigest(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options, OutputStream outputStream, XmlCompression compression,
+			int compressionLevel) {
+		try {
+			OutputStream compressingStream = compression.compress(outputStream, compressionLevel);
+			DigestingOutputStream digestingStream = new DigestingOutputStream(compressingStream);
+			writeXmlAndFinish(externallyConvertible, options, digestingStream, compression,
+					compressingStream);
+			return digestingStream.toXmlDigest();
+		} catch (ParserConfigurationException | TransformerException | IOException exception) {
+			throw new ConverterException(UNABLE_TO_CONVERT, exception);
 		}
-		return createDomElementFromDataGroup((DataGroup) data);
-	}
-
-	private boolean isDataRecord(Data data) {
-		return data instanceof DataRecord;
-	}
-
-	private Element createDomElementFromDataRecord(DataRecord dataRecord) {
-		Element recordDomElement = domDocument.createElement("record");
-		Element dataDomElement = domDocument.createElement("data");
-		recordDomElement.appendChild(dataDomElement);
-
-		addTopDataGroup(dataRecord, dataDomElement);
-		possiblyAddActionLinks(dataRecord, recordDomElement);
-		possiblyAddPermissions(dataRecord, recordDomElement);
-		possiblyAddOtherProtocols(dataRecord, recordDomElement);
-		return recordDomElement;
-	}
-
-	private void addDataRecordToDomDocument(DataRecord dataRecord) {
-		Element recordDomElement = createDomElementFromDataRecord(dataRecord);
-		domDocument.appendChild(recordDomElement);
 	}
 
-	private void addTopDataGroup(DataRecord dataRecord, Element dataDomElement) {
-		DataRecordGroup recordGroup = dataRecord.getDataRecordGroup();
-
-		DataGroup topDataGroup = DataProvider.createGroupFromRecordGroup(recordGroup);
-
-		recordType = dataRecord.getType();
-		recordId = dataRecord.getId();
-
-		Element groupDomElement = createDomElementFromDataGroup(topDataGroup);
-		dataDomElement.appendChild(groupDomElement);
-	}
-
-	private void possiblyAddActionLinks(DataRecord dataRecord, Element recordDomElement) {
-		if (linksMustBeAdded && dataRecord.hasActions()) {
-			addExistingActionLinks(dataRecord, recordDomElement);
+	/**
+	 * convertToPooledXml converts in the same way as
+	 * {@link #convert(ExternallyConvertible, XmlConversionOptions)}, but writes the xml as UTF-8
+	 * into direct buffers borrowed from the pool. The returned {@link PooledXml} must be released
+	 * once it has been written.
+	 * <p>
+	 * The xml is written as chars straight into the buffers, without building a DOM document, with
+	 * attributes sorted as the DOM sorts them, so the xml is the same as convert returns.
+	 * 
+	 * @param externallyConvertible
+	 *            An ExternallyConvertible to convert
+	 * @param options
+	 *            The XmlConversionOptions to convert with
+	 * @param pool
+	 *            A DirectBufferPool to borrow buffers from
+	 * @return A PooledXml with the converted xml
+	 */
+	public PooledXml convertToPooledXml(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options, DirectBufferPool pool) {
+		PooledBufferOutputStream xmlOutputStream = new PooledBufferOutputStream(pool);
+		try {
+			writeXmlAsChars(externallyConvertible, options,
+					new OutputStreamWriter(xmlOutputStream, StandardCharsets.UTF_8));
+			return xmlOutputStream.toPooledXml();
+		} catch (RuntimeException exception) {
+			xmlOutputStream.releaseBuffers();
+			throw exception;
 		}
 	}
 
-	private void addExistingActionLinks(DataRecord dataRecord, Element recordDomElement) {
-		List<Action> actions = dataRecord.getActions();
-
-		Element actionLinks = domDocument.createElement("actionLinks");
-		recordDomElement.appendChild(actionLinks);
-
-		if (actions.contains(Action.READ)) {
-			Element readLink = createReadLink(recordType, recordId);
-			actionLinks.appendChild(readLink);
-		}
-		if (actions.contains(Action.UPDATE)) {
-			Element updateLink = createUpdateLink();
-			actionLinks.appendChild(updateLink);
-		}
-		if (actions.contains(Action.DELETE)) {
-			Element deleteLink = createDeleteLink();
-			actionLinks.appendChild(deleteLink);
-		}
-		if (actions.contains(Action.READ_INCOMING_LINKS)) {
-			Element readIncomingLink = createReadIncomingLink();
-			actionLinks.appendChild(readIncomingLink);
-		}
-		if (actions.contains(Action.INDEX)) {
-			Element indexLink = createIndexLink();
-			actionLinks.appendChild(indexLink);
-		}
-		if (actions.contains(Action.UPLOAD)) {
-			Element uploadLink = createUploadLink();
-			actionLinks.appendChild(uploadLink);
-		}
-		if (actions.contains(Action.SEARCH)) {
-			Element searchLink = createSearchLink(dataRecord.getSearchId());
-			actionLinks.appendChild(searchLink);
-		}
-		if (actions.contains(Action.CREATE)) {
-			Element createLink = createCreateLink();
-			actionLinks.appendChild(createLink);
-		}
-		if (actions.contains(Action.LIST)) {
-			Element listLink = createListLink();
-			actionLinks.appendChild(listLink);
-		}
-		if (actions.contains(Action.BATCH_INDEX)) {
-			Element batchIndexLink = createBatchIndexLink();
-			actionLinks.appendChild(batchIndexLink);
-		}
-		if (actions.contains(Action.VALIDATE)) {
-			Element validateLink = createValidateLink();
-			actionLinks.appendChild(validateLink);
-		}
+	private void writeXmlAsChars(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options, Writer writer) {
+		XmlCharWriter charWriter = new XmlCharWriter(writer);
+		charWriter.writeDeclaration();
+		createXmlDataWriter(charWriter, options).sortingAttributes().write(externallyConvertible);
+		charWriter.flush();
 	}
 
-	private void possiblyAddPermissions(DataRecord dataRecord, Element recordDomElement) {
-		if (shouldPermissionBeConverted(dataRecord)) {
-			addPermissions(dataRecord, recordDomElement);
+	private void tryToWriteXml(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options, StreamResult xmlResult) {
+		try {
+			writeXml(externallyConvertible, options, xmlResult);
+		} catch (ParserConfigurationException | TransformerException exception) {
+			throw new ConverterException(UNABLE_TO_CONVERT, exception);
 		}
 	}
 
-	private boolean shouldPermissionBeConverted(DataRecord dataRecord) {
-		return linksMustBeAdded && hasReadOrWritePermissions(dataRecord);
-	}
-
-	private boolean hasReadOrWritePermissions(DataRecord dataRecord) {
-		return dataRecord.hasReadPermissions() || dataRecord.hasWritePermissions();
-	}
-
-	private void addPermissions(DataRecord dataRecord, Element recordDomElement) {
-		Element permissionsElement = domDocument.createElement("permissions");
-		recordDomElement.appendChild(permissionsElement);
-
-		if (dataRecord.hasReadPermissions()) {
-			addPermissionElements(permissionsElement, dataRecord.getReadPermissions(), "read");
-		}
-		if (dataRecord.hasWritePermissions()) {
-			addPermissionElements(permissionsElement, dataRecord.getWritePermissions(), "write");
+	private void writeXml(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options, StreamResult xmlResult)
+			throws ParserConfigurationException, TransformerException {
+		if (options.isCanonical()) {
+			writeXmlAsChars(externallyConvertible, options, getWriterFor(xmlResult));
+		} else {
+			Document domDocument = createDomDocument(externallyConvertible, options);
+			getResetTransformer().transform(new DOMSource(domDocument), xmlResult);
 		}
 	}
 
-	private void addPermissionElements(Element permissionsElement, Set<String> permissions,
-			String tagName) {
-		Element readPermissions = domDocument.createElement(tagName);
-		permissionsElement.appendChild(readPermissions);
-
-		for (String readPermission : permissions) {
-			readPermissions.appendChild(createElementWithTextContent("permission", readPermission));
+	private Writer getWriterFor(StreamResult xmlResult) {
+		if (xmlResult.getWriter() != null) {
+			return xmlResult.getWriter();
 		}
+		return new OutputStreamWriter(xmlResult.getOutputStream(), StandardCharsets.UTF_8);
 	}
 
-	private Element createValidateLink() {
-		Element actionLink = createActionLink(POST, "validate", WORK_ORDER);
-		actionLink.appendChild(
-				createElementWithTextContent(CONTENT_TYPE, "application/vnd.cora.workorder+xml"));
-		actionLink.appendChild(createAcceptRecordXML());
-		return actionLink;
-	}
-
-	private Element createBatchIndexLink() {
-		Element actionLink = createActionLink(POST, "batch_index", INDEX, recordId);
-		actionLink.appendChild(createContentTypeRecordXML());
-		actionLink.appendChild(createAcceptRecordXML());
-		return actionLink;
-	}
-
-	private Element createListLink() {
-		Element actionLink = createActionLink(GET, "list", recordId);
-		actionLink.appendChild(createAcceptRecordListXML());
-		return actionLink;
-	}
-
-	private Element createCreateLink() {
-		Element actionLink = createActionLink(POST, "create", recordId);
-		actionLink.appendChild(createContentTypeRecordGroupXML());
-		actionLink.appendChild(createAcceptRecordXML());
-		return actionLink;
-	}
-
-	private Element createSearchLink(String searchId) {
-		Element actionLink = createActionLink(GET, "search", "searchResult", searchId);
-		actionLink.appendChild(createAcceptRecordListXML());
-		return actionLink;
-	}
-
-	private Element createUploadLink() {
-		Element actionLink = createActionLink(POST, "upload", recordType, recordId, "master");
-		actionLink.appendChild(createElementWithTextContent(CONTENT_TYPE, "multipart/form-data"));
-		return actionLink;
-	}
-
-	private Element createIndexLink() {
-		Element actionLink = createActionLink(POST, INDEX, WORK_ORDER);
-		actionLink.appendChild(createContentTypeRecordGroupXML());
-		actionLink.appendChild(createAcceptRecordXML());
-		actionLink.appendChild(createWorkOrderXML());
-		return actionLink;
-	}
-
-	private Element createWorkOrderXML() {
-		Element body = domDocument.createElement("body");
-		Element workOrder = domDocument.createElement(WORK_ORDER);
-		body.appendChild(workOrder);
-		Element recordTypeElement = domDocument.createElement("recordType");
-		workOrder.appendChild(recordTypeElement);
-		appendNewElementWithValueToDom(recordTypeElement, "linkedRecordType", "recordType");
-		appendNewElementWithValueToDom(recordTypeElement, "linkedRecordId", recordType);
-		appendNewElementWithValueToDom(recordTypeElement, "recordId", recordId);
-		appendNewElementWithValueToDom(recordTypeElement, "type", INDEX);
-		return body;
-	}
-
-	private Element createReadIncomingLink() {
-		Element actionLink = createActionLink(GET, "read_incoming_links", recordType, recordId,
-				"incomingLinks");
-		actionLink.appendChild(createAcceptRecordListXML());
-		return actionLink;
-	}
-
-	private Element createUpdateLink() {
-		Element actionLink = createActionLink(POST, "update", recordType, recordId);
-		actionLink.appendChild(createContentTypeRecordGroupXML());
-		actionLink.appendChild(createAcceptRecordXML());
-		return actionLink;
-	}
-
-	private Element createAcceptRecordXML() {
-		return createElementWithTextContent(ACCEPT, APPLICATION_VND_CORA_RECORD_XML);
-	}
-
-	private Element createAcceptRecordListXML() {
-		return createElementWithTextContent(ACCEPT, APPLICATION_VND_CORA_RECORD_LIST_XML);
-	}
-
-	private Element createContentTypeRecordXML() {
-		return createElementWithTextContent(CONTENT_TYPE, APPLICATION_VND_CORA_RECORD_XML);
-	}
-
-	private Element createContentTypeRecordGroupXML() {
-		return createElementWithTextContent(CONTENT_TYPE, APPLICATION_VND_CORA_RECORDGROUP_XML);
-	}
-
-	private void addDataGroupToDomDocument(DataGroup topDataGroup) {
-		Element groupDomElement = createDomElementFromDataGroup(topDataGroup);
-		domDocument.appendChild(groupDomElement);
-	}
-
-	private Element createDomElementFromDataGroup(DataGroup dataGroupToConvert) {
-		Element groupDomElement = domDocument.createElement(dataGroupToConvert.getNameInData());
-		addAttributesIfExistsToElementForDataElement(dataGroupToConvert, groupDomElement);
-		iterateAndGenerateChildElements(dataGroupToConvert, domDocument, groupDomElement);
-		return groupDomElement;
-	}
-
-	private void iterateAndGenerateChildElements(DataGroup dataGroup, Document domDocument,
-			Element parentXmlDomElement) {
-		for (DataChild childDataElement : dataGroup.getChildren()) {
-			createChildElement(domDocument, parentXmlDomElement, childDataElement);
+	private XmlDataWriter createXmlDataWriter(XmlOutput output, XmlConversionOptions options) {
+		if (options.linksMustBeAdded()) {
+			actionLinkTemplates = ActionLinkTemplates.reuseOrCompile(actionLinkTemplates,
+					options.getExternalUrls().getBaseUrl());
 		}
+		return XmlDataWriter.create(output, options, actionLinkTemplates);
 	}
 
-	private void createChildElement(Document domDocument, Element parentXmlDomElement,
-			DataChild childDataElement) {
-		Element domElement = createElement(childDataElement);
-		possiblyAddRepeatIdAsAttribute(childDataElement, domElement);
-		addAttributesIfExistsToElementForDataElement(childDataElement, domElement);
-		populateChildElement(domDocument, childDataElement, domElement);
-		parentXmlDomElement.appendChild(domElement);
-	}
-
-	private boolean isResourceLink(DataChild childDataElement) {
-		return childDataElement instanceof DataResourceLink;
-	}
-
-	private void populateChildElement(Document domDocument, DataChild childDataElement,
-			Element domElement) {
-		if (isAtomic(childDataElement)) {
-			possiblyAddTextToElementForDataAtomic((DataAtomic) childDataElement, domElement);
-		} else if (isRecordLink(childDataElement)) {
-			populateRecordLink(domDocument, (DataRecordLink) childDataElement, domElement);
-		} else if (isResourceLink(childDataElement)) {
-			populateResourceLink(domDocument, (DataResourceLink) childDataElement, domElement);
+	private EncodedDataList encodeEachDataToByteBuffer(DataList dataList,
+			XmlConversionOptions options)
+			throws ParserConfigurationException, TransformerException {
+		SlicingByteArrayOutputStream xmlOutputStream = new SlicingByteArrayOutputStream();
+		if (options.isCanonical()) {
+			encodeEachDataCanonically(dataList, options, xmlOutputStream);
 		} else {
-			DataGroup childDataGroup = (DataGroup) childDataElement;
-			populateDataGroupElement(domDocument, domElement, childDataGroup);
+			encodeEachDataUsingDomDocument(dataList, options, xmlOutputStream);
 		}
+		return DataListEnvelope.encodeToByteBuffers(dataList, xmlOutputStream.toSlices());
 	}
 
-	private void populateRecordLink(Document domDocument, DataRecordLink recordLink,
-			Element domElement) {
-
-		Element xmlLinkedType = domDocument.createElement("linkedRecordType");
-		xmlLinkedType.setTextContent(recordLink.getLinkedRecordType());
-
-		Element xmlLinkedId = domDocument.createElement("linkedRecordId");
-		xmlLinkedId.setTextContent(recordLink.getLinkedRecordId());
-
-		domElement.appendChild(xmlLinkedType);
-		domElement.appendChild(xmlLinkedId);
-
-		ifPresentConvertLinkedRecord(domDocument, recordLink, domElement);
-		possiblyAddActionLinks(domDocument, domElement, recordLink);
-	}
-
-	private void ifPresentConvertLinkedRecord(Document domDocument, DataRecordLink recordLink,
-			Element domElement) {
-		Optional<DataGroup> linkedRecord = recordLink.getLinkedRecord();
-		if (linkedRecord.isPresent()) {
-			convertLinkedRecord(domDocument, domElement, linkedRecord.get());
+	private void encodeEachDataCanonically(DataList dataList, XmlConversionOptions options,
+			SlicingByteArrayOutputStream xmlOutputStream) {
+		XmlCharWriter charWriter = new XmlCharWriter(
+				new OutputStreamWriter(xmlOutputStream, StandardCharsets.UTF_8));
+		XmlDataWriter dataWriter = createXmlDataWriter(charWriter, options);
+		for (Data data : dataList.getDataList()) {
+			dataWriter.writeData(data);
+			charWriter.flush();
+			xmlOutputStream.endSlice();
 		}
 	}
 
-	private void convertLinkedRecord(Document domDocument, Element domElement,
-			DataGroup dataGroup) {
-		Element xmlLinkedRecord = domDocument.createElement("linkedRecord");
-		Element groupDomElement = domDocument.createElement(dataGroup.getNameInData());
-		addAttributesIfExistsToElementForDataElement(dataGroup, groupDomElement);
-		iterateAndGenerateChildElements(dataGroup, domDocument, groupDomElement);
-		xmlLinkedRecord.appendChild(groupDomElement);
-		domElement.appendChild(xmlLinkedRecord);
-	}
-
-	private boolean isRecordLink(DataChild childDataElement) {
-		return childDataElement instanceof DataRecordLink;
-	}
-
-	private boolean isAtomic(DataChild childDataElement) {
-		return childDataElement instanceof DataAtomic;
-	}
-
-	private void populateResourceLink(Document domDocument, DataResourceLink resourceLink,
-			Element domElement) {
-		appendNewElementWithValueToDom(domElement, "linkedRecordType", resourceLink.getType());
-		appendNewElementWithValueToDom(domElement, "linkedRecordId", resourceLink.getId());
-		appendNewElementWithValueToDom(domElement, "mimeType", resourceLink.getMimeType());
-		possiblyAddActionLinks(domDocument, domElement, resourceLink);
-	}
-
-	private void appendNewElementWithValueToDom(Element domElement, String tagName, String value) {
-		Element element = createElementWithTextContent(tagName, value);
-		domElement.appendChild(element);
-	}
-
-	private void populateDataGroupElement(Document domDocument, Element domElement,
-			DataGroup childDataGroup) {
-		iterateAndGenerateChildElements(childDataGroup, domDocument, domElement);
-		possiblyAddActionLinks(domDocument, domElement, childDataGroup);
-	}
-
-	private void possiblyAddActionLinks(Document domDocument, Element domElement, DataChild child) {
-		if (isLinkThatShouldBeConverted(child)) {
-			Element actionLinks = domDocument.createElement("actionLinks");
-			domElement.appendChild(actionLinks);
-			addActionLinkElement(child, actionLinks);
+	private void encodeEachDataUsingDomDocument(DataList dataList, XmlConversionOptions options,
+			SlicingByteArrayOutputStream xmlOutputStream)
+			throws ParserConfigurationException, TransformerException {
+		Document domDocument = createAndInitializeDomDocument();
+		XmlDataWriter dataWriter = createXmlDataWriter(new DomXmlOutput(domDocument), options);
+		Transformer dataTransformer = getResetTransformer();
+		dataTransformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		for (Data data : dataList.getDataList()) {
+			dataWriter.writeData(data);
+			dataTransformer.transform(new DOMSource(domDocument),
+					new StreamResult(xmlOutputStream));
+			xmlOutputStream.endSlice();
 		}
 	}
 
-	private void addActionLinkElement(DataChild child, Element actionLinks) {
-		Element linkElement;
-		if (isRecordLink(child)) {
-			linkElement = createRecordLinkElement((DataRecordLink) child);
-		} else {
-			linkElement = createResourceLinkElement((DataResourceLink) child);
+	private String createOutputSizeKey(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options) {
+		String key = createOutputSizeKeyForKindOfData(externallyConvertible);
+		if (options.isProjected()) {
+			key += "/projected";
 		}
-		actionLinks.appendChild(linkElement);
-	}
-
-	private Element createResourceLinkElement(DataResourceLink resourceLink) {
-		Element readLink = createActionLink(GET, "read", resourceLink.getType(),
-				resourceLink.getId(), resourceLink.getNameInData());
-		appendNewElementWithValueToDom(readLink, ACCEPT, resourceLink.getMimeType());
-		return readLink;
-	}
-
-	private Element createRecordLinkElement(DataRecordLink dataRecordLink) {
-		String linkedRecordType = dataRecordLink.getLinkedRecordType();
-		String linkedRecordId = dataRecordLink.getLinkedRecordId();
-		return createReadLink(linkedRecordType, linkedRecordId);
-	}
-
-	private boolean isLinkThatShouldBeConverted(DataChild childDataElement) {
-		if (isDataLink(childDataElement)) {
-			return linksMustBeAdded && ((DataLink) childDataElement).hasReadAction();
+		if (options.linksMustBeAdded()) {
+			return key + "/withLinks";
 		}
-		return false;
-	}
-
-	private boolean isDataLink(DataChild childDataElement) {
-		return childDataElement instanceof DataLink;
-	}
-
-	private Element createReadLink(String linkedRecordType, String linkedRecordId) {
-		Element actionLink = createActionLink(GET, "read", linkedRecordType, linkedRecordId);
-		actionLink.appendChild(createAcceptRecordXML());
-		return actionLink;
-	}
-
-	private Element createActionLink(String requestMethod, String action, String... urlParts) {
-		String recordURL = externalUrls.getBaseUrl() + String.join("/", urlParts);
-		Element actionLink = domDocument.createElement(action);
-		appendNewElementWithValueToDom(actionLink, "requestMethod", requestMethod);
-		appendNewElementWithValueToDom(actionLink, "rel", action);
-		appendNewElementWithValueToDom(actionLink, "url", recordURL);
-		return actionLink;
-	}
-
-	private Element createDeleteLink() {
-		return createActionLink("DELETE", "delete", recordType, recordId);
-	}
-
-	private Element createElementWithTextContent(String tagName, String textContent) {
-		Element requestMethod = domDocument.createElement(tagName);
-		requestMethod.setTextContent(textContent);
-		return requestMethod;
-	}
-
-	private Element createElement(DataChild childDataElement) {
-		return domDocument.createElement(childDataElement.getNameInData());
+		return key;
 	}
 
-	private void possiblyAddRepeatIdAsAttribute(DataChild childDataElement, Element domElement) {
-		if (hasNonEmptyRepeatId(childDataElement)) {
-			domElement.setAttribute("repeatId", childDataElement.getRepeatId());
+	private String createOutputSizeKeyForKindOfData(ExternallyConvertible externallyConvertible) {
+		if (isDataList(externallyConvertible)) {
+			return "dataList/" + ((DataList) externallyConvertible).getContainDataOfType();
+		}
+		if (isDataRecord(externallyConvertible)) {
+			return "record/" + ((DataRecord) externallyConvertible).getType();
+		}
+		if (isDataRecordGroup(externallyConvertible)) {
+			return "recordGroup/" + ((DataRecordGroup) externallyConvertible).getNameInData();
 		}
+		return "group/" + ((DataGroup) externallyConvertible).getNameInData();
 	}
 
-	private boolean hasNonEmptyRepeatId(DataChild childDataElement) {
-		return childDataElement.getRepeatId() != null && !childDataElement.getRepeatId().isEmpty();
+	private Document createDomDocument(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options) throws ParserConfigurationException {
+		Document domDocument = createAndInitializeDomDocument();
+		createXmlDataWriter(new DomXmlOutput(domDocument), options).write(externallyConvertible);
+		return domDocument;
 	}
 
-	private void possiblyAddTextToElementForDataAtomic(DataAtomic childDataAtomic,
-			Element domElement) {
-		domElement.setTextContent(childDataAtomic.getValue());
+	private Document createAndInitializeDomDocument() throws ParserConfigurationException {
+		DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
+		Document newDomDocument = builder.newDocument();
+		newDomDocument.setXmlStandalone(true);
+		return newDomDocument;
 	}
 
-	private void addAttributesIfExistsToElementForDataElement(DataChild childDataElement,
-			Element domElement) {
-		Collection<DataAttribute> attributes = childDataElement.getAttributes();
-
-		for (DataAttribute attribute : attributes) {
-			domElement.setAttribute(attribute.getNameInData(), attribute.getValue());
-		}
+	private boolean isDataList(ExternallyConvertible externallyConvertible) {
+		return externallyConvertible instanceof DataList;
 	}
 
-	private void possiblyAddOtherProtocols(DataRecord dataRecord, Element domElement) {
-		if (linksMustBeAddedAndHasOtherProtocols(dataRecord)) {
-			Element iiif = createIiifProtocol(dataRecord);
-			Element otherProtocols = createOtherProtocolsUsingProtocols(iiif);
-			domElement.appendChild(otherProtocols);
+	private Transformer getResetTransformer() throws TransformerConfigurationException {
+		if (transformer == null) {
+			transformer = transformerFactory.newTransformer();
+		} else {
+			transformer.reset();
 		}
+		return transformer;
 	}
 
-	private boolean linksMustBeAddedAndHasOtherProtocols(DataRecord dataRecord) {
-		return linksMustBeAdded && hasOtherProtocols(dataRecord);
-	}
+	private XmlWithAndWithoutLinks convertDomDocumentToXmlWithAndWithoutLinks(Document domDocument)
+			throws TransformerException {
+		SAXTransformerFactory saxTransformerFactory = getSaxTransformerFactory();
+		StringWriter xmlWriter = new StringWriter();
+		StringWriter xmlWithLinksWriter = new StringWriter();
+		TransformerHandler withoutLinks = createWritingHandler(saxTransformerFactory, xmlWriter);
+		TransformerHandler withLinks = createWritingHandler(saxTransformerFactory,
+				xmlWithLinksWriter);
 
-	private Element createOtherProtocolsUsingProtocols(Element iiif) {
-		Element otherProtocols = domDocument.createElement("otherProtocols");
-		otherProtocols.appendChild(iiif);
-		return otherProtocols;
-	}
+		DOMSource domSource = new DOMSource(domDocument);
+		SAXResult splittingResult = new SAXResult(
+				new WithAndWithoutLinksHandler(withLinks, withoutLinks));
+		getResetTransformer().transform(domSource, splittingResult);
 
-	private Element createIiifProtocol(DataRecord dataRecord) {
-		Element server = createIiifServer();
-		Element identifier = createIiifIdentifier(dataRecord);
-		return createElementAndAppendChilds(server, identifier);
+		return new XmlWithAndWithoutLinks(xmlWriter.toString(), xmlWithLinksWriter.toString());
 	}
 
-	private Element createElementAndAppendChilds(Element... childs) {
-		Element element = domDocument.createElement("iiif");
-		for (Element child : childs) {
-			element.appendChild(child);
+	private SAXTransformerFactory getSaxTransformerFactory()
+			throws TransformerConfigurationException {
+		if (transformerFactory instanceof SAXTransformerFactory saxTransformerFactory) {
+			return saxTransformerFactory;
 		}
-		return element;
+		throw new TransformerConfigurationException("TransformerFactory does not support SAX");
 	}
 
-	private Element createIiifServer() {
-		Element server = domDocument.createElement("server");
-		server.setTextContent(externalUrls.getIfffUrl());
-		return server;
+	private TransformerHandler createWritingHandler(SAXTransformerFactory saxTransformerFactory,
+			StringWriter writer) throws TransformerConfigurationException {
+		TransformerHandler transformerHandler = saxTransformerFactory.newTransformerHandler();
+		transformerHandler.setResult(new StreamResult(writer));
+		return transformerHandler;
 	}
 
-	private Element createIiifIdentifier(DataRecord dataRecord) {
-		Element identifier = domDocument.createElement("identifier");
-		identifier.setTextContent(dataRecord.getId());
-		return identifier;
+	private boolean isDataRecord(ExternallyConvertible externallyConvertible) {
+		return externallyConvertible instanceof DataRecord;
 	}
 
-	private boolean hasOtherProtocols(DataRecord dataRecord) {
-		return !dataRecord.getProtocols().isEmpty();
+	private boolean isDataRecordGroup(ExternallyConvertible externallyConvertible) {
+		return externallyConvertible instanceof DataRecordGroup;
 	}
 
 	public DocumentBuilderFactory getDocumentBuilderFactoryOnlyForTest() {
@@ -667,4 +498,15 @@ public class ExternallyConvertibleToXml implements ExternallyConvertibleToString
 		return transformerFactory;
 	}
 
+	/**
+	 * getOutputSizeEstimates returns the estimates used to pre-size the output of
+	 * {@link #convert(ExternallyConvertible, XmlConversionOptions)}. The estimates are keyed on
+	 * the kind of data and its type, such as "record/person" or "dataList/person/withLinks".
+	 * 
+	 * @return The OutputSizeEstimates used by this converter
+	 */
+	public OutputSizeEstimates getOutputSizeEstimates() {
+		return outputSizeEstimates;
+	}
+
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * HashingXmlOutput feeds what it receives straight into a SHA-256 digest, without serializing or
+ * escaping anything and without encoding fragments, see {@link PreEncodedFragment}. Each call is
+ * fed as a tag byte followed by its strings, and each string as its length followed by its UTF-16
+ * chars, so different sequences of calls never feed the same bytes.
+ * <p>
+ * Empty text is ignored, as it is when the xml is written, so the digest only differs when the
+ * written xml would differ. HashingXmlOutput is not thread safe.
+ */
+final class HashingXmlOutput implements XmlOutput {
+	private static final byte START_ELEMENT = 1;
+	private static final byte ATTRIBUTE = 2;
+	private static final byte TEXT = 3;
+	private static final byte PRE_ENCODED = 4;
+	private static final byte END_ELEMENT = 5;
+	private static final int NULL_LENGTH = -1;
+	private static final int BUFFER_SIZE = 8192;
+
+	private final MessageDigest sha256 = DigestingOutputStream.createSha256Digest();
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+
+	@Override
+	public void startElement(String name) {
+		putTag(START_ELEMENT);
+		putString(name);
+	}
+
+	@Override
+	public void attribute(String name, String value) {
+		putTag(ATTRIBUTE);
+		putString(name);
+		putString(value);
+	}
+
+	@Override
+	public void text(String text) {
+		if (text != null && !text.isEmpty()) {
+			putTag(TEXT);
+			putString(text);
+		}
+	}
+
+	@Override
+	public void preEncoded(PreEncodedFragment fragment) {
+		List<String> values = fragment.values().get();
+		putTag(PRE_ENCODED);
+		putInt(values.size());
+		for (String value : values) {
+			putString(value);
+		}
+	}
+
+	@Override
+	public void endElement(String name) {
+		putTag(END_ELEMENT);
+	}
+
+	/**
+	 * digest returns the SHA-256 digest of everything received, and resets the digest.
+	 */
+	byte[] digest() {
+		flushBuffer();
+		return sha256.digest();
+	}
+
+	private void putTag(byte tag) {
+		ensureRoomFor(1);
+		buffer[position++] = tag;
+	}
+
+	private void putString(String value) {
+		if (value == null) {
+			putInt(NULL_LENGTH);
+			return;
+		}
+		putInt(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			putChar(value.charAt(i));
+		}
+	}
+
+	private void putChar(char character) {
+		ensureRoomFor(Character.BYTES);
+		buffer[position++] = (byte) (character >>> 8);
+		buffer[position++] = (byte) character;
+	}
+
+	private void putInt(int value) {
+		ensureRoomFor(Integer.BYTES);
+		buffer[position++] = (byte) (value >>> 24);
+		buffer[position++] = (byte) (value >>> 16);
+		buffer[position++] = (byte) (value >>> 8);
+		buffer[position++] = (byte) value;
+	}
+
+	private void ensureRoomFor(int numOfBytes) {
+		if (position + numOfBytes > BUFFER_SIZE) {
+			flushBuffer();
+		}
+	}
+
+	private void flushBuffer() {
+		sha256.update(buffer, 0, position);
+		position = 0;
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * LinkOnlySubtrees knows which subtrees in incoming xml only hold links written when converting
+ * with links, and therefore can be skipped when reading xml into data.
+ * <p>
+ * Subtrees are only skipped where links are written, so that data children that happen to have
+ * the same names are kept. actionLinks are skipped in a link, after its linkedRecordType and
+ * linkedRecordId. actionLinks, permissions and otherProtocols are skipped in a record envelope,
+ * that is a top element named record with data as its first child.
+ */
+final class LinkOnlySubtrees {
+	private static final String ACTION_LINKS = "actionLinks";
+	private static final String RECORD = "record";
+	private static final String DATA = "data";
+	private static final Set<String> RECORD_LINK_ONLY_CHILDREN = Set.of(ACTION_LINKS,
+			"permissions", "otherProtocols");
+
+	private LinkOnlySubtrees() {
+	}
+
+	/**
+	 * isLinkOnlySubtreeInLink returns true if an element with the given name is the actionLinks
+	 * of a link, that is if it follows a linkedRecordType and a linkedRecordId.
+	 * 
+	 * @param precedingSiblingNames
+	 *            A List with the names of the elements before the element in the same parent
+	 * @param name
+	 *            A String with the name of the element
+	 * @return A boolean, true if the element and its content can be skipped
+	 */
+	static boolean isLinkOnlySubtreeInLink(List<String> precedingSiblingNames, String name) {
+		return ACTION_LINKS.equals(name) && precedingSiblingNames.contains("linkedRecordType")
+				&& precedingSiblingNames.contains("linkedRecordId");
+	}
+
+	/**
+	 * isLinkOnlySubtreeInRecord returns true if an element with the given name, directly below the
+	 * top element, holds the actionLinks, permissions or otherProtocols of a record envelope.
+	 * 
+	 * @param topElementName
+	 *            A String with the name of the top element in the xml
+	 * @param firstChildName
+	 *            A String with the name of the first child of the top element, null if the
+	 *            element is the first child
+	 * @param name
+	 *            A String with the name of the element
+	 * @return A boolean, true if the element and its content can be skipped
+	 */
+	static boolean isLinkOnlySubtreeInRecord(String topElementName, String firstChildName,
+			String name) {
+		return RECORD.equals(topElementName) && DATA.equals(firstChildName)
+				&& RECORD_LINK_ONLY_CHILDREN.contains(name);
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+/**
+ * LinkReference is one record or resource link found by {@link XmlLinkExtractor}.
+ * 
+ * @param path
+ *            A String with the nameInData of the groups from below the top group down to the
+ *            link, and the nameInData of the link itself, separated by "/", for example
+ *            "recordInfo/type"
+ * @param linkedRecordType
+ *            A String with the type of the linked record
+ * @param linkedRecordId
+ *            A String with the id of the linked record
+ * @param repeatId
+ *            A String with the repeatId of the link, empty if the link has none
+ */
+public record LinkReference(String path, String linkedRecordType, String linkedRecordId,
+		String repeatId) {
+}
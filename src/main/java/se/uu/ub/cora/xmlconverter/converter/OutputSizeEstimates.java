@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * OutputSizeEstimates keeps a moving estimate of the size of converted xml for each kind of
+ * converted data, so that output buffers can be created large enough from the start instead of
+ * growing by repeated copying.
+ * <p>
+ * Each registered size moves the estimate a small step, relative to the estimate, up if the size
+ * is larger and down otherwise. Steps up are nine times larger than steps down, so the estimate
+ * settles where one size in ten is larger, at the 90th percentile of recent sizes. Older sizes
+ * gradually lose their influence, so estimates follow changes in the data over time.
+ * <p>
+ * Estimates are limited to a few chunks of {@link ChunkedXml#DEFAULT_CHUNK_SIZE}, output larger
+ * than that is better written in chunks than preallocated as one buffer.
+ * <p>
+ * OutputSizeEstimates is thread safe and can be shared between converters, as
+ * {@link se.uu.ub.cora.xmlconverter.XmlConverterFactory} does. Each registered size is applied to
+ * its estimate atomically, so sizes registered concurrently for the same key are never lost.
+ */
+public final class OutputSizeEstimates {
+	static final int MAX_ESTIMATE = 4 * ChunkedXml.DEFAULT_CHUNK_SIZE;
+	private static final double ADJUSTMENT_RATE = 0.1;
+	private static final double PERCENTILE = 0.9;
+	private static final double UPWARD_FACTOR = 1 + ADJUSTMENT_RATE * PERCENTILE;
+	private static final double DOWNWARD_FACTOR = 1 - ADJUSTMENT_RATE * (1 - PERCENTILE);
+
+	private final ConcurrentMap<String, Double> estimates = new ConcurrentHashMap<>();
+
+	/**
+	 * registerSize updates the estimate for the key with the size of one converted output. The
+	 * update is atomic, it is safe to call registerSize for the same key from several threads.
+	 * 
+	 * @param key
+	 *            A String with the key of the estimate
+	 * @param size
+	 *            An int with the number of chars in the output
+	 */
+	public void registerSize(String key, int size) {
+		estimates.compute(key, (sameKey, estimate) -> firstOrAdjustedEstimate(estimate, size));
+	}
+
+	private double firstOrAdjustedEstimate(Double estimate, int size) {
+		if (estimate == null) {
+			return limit(size);
+		}
+		return adjustEstimate(estimate, size);
+	}
+
+	private double adjustEstimate(double estimate, int size) {
+		if (size > estimate) {
+			return limit(Math.max(estimate, 1) * UPWARD_FACTOR);
+		}
+		return estimate * DOWNWARD_FACTOR;
+	}
+
+	private double limit(double estimate) {
+		return Math.min(estimate, MAX_ESTIMATE);
+	}
+
+	/**
+	 * getEstimate returns the current estimate for the key, never larger than
+	 * {@value #MAX_ESTIMATE}.
+	 * 
+	 * @param key
+	 *            A String with the key of the estimate
+	 * @return An int with the estimated number of chars, or 0 if nothing is registered for the key
+	 */
+	public int getEstimate(String key) {
+		Double estimate = estimates.get(key);
+		if (estimate == null) {
+			return 0;
+		}
+		return roundUp(estimate);
+	}
+
+	private int roundUp(double estimate) {
+		return (int) Math.ceil(estimate);
+	}
+
+	/**
+	 * getEstimates returns a snapshot of all current estimates, sorted by key, for example for
+	 * capacity planning. Sizes registered while the snapshot is taken might not be included.
+	 * 
+	 * @return A Map with the estimated number of chars for each key
+	 */
+	public Map<String, Integer> getEstimates() {
+		Map<String, Integer> snapshot = new TreeMap<>();
+		estimates.forEach((key, estimate) -> snapshot.put(key, roundUp(estimate)));
+		return snapshot;
+	}
+}
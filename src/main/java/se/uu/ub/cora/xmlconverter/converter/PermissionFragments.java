@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PermissionFragments encodes permissions blocks for one conversion, or for all records a
+ * converter handles, so records that share the same permissions share the same encoded fragment
+ * instance. At most {@link #MAX_ENCODED_FRAGMENTS} fragments are kept, when more are needed the
+ * least recently used fragment is forgotten.
+ * <p>
+ * Permissions are always written sorted, so the output does not depend on the iteration order of
+ * the sets. Fragments are looked up by the given sets, whose equality does not depend on iteration
+ * order either, so permissions are only sorted when a fragment is encoded.
+ */
+class PermissionFragments {
+	static final int MAX_ENCODED_FRAGMENTS = 256;
+
+	private Map<PermissionSets, String> encodedFragments = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<PermissionSets, String> eldest) {
+			return size() > MAX_ENCODED_FRAGMENTS;
+		}
+	};
+
+	/**
+	 * encode returns the encoded permissions block for the given permissions.
+	 *
+	 * @param readPermissions
+	 *            A Set with read permissions, or null if the read block should not be written
+	 * @param writePermissions
+	 *            A Set with write permissions, or null if the write block should not be written
+	 * @return A String with the encoded permissions block
+	 */
+	String encode(Set<String> readPermissions, Set<String> writePermissions) {
+		String encodedFragment = encodedFragments
+				.get(new PermissionSets(readPermissions, writePermissions));
+		if (encodedFragment == null) {
+			return encodeAndRemember(readPermissions, writePermissions);
+		}
+		return encodedFragment;
+	}
+
+	private String encodeAndRemember(Set<String> readPermissions, Set<String> writePermissions) {
+		List<String> sortedRead = sortOrNull(readPermissions);
+		List<String> sortedWrite = sortOrNull(writePermissions);
+		String encodedFragment = encodePermissions(sortedRead, sortedWrite);
+		encodedFragments.put(new PermissionSets(toSetOrNull(sortedRead), toSetOrNull(sortedWrite)),
+				encodedFragment);
+		return encodedFragment;
+	}
+
+	private List<String> sortOrNull(Set<String> permissions) {
+		if (permissions == null) {
+			return null;
+		}
+		return permissions.stream().sorted().toList();
+	}
+
+	private Set<String> toSetOrNull(List<String> permissions) {
+		if (permissions == null) {
+			return null;
+		}
+		return Set.copyOf(permissions);
+	}
+
+	private String encodePermissions(List<String> read, List<String> write) {
+		StringBuilder out = new StringBuilder("<permissions>");
+		possiblyEncodePermissionList(out, "read", read);
+		possiblyEncodePermissionList(out, "write", write);
+		return out.append("</permissions>").toString();
+	}
+	private void possiblyEncodePermissionList(StringBuilder out, String tagName,
+			List<String> permissions) {
+		if (permissions == null) {
+			return;
+		}
+		if (permissions.isEmpty()) {
+			out.append('<').append(tagName).append("/>");
+			return;
+		}
+		out.append('<').append(tagName).append('>');
+		for (String permission : permissions) {
+			EncodedElement.appendElementWithText(out, "permission", permission);
+		}
+		out.append("</").append(tagName).append('>');
+	}
+
+	private record PermissionSets(Set<String> read, Set<String> write) {
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PooledBufferOutputStream writes into direct buffers acquired from a {@link DirectBufferPool}.
+ * The first buffer is taken from the smallest size class and each following buffer from the next
+ * larger one, so small xml uses little memory while large xml needs few buffers.
+ */
+class PooledBufferOutputStream extends OutputStream {
+
+	private final DirectBufferPool pool;
+	private final List<ByteBuffer> buffers = new ArrayList<>();
+	private ByteBuffer currentBuffer;
+
+	PooledBufferOutputStream(DirectBufferPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public void write(int oneByte) {
+		ensureRoomInCurrentBuffer();
+		currentBuffer.put((byte) oneByte);
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int numOfBytes) {
+		int written = 0;
+		while (written < numOfBytes) {
+			ensureRoomInCurrentBuffer();
+			int toCopy = Math.min(numOfBytes - written, currentBuffer.remaining());
+			currentBuffer.put(bytes, offset + written, toCopy);
+			written += toCopy;
+		}
+	}
+
+	private void ensureRoomInCurrentBuffer() {
+		if (currentBuffer == null || !currentBuffer.hasRemaining()) {
+			int sizeClass = Math.min(buffers.size(), DirectBufferPool.SIZE_CLASSES.length - 1);
+			currentBuffer = pool.acquire(sizeClass);
+			buffers.add(currentBuffer);
+		}
+	}
+
+	PooledXml toPooledXml() {
+		for (ByteBuffer buffer : buffers) {
+			buffer.flip();
+		}
+		return new PooledXml(pool, buffers);
+	}
+
+	void releaseBuffers() {
+		buffers.forEach(pool::release);
+		buffers.clear();
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.List;
+
+/**
+ * PooledXml is converted xml encoded as UTF-8 in direct buffers borrowed from a
+ * {@link DirectBufferPool}. The buffers can be written to NIO channels without a further copy.
+ * <p>
+ * A PooledXml must be released, preferably using try-with-resources, when it has been written so
+ * that its buffers can be reused. The buffers must not be used after the PooledXml is released.
+ */
+public final class PooledXml implements AutoCloseable {
+
+	private final EncodedDataList encodedXml;
+	private final Runnable releaseBuffers;
+	private volatile boolean released = false;
+
+	PooledXml(DirectBufferPool pool, List<ByteBuffer> buffers) {
+		encodedXml = new EncodedDataList(buffers.toArray(new ByteBuffer[0]));
+		releaseBuffers = pool.trackUntilReleased(this, buffers);
+	}
+
+	/**
+	 * getByteBuffers returns read only views of the buffers, in order, that can be used for
+	 * scatter/gather I/O.
+	 * 
+	 * @return An array of ByteBuffers with the encoded xml
+	 * @throws IllegalStateException
+	 *             if the PooledXml has been released
+	 */
+	public ByteBuffer[] getByteBuffers() {
+		ensureNotReleased();
+		return encodedXml.getByteBuffers();
+	}
+
+	private void ensureNotReleased() {
+		if (released) {
+			throw new IllegalStateException("PooledXml has already been released");
+		}
+	}
+
+	/**
+	 * getLength returns the total number of bytes in the encoded xml.
+	 * 
+	 * @return A long with the number of bytes
+	 */
+	public long getLength() {
+		return encodedXml.getLength();
+	}
+
+	/**
+	 * writeTo writes the encoded xml to the channel using gathering writes, see
+	 * {@link EncodedDataList#writeTo(GatheringByteChannel)}.
+	 * 
+	 * @param channel
+	 *            A GatheringByteChannel to write to
+	 * @return A long with the number of bytes written
+	 * @throws IOException
+	 *             if writing to the channel fails
+	 * @throws IllegalStateException
+	 *             if the PooledXml has been released
+	 */
+	public long writeTo(GatheringByteChannel channel) throws IOException {
+		ensureNotReleased();
+		return encodedXml.writeTo(channel);
+	}
+
+	/**
+	 * release returns the buffers to the pool they were borrowed from. Releasing more than once
+	 * has no further effect.
+	 */
+	public void release() {
+		released = true;
+		releaseBuffers.run();
+	}
+
+	@Override
+	public void close() {
+		release();
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * PreEncodedFragment is xml that is encoded from a few values instead of from walked data, such
+ * as the action links of a record. An {@link XmlOutput} that writes xml calls {@link #encode()},
+ * an output that only needs to tell fragments apart, as when fingerprinting, uses
+ * {@link #values()} and never encodes the xml.
+ * 
+ * @param encoder
+ *            A Supplier that encodes the xml
+ * @param values
+ *            A Supplier of the values that alone decide the encoded xml, in a fixed order
+ */
+record PreEncodedFragment(Supplier<String> encoder, Supplier<List<String>> values) {
+
+	String encode() {
+		return encoder.get();
+	}
+}
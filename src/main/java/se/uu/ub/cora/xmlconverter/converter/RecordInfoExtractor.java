@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.data.DataRecordGroup;
+
+/**
+ * RecordInfoExtractor reads only as much of the xml as is needed to get the recordInfo of the top
+ * group, and returns it in a {@link DataRecordGroup} that holds nothing but the attributes of the
+ * top group and the recordInfo. The type, id and dataDivider can then be read from the
+ * DataRecordGroup, for example to route and authorize a request before the whole xml is
+ * converted.
+ * <p>
+ * Children of the top group before the recordInfo are read past without being classified, and
+ * nothing after the recordInfo is read. The recordInfo is converted using the same rules as
+ * {@link XmlToExternallyConvertible}, but errors in the xml outside of the recordInfo are not
+ * found.
+ * <p>
+ * RecordInfoExtractor is not thread safe.
+ */
+public class RecordInfoExtractor {
+
+	private static final String RECORD_INFO = "recordInfo";
+	private CoraXmlParser parser;
+
+	public RecordInfoExtractor(XMLInputFactory xmlInputFactory) {
+		parser = new CoraXmlParser(xmlInputFactory);
+	}
+
+	/**
+	 * extractRecordInfo reads the recordInfo from the xml.
+	 * 
+	 * @param xml
+	 *            A String with the xml of a record group
+	 * @return A DataRecordGroup with only the recordInfo of the xml
+	 * @throws ConverterException
+	 *             if the top group has no recordInfo
+	 */
+	public DataRecordGroup extractRecordInfo(String xml) {
+		try (CoraXmlReader reader = parser.createReader(xml)) {
+			return extractRecordInfoUsingReader(reader);
+		}
+	}
+
+	/**
+	 * extractRecordInfo reads the recordInfo from xml read from the inputStream. Compressed xml is
+	 * inflated as it is read. The inputStream is not closed, and is not read to its end.
+	 * 
+	 * @param inputStream
+	 *            An InputStream to read UTF-8 encoded xml of a record group from
+	 * @param compression
+	 *            The XmlCompression of the xml in the inputStream
+	 * @return A DataRecordGroup with only the recordInfo of the xml
+	 * @throws ConverterException
+	 *             if the top group has no recordInfo
+	 */
+	public DataRecordGroup extractRecordInfo(InputStream inputStream, XmlCompression compression) {
+		try (CoraXmlReader reader = parser.createReader(inputStream, compression)) {
+			return extractRecordInfoUsingReader(reader);
+		}
+	}
+
+	private DataRecordGroup extractRecordInfoUsingReader(CoraXmlReader reader) {
+		DataGroupBuilder dataGroupBuilder = DataGroupBuilder.forDataRecordGroup();
+		reader.next();
+		String topGroupName = reader.nameInData();
+		dataGroupBuilder.startGroup(topGroupName, reader.attributes(), "");
+		moveToRecordInfo(reader);
+		reader.copyCurrentTo(dataGroupBuilder);
+		dataGroupBuilder.endGroup(topGroupName);
+		return dataGroupBuilder.getDataRecordGroup();
+	}
+
+	private void moveToRecordInfo(CoraXmlReader reader) {
+		while (reader.hasNext()) {
+			if (reader.next() == CoraXmlKind.START_GROUP) {
+				if (RECORD_INFO.equals(reader.nameInData())) {
+					return;
+				}
+				reader.skipGroup();
+			}
+		}
+		throw new ConverterException(
+				"Unable to convert from xml to dataElement: No recordInfo found in top group");
+	}
+
+	public XMLInputFactory getXmlInputFactoryOnlyForTest() {
+		return parser.getXmlInputFactoryOnlyForTest();
+	}
+}
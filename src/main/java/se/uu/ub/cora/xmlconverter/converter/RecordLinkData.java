@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+import se.uu.ub.cora.data.Action;
+
+/**
+ * RecordLinkData holds what is needed, besides the stored xml, to add links to a record. It
+ * corresponds to the parts of a DataRecord that are not stored in the record xml.
+ * 
+ * @param actions
+ *            The actions the user has on the record
+ * @param searchId
+ *            The id of the search for the record, used in the search action link
+ * @param readPermissions
+ *            The read permissions the user has on the record
+ * @param writePermissions
+ *            The write permissions the user has on the record
+ * @param protocols
+ *            The other protocols available for the record
+ * @param readActionOnLink
+ *            A BiPredicate that tells if the user has read action on the record, or resource,
+ *            linked to using linkedRecordType and linkedRecordId
+ */
+public record RecordLinkData(Set<Action> actions, String searchId, Set<String> readPermissions,
+		Set<String> writePermissions, Set<String> protocols,
+		BiPredicate<String, String> readActionOnLink) {
+}
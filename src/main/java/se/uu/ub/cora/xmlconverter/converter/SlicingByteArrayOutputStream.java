@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SlicingByteArrayOutputStream collects the bytes of several consecutive parts in one growing
+ * array, and returns each part as a ByteBuffer slice of that array, without copying the bytes of a
+ * part into an array of its own.
+ */
+class SlicingByteArrayOutputStream extends ByteArrayOutputStream {
+
+	private List<Integer> sliceEnds = new ArrayList<>();
+
+	/**
+	 * endSlice ends the current slice at the bytes written so far, the next slice starts after
+	 * them.
+	 */
+	void endSlice() {
+		sliceEnds.add(count);
+	}
+
+	/**
+	 * toSlices returns one ByteBuffer for each ended slice. The buffers share the array of this
+	 * stream, so nothing should be written to the stream after they are returned.
+	 * 
+	 * @return A List with a ByteBuffer for each ended slice
+	 */
+	List<ByteBuffer> toSlices() {
+		List<ByteBuffer> slices = new ArrayList<>(sliceEnds.size());
+		int start = 0;
+		for (int end : sliceEnds) {
+			slices.add(ByteBuffer.wrap(buf, start, end - start).slice());
+			start = end;
+		}
+		return slices;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import javax.xml.transform.Result;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+/**
+ * WithAndWithoutLinksHandler forwards all events from one traversal of a document to two content
+ * handlers. The handler for xml with links gets every event, while link fragments are left out for
+ * the handler for xml without links.
+ * <p>
+ * Link fragments are pre-encoded fragments, surrounded by processing instructions disabling and
+ * enabling output escaping, where both processing instructions have {@link #LINK_FRAGMENT} as
+ * data.
+ */
+class WithAndWithoutLinksHandler implements ContentHandler {
+	static final String LINK_FRAGMENT = "links";
+
+	private ContentHandler withLinks;
+	private ContentHandler withoutLinks;
+	private boolean insideLinkFragment = false;
+
+	WithAndWithoutLinksHandler(ContentHandler withLinks, ContentHandler withoutLinks) {
+		this.withLinks = withLinks;
+		this.withoutLinks = withoutLinks;
+	}
+
+	@Override
+	public void setDocumentLocator(Locator locator) {
+		withLinks.setDocumentLocator(locator);
+		withoutLinks.setDocumentLocator(locator);
+	}
+
+	@Override
+	public void startDocument() throws SAXException {
+		withLinks.startDocument();
+		withoutLinks.startDocument();
+	}
+
+	@Override
+	public void endDocument() throws SAXException {
+		withLinks.endDocument();
+		withoutLinks.endDocument();
+	}
+
+	@Override
+	public void startPrefixMapping(String prefix, String uri) throws SAXException {
+		withLinks.startPrefixMapping(prefix, uri);
+		withoutLinks.startPrefixMapping(prefix, uri);
+	}
+
+	@Override
+	public void endPrefixMapping(String prefix) throws SAXException {
+		withLinks.endPrefixMapping(prefix);
+		withoutLinks.endPrefixMapping(prefix);
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes atts)
+			throws SAXException {
+		withLinks.startElement(uri, localName, qName, atts);
+		withoutLinks.startElement(uri, localName, qName, atts);
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		withLinks.endElement(uri, localName, qName);
+		withoutLinks.endElement(uri, localName, qName);
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		withLinks.characters(ch, start, length);
+		if (!insideLinkFragment) {
+			withoutLinks.characters(ch, start, length);
+		}
+	}
+
+	@Override
+	public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+		withLinks.ignorableWhitespace(ch, start, length);
+		if (!insideLinkFragment) {
+			withoutLinks.ignorableWhitespace(ch, start, length);
+		}
+	}
+
+	@Override
+	public void processingInstruction(String target, String data) throws SAXException {
+		withLinks.processingInstruction(target, data);
+		if (LINK_FRAGMENT.equals(data)) {
+			insideLinkFragment = Result.PI_DISABLE_OUTPUT_ESCAPING.equals(target);
+		} else {
+			withoutLinks.processingInstruction(target, data);
+		}
+	}
+
+	@Override
+	public void skippedEntity(String name) throws SAXException {
+		withLinks.skippedEntity(name);
+		withoutLinks.skippedEntity(name);
+	}
+}
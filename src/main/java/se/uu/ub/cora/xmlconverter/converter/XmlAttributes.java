@@ -1,13 +1,18 @@
 package se.uu.ub.cora.xmlconverter.converter;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+/**
+ * XmlAttributes holds the repeatId and the other attributes of an element. The attributes are kept
+ * in the order they are set, so that {@link CoraXmlParser} can report them in document order as
+ * promised by {@link CoraXmlVisitor} and {@link CoraXmlReader#attributes()}.
+ */
 class XmlAttributes {
 	String repeatId = "";
-	Map<String, String> attributes = new HashMap<>();
+	Map<String, String> attributes = new LinkedHashMap<>();
 
 	void setAttribute(String key, String value) {
 		attributes.put(key, value);
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * XmlCharWriter is the one place where xml is serialized as chars, without a DOM or transformer.
+ * It is used for canonical and pooled conversion and by {@link CoraXmlWriter}.
+ * <p>
+ * Text and attribute values are escaped with {@link XmlEscaper}, and an element without content
+ * is written as one empty element tag. Attributes are written in the order they are given.
+ * <p>
+ * Written xml is buffered and written to the writer in pieces, call {@link #flush()} when done.
+ * XmlCharWriter is not thread safe.
+ */
+class XmlCharWriter implements XmlOutput {
+
+	static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final int FLUSH_THRESHOLD = 8192;
+
+	private Writer writer;
+	private StringBuilder out = new StringBuilder(FLUSH_THRESHOLD * 2);
+	private boolean startTagIsOpen = false;
+
+	XmlCharWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	void writeDeclaration() {
+		out.append(XML_DECLARATION);
+	}
+
+	@Override
+	public void startElement(String name) {
+		closeOpenStartTag();
+		out.append('<').append(name);
+		startTagIsOpen = true;
+	}
+
+	private void closeOpenStartTag() {
+		if (startTagIsOpen) {
+			out.append('>');
+			startTagIsOpen = false;
+		}
+	}
+
+	@Override
+	public void attribute(String name, String value) {
+		out.append(' ').append(name).append("=\"");
+		XmlEscaper.appendEscapedAttributeValue(out, value);
+		out.append('"');
+	}
+
+	@Override
+	public void text(String text) {
+		if (text != null && !text.isEmpty()) {
+			closeOpenStartTag();
+			XmlEscaper.appendEscapedText(out, text);
+		}
+	}
+
+	@Override
+	public void preEncoded(PreEncodedFragment fragment) {
+		closeOpenStartTag();
+		out.append(fragment.encode());
+	}
+
+	@Override
+	public void endElement(String name) {
+		if (startTagIsOpen) {
+			out.append("/>");
+			startTagIsOpen = false;
+		} else {
+			out.append("</").append(name).append('>');
+		}
+		possiblyWriteBufferedXml();
+	}
+
+	private void possiblyWriteBufferedXml() {
+		if (out.length() >= FLUSH_THRESHOLD) {
+			writeBufferedXml();
+		}
+	}
+
+	private void writeBufferedXml() {
+		try {
+			writer.append(out);
+			out.setLength(0);
+		} catch (IOException exception) {
+			throw new ConverterException("Unable to write xml: " + exception.getMessage(),
+					exception);
+		}
+	}
+
+	/**
+	 * flush writes all buffered xml to the writer and flushes it. The writer is not closed.
+	 */
+	void flush() {
+		writeBufferedXml();
+		try {
+			writer.flush();
+		} catch (IOException exception) {
+			throw new ConverterException("Unable to write xml: " + exception.getMessage(),
+					exception);
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * XmlCompression is the compression of an xml stream. Compressed output is deflated as it is
+ * written and compressed input is inflated as it is parsed, so the uncompressed xml is never held
+ * as a whole.
+ */
+public enum XmlCompression {
+	/**
+	 * NONE is uncompressed xml.
+	 */
+	NONE {
+		@Override
+		OutputStream compress(OutputStream outputStream, int compressionLevel) {
+			return outputStream;
+		}
+
+		@Override
+		void finish(OutputStream compressingStream) throws IOException {
+			compressingStream.flush();
+		}
+
+		@Override
+		void end(OutputStream compressingStream) {
+			// nothing to release
+		}
+
+		@Override
+		InputStream decompress(InputStream inputStream) {
+			return inputStream;
+		}
+	},
+	/**
+	 * GZIP is xml in gzip format, as in the HTTP content coding gzip.
+	 */
+	GZIP {
+		@Override
+		OutputStream compress(OutputStream outputStream, int compressionLevel)
+				throws IOException {
+			ensureValidCompressionLevel(compressionLevel);
+			return new LeveledGzipOutputStream(outputStream, compressionLevel);
+		}
+
+		@Override
+		void finish(OutputStream compressingStream) throws IOException {
+			((LeveledGzipOutputStream) compressingStream).finish();
+		}
+
+		@Override
+		void end(OutputStream compressingStream) {
+			((LeveledGzipOutputStream) compressingStream).end();
+		}
+
+		@Override
+		InputStream decompress(InputStream inputStream) throws IOException {
+			return new GZIPInputStream(inputStream, BUFFER_SIZE);
+		}
+	},
+	/**
+	 * DEFLATE is xml in zlib format, as in the HTTP content coding deflate.
+	 */
+	DEFLATE {
+		@Override
+		OutputStream compress(OutputStream outputStream, int compressionLevel) {
+			ensureValidCompressionLevel(compressionLevel);
+			return new LeveledDeflaterOutputStream(outputStream, compressionLevel);
+		}
+
+		@Override
+		void finish(OutputStream compressingStream) throws IOException {
+			((LeveledDeflaterOutputStream) compressingStream).finish();
+		}
+
+		@Override
+		void end(OutputStream compressingStream) {
+			((LeveledDeflaterOutputStream) compressingStream).end();
+		}
+
+		@Override
+		InputStream decompress(InputStream inputStream) {
+			return new InflaterInputStream(inputStream);
+		}
+	};
+
+	private static final int BUFFER_SIZE = 8192;
+
+	abstract OutputStream compress(OutputStream outputStream, int compressionLevel)
+			throws IOException;
+
+	/**
+	 * finish writes any remaining data in a stream returned by
+	 * {@link #compress(OutputStream, int)} of the same XmlCompression to the underlying stream,
+	 * without closing it.
+	 */
+	abstract void finish(OutputStream compressingStream) throws IOException;
+
+	/**
+	 * end releases the native memory held by a stream returned by
+	 * {@link #compress(OutputStream, int)} of the same XmlCompression, whether the stream was
+	 * finished or not, so it should be called in a finally block. The stream can not be written
+	 * to after this, and the underlying stream is not closed.
+	 */
+	abstract void end(OutputStream compressingStream);
+
+	abstract InputStream decompress(InputStream inputStream) throws IOException;
+
+	private static void ensureValidCompressionLevel(int compressionLevel) {
+		if (compressionLevel < Deflater.DEFAULT_COMPRESSION
+				|| compressionLevel > Deflater.BEST_COMPRESSION) {
+			throw new ConverterException(
+					"Compression level must be between 0 and 9, or -1 for the default level, was: "
+							+ compressionLevel);
+		}
+	}
+
+	private static class LeveledGzipOutputStream extends GZIPOutputStream {
+
+		LeveledGzipOutputStream(OutputStream outputStream, int compressionLevel)
+				throws IOException {
+			super(outputStream, BUFFER_SIZE);
+			def.setLevel(compressionLevel);
+		}
+
+		void end() {
+			def.end();
+		}
+	}
+
+	private static class LeveledDeflaterOutputStream extends DeflaterOutputStream {
+
+		LeveledDeflaterOutputStream(OutputStream outputStream, int compressionLevel) {
+			super(outputStream, new Deflater(compressionLevel), BUFFER_SIZE);
+		}
+
+		void end() {
+			def.end();
+		}
+	}
+}
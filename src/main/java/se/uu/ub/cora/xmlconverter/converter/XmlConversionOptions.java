@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import se.uu.ub.cora.converter.ExternalUrls;
+import se.uu.ub.cora.data.ExternallyConvertible;
+
+/**
+ * XmlConversionOptions tells {@link ExternallyConvertibleToXml} and {@link XmlFingerprinter} how
+ * to convert for one call, with or without links, canonical or not and with or without a
+ * projection. Options are given to each call, so calls with different options can be mixed on one
+ * converter without affecting each other.
+ * <p>
+ * Options start from {@link #withoutLinks()} or {@link #withLinks(ExternalUrls)} and are refined
+ * with {@link #canonical()} and {@link #projectedTo(XmlPathProjection)}, as in
+ * <code>XmlConversionOptions.withLinks(externalUrls).canonical()</code>.
+ * <p>
+ * XmlConversionOptions is immutable and can be shared between threads, as long as the given
+ * ExternalUrls is not changed.
+ */
+public final class XmlConversionOptions {
+	private static final XmlConversionOptions WITHOUT_LINKS = new XmlConversionOptions(null, false,
+			null);
+
+	private final ExternalUrls externalUrls;
+	private final boolean canonical;
+	private final XmlPathProjection projection;
+
+	private XmlConversionOptions(ExternalUrls externalUrls, boolean canonical,
+			XmlPathProjection projection) {
+		this.externalUrls = externalUrls;
+		this.canonical = canonical;
+		this.projection = projection;
+	}
+
+	/**
+	 * withoutLinks returns options converting in the same way as
+	 * {@link ExternallyConvertibleToXml#convert(ExternallyConvertible)}.
+	 */
+	public static XmlConversionOptions withoutLinks() {
+		return WITHOUT_LINKS;
+	}
+
+	/**
+	 * withLinks returns options converting in the same way as
+	 * {@link ExternallyConvertibleToXml#convertWithLinks}.
+	 * 
+	 * @param externalUrls
+	 *            The ExternalUrls to use when creating links
+	 */
+	public static XmlConversionOptions withLinks(ExternalUrls externalUrls) {
+		return new XmlConversionOptions(externalUrls, false, null);
+	}
+
+	/**
+	 * canonical returns a copy of these options that also guarantees that semantically equal
+	 * input always gives byte identical output, no matter the iteration order of attributes.
+	 * Attributes, including repeatId, are written sorted by name, as permissions always are. The
+	 * xml is written without a DOM or transformer, so it does not depend on their implementations
+	 * or defaults.
+	 */
+	public XmlConversionOptions canonical() {
+		return new XmlConversionOptions(externalUrls, true, projection);
+	}
+
+	/**
+	 * projectedTo returns a copy of these options that writes only the parts of each top data
+	 * group selected by the projection, such as the group in a record or each group in a
+	 * dataList. Envelopes, such as record and dataList, and the links and permissions of records
+	 * are written as usual. Groups on the way to selected parts are written only if they hold
+	 * something selected.
+	 * 
+	 * @param projection
+	 *            The XmlPathProjection selecting what to write from each top data group
+	 */
+	public XmlConversionOptions projectedTo(XmlPathProjection projection) {
+		return new XmlConversionOptions(externalUrls, canonical, projection);
+	}
+
+	boolean linksMustBeAdded() {
+		return externalUrls != null;
+	}
+
+	ExternalUrls getExternalUrls() {
+		return externalUrls;
+	}
+
+	boolean isCanonical() {
+		return canonical;
+	}
+
+	boolean isProjected() {
+		return projection != null;
+	}
+
+	XmlPathProjection getProjection() {
+		return projection;
+	}
+}
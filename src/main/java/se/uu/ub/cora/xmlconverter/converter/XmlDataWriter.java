@@ -0,0 +1,456 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import se.uu.ub.cora.converter.ExternalUrls;
+import se.uu.ub.cora.data.Action;
+import se.uu.ub.cora.data.Data;
+import se.uu.ub.cora.data.DataAtomic;
+import se.uu.ub.cora.data.DataAttribute;
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.DataLink;
+import se.uu.ub.cora.data.DataList;
+import se.uu.ub.cora.data.DataParent;
+import se.uu.ub.cora.data.DataRecord;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.DataRecordLink;
+import se.uu.ub.cora.data.DataResourceLink;
+import se.uu.ub.cora.data.ExternallyConvertible;
+import se.uu.ub.cora.xmlconverter.converter.XmlPathProjection.Step;
+
+/**
+ * XmlDataWriter walks data and writes it as Cora xml to an {@link XmlOutput}. It holds everything
+ * that decides what the xml looks like, links, permissions, projection and attribute order, so
+ * that the DOM used by {@link ExternallyConvertibleToXml} and the chars written by
+ * {@link XmlCharWriter} always get the same xml.
+ * <p>
+ * An XmlDataWriter is created for one conversion, from the {@link XmlConversionOptions} of the
+ * call, and writes without links, with attributes in iteration order and without projection
+ * unless told otherwise.
+ */
+class XmlDataWriter {
+
+	private static final String REPEAT_ID = "repeatId";
+	private static final String DATA = "data";
+	private static final String LINKED_RECORD_TYPE = "linkedRecordType";
+	private static final String LINKED_RECORD_ID = "linkedRecordId";
+
+	private XmlOutput output;
+	private PermissionFragments permissionFragments;
+	private ActionLinkTemplates actionLinkTemplates;
+	private ExternalUrls externalUrls;
+	private boolean linksMustBeAdded = false;
+	private boolean sortAttributes = false;
+	private XmlPathProjection projection;
+	private String recordType;
+	private String recordId;
+
+	XmlDataWriter(XmlOutput output, PermissionFragments permissionFragments) {
+		this.output = output;
+		this.permissionFragments = permissionFragments;
+	}
+
+	/**
+	 * create creates an XmlDataWriter that writes as told by the options. A canonical writer
+	 * writes attributes sorted, so that the written xml does not depend on their iteration order.
+	 * Permissions are always written sorted.
+	 * 
+	 * @param actionLinkTemplates
+	 *            The ActionLinkTemplates for the base url of the options, only used when links
+	 *            must be added
+	 */
+	static XmlDataWriter create(XmlOutput output, XmlConversionOptions options,
+			ActionLinkTemplates actionLinkTemplates) {
+		XmlDataWriter dataWriter = new XmlDataWriter(output, new PermissionFragments());
+		if (options.isCanonical()) {
+			dataWriter.sortingAttributes();
+		}
+		if (options.linksMustBeAdded()) {
+			dataWriter.withLinks(actionLinkTemplates, options.getExternalUrls());
+		}
+		if (options.isProjected()) {
+			dataWriter.projectedTo(options.getProjection());
+		}
+		return dataWriter;
+	}
+
+	XmlDataWriter withLinks(ActionLinkTemplates actionLinkTemplates, ExternalUrls externalUrls) {
+		this.actionLinkTemplates = actionLinkTemplates;
+		this.externalUrls = externalUrls;
+		linksMustBeAdded = true;
+		return this;
+	}
+
+	XmlDataWriter sortingAttributes() {
+		sortAttributes = true;
+		return this;
+	}
+
+	XmlDataWriter projectedTo(XmlPathProjection projection) {
+		this.projection = projection;
+		return this;
+	}
+
+	void write(ExternallyConvertible externallyConvertible) {
+		if (externallyConvertible instanceof DataList dataList) {
+			writeDataList(dataList);
+		} else if (externallyConvertible instanceof DataRecordGroup dataRecordGroup) {
+			writeTopGroup(dataRecordGroup.getNameInData(), dataRecordGroup.getAttributes(),
+					dataRecordGroup);
+		} else {
+			writeData((Data) externallyConvertible);
+		}
+	}
+
+	private void writeDataList(DataList dataList) {
+		output.startElement("dataList");
+		writeTextElement("fromNo", dataList.getFromNo());
+		writeTextElement("toNo", dataList.getToNo());
+		writeTextElement("totalNo", dataList.getTotalNumberOfTypeInStorage());
+		writeTextElement("containDataOfType", dataList.getContainDataOfType());
+		output.startElement(DATA);
+		for (Data data : dataList.getDataList()) {
+			writeData(data);
+		}
+		output.endElement(DATA);
+		output.endElement("dataList");
+	}
+
+	private void writeTextElement(String name, String text) {
+		output.startElement(name);
+		output.text(text);
+		output.endElement(name);
+	}
+
+	/**
+	 * writeData writes one record or group, such as one data in a dataList.
+	 */
+	void writeData(Data data) {
+		if (data instanceof DataRecord dataRecord) {
+			writeDataRecord(dataRecord);
+		} else {
+			DataGroup dataGroup = (DataGroup) data;
+			writeTopGroup(dataGroup.getNameInData(), dataGroup.getAttributes(), dataGroup);
+		}
+	}
+
+	private void writeDataRecord(DataRecord dataRecord) {
+		output.startElement("record");
+		output.startElement(DATA);
+		DataRecordGroup recordGroup = dataRecord.getDataRecordGroup();
+		recordType = dataRecord.getType();
+		recordId = dataRecord.getId();
+		writeTopGroup(recordGroup.getNameInData(), recordGroup.getAttributes(), recordGroup);
+		output.endElement(DATA);
+		possiblyWriteActionLinks(dataRecord);
+		possiblyWritePermissions(dataRecord);
+		possiblyWriteOtherProtocols(dataRecord);
+		output.endElement("record");
+	}
+
+	private void writeTopGroup(String nameInData, Collection<DataAttribute> attributes,
+			DataParent topGroup) {
+		output.startElement(nameInData);
+		writeAttributes(collectAttributes(null, attributes));
+		if (projection == null) {
+			writeChildren(topGroup);
+		} else {
+			writeProjectedChildren(topGroup, projection.getTopSteps());
+		}
+		output.endElement(nameInData);
+	}
+
+	private Map<String, String> collectAttributes(String repeatId,
+			Collection<DataAttribute> attributes) {
+		if (isEmpty(repeatId) && attributes.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> collectedAttributes = sortAttributes ? new TreeMap<>()
+				: new LinkedHashMap<>();
+		if (!isEmpty(repeatId)) {
+			collectedAttributes.put(REPEAT_ID, repeatId);
+		}
+		putAttributes(attributes, collectedAttributes);
+		return collectedAttributes;
+	}
+
+	private boolean isEmpty(String value) {
+		return value == null || value.isEmpty();
+	}
+
+	private void putAttributes(Collection<DataAttribute> attributes,
+			Map<String, String> collectedAttributes) {
+		for (DataAttribute attribute : attributes) {
+			collectedAttributes.put(attribute.getNameInData(), attribute.getValue());
+		}
+	}
+
+	private void writeAttributes(Map<String, String> attributes) {
+		for (Entry<String, String> attribute : attributes.entrySet()) {
+			output.attribute(attribute.getKey(), attribute.getValue());
+		}
+	}
+
+	private void writeChildren(DataParent dataParent) {
+		for (DataChild child : dataParent.getChildren()) {
+			writeChild(child);
+		}
+	}
+
+	private void writeChild(DataChild child) {
+		String nameInData = child.getNameInData();
+		output.startElement(nameInData);
+		writeAttributes(collectAttributes(child.getRepeatId(), child.getAttributes()));
+		writeChildContent(child);
+		output.endElement(nameInData);
+	}
+
+	private void writeChildContent(DataChild child) {
+		if (child instanceof DataAtomic atomic) {
+			output.text(atomic.getValue());
+		} else if (child instanceof DataRecordLink recordLink) {
+			writeRecordLinkContent(recordLink);
+		} else if (child instanceof DataResourceLink resourceLink) {
+			writeResourceLinkContent(resourceLink);
+		} else {
+			writeChildren((DataGroup) child);
+			possiblyWriteActionLinksForLink(child);
+		}
+	}
+
+	private void writeRecordLinkContent(DataRecordLink recordLink) {
+		writeTextElement(LINKED_RECORD_TYPE, recordLink.getLinkedRecordType());
+		writeTextElement(LINKED_RECORD_ID, recordLink.getLinkedRecordId());
+		possiblyWriteLinkedRecord(recordLink.getLinkedRecord());
+		possiblyWriteActionLinksForLink(recordLink);
+	}
+
+	private void possiblyWriteLinkedRecord(Optional<DataGroup> linkedRecord) {
+		if (linkedRecord.isPresent()) {
+			DataGroup dataGroup = linkedRecord.get();
+			output.startElement("linkedRecord");
+			output.startElement(dataGroup.getNameInData());
+			writeAttributes(collectAttributes(null, dataGroup.getAttributes()));
+			writeChildren(dataGroup);
+			output.endElement(dataGroup.getNameInData());
+			output.endElement("linkedRecord");
+		}
+	}
+
+	private void writeResourceLinkContent(DataResourceLink resourceLink) {
+		writeTextElement(LINKED_RECORD_TYPE, resourceLink.getType());
+		writeTextElement(LINKED_RECORD_ID, resourceLink.getId());
+		writeTextElement("mimeType", resourceLink.getMimeType());
+		possiblyWriteActionLinksForLink(resourceLink);
+	}
+
+	private void possiblyWriteActionLinksForLink(DataChild child) {
+		if (linksMustBeAdded && child instanceof DataLink link && link.hasReadAction()) {
+			output.preEncoded(createActionLinksForLink(child));
+		}
+	}
+
+	private PreEncodedFragment createActionLinksForLink(DataChild child) {
+		String baseUrl = externalUrls.getBaseUrl();
+		if (child instanceof DataRecordLink recordLink) {
+			String type = recordLink.getLinkedRecordType();
+			String id = recordLink.getLinkedRecordId();
+			return new PreEncodedFragment(
+					() -> actionLinkTemplates.renderRecordLinkActionLinks(type, id),
+					() -> Arrays.asList("recordLinkActionLinks", baseUrl, type, id));
+		}
+		DataResourceLink resourceLink = (DataResourceLink) child;
+		String type = resourceLink.getType();
+		String id = resourceLink.getId();
+		String nameInData = resourceLink.getNameInData();
+		String mimeType = resourceLink.getMimeType();
+		return new PreEncodedFragment(
+				() -> actionLinkTemplates.renderResourceLinkActionLinks(type, id, nameInData,
+						mimeType),
+				() -> Arrays.asList("resourceLinkActionLinks", baseUrl, type, id, nameInData,
+						mimeType));
+	}
+
+	private void writeProjectedChildren(DataParent dataParent, List<Step> steps) {
+		for (DataChild child : dataParent.getChildren()) {
+			List<Step> matchingSteps = findMatchingSteps(steps, child);
+			if (anySelectsWholeBranch(matchingSteps)) {
+				writeChild(child);
+			} else if (isGroupWithMatchingSteps(child, matchingSteps)) {
+				possiblyWriteProjectedGroup((DataGroup) child, childStepsOf(matchingSteps));
+			}
+		}
+	}
+
+	private List<Step> findMatchingSteps(List<Step> steps, DataChild child) {
+		List<Step> matchingSteps = new ArrayList<>();
+		Map<String, String> attributes = attributesAsMap(child);
+		for (Step step : steps) {
+			if (step.matches(child.getNameInData(), attributes)) {
+				matchingSteps.add(step);
+			}
+		}
+		return matchingSteps;
+	}
+
+	private Map<String, String> attributesAsMap(DataChild child) {
+		Map<String, String> attributes = new HashMap<>();
+		putAttributes(child.getAttributes(), attributes);
+		return attributes;
+	}
+
+	private boolean anySelectsWholeBranch(List<Step> steps) {
+		return steps.stream().anyMatch(Step::selectsWholeBranch);
+	}
+
+	private boolean isGroupWithMatchingSteps(DataChild child, List<Step> matchingSteps) {
+		return !matchingSteps.isEmpty() && child instanceof DataGroup;
+	}
+
+	private List<Step> childStepsOf(List<Step> steps) {
+		List<Step> childSteps = new ArrayList<>();
+		for (Step step : steps) {
+			childSteps.addAll(step.getChildren());
+		}
+		return childSteps;
+	}
+
+	private void possiblyWriteProjectedGroup(DataGroup dataGroup, List<Step> childSteps) {
+		if (holdsSelectedData(dataGroup, childSteps)) {
+			String nameInData = dataGroup.getNameInData();
+			output.startElement(nameInData);
+			writeAttributes(
+					collectAttributes(dataGroup.getRepeatId(), dataGroup.getAttributes()));
+			writeProjectedChildren(dataGroup, childSteps);
+			output.endElement(nameInData);
+		}
+	}
+
+	private boolean holdsSelectedData(DataParent dataParent, List<Step> steps) {
+		for (DataChild child : dataParent.getChildren()) {
+			List<Step> matchingSteps = findMatchingSteps(steps, child);
+			if (anySelectsWholeBranch(matchingSteps) || isGroupHoldingSelectedData(child,
+					matchingSteps)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isGroupHoldingSelectedData(DataChild child, List<Step> matchingSteps) {
+		return isGroupWithMatchingSteps(child, matchingSteps)
+				&& holdsSelectedData((DataGroup) child, childStepsOf(matchingSteps));
+	}
+
+	private void possiblyWriteActionLinks(DataRecord dataRecord) {
+		if (linksMustBeAdded && dataRecord.hasActions()) {
+			Set<Action> actions = EnumSet.noneOf(Action.class);
+			actions.addAll(dataRecord.getActions());
+			output.preEncoded(createRecordActionLinks(actions, dataRecord.getSearchId()));
+		}
+	}
+
+	private PreEncodedFragment createRecordActionLinks(Set<Action> actions, String searchId) {
+		return new PreEncodedFragment(
+				() -> actionLinkTemplates.renderRecordActionLinks(actions, recordType, recordId,
+						searchId),
+				() -> listRecordActionLinkValues(actions, searchId));
+	}
+
+	private List<String> listRecordActionLinkValues(Set<Action> actions, String searchId) {
+		List<String> values = new ArrayList<>(Arrays.asList("recordActionLinks",
+				externalUrls.getBaseUrl(), recordType, recordId));
+		for (Action action : actions) {
+			values.add(action.name());
+		}
+		if (actions.contains(Action.SEARCH)) {
+			values.add(searchId);
+		}
+		return values;
+	}
+
+	private void possiblyWritePermissions(DataRecord dataRecord) {
+		if (linksMustBeAdded && hasReadOrWritePermissions(dataRecord)) {
+			Set<String> read = getReadPermissionsIfExists(dataRecord);
+			Set<String> write = getWritePermissionsIfExists(dataRecord);
+			output.preEncoded(new PreEncodedFragment(() -> permissionFragments.encode(read, write),
+					() -> listPermissionValues(read, write)));
+		}
+	}
+
+	private List<String> listPermissionValues(Set<String> read, Set<String> write) {
+		List<String> values = new ArrayList<>();
+		values.add("permissions");
+		addSortedPermissionValues(values, read);
+		addSortedPermissionValues(values, write);
+		return values;
+	}
+
+	private void addSortedPermissionValues(List<String> values, Set<String> permissions) {
+		if (permissions == null) {
+			values.add(null);
+		} else {
+			values.add(String.valueOf(permissions.size()));
+			permissions.stream().sorted().forEach(values::add);
+		}
+	}
+
+	private boolean hasReadOrWritePermissions(DataRecord dataRecord) {
+		return dataRecord.hasReadPermissions() || dataRecord.hasWritePermissions();
+	}
+
+	private Set<String> getReadPermissionsIfExists(DataRecord dataRecord) {
+		if (dataRecord.hasReadPermissions()) {
+			return dataRecord.getReadPermissions();
+		}
+		return null;
+	}
+
+	private Set<String> getWritePermissionsIfExists(DataRecord dataRecord) {
+		if (dataRecord.hasWritePermissions()) {
+			return dataRecord.getWritePermissions();
+		}
+		return null;
+	}
+
+	private void possiblyWriteOtherProtocols(DataRecord dataRecord) {
+		if (linksMustBeAdded && !dataRecord.getProtocols().isEmpty()) {
+			String iiifUrl = externalUrls.getIfffUrl();
+			String id = dataRecord.getId();
+			output.preEncoded(
+					new PreEncodedFragment(() -> OtherProtocolsFragment.encode(iiifUrl, id),
+							() -> Arrays.asList("otherProtocols", iiifUrl, id)));
+		}
+	}
+}
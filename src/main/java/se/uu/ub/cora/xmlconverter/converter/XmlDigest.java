@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.HexFormat;
+
+/**
+ * XmlDigest holds checksums and the length of the bytes of a converted xml, computed while the
+ * xml was written. When the xml is written compressed the digest covers the uncompressed xml, so
+ * the digest of a converted xml does not depend on the compression it was sent with. The SHA-256
+ * digest can be used as a weak ETag and the CRC32C as an integrity checksum for exports.
+ * <p>
+ * As the same digest is returned for the uncompressed and the compressed bytes, it does not
+ * identify the bytes sent, and the ETag is therefore weak. The length is also the uncompressed
+ * length, so it is not the Content-Length of compressed xml.
+ */
+public final class XmlDigest {
+
+	private final byte[] sha256;
+	private final long crc32c;
+	private final long length;
+
+	XmlDigest(byte[] sha256, long crc32c, long length) {
+		this.sha256 = sha256;
+		this.crc32c = crc32c;
+		this.length = length;
+	}
+
+	/**
+	 * getSha256 returns the SHA-256 digest of the xml.
+	 * 
+	 * @return A copy of the 32 bytes of the digest
+	 */
+	public byte[] getSha256() {
+		return sha256.clone();
+	}
+
+	/**
+	 * getSha256Hex returns the SHA-256 digest of the xml as lower case hex.
+	 * 
+	 * @return A String with the digest in hex
+	 */
+	public String getSha256Hex() {
+		return HexFormat.of().formatHex(sha256);
+	}
+
+	/**
+	 * getETag returns a weak entity tag, W/ followed by the quoted hex of the SHA-256 digest. It is
+	 * weak as it is the same for the uncompressed and the compressed xml.
+	 * 
+	 * @return A String with the ETag
+	 */
+	public String getETag() {
+		return "W/\"" + getSha256Hex() + "\"";
+	}
+
+	/**
+	 * getCrc32c returns the CRC32C checksum of the xml.
+	 * 
+	 * @return A long with the checksum
+	 */
+	public long getCrc32c() {
+		return crc32c;
+	}
+
+	/**
+	 * getLength returns the number of bytes in the uncompressed xml. When the xml is written
+	 * compressed, this is not the number of bytes written.
+	 * 
+	 * @return A long with the number of bytes
+	 */
+	public long getLength() {
+		return length;
+	}
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.converter.StringToExternallyConvertibleConverter;
+import se.uu.ub.cora.data.Action;
+import se.uu.ub.cora.data.DataList;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.DataRecord;
+import se.uu.ub.cora.data.DataRecordGroup;
+import se.uu.ub.cora.data.ExternallyConvertible;
+
+/**
+ * XmlEnvelopeToExternallyConvertible reads the record and dataList xml written by
+ * {@link ExternallyConvertibleToXml} back into a {@link DataRecord} or a {@link DataList}. Action
+ * links, permissions and other protocols are read back into the actions, permissions and
+ * protocols of the record. Urls in action links are not kept, as they are created from the
+ * actions when the record is written, except for the searchId that is read from the last part of
+ * the url of the search action link.
+ * <p>
+ * The xml is read in one forward pass without building a DOM. The data in each record and list is
+ * read by a {@link CoraXmlParser}, so it is converted using the same rules as
+ * {@link XmlToExternallyConvertible}. The data in a record must come before its action links,
+ * permissions and other protocols, as it is written.
+ * <p>
+ * XmlEnvelopeToExternallyConvertible is not thread safe.
+ */
+public class XmlEnvelopeToExternallyConvertible implements StringToExternallyConvertibleConverter {
+
+	private static final String CONVERSION_ERROR = "Unable to convert from xml to dataElement: ";
+	private static final String RECORD = "record";
+	private static final String DATA_LIST = "dataList";
+	private static final String DATA = "data";
+	private static final Map<String, Action> ACTIONS_BY_ELEMENT_NAME = createActionsByElementName();
+
+	private XMLInputFactory xmlInputFactory;
+	private CoraXmlParser dataParser;
+
+	public XmlEnvelopeToExternallyConvertible(XMLInputFactory xmlInputFactory) {
+		this.xmlInputFactory = xmlInputFactory;
+		dataParser = new CoraXmlParser(xmlInputFactory);
+	}
+
+	private static Map<String, Action> createActionsByElementName() {
+		Map<String, Action> actions = new HashMap<>();
+		for (Action action : Action.values()) {
+			actions.put(action.name().toLowerCase(Locale.ROOT), action);
+		}
+		return actions;
+	}
+
+	/**
+	 * convert reads record or dataList xml into a {@link DataRecord} or a {@link DataList},
+	 * depending on the top element of the xml.
+	 * 
+	 * @param xml
+	 *            A String with record or dataList xml
+	 * @return A DataRecord or a DataList created from the xml
+	 */
+	@Override
+	public ExternallyConvertible convert(String xml) {
+		XmlHeader.validate(xml);
+		try {
+			return convertUsingReader(xmlInputFactory.createXMLStreamReader(new StringReader(xml)));
+		} catch (XMLStreamException exception) {
+			throw createMalformedXmlException(exception);
+		}
+	}
+
+	private ConverterException createMalformedXmlException(XMLStreamException exception) {
+		return new ConverterException(
+				"Unable to convert from xml to dataElement due to malformed XML: "
+						+ exception.getMessage(),
+				exception);
+	}
+
+	/**
+	 * convert reads record or dataList xml from the inputStream, in the same way as
+	 * {@link #convert(String)}. Compressed xml is inflated as it is read. The inputStream is not
+	 * closed.
+	 * 
+	 * @param inputStream
+	 *            An InputStream to read UTF-8 encoded xml from
+	 * @param compression
+	 *            The XmlCompression of the xml in the inputStream
+	 * @return A DataRecord or a DataList created from the xml
+	 */
+	public ExternallyConvertible convert(InputStream inputStream, XmlCompression compression) {
+		try {
+			InputStream xmlStream = XmlHeader.decompressAndValidate(inputStream, compression);
+			return convertUsingReader(xmlInputFactory.createXMLStreamReader(xmlStream, "UTF-8"));
+		} catch (XMLStreamException exception) {
+			throw createMalformedXmlException(exception);
+		} catch (IOException exception) {
+			throw new ConverterException(CONVERSION_ERROR + exception.getMessage(), exception);
+		}
+	}
+
+	private ExternallyConvertible convertUsingReader(XMLStreamReader reader)
+			throws XMLStreamException {
+		try {
+			ExternallyConvertible converted = convertTopElement(reader);
+			readToEndOfDocument(reader);
+			return converted;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private ExternallyConvertible convertTopElement(XMLStreamReader reader)
+			throws XMLStreamException {
+		reader.nextTag();
+		String name = reader.getLocalName();
+		if (RECORD.equals(name)) {
+			return readRecord(reader);
+		}
+		if (DATA_LIST.equals(name)) {
+			return readDataList(reader);
+		}
+		throw new ConverterException(CONVERSION_ERROR + "Root element must be record or dataList");
+	}
+
+	private void readToEndOfDocument(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			reader.next();
+		}
+	}
+
+	private DataRecord readRecord(XMLStreamReader reader) throws XMLStreamException {
+		moveToChildElement(reader, RECORD, DATA);
+		DataRecordGroup dataRecordGroup = readDataRecordGroup(reader);
+		DataRecord dataRecord = DataProvider.createRecordWithDataRecordGroup(dataRecordGroup);
+		while (moveToNextChildElement(reader)) {
+			readRecordPart(reader, dataRecord);
+		}
+		return dataRecord;
+	}
+
+	private void moveToChildElement(XMLStreamReader reader, String parentName, String name)
+			throws XMLStreamException {
+		if (!moveToNextChildElement(reader)) {
+			throw new ConverterException(
+					CONVERSION_ERROR + "Element " + parentName + " must contain " + name);
+		}
+		if (!name.equals(reader.getLocalName())) {
+			throw new ConverterException(CONVERSION_ERROR + "Expected " + name + " in "
+					+ parentName + " but found " + reader.getLocalName());
+		}
+	}
+
+	private boolean moveToNextChildElement(XMLStreamReader reader) throws XMLStreamException {
+		int event = reader.next();
+		while (event != XMLStreamConstants.START_ELEMENT
+				&& event != XMLStreamConstants.END_ELEMENT) {
+			event = reader.next();
+		}
+		return event == XMLStreamConstants.START_ELEMENT;
+	}
+
+	private DataRecordGroup readDataRecordGroup(XMLStreamReader reader)
+			throws XMLStreamException {
+		DataGroupBuilder dataGroupBuilder = DataGroupBuilder.forDataRecordGroup();
+		if (!moveToNextChildElement(reader)) {
+			throw new ConverterException(
+					CONVERSION_ERROR + "Element data must contain a data group");
+		}
+		readDataElement(reader, dataGroupBuilder);
+		ensureNoMoreChildElements(reader, DATA);
+		return dataGroupBuilder.getDataRecordGroup();
+	}
+
+	private void readDataElement(XMLStreamReader reader, DataGroupBuilder dataGroupBuilder)
+			throws XMLStreamException {
+		dataParser.startParsing(dataGroupBuilder);
+		int depth = 0;
+		int event = XMLStreamConstants.START_ELEMENT;
+		do {
+			dataParser.readEvent(reader, event);
+			depth += depthChange(event);
+			if (depth > 0) {
+				event = reader.next();
+			}
+		} while (depth > 0);
+	}
+
+	private int depthChange(int event) {
+		if (event == XMLStreamConstants.START_ELEMENT) {
+			return 1;
+		}
+		if (event == XMLStreamConstants.END_ELEMENT) {
+			return -1;
+		}
+		return 0;
+	}
+
+	private void ensureNoMoreChildElements(XMLStreamReader reader, String name)
+			throws XMLStreamException {
+		if (moveToNextChildElement(reader)) {
+			throw createUnexpectedElementException(reader.getLocalName(), name);
+		}
+	}
+
+	private ConverterException createUnexpectedElementException(String name, String parentName) {
+		return new ConverterException(
+				CONVERSION_ERROR + "Unexpected element " + name + " in " + parentName);
+	}
+
+	private void readRecordPart(XMLStreamReader reader, DataRecord dataRecord)
+			throws XMLStreamException {
+		String name = reader.getLocalName();
+		if ("actionLinks".equals(name)) {
+			readActions(reader, dataRecord);
+		} else if ("permissions".equals(name)) {
+			readPermissions(reader, dataRecord);
+		} else if ("otherProtocols".equals(name)) {
+			readProtocols(reader, dataRecord);
+		} else {
+			throw createUnexpectedElementException(name, RECORD);
+		}
+	}
+
+	private void readActions(XMLStreamReader reader, DataRecord dataRecord)
+			throws XMLStreamException {
+		while (moveToNextChildElement(reader)) {
+			Action action = getActionForElementName(reader.getLocalName());
+			dataRecord.addAction(action);
+			readActionLink(reader, dataRecord, action);
+		}
+	}
+
+	private void readActionLink(XMLStreamReader reader, DataRecord dataRecord, Action action)
+			throws XMLStreamException {
+		if (action == Action.SEARCH) {
+			readSearchId(reader, dataRecord);
+		} else {
+			skipRestOfElement(reader);
+		}
+	}
+
+	private void readSearchId(XMLStreamReader reader, DataRecord dataRecord)
+			throws XMLStreamException {
+		while (moveToNextChildElement(reader)) {
+			if ("url".equals(reader.getLocalName())) {
+				dataRecord.setSearchId(getLastUrlSegment(reader.getElementText().trim()));
+			} else {
+				skipRestOfElement(reader);
+			}
+		}
+	}
+
+	private String getLastUrlSegment(String url) {
+		return url.substring(url.lastIndexOf('/') + 1);
+	}
+
+	private Action getActionForElementName(String name) {
+		Action action = ACTIONS_BY_ELEMENT_NAME.get(name);
+		if (action == null) {
+			throw new ConverterException(CONVERSION_ERROR + "Unknown action " + name);
+		}
+		return action;
+	}
+
+	private void skipRestOfElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			depth += depthChange(reader.next());
+		}
+	}
+
+	private void readPermissions(XMLStreamReader reader, DataRecord dataRecord)
+			throws XMLStreamException {
+		while (moveToNextChildElement(reader)) {
+			String name = reader.getLocalName();
+			if ("read".equals(name)) {
+				dataRecord.addReadPermissions(readPermissionList(reader));
+			} else if ("write".equals(name)) {
+				dataRecord.addWritePermissions(readPermissionList(reader));
+			} else {
+				throw createUnexpectedElementException(name, "permissions");
+			}
+		}
+	}
+
+	private List<String> readPermissionList(XMLStreamReader reader) throws XMLStreamException {
+		List<String> permissions = new ArrayList<>();
+		while (moveToNextChildElement(reader)) {
+			permissions.add(reader.getElementText().trim());
+		}
+		return permissions;
+	}
+
+	private void readProtocols(XMLStreamReader reader, DataRecord dataRecord)
+			throws XMLStreamException {
+		while (moveToNextChildElement(reader)) {
+			dataRecord.addProtocol(reader.getLocalName());
+			skipRestOfElement(reader);
+		}
+	}
+
+	private DataList readDataList(XMLStreamReader reader) throws XMLStreamException {
+		String fromNo = readTextOfChildElement(reader, "fromNo");
+		String toNo = readTextOfChildElement(reader, "toNo");
+		String totalNo = readTextOfChildElement(reader, "totalNo");
+		String containDataOfType = readTextOfChildElement(reader, "containDataOfType");
+		DataList dataList = DataProvider.createListWithNameOfDataType(containDataOfType);
+		dataList.setFromNo(fromNo);
+		dataList.setToNo(toNo);
+		dataList.setTotalNo(totalNo);
+		moveToChildElement(reader, DATA_LIST, DATA);
+		readDataInList(reader, dataList);
+		ensureNoMoreChildElements(reader, DATA_LIST);
+		return dataList;
+	}
+
+	private String readTextOfChildElement(XMLStreamReader reader, String name)
+			throws XMLStreamException {
+		moveToChildElement(reader, DATA_LIST, name);
+		return reader.getElementText().trim();
+	}
+
+	private void readDataInList(XMLStreamReader reader, DataList dataList)
+			throws XMLStreamException {
+		while (moveToNextChildElement(reader)) {
+			if (RECORD.equals(reader.getLocalName())) {
+				dataList.addData(readRecord(reader));
+			} else {
+				DataGroupBuilder dataGroupBuilder = DataGroupBuilder.forDataGroup();
+				readDataElement(reader, dataGroupBuilder);
+				dataList.addData(dataGroupBuilder.getDataGroup());
+			}
+		}
+	}
+
+	public XMLInputFactory getXmlInputFactoryOnlyForTest() {
+		return xmlInputFactory;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * XmlEscaper escapes text and attribute values with the same rules as the JDK identity transformer
+ * uses when it serializes a DOM document, so that pre-encoded fragments can be mixed with
+ * transformer output without any visible difference.
+ * <p>
+ * In text, markup characters, carriage return, other C0 controls, delete, C1 controls and
+ * characters outside the basic multilingual plane are escaped, while tab and line feed are kept.
+ * Attribute values are escaped the same way, except that quotes, tab and line feed are escaped
+ * while delete and C1 controls are kept.
+ * <p>
+ * A surrogate that is not part of a pair can not be written as xml and is rejected with a
+ * {@link ConverterException}.
+ */
+class XmlEscaper {
+
+	private static final int FIRST_PRINTABLE = 0x20;
+	private static final int FIRST_C1_CONTROL = 0x7F;
+	private static final int LAST_C1_CONTROL = 0x9F;
+
+	private XmlEscaper() {
+	}
+
+	static String escapeText(String text) {
+		StringBuilder escaped = new StringBuilder(text.length() + 16);
+		appendEscapedText(escaped, text);
+		return escaped.toString();
+	}
+
+	/**
+	 * appendEscapedText appends the text escaped to out. Runs of chars that need no escaping, which
+	 * normally is all of the text, are copied to out as they are.
+	 */
+	static void appendEscapedText(StringBuilder out, String text) {
+		int length = text.length();
+		int unescapedStart = 0;
+		for (int i = 0; i < length; i++) {
+			char character = text.charAt(i);
+			if (textNeedsEscaping(character)) {
+				out.append(text, unescapedStart, i);
+				i = appendEscapedTextCharacter(out, text, i, character);
+				unescapedStart = i + 1;
+			}
+		}
+		out.append(text, unescapedStart, length);
+	}
+
+	private static boolean textNeedsEscaping(char character) {
+		if (character == '\t' || character == '\n') {
+			return false;
+		}
+		return isMarkupOrSpecial(character);
+	}
+
+	private static boolean isMarkupOrSpecial(char character) {
+		return character == '&' || character == '<' || character == '>'
+				|| character < FIRST_PRINTABLE || isC1Control(character)
+				|| Character.isSurrogate(character);
+	}
+
+	private static int appendEscapedTextCharacter(StringBuilder out, String text, int index,
+			char character) {
+		switch (character) {
+			case '&' -> out.append("&amp;");
+			case '<' -> out.append("&lt;");
+			case '>' -> out.append("&gt;");
+			default -> {
+				return appendOtherCharacter(out, text, index, character);
+			}
+		}
+		return index;
+	}
+
+	private static int appendOtherCharacter(StringBuilder out, String text, int index,
+			char character) {
+		if (character < FIRST_PRINTABLE || isC1Control(character)) {
+			appendCharacterReference(out, character);
+			return index;
+		}
+		return appendSurrogatePair(out, text, index, character);
+	}
+
+	private static boolean isC1Control(char character) {
+		return character >= FIRST_C1_CONTROL && character <= LAST_C1_CONTROL;
+	}
+
+	static String escapeAttributeValue(String value) {
+		StringBuilder escaped = new StringBuilder(value.length() + 16);
+		appendEscapedAttributeValue(escaped, value);
+		return escaped.toString();
+	}
+
+	static void appendEscapedAttributeValue(StringBuilder out, String value) {
+		int length = value.length();
+		int unescapedStart = 0;
+		for (int i = 0; i < length; i++) {
+			char character = value.charAt(i);
+			if (attributeNeedsEscaping(character)) {
+				out.append(value, unescapedStart, i);
+				i = appendEscapedAttributeCharacter(out, value, i, character);
+				unescapedStart = i + 1;
+			}
+		}
+		out.append(value, unescapedStart, length);
+	}
+
+	private static boolean attributeNeedsEscaping(char character) {
+		return character == '"' || character == '&' || character == '<' || character == '>'
+				|| character < FIRST_PRINTABLE || Character.isSurrogate(character);
+	}
+
+	private static int appendEscapedAttributeCharacter(StringBuilder out, String value, int index,
+			char character) {
+		if (character == '"') {
+			out.append("&quot;");
+			return index;
+		}
+		return appendEscapedTextCharacter(out, value, index, character);
+	}
+
+	private static int appendSurrogatePair(StringBuilder out, String text, int index,
+			char character) {
+		if (isStartOfSurrogatePair(text, index, character)) {
+			appendCharacterReference(out, text.codePointAt(index));
+			return index + 1;
+		}
+		throw new ConverterException("Unable to write xml: lone surrogate "
+				+ Integer.toHexString(character) + " at index " + index);
+	}
+
+	private static boolean isStartOfSurrogatePair(String text, int index, char character) {
+		return Character.isHighSurrogate(character) && index + 1 < text.length()
+				&& Character.isLowSurrogate(text.charAt(index + 1));
+	}
+
+	private static void appendCharacterReference(StringBuilder out, int codePoint) {
+		out.append("&#").append(codePoint).append(';');
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.HexFormat;
+
+import se.uu.ub.cora.data.ExternallyConvertible;
+
+/**
+ * XmlFingerprinter calculates a fingerprint of the canonical xml that
+ * {@link ExternallyConvertibleToXml} would produce, without producing it. The data is walked by
+ * the same {@link XmlDataWriter} as when converting, but to a {@link HashingXmlOutput} that
+ * feeds the walked names and values straight into a SHA-256 digest, without serializing,
+ * escaping or encoding anything. As links are never rendered, no action link templates are
+ * needed.
+ * <p>
+ * The fingerprint identifies the canonical xml only. Data that gives equal canonical xml gives
+ * equal fingerprints, and data that gives different canonical xml gives different fingerprints.
+ * Xml converted without the canonical option can differ in attribute order from the canonical
+ * xml, and the fingerprint is not a digest of any converted bytes.
+ * <p>
+ * A fingerprint is a String with 64 hex chars, suitable as a weak ETag. XmlFingerprinter is not
+ * thread safe.
+ */
+public class XmlFingerprinter {
+	private static final ActionLinkTemplates NO_ACTION_LINK_TEMPLATES = null;
+
+	/**
+	 * fingerprint returns the fingerprint of the xml that
+	 * {@link ExternallyConvertibleToXml#convert(ExternallyConvertible, XmlConversionOptions)}
+	 * would produce with canonical {@link XmlConversionOptions#withoutLinks()}.
+	 * 
+	 * @param externallyConvertible
+	 *            An ExternallyConvertible to fingerprint
+	 * @return A String with the fingerprint as 64 hex chars
+	 */
+	public String fingerprint(ExternallyConvertible externallyConvertible) {
+		return fingerprint(externallyConvertible, XmlConversionOptions.withoutLinks());
+	}
+
+	/**
+	 * fingerprint returns the fingerprint of the xml that
+	 * {@link ExternallyConvertibleToXml#convert(ExternallyConvertible, XmlConversionOptions)}
+	 * would produce with the options made canonical.
+	 * 
+	 * @param externallyConvertible
+	 *            An ExternallyConvertible to fingerprint
+	 * @param options
+	 *            The XmlConversionOptions to fingerprint the xml of, always used as canonical
+	 * @return A String with the fingerprint as 64 hex chars
+	 */
+	public String fingerprint(ExternallyConvertible externallyConvertible,
+			XmlConversionOptions options) {
+		HashingXmlOutput hashingOutput = new HashingXmlOutput();
+		XmlDataWriter dataWriter = XmlDataWriter.create(hashingOutput, options.canonical(),
+				NO_ACTION_LINK_TEMPLATES);
+		dataWriter.write(externallyConvertible);
+		return HexFormat.of().formatHex(hashingOutput.digest());
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+/**
+ * XmlHeader checks that incoming xml starts with the only xml declaration that is accepted when
+ * reading xml into data, version 1.0 and UTF-8.
+ */
+final class XmlHeader {
+	static final String HEADER_ERROR = "Document must be: version 1.0 and UTF-8";
+	private static final String CONVERSION_ERROR = "Unable to convert from xml to dataElement: ";
+	private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final byte[] XML_HEADER_BYTES = XML_HEADER.getBytes(StandardCharsets.UTF_8);
+
+	private XmlHeader() {
+	}
+
+	static boolean startsWithXmlHeader(String xml) {
+		return xml != null && xml.startsWith(XML_HEADER);
+	}
+
+	static boolean startsWithXmlHeader(byte[] xml) {
+		return xml.length >= XML_HEADER_BYTES.length && Arrays.equals(xml, 0,
+				XML_HEADER_BYTES.length, XML_HEADER_BYTES, 0, XML_HEADER_BYTES.length);
+	}
+
+	/**
+	 * validate throws a ConverterException if the xml does not start with the xml header, or is
+	 * null.
+	 */
+	static void validate(String xml) {
+		if (!startsWithXmlHeader(xml)) {
+			throw new ConverterException(CONVERSION_ERROR + HEADER_ERROR);
+		}
+	}
+
+	/**
+	 * decompressAndValidate returns a buffered stream with the uncompressed xml from the
+	 * inputStream, positioned at the start of the xml. A ConverterException is thrown if the xml
+	 * does not start with the xml header.
+	 */
+	static InputStream decompressAndValidate(InputStream inputStream, XmlCompression compression)
+			throws IOException {
+		InputStream xmlStream = new BufferedInputStream(compression.decompress(inputStream));
+		xmlStream.mark(XML_HEADER_BYTES.length);
+		byte[] header = xmlStream.readNBytes(XML_HEADER_BYTES.length);
+		xmlStream.reset();
+		if (!Arrays.equals(header, XML_HEADER_BYTES)) {
+			throw new ConverterException(CONVERSION_ERROR + HEADER_ERROR);
+		}
+		return xmlStream;
+	}
+}
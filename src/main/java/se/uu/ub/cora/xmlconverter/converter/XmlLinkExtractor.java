@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+
+/**
+ * XmlLinkExtractor reads the xml of a record group in one pass and returns the record and
+ * resource links in it, without converting the xml to data. Links are found using the same rules
+ * as {@link XmlToExternallyConvertible}, and xml that can not be converted is reported in the same
+ * way, by throwing a ConverterException.
+ * <p>
+ * XmlLinkExtractor is not thread safe.
+ */
+public class XmlLinkExtractor {
+
+	private static final String PATH_SEPARATOR = "/";
+	private CoraXmlParser parser;
+
+	public XmlLinkExtractor(XMLInputFactory xmlInputFactory) {
+		parser = new CoraXmlParser(xmlInputFactory);
+	}
+
+	/**
+	 * extractLinks reads all record and resource links from the xml.
+	 * 
+	 * @param xml
+	 *            A String with the xml of a record group
+	 * @return A List with a LinkReference for each link, in document order
+	 */
+	public List<LinkReference> extractLinks(String xml) {
+		try (CoraXmlReader reader = parser.createReader(xml)) {
+			return extractLinksUsingReader(reader);
+		}
+	}
+
+	/**
+	 * extractLinks reads all record and resource links from xml read from the inputStream.
+	 * Compressed xml is inflated as it is read. The inputStream is not closed.
+	 * 
+	 * @param inputStream
+	 *            An InputStream to read UTF-8 encoded xml of a record group from
+	 * @param compression
+	 *            The XmlCompression of the xml in the inputStream
+	 * @return A List with a LinkReference for each link, in document order
+	 */
+	public List<LinkReference> extractLinks(InputStream inputStream, XmlCompression compression) {
+		try (CoraXmlReader reader = parser.createReader(inputStream, compression)) {
+			return extractLinksUsingReader(reader);
+		}
+	}
+
+	private List<LinkReference> extractLinksUsingReader(CoraXmlReader reader) {
+		List<LinkReference> links = new ArrayList<>();
+		Deque<String> groupPaths = new ArrayDeque<>();
+		reader.next();
+		groupPaths.push("");
+		while (reader.hasNext()) {
+			CoraXmlKind kind = reader.next();
+			if (kind == CoraXmlKind.START_GROUP) {
+				groupPaths.push(createPath(groupPaths.peek(), reader.nameInData()));
+			} else if (kind == CoraXmlKind.END_GROUP) {
+				groupPaths.pop();
+			} else if (isLink(kind)) {
+				links.add(createLinkReference(reader, groupPaths.peek()));
+			}
+		}
+		return links;
+	}
+
+	private String createPath(String parentPath, String nameInData) {
+		if (parentPath.isEmpty()) {
+			return nameInData;
+		}
+		return parentPath + PATH_SEPARATOR + nameInData;
+	}
+
+	private boolean isLink(CoraXmlKind kind) {
+		return kind == CoraXmlKind.RECORD_LINK || kind == CoraXmlKind.RESOURCE_LINK;
+	}
+
+	private LinkReference createLinkReference(CoraXmlReader reader, String parentPath) {
+		return new LinkReference(createPath(parentPath, reader.nameInData()),
+				reader.linkedRecordType(), reader.linkedRecordId(), reader.repeatId());
+	}
+
+	public XMLInputFactory getXmlInputFactoryOnlyForTest() {
+		return parser.getXmlInputFactoryOnlyForTest();
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.StringReader;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.converter.ExternalUrls;
+
+/**
+ * XmlLinkInjector adds links to record xml that has been converted without links, in one forward
+ * pass over the xml. The result is the same xml as
+ * {@link ExternallyConvertibleToXml#convertWithLinks(se.uu.ub.cora.data.ExternallyConvertible, ExternalUrls)}
+ * returns for the record, without first converting the xml into data.
+ * <p>
+ * Record links and resource links are recognized by their children in the same way as when
+ * converting xml to data. Type and id of the record are read from its recordInfo.
+ * <p>
+ * XmlLinkInjector is not thread safe.
+ */
+public class XmlLinkInjector {
+
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String RECORD = "record";
+	private static final String RECORD_INFO = "recordInfo";
+	private static final String ID = "id";
+	private static final String LINKED_RECORD_TYPE = "linkedRecordType";
+	private static final String LINKED_RECORD_ID = "linkedRecordId";
+	private static final String MIME_TYPE = "mimeType";
+	private static final String LINKED_RECORD = "linkedRecord";
+	private static final int RECORD_INFO_DEPTH = 4;
+	private static final int NUM_OF_RECORD_LINK_CHILDREN = 2;
+	private static final int NUM_OF_RESOURCE_LINK_CHILDREN = 3;
+
+	private XMLInputFactory xmlInputFactory;
+	private ActionLinkTemplates actionLinkTemplates;
+	private PermissionFragments permissionFragments = new PermissionFragments();
+	private RecordLinkData recordLinkData;
+	private ExternalUrls externalUrls;
+	private StringBuilder out;
+	private OpenElement currentElement;
+	private boolean startTagIsOpen;
+	private String recordType;
+	private String recordId;
+
+	public XmlLinkInjector(XMLInputFactory xmlInputFactory) {
+		this.xmlInputFactory = xmlInputFactory;
+	}
+
+	/**
+	 * injectLinks returns the record xml with actionLinks, permissions and otherProtocols added.
+	 * 
+	 * @param recordXml
+	 *            A String with a record converted without links
+	 * @param recordLinkData
+	 *            The RecordLinkData for the record
+	 * @param externalUrls
+	 *            The ExternalUrls to use when creating links
+	 * @return A String with the record xml with links
+	 */
+	public String injectLinks(String recordXml, RecordLinkData recordLinkData,
+			ExternalUrls externalUrls) {
+		setUpForInjection(recordLinkData, externalUrls);
+		try {
+			return tryToInjectLinks(recordXml);
+		} catch (XMLStreamException exception) {
+			throw new ConverterException(
+					"Unable to inject links into xml: " + exception.getMessage(), exception);
+		}
+	}
+
+	private void setUpForInjection(RecordLinkData recordLinkData, ExternalUrls externalUrls) {
+		this.recordLinkData = recordLinkData;
+		this.externalUrls = externalUrls;
+		actionLinkTemplates = ActionLinkTemplates.reuseOrCompile(actionLinkTemplates,
+				externalUrls.getBaseUrl());
+		out = new StringBuilder(XML_DECLARATION);
+		currentElement = null;
+		startTagIsOpen = false;
+		recordType = null;
+		recordId = null;
+	}
+
+	private String tryToInjectLinks(String recordXml) throws XMLStreamException {
+		XMLStreamReader reader = xmlInputFactory
+				.createXMLStreamReader(new StringReader(recordXml));
+		try {
+			copyAndInjectLinks(reader);
+		} finally {
+			reader.close();
+		}
+		return out.toString();
+	}
+
+	private void copyAndInjectLinks(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				copyStartElement(reader);
+			} else if (isText(event)) {
+				copyText(reader.getText());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				copyEndElementAndPossiblyInjectLinks();
+			}
+		}
+	}
+
+	private boolean isText(int event) {
+		return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+				|| event == XMLStreamConstants.SPACE;
+	}
+
+	private void copyStartElement(XMLStreamReader reader) {
+		String name = qualifiedName(reader.getPrefix(), reader.getLocalName());
+		ensureRootIsRecord(name);
+		closeOpenStartTag();
+		currentElement = new OpenElement(name, currentElement);
+		out.append('<').append(name);
+		copyAttributes(reader);
+		startTagIsOpen = true;
+	}
+
+	private String qualifiedName(String prefix, String localName) {
+		if (prefix == null || prefix.isEmpty()) {
+			return localName;
+		}
+		return prefix + ":" + localName;
+	}
+
+	private void ensureRootIsRecord(String name) {
+		if (currentElement == null && !RECORD.equals(name)) {
+			throw new ConverterException(
+					"Unable to inject links into xml: root element must be record");
+		}
+	}
+
+	private void copyAttributes(XMLStreamReader reader) {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String name = qualifiedName(reader.getAttributePrefix(i),
+					reader.getAttributeLocalName(i));
+			out.append(' ').append(name).append("=\"");
+			XmlEscaper.appendEscapedAttributeValue(out, reader.getAttributeValue(i));
+			out.append('"');
+		}
+	}
+
+	private void copyText(String text) {
+		if (text.isEmpty()) {
+			return;
+		}
+		closeOpenStartTag();
+		XmlEscaper.appendEscapedText(out, text);
+		currentElement.possiblyKeepText(text);
+	}
+
+	private void closeOpenStartTag() {
+		if (startTagIsOpen) {
+			out.append('>');
+			startTagIsOpen = false;
+		}
+	}
+
+	private void copyEndElementAndPossiblyInjectLinks() {
+		OpenElement element = currentElement;
+		currentElement = element.parent;
+		possiblyInjectActionLinksForLink(element);
+		possiblyKeepTypeAndIdForRecord(element);
+		possiblyInjectLinksForRecord(element);
+		writeEndTag(element);
+		possiblyRegisterAsChildOfParent(element);
+	}
+
+	private void possiblyInjectActionLinksForLink(OpenElement element) {
+		if (isRecordLink(element) && hasReadActionOnLink(element)) {
+			appendFragment(actionLinkTemplates.renderRecordLinkActionLinks(
+					element.linkedRecordType, element.linkedRecordId));
+		} else if (isResourceLink(element) && hasReadActionOnLink(element)) {
+			appendFragment(actionLinkTemplates.renderResourceLinkActionLinks(
+					element.linkedRecordType, element.linkedRecordId, element.name,
+					element.mimeType));
+		}
+	}
+
+	private boolean isRecordLink(OpenElement element) {
+		return hasLinkedRecordTypeAndId(element) && element.mimeType == null
+				&& element.numOfChildren == numOfRecordLinkChildren(element);
+	}
+
+	private int numOfRecordLinkChildren(OpenElement element) {
+		if (element.hasLinkedRecord) {
+			return NUM_OF_RECORD_LINK_CHILDREN + 1;
+		}
+		return NUM_OF_RECORD_LINK_CHILDREN;
+	}
+
+	private boolean isResourceLink(OpenElement element) {
+		return hasLinkedRecordTypeAndId(element) && element.mimeType != null
+				&& element.numOfChildren == NUM_OF_RESOURCE_LINK_CHILDREN;
+	}
+
+	private boolean hasLinkedRecordTypeAndId(OpenElement element) {
+		return element.linkedRecordType != null && element.linkedRecordId != null;
+	}
+
+	private boolean hasReadActionOnLink(OpenElement element) {
+		return recordLinkData.readActionOnLink().test(element.linkedRecordType,
+				element.linkedRecordId);
+	}
+
+	private void possiblyKeepTypeAndIdForRecord(OpenElement element) {
+		if (isChildOfRecordInfo(element) && ID.equals(element.name)) {
+			recordId = element.text.toString();
+		}
+		if (isChildOfRecordInfo(element) && "type".equals(element.name)) {
+			recordType = element.linkedRecordId;
+		}
+	}
+
+	private boolean isChildOfRecordInfo(OpenElement element) {
+		OpenElement parent = element.parent;
+		return parent != null && parent.depth == RECORD_INFO_DEPTH
+				&& RECORD_INFO.equals(parent.name);
+	}
+
+	private void possiblyInjectLinksForRecord(OpenElement element) {
+		if (element.parent == null) {
+			possiblyInjectActionLinks();
+			possiblyInjectPermissions();
+			possiblyInjectOtherProtocols();
+		}
+	}
+
+	private void possiblyInjectActionLinks() {
+		if (!recordLinkData.actions().isEmpty()) {
+			appendFragment(actionLinkTemplates.renderRecordActionLinks(recordLinkData.actions(),
+					recordType, recordId, recordLinkData.searchId()));
+		}
+	}
+
+	private void possiblyInjectPermissions() {
+		Set<String> readPermissions = nullIfEmpty(recordLinkData.readPermissions());
+		Set<String> writePermissions = nullIfEmpty(recordLinkData.writePermissions());
+		if (readPermissions != null || writePermissions != null) {
+			appendFragment(permissionFragments.encode(readPermissions, writePermissions));
+		}
+	}
+
+	private Set<String> nullIfEmpty(Set<String> permissions) {
+		if (permissions.isEmpty()) {
+			return null;
+		}
+		return permissions;
+	}
+
+	private void possiblyInjectOtherProtocols() {
+		if (!recordLinkData.protocols().isEmpty()) {
+			appendFragment(OtherProtocolsFragment.encode(externalUrls.getIfffUrl(), recordId));
+		}
+	}
+
+	private void appendFragment(String preEncodedXml) {
+		closeOpenStartTag();
+		out.append(preEncodedXml);
+	}
+
+	private void writeEndTag(OpenElement element) {
+		if (startTagIsOpen) {
+			out.append("/>");
+			startTagIsOpen = false;
+		} else {
+			out.append("</").append(element.name).append('>');
+		}
+	}
+
+	private void possiblyRegisterAsChildOfParent(OpenElement element) {
+		if (element.parent != null) {
+			element.parent.registerChild(element);
+		}
+	}
+
+	public XMLInputFactory getXmlInputFactoryOnlyForTest() {
+		return xmlInputFactory;
+	}
+
+	private static class OpenElement {
+		private final String name;
+		private final OpenElement parent;
+		private final int depth;
+		private final StringBuilder text;
+		private int numOfChildren = 0;
+		private String linkedRecordType;
+		private String linkedRecordId;
+		private String mimeType;
+		private boolean hasLinkedRecord = false;
+
+		OpenElement(String name, OpenElement parent) {
+			this.name = name;
+			this.parent = parent;
+			this.depth = parent == null ? 1 : parent.depth + 1;
+			this.text = isTextNeeded(name) ? new StringBuilder() : null;
+		}
+
+		private static boolean isTextNeeded(String name) {
+			return LINKED_RECORD_TYPE.equals(name) || LINKED_RECORD_ID.equals(name)
+					|| MIME_TYPE.equals(name) || ID.equals(name);
+		}
+
+		void possiblyKeepText(String textToKeep) {
+			if (text != null) {
+				text.append(textToKeep);
+			}
+		}
+
+		void registerChild(OpenElement child) {
+			numOfChildren++;
+			switch (child.name) {
+				case LINKED_RECORD_TYPE -> linkedRecordType = child.text.toString();
+				case LINKED_RECORD_ID -> linkedRecordId = child.text.toString();
+				case MIME_TYPE -> mimeType = child.text.toString();
+				case LINKED_RECORD -> hasLinkedRecord = true;
+				default -> {
+					// other children does not make this a link
+				}
+			}
+		}
+	}
+}
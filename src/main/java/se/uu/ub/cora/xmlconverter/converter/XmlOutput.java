@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+/**
+ * XmlOutput receives xml as a sequence of elements, attributes, text and pre-encoded fragments.
+ * {@link XmlCharWriter} writes them as chars and {@link DomXmlOutput} builds a DOM document from
+ * them, so data is walked the same way whichever output it is written to.
+ * <p>
+ * Attributes belong to the element started last and must be given before its text, children or
+ * fragments.
+ */
+interface XmlOutput {
+
+	void startElement(String name);
+
+	void attribute(String name, String value);
+
+	/**
+	 * text adds text to the element started last. Null or empty text adds nothing.
+	 */
+	void text(String text);
+
+	/**
+	 * preEncoded adds xml that is encoded from a few values, such as action links, to the element
+	 * started last.
+	 */
+	void preEncoded(PreEncodedFragment fragment);
+
+	void endElement(String name);
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * XmlPathProjection is a compiled set of nameInData paths used by {@link XmlPathProjector} to
+ * select which parts of the xml to convert, and by {@link ExternallyConvertibleToXml} to select
+ * which parts of the data to write. Paths start below the top group and have one step for
+ * each level, separated by "/", for example "recordInfo/id". A step can require attributes with
+ * given values, as in "title[lang=sv]" or "name[type=given][lang=en]".
+ * <p>
+ * A data element matching the last step of a path is selected together with everything in it.
+ * Groups matching earlier steps are kept only as far as needed to hold selected data elements.
+ * <p>
+ * XmlPathProjection is immutable and can be shared between threads.
+ */
+public final class XmlPathProjection {
+
+	private static final Pattern STEP = Pattern
+			.compile("([^\\[\\]=/]+)((?:\\[[^\\[\\]=/]+=[^\\[\\]/]*\\])*)");
+	private static final Pattern ATTRIBUTE = Pattern.compile("\\[([^\\[\\]=/]+)=([^\\[\\]/]*)\\]");
+	private final List<Step> topSteps;
+
+	private XmlPathProjection(List<Step> topSteps) {
+		this.topSteps = topSteps;
+	}
+
+	/**
+	 * compile compiles the paths into an XmlPathProjection.
+	 * 
+	 * @param paths
+	 *            Strings with the paths to select
+	 * @return An XmlPathProjection selecting the paths
+	 * @throws IllegalArgumentException
+	 *             if a path is not valid
+	 */
+	public static XmlPathProjection compile(String... paths) {
+		List<Step> topSteps = new ArrayList<>();
+		for (String path : paths) {
+			addPath(topSteps, path);
+		}
+		return new XmlPathProjection(Collections.unmodifiableList(topSteps));
+	}
+
+	private static void addPath(List<Step> topSteps, String path) {
+		List<Step> steps = topSteps;
+		Step step = null;
+		for (String stepPart : path.split("/", -1)) {
+			step = findOrAddStep(steps, parseStep(path, stepPart));
+			steps = step.children;
+		}
+		step.selectsWholeBranch = true;
+	}
+
+	private static Step parseStep(String path, String stepPart) {
+		Matcher stepMatcher = STEP.matcher(stepPart);
+		if (!stepMatcher.matches()) {
+			throw new IllegalArgumentException("Invalid path: " + path);
+		}
+		Map<String, String> attributes = new LinkedHashMap<>();
+		Matcher attributeMatcher = ATTRIBUTE.matcher(stepMatcher.group(2));
+		while (attributeMatcher.find()) {
+			attributes.put(attributeMatcher.group(1), attributeMatcher.group(2));
+		}
+		return new Step(stepMatcher.group(1), attributes);
+	}
+
+	private static Step findOrAddStep(List<Step> steps, Step newStep) {
+		for (Step step : steps) {
+			if (step.hasSameConditionAs(newStep)) {
+				return step;
+			}
+		}
+		steps.add(newStep);
+		return newStep;
+	}
+
+	List<Step> getTopSteps() {
+		return topSteps;
+	}
+
+	/**
+	 * Step is one step in the compiled paths.
+	 */
+	static final class Step {
+		private final String nameInData;
+		private final Map<String, String> attributes;
+		private final List<Step> children = new ArrayList<>();
+		private boolean selectsWholeBranch = false;
+
+		private Step(String nameInData, Map<String, String> attributes) {
+			this.nameInData = nameInData;
+			this.attributes = attributes;
+		}
+
+		private boolean hasSameConditionAs(Step other) {
+			return nameInData.equals(other.nameInData) && attributes.equals(other.attributes);
+		}
+
+		boolean matches(String elementName, Map<String, String> elementAttributes) {
+			return nameInData.equals(elementName) && hasAllAttributes(elementAttributes);
+		}
+
+		private boolean hasAllAttributes(Map<String, String> elementAttributes) {
+			for (Entry<String, String> attribute : attributes.entrySet()) {
+				if (!attribute.getValue().equals(elementAttributes.get(attribute.getKey()))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		boolean selectsWholeBranch() {
+			return selectsWholeBranch;
+		}
+
+		List<Step> getChildren() {
+			return children;
+		}
+	}
+}
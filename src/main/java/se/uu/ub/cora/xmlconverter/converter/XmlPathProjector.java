@@ -0,0 +1,191 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.xmlconverter.converter.XmlPathProjection.Step;
+
+/**
+ * XmlPathProjector converts only the parts of the xml selected by an {@link XmlPathProjection}
+ * into a sparse {@link DataGroup}. The top group is always kept, with its attributes.
+ * <p>
+ * Groups that can not hold any selected data element are read past without being classified, so
+ * the cost of a projection grows with the number of data elements on the selected paths, not with
+ * the size of the xml. Selected data elements are converted using the same rules as
+ * {@link XmlToExternallyConvertible}, but errors in skipped parts of the xml are only found if
+ * they make the xml malformed.
+ * <p>
+ * XmlPathProjector is not thread safe.
+ */
+public class XmlPathProjector {
+
+	private CoraXmlParser parser;
+	private DataGroupBuilder dataGroupBuilder;
+
+	public XmlPathProjector(XMLInputFactory xmlInputFactory) {
+		parser = new CoraXmlParser(xmlInputFactory);
+	}
+
+	/**
+	 * project converts the parts of the xml selected by the projection.
+	 * 
+	 * @param xml
+	 *            A String with the xml to project
+	 * @param projection
+	 *            The XmlPathProjection selecting what to convert
+	 * @return A DataGroup with the top group and the selected parts of the xml
+	 */
+	public DataGroup project(String xml, XmlPathProjection projection) {
+		try (CoraXmlReader reader = parser.createReader(xml)) {
+			return projectUsingReader(reader, projection);
+		}
+	}
+
+	/**
+	 * project converts the parts of the xml read from the inputStream selected by the projection.
+	 * Compressed xml is inflated as it is read. The inputStream is not closed.
+	 * 
+	 * @param inputStream
+	 *            An InputStream to read UTF-8 encoded xml from
+	 * @param compression
+	 *            The XmlCompression of the xml in the inputStream
+	 * @param projection
+	 *            The XmlPathProjection selecting what to convert
+	 * @return A DataGroup with the top group and the selected parts of the xml
+	 */
+	public DataGroup project(InputStream inputStream, XmlCompression compression,
+			XmlPathProjection projection) {
+		try (CoraXmlReader reader = parser.createReader(inputStream, compression)) {
+			return projectUsingReader(reader, projection);
+		}
+	}
+
+	private DataGroup projectUsingReader(CoraXmlReader reader, XmlPathProjection projection) {
+		dataGroupBuilder = DataGroupBuilder.forDataGroup();
+		reader.next();
+		String topGroupName = reader.nameInData();
+		dataGroupBuilder.startGroup(topGroupName, reader.attributes(), "");
+		projectChildren(reader, projection.getTopSteps(), PendingGroup.STARTED);
+		dataGroupBuilder.endGroup(topGroupName);
+		readToEnd(reader);
+		return dataGroupBuilder.getDataGroup();
+	}
+
+	private void projectChildren(CoraXmlReader reader, List<Step> steps, PendingGroup parent) {
+		while (reader.next() != CoraXmlKind.END_GROUP) {
+			projectChild(reader, steps, parent);
+		}
+	}
+
+	private void projectChild(CoraXmlReader reader, List<Step> steps, PendingGroup parent) {
+		List<Step> matchingSteps = findMatchingSteps(steps, reader.nameInData(),
+				reader.attributes());
+		if (anySelectsWholeBranch(matchingSteps)) {
+			startPendingGroups(parent);
+			reader.copyCurrentTo(dataGroupBuilder);
+		} else if (reader.currentKind() == CoraXmlKind.START_GROUP) {
+			possiblyProjectGroup(reader, matchingSteps, parent);
+		}
+	}
+
+	private List<Step> findMatchingSteps(List<Step> steps, String nameInData,
+			Map<String, String> attributes) {
+		List<Step> matchingSteps = new ArrayList<>();
+		for (Step step : steps) {
+			if (step.matches(nameInData, attributes)) {
+				matchingSteps.add(step);
+			}
+		}
+		return matchingSteps;
+	}
+
+	private boolean anySelectsWholeBranch(List<Step> steps) {
+		return steps.stream().anyMatch(Step::selectsWholeBranch);
+	}
+
+	private void possiblyProjectGroup(CoraXmlReader reader, List<Step> matchingSteps,
+			PendingGroup parent) {
+		if (matchingSteps.isEmpty()) {
+			reader.skipGroup();
+		} else {
+			projectGroup(reader, matchingSteps, parent);
+		}
+	}
+
+	private void projectGroup(CoraXmlReader reader, List<Step> matchingSteps,
+			PendingGroup parent) {
+		PendingGroup group = new PendingGroup(reader.nameInData(), reader.attributes(),
+				reader.repeatId(), parent);
+		projectChildren(reader, childStepsOf(matchingSteps), group);
+		if (group.started) {
+			dataGroupBuilder.endGroup(group.nameInData);
+		}
+	}
+
+	private List<Step> childStepsOf(List<Step> steps) {
+		List<Step> childSteps = new ArrayList<>();
+		for (Step step : steps) {
+			childSteps.addAll(step.getChildren());
+		}
+		return childSteps;
+	}
+
+	private void startPendingGroups(PendingGroup group) {
+		if (!group.started) {
+			startPendingGroups(group.parent);
+			dataGroupBuilder.startGroup(group.nameInData, group.attributes, group.repeatId);
+			group.started = true;
+		}
+	}
+
+	private void readToEnd(CoraXmlReader reader) {
+		while (reader.hasNext()) {
+			reader.next();
+		}
+	}
+
+	public XMLInputFactory getXmlInputFactoryOnlyForTest() {
+		return parser.getXmlInputFactoryOnlyForTest();
+	}
+
+	private static class PendingGroup {
+		private static final PendingGroup STARTED = new PendingGroup(null, null, null, null);
+		private final String nameInData;
+		private final Map<String, String> attributes;
+		private final String repeatId;
+		private final PendingGroup parent;
+		private boolean started;
+
+		PendingGroup(String nameInData, Map<String, String> attributes, String repeatId,
+				PendingGroup parent) {
+			this.nameInData = nameInData;
+			this.attributes = attributes;
+			this.repeatId = repeatId;
+			this.parent = parent;
+			this.started = parent == null;
+		}
+	}
+}
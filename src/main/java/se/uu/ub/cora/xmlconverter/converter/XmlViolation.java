@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+/**
+ * XmlViolation is one place where xml breaks the rules for converting xml to data, as found by
+ * {@link CoraXmlParser#check(String)}.
+ * 
+ * @param lineNumber
+ *            The line of the violation, starting at 1
+ * @param columnNumber
+ *            The column of the violation, starting at 1
+ * @param message
+ *            A String with the same message as the exception thrown when converting the xml
+ */
+public record XmlViolation(int lineNumber, int columnNumber, String message) {
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2019, 2022, 2024 Uppsala University Library
+ * Copyright 2019, 2022, 2024, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -27,6 +27,7 @@ import static org.testng.Assert.assertTrue;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 
@@ -42,10 +43,17 @@ import se.uu.ub.cora.data.DataProvider;
 import se.uu.ub.cora.data.spies.DataAtomicSpy;
 import se.uu.ub.cora.data.spies.DataFactorySpy;
 import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.xmlconverter.converter.CoraXmlParser;
 import se.uu.ub.cora.xmlconverter.converter.ExternallyConvertibleToXml;
+import se.uu.ub.cora.xmlconverter.converter.RecordInfoExtractor;
+import se.uu.ub.cora.xmlconverter.converter.XmlEnvelopeToExternallyConvertible;
+import se.uu.ub.cora.xmlconverter.converter.XmlLinkExtractor;
+import se.uu.ub.cora.xmlconverter.converter.XmlLinkInjector;
+import se.uu.ub.cora.xmlconverter.converter.XmlPathProjector;
 import se.uu.ub.cora.xmlconverter.converter.XmlToExternallyConvertible;
 import se.uu.ub.cora.xmlconverter.spy.DocumentBuilderFactorySpy;
 import se.uu.ub.cora.xmlconverter.spy.TransformerFactorySpy;
+import se.uu.ub.cora.xmlconverter.spy.XmlInputFactorySpy;
 
 public class XmlConverterFactoryTest {
 
@@ -103,6 +111,21 @@ public class XmlConverterFactoryTest {
 				factorConverter.getTransformerFactoryOnlyForTest() instanceof TransformerFactory);
 	}
 
+	@Test
+	public void testFactoredConvertersShareOutputSizeEstimates() {
+		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
+
+		ExternallyConvertibleToXml factorConverter = (ExternallyConvertibleToXml) xmlConverterFactory
+				.factorExternallyConvertableToStringConverter();
+		ExternallyConvertibleToXml factorConverter2 = (ExternallyConvertibleToXml) xmlConverterFactory
+				.factorExternallyConvertableToStringConverter();
+
+		assertSame(factorConverter.getOutputSizeEstimates(),
+				xmlConverterFactory.getOutputSizeEstimates());
+		assertSame(factorConverter2.getOutputSizeEstimates(),
+				xmlConverterFactory.getOutputSizeEstimates());
+	}
+
 	@Test
 	public void testXmlConverterFactorySendsCorrectFactoriesToStringConverter() {
 		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
@@ -114,6 +137,17 @@ public class XmlConverterFactoryTest {
 				.getDocumentBuilderFactoryOnlyForTest() instanceof DocumentBuilderFactory);
 	}
 
+	@Test
+	public void testFactorStringConverterXmlInputFactoryHasIncreasedSecurity() {
+		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
+
+		XmlToExternallyConvertible converter = (XmlToExternallyConvertible) xmlConverterFactory
+				.factorStringToExternallyConvertableConverter();
+
+		XMLInputFactory xmlInputFactory = converter.getXmlInputFactoryOnlyForTest();
+		assertCorrectSecurityInXmlInputFactory(xmlInputFactory);
+	}
+
 	@Test
 	public void testXmlDataElementConverterFactoryHasIncreasedSecurity() throws Exception {
 		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
@@ -172,6 +206,74 @@ public class XmlConverterFactoryTest {
 		assertEquals(feature, true);
 	}
 
+	@Test
+	public void testFactorXmlLinkInjectorHasIncreasedSecurity() {
+		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
+
+		XmlLinkInjector linkInjector = xmlConverterFactory.factorXmlLinkInjector();
+
+		XMLInputFactory xmlInputFactory = linkInjector.getXmlInputFactoryOnlyForTest();
+		assertCorrectSecurityInXmlInputFactory(xmlInputFactory);
+	}
+
+	@Test
+	public void testFactorCoraXmlParserHasIncreasedSecurity() {
+		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
+
+		CoraXmlParser parser = xmlConverterFactory.factorCoraXmlParser();
+
+		XMLInputFactory xmlInputFactory = parser.getXmlInputFactoryOnlyForTest();
+		assertCorrectSecurityInXmlInputFactory(xmlInputFactory);
+	}
+
+	@Test
+	public void testFactorXmlEnvelopeToExternallyConvertibleHasIncreasedSecurity() {
+		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
+
+		XmlEnvelopeToExternallyConvertible converter = xmlConverterFactory
+				.factorXmlEnvelopeToExternallyConvertible();
+
+		XMLInputFactory xmlInputFactory = converter.getXmlInputFactoryOnlyForTest();
+		assertCorrectSecurityInXmlInputFactory(xmlInputFactory);
+	}
+
+	@Test
+	public void testFactorRecordInfoExtractorHasIncreasedSecurity() {
+		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
+
+		RecordInfoExtractor extractor = xmlConverterFactory.factorRecordInfoExtractor();
+
+		XMLInputFactory xmlInputFactory = extractor.getXmlInputFactoryOnlyForTest();
+		assertCorrectSecurityInXmlInputFactory(xmlInputFactory);
+	}
+
+	@Test
+	public void testFactorXmlPathProjectorHasIncreasedSecurity() {
+		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
+
+		XmlPathProjector projector = xmlConverterFactory.factorXmlPathProjector();
+
+		XMLInputFactory xmlInputFactory = projector.getXmlInputFactoryOnlyForTest();
+		assertCorrectSecurityInXmlInputFactory(xmlInputFactory);
+	}
+
+	@Test
+	public void testFactorXmlLinkExtractorHasIncreasedSecurity() {
+		XmlConverterFactory xmlConverterFactory = new XmlConverterFactory();
+
+		XmlLinkExtractor extractor = xmlConverterFactory.factorXmlLinkExtractor();
+
+		XMLInputFactory xmlInputFactory = extractor.getXmlInputFactoryOnlyForTest();
+		assertCorrectSecurityInXmlInputFactory(xmlInputFactory);
+	}
+
+	private void assertCorrectSecurityInXmlInputFactory(XMLInputFactory xmlInputFactory) {
+		assertEquals(xmlInputFactory.getProperty(XMLInputFactory.SUPPORT_DTD), false);
+		assertEquals(xmlInputFactory.getProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES),
+				false);
+		assertEquals(xmlInputFactory.getProperty(XMLInputFactory.IS_NAMESPACE_AWARE), false);
+	}
+
 	// README : https://portswigger.net/web-security/xxe
 	@Test(expectedExceptions = ConverterException.class)
 	public void testMaliciousXmlExploitingXxeToRetrieveFiles() {
@@ -265,9 +367,18 @@ public class XmlConverterFactoryTest {
 		xmlConverterFactory.factorStringToExternallyConvertableConverter();
 	}
 
+	@Test(expectedExceptions = ConverterInitializationException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to set security features for XMLInputFactory")
+	public void testExceptionWhenSettingWrongSecurityFeatureXmlLinkInjector() {
+		XmlConverterFactoryThrowsExceptionExtendedForTest xmlConverterFactory = new XmlConverterFactoryThrowsExceptionExtendedForTest();
+		xmlConverterFactory.throwExceptionInXmlInputFactory = true;
+		xmlConverterFactory.factorXmlLinkInjector();
+	}
+
 	class XmlConverterFactoryThrowsExceptionExtendedForTest extends XmlConverterFactory {
 		boolean throwExceptionInDocumentBuilder = false;
 		boolean throwExceptionInTransformerFactory = false;
+		boolean throwExceptionInXmlInputFactory = false;
 
 		@Override
 		DocumentBuilderFactory getNewDocumentBuilder() {
@@ -282,6 +393,13 @@ public class XmlConverterFactoryTest {
 			transformerFactorySpy.throwRuntimeException = throwExceptionInTransformerFactory;
 			return transformerFactorySpy;
 		}
+
+		@Override
+		XMLInputFactory getNewXmlInputFactory() {
+			XmlInputFactorySpy xmlInputFactorySpy = new XmlInputFactorySpy();
+			xmlInputFactorySpy.throwRuntimeException = throwExceptionInXmlInputFactory;
+			return xmlInputFactorySpy;
+		}
 	}
 
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.io.StringWriter;
+import java.util.EnumSet;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import se.uu.ub.cora.data.Action;
+
+public class ActionLinkTemplatesTest {
+
+	private static final String SOME_BASE_URL = "https://some.domain.now/rest/record/";
+	private ActionLinkTemplates templates;
+
+	@BeforeMethod
+	public void setUp() {
+		templates = new ActionLinkTemplates(SOME_BASE_URL);
+	}
+
+	@Test
+	public void testNoActionsGivesEmptyActionLinks() {
+		String xml = templates.renderRecordActionLinks(EnumSet.noneOf(Action.class), "someType",
+				"someId", "someSearchId");
+
+		assertEquals(xml, "<actionLinks/>");
+	}
+
+	@Test
+	public void testActionsAreRenderedInFixedOrder() {
+		String xml = templates.renderRecordActionLinks(EnumSet.of(Action.DELETE, Action.READ),
+				"someType", "someId", "someSearchId");
+
+		String expectedXml = "<actionLinks>";
+		expectedXml += "<read>";
+		expectedXml += "<requestMethod>GET</requestMethod>";
+		expectedXml += "<rel>read</rel>";
+		expectedXml += "<url>https://some.domain.now/rest/record/someType/someId</url>";
+		expectedXml += "<accept>application/vnd.cora.record+xml</accept>";
+		expectedXml += "</read>";
+		expectedXml += "<delete>";
+		expectedXml += "<requestMethod>DELETE</requestMethod>";
+		expectedXml += "<rel>delete</rel>";
+		expectedXml += "<url>https://some.domain.now/rest/record/someType/someId</url>";
+		expectedXml += "</delete>";
+		expectedXml += "</actionLinks>";
+		assertEquals(xml, expectedXml);
+	}
+
+	@Test
+	public void testSlotValuesAreEscaped() {
+		String xml = templates.renderRecordActionLinks(EnumSet.of(Action.DELETE), "some&Type",
+				"<someId>", "someSearchId");
+
+		assertEquals(xml, "<actionLinks><delete><requestMethod>DELETE</requestMethod>"
+				+ "<rel>delete</rel><url>https://some.domain.now/rest/record/"
+				+ "some&amp;Type/&lt;someId&gt;</url></delete></actionLinks>");
+	}
+
+	@Test
+	public void testBaseUrlIsEscapedOnceAtCompileTime() {
+		templates = new ActionLinkTemplates("https://some.domain.now/?a=1&b=2/");
+
+		String xml = templates.renderRecordLinkActionLinks("someType", "someId");
+
+		assertEquals(xml, "<actionLinks><read><requestMethod>GET</requestMethod>"
+				+ "<rel>read</rel><url>https://some.domain.now/?a=1&amp;b=2/someType/someId</url>"
+				+ "<accept>application/vnd.cora.record+xml</accept></read></actionLinks>");
+	}
+
+	@Test
+	public void testIndexBodyEmptyRecordIdIsWrittenAsEmptyElement() {
+		String xml = templates.renderRecordActionLinks(EnumSet.of(Action.INDEX), "someType", "",
+				"someSearchId");
+
+		String expectedXml = "<actionLinks>";
+		expectedXml += "<index>";
+		expectedXml += "<requestMethod>POST</requestMethod>";
+		expectedXml += "<rel>index</rel>";
+		expectedXml += "<url>https://some.domain.now/rest/record/workOrder</url>";
+		expectedXml += "<contentType>application/vnd.cora.recordgroup+xml</contentType>";
+		expectedXml += "<accept>application/vnd.cora.record+xml</accept>";
+		expectedXml += "<body>";
+		expectedXml += "<workOrder>";
+		expectedXml += "<recordType>";
+		expectedXml += "<linkedRecordType>recordType</linkedRecordType>";
+		expectedXml += "<linkedRecordId>someType</linkedRecordId>";
+		expectedXml += "<recordId/>";
+		expectedXml += "<type>index</type>";
+		expectedXml += "</recordType>";
+		expectedXml += "</workOrder>";
+		expectedXml += "</body>";
+		expectedXml += "</index>";
+		expectedXml += "</actionLinks>";
+		assertEquals(xml, expectedXml);
+	}
+
+	@Test
+	public void testResourceLinkActionLinks() {
+		String xml = templates.renderResourceLinkActionLinks("binary", "someId", "master",
+				"image/jpeg");
+
+		String expectedXml = "<actionLinks>";
+		expectedXml += "<read>";
+		expectedXml += "<requestMethod>GET</requestMethod>";
+		expectedXml += "<rel>read</rel>";
+		expectedXml += "<url>https://some.domain.now/rest/record/binary/someId/master</url>";
+		expectedXml += "<accept>image/jpeg</accept>";
+		expectedXml += "</read>";
+		expectedXml += "</actionLinks>";
+		assertEquals(xml, expectedXml);
+	}
+
+	@Test
+	public void testSlotValuesWithControlCharactersAreWrittenAsByTransformer() throws Exception {
+		String value = "a\u0001b\rc\u0085d😀e&<>\"'";
+
+		String xml = templates.renderResourceLinkActionLinks(value, value, value, value);
+
+		String url = SOME_BASE_URL + value + "/" + value + "/" + value;
+		assertEquals(xml, serializeWithTransformer(createResourceActionLinksDom(url, value)));
+	}
+
+	private Document createResourceActionLinksDom(String url, String mimeType)
+			throws ParserConfigurationException {
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.newDocument();
+		Element actionLinks = document.createElement("actionLinks");
+		document.appendChild(actionLinks);
+		Element read = appendElement(actionLinks, "read", null);
+		appendElement(read, "requestMethod", "GET");
+		appendElement(read, "rel", "read");
+		appendElement(read, "url", url);
+		appendElement(read, "accept", mimeType);
+		return document;
+	}
+
+	private Element appendElement(Element parent, String name, String textContent) {
+		Element element = parent.getOwnerDocument().createElement(name);
+		if (textContent != null) {
+			element.setTextContent(textContent);
+		}
+		parent.appendChild(element);
+		return element;
+	}
+
+	private String serializeWithTransformer(Document document) throws TransformerException {
+		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		StringWriter writer = new StringWriter();
+		transformer.transform(new DOMSource(document), new StreamResult(writer));
+		return writer.toString();
+	}
+
+	@Test
+	public void testReuseOrCompileReusesTemplatesForSameBaseUrl() {
+		ActionLinkTemplates reused = ActionLinkTemplates.reuseOrCompile(templates,
+				SOME_BASE_URL);
+
+		assertSame(reused, templates);
+	}
+
+	@Test
+	public void testReuseOrCompileCompilesTemplatesForOtherBaseUrl() {
+		ActionLinkTemplates compiled = ActionLinkTemplates.reuseOrCompile(templates,
+				"https://other.domain.now/");
+
+		assertNotSame(compiled, templates);
+		assertEquals(compiled.renderRecordLinkActionLinks("someType", "someId"),
+				"<actionLinks><read><requestMethod>GET</requestMethod><rel>read</rel>"
+						+ "<url>https://other.domain.now/someType/someId</url>"
+						+ "<accept>application/vnd.cora.record+xml</accept></read></actionLinks>");
+	}
+
+	@Test
+	public void testReuseOrCompileCompilesTemplatesWhenNoneExist() {
+		ActionLinkTemplates compiled = ActionLinkTemplates.reuseOrCompile(null, SOME_BASE_URL);
+
+		assertEquals(compiled.renderRecordLinkActionLinks("someType", "someId"),
+				templates.renderRecordLinkActionLinks("someType", "someId"));
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ChunkedXmlTest {
+
+	private static final String XML = "<person><name>Kalle ᚠᚠᚠ 😀</name></person>";
+	private ChunkedXml chunkedXml;
+
+	@BeforeMethod
+	public void setUp() {
+		ChunkedXmlWriter writer = new ChunkedXmlWriter(5);
+		writer.write(XML, 0, 20);
+		writer.write(XML.toCharArray(), 20, XML.length() - 20);
+		chunkedXml = writer.toChunkedXml();
+	}
+
+	@Test
+	public void testLengthAndToString() {
+		assertEquals(chunkedXml.length(), XML.length());
+		assertEquals(chunkedXml.toString(), XML);
+	}
+
+	@Test
+	public void testNoChunkIsLargerThanChunkSize() {
+		assertEquals(chunkedXml.getNumberOfChunks(), 9);
+		for (int i = 0; i < chunkedXml.getNumberOfChunks() - 1; i++) {
+			assertEquals(chunkedXml.getChunk(i).remaining(), 5);
+		}
+		assertEquals(chunkedXml.getChunk(8).toString(), "n>");
+		assertTrue(chunkedXml.getChunk(0).isReadOnly());
+	}
+
+	@Test
+	public void testCharAtAndSubSequence() {
+		for (int i = 0; i < XML.length(); i++) {
+			assertEquals(chunkedXml.charAt(i), XML.charAt(i));
+		}
+		assertEquals(chunkedXml.subSequence(3, 17), XML.subSequence(3, 17));
+		assertEquals(chunkedXml.subSequence(0, 0), "");
+	}
+
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void testCharAtOutsideXml() {
+		chunkedXml.charAt(XML.length());
+	}
+
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void testSubSequenceOutsideXml() {
+		chunkedXml.subSequence(2, XML.length() + 1);
+	}
+
+	@Test
+	public void testWriteToWriter() throws IOException {
+		StringWriter writer = new StringWriter();
+
+		chunkedXml.writeTo(writer);
+
+		assertEquals(writer.toString(), XML);
+	}
+
+	@Test
+	public void testWriteToOutputStreamKeepsCharsSplitBetweenChunks() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		chunkedXml.writeTo(outputStream);
+
+		assertEquals(outputStream.toByteArray(), XML.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testEmpty() {
+		ChunkedXml emptyXml = new ChunkedXmlWriter(5).toChunkedXml();
+
+		assertEquals(emptyXml.length(), 0);
+		assertEquals(emptyXml.getNumberOfChunks(), 0);
+		assertEquals(emptyXml.toString(), "");
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.xmlconverter.spy.CoraXmlVisitorSpy;
+
+public class CoraXmlParserTest {
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+	private CoraXmlParser parser;
+	private CoraXmlVisitorSpy visitor;
+
+	@BeforeMethod
+	public void setUp() {
+		XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		parser = new CoraXmlParser(xmlInputFactory);
+		visitor = new CoraXmlVisitorSpy();
+	}
+
+	@Test
+	public void testGroupsAndAtomicsWithAttributesAndRepeatId() {
+		parser.parse(XML_DECLARATION + "<person gender=\"female\"><name repeatId=\"0\" type=\"a\">"
+				+ "<firstname> Kalle </firstname></name><shoesize repeatId=\"1\">14</shoesize>"
+				+ "</person>", visitor);
+
+		assertEquals(visitor.events,
+				List.of("startGroup person {gender=female} ", "startGroup name {type=a} 0",
+						"atomic firstname Kalle {} ", "endGroup name", "atomic shoesize 14 {} 1",
+						"endGroup person"));
+	}
+
+	@Test
+	public void testAttributesAreReportedInDocumentOrder() {
+		parser.parse(XML_DECLARATION + "<person zType=\"z\" aType=\"a\" mType=\"m\" bType=\"b\">"
+				+ "<name>Kalle</name></person>", visitor);
+
+		assertEquals(visitor.events.get(0),
+				"startGroup person {zType=z, aType=a, mType=m, bType=b} ");
+	}
+
+	@Test
+	public void testRecordLinkAndResourceLinkWithActionLinksSkipped() {
+		parser.parse(XML_DECLARATION + "<person><link repeatId=\"2\" type=\"x\">"
+				+ "<linkedRecordType>someType</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId><actionLinks><read><url>someUrl</url>"
+				+ "</read></actionLinks></link><master><linkedRecordType>binary</linkedRecordType>"
+				+ "<linkedRecordId>binaryId</linkedRecordId><mimeType>image/jpeg</mimeType>"
+				+ "</master></person>", visitor);
+
+		assertEquals(visitor.events,
+				List.of("startGroup person {} ", "recordLink link someType someId {type=x} 2",
+						"resourceLink master binary binaryId image/jpeg ", "endGroup person"));
+	}
+
+	@Test
+	public void testHeldLinkChildrenAreVisitedWhenElementIsAGroup() {
+		parser.parse(XML_DECLARATION + "<person><notALink>"
+				+ "<linkedRecordType>someType</linkedRecordType><other>value</other>"
+				+ "<linkedRecordId>someId</linkedRecordId></notALink></person>", visitor);
+
+		assertEquals(visitor.events,
+				List.of("startGroup person {} ", "startGroup notALink {} ",
+						"atomic linkedRecordType someType {} ", "atomic other value {} ",
+						"atomic linkedRecordId someId {} ", "endGroup notALink",
+						"endGroup person"));
+	}
+
+	@Test
+	public void testOnlyLinkedRecordTypeIsAGroup() {
+		parser.parse(XML_DECLARATION + "<person><notALink>"
+				+ "<linkedRecordType>someType</linkedRecordType></notALink></person>", visitor);
+
+		assertEquals(visitor.events.get(1), "startGroup notALink {} ");
+		assertEquals(visitor.events.get(2), "atomic linkedRecordType someType {} ");
+	}
+
+	@Test
+	public void testNoValueInAtomic() {
+		assertParseThrows(XML_DECLARATION + "<person><firstname> </firstname></person>",
+				"Unable to convert from xml to dataElement: Tag firstname has no value. "
+						+ "Tags without values are not allowed.");
+	}
+
+	private void assertParseThrows(String xml, String expectedMessage) {
+		try {
+			parser.parse(xml, visitor);
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException exception) {
+			assertEquals(exception.getMessage(), expectedMessage);
+		}
+	}
+
+	@Test
+	public void testTopGroupWithRepeatId() {
+		assertParseThrows(XML_DECLARATION + "<person repeatId=\"1\"><name>Kalle</name></person>",
+				"Unable to convert from xml to dataElement: Top dataGroup can not have repeatId");
+	}
+
+	@Test
+	public void testTopGroupWithoutChildren() {
+		assertParseThrows(XML_DECLARATION + "<person></person>",
+				"Unable to convert from xml to dataElement: Root element must be a DataGroup");
+	}
+
+	@Test
+	public void testEmptyActionLinksOutsideLinkIsAnAtomicWithoutValue() {
+		assertParseThrows(XML_DECLARATION + "<person><name><actionLinks/></name></person>",
+				"Unable to convert from xml to dataElement: Tag actionLinks has no value. "
+						+ "Tags without values are not allowed.");
+	}
+
+	@Test
+	public void testLinksInRecordEnvelopeAreSkipped() {
+		parser.parse(XML_DECLARATION + "<record><data><person><name>Kalle</name></person>"
+				+ "</data><actionLinks><read><url>someUrl</url></read></actionLinks>"
+				+ "<permissions><read><permission>someRead</permission></read></permissions>"
+				+ "<otherProtocols><iiif><server>someServer</server></iiif></otherProtocols>"
+				+ "</record>", visitor);
+
+		assertEquals(visitor.events,
+				List.of("startGroup record {} ", "startGroup data {} ", "startGroup person {} ",
+						"atomic name Kalle {} ", "endGroup person", "endGroup data",
+						"endGroup record"));
+	}
+
+	@Test
+	public void testWrongXmlHeader() {
+		assertParseThrows("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><person/>",
+				"Unable to convert from xml to dataElement: "
+						+ "Document must be: version 1.0 and UTF-8");
+	}
+
+	@Test
+	public void testMalformedXml() {
+		try {
+			parser.parse(XML_DECLARATION + "<person><name>Kalle</person>", visitor);
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException exception) {
+			assertEquals(exception.getMessage().substring(0, 64),
+					"Unable to convert from xml to dataElement due to malformed XML: ");
+		}
+	}
+
+	@Test
+	public void testParseGzipStream() throws IOException {
+		String xml = XML_DECLARATION + "<person><name>Kalle</name></person>";
+
+		parser.parse(gzip(xml), XmlCompression.GZIP, visitor);
+
+		assertEquals(visitor.events, List.of("startGroup person {} ", "atomic name Kalle {} ",
+				"endGroup person"));
+	}
+
+	private InputStream gzip(String xml) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+			gzipStream.write(xml.getBytes(StandardCharsets.UTF_8));
+		}
+		return new ByteArrayInputStream(outputStream.toByteArray());
+	}
+
+	@Test
+	public void testParseStreamWithWrongXmlHeader() {
+		InputStream inputStream = new ByteArrayInputStream(
+				"<person/>".getBytes(StandardCharsets.UTF_8));
+		try {
+			parser.parse(inputStream, XmlCompression.NONE, visitor);
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException exception) {
+			assertEquals(exception.getMessage(), "Unable to convert from xml to dataElement: "
+					+ "Document must be: version 1.0 and UTF-8");
+		}
+	}
+
+	@Test
+	public void testCheckXmlWithoutViolations() {
+		String xml = XML_DECLARATION + "<person><name>Kalle</name><link>"
+				+ "<linkedRecordType>someType</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId></link></person>";
+
+		assertEquals(parser.check(xml), List.of());
+		assertEquals(parser.check(xml.getBytes(StandardCharsets.UTF_8)), List.of());
+	}
+
+	@Test
+	public void testCheckFindsAllViolationsWithPosition() {
+		String xml = XML_DECLARATION + "\n<person repeatId=\"1\">\n  <name></name>\n"
+				+ "  <shoes><size> </size></shoes>\n</person>";
+
+		List<XmlViolation> violations = parser.check(xml);
+
+		assertEquals(violations, List.of(
+				new XmlViolation(2, 22, "Unable to convert from xml to dataElement: "
+						+ "Top dataGroup can not have repeatId"),
+				new XmlViolation(3, 9, "Unable to convert from xml to dataElement: "
+						+ "Tag name has no value. Tags without values are not allowed."),
+				new XmlViolation(4, 16, "Unable to convert from xml to dataElement: "
+						+ "Tag size has no value. Tags without values are not allowed.")));
+		assertEquals(parser.check(xml.getBytes(StandardCharsets.UTF_8)), violations);
+	}
+
+	@Test
+	public void testCheckEmptyTopGroup() {
+		assertEquals(parser.check(XML_DECLARATION + "<person/>"), List.of(new XmlViolation(1,
+				48, "Unable to convert from xml to dataElement: Root element must be a DataGroup")));
+	}
+
+	@Test
+	public void testCheckWrongXmlHeader() {
+		String xml = "<?xml version=\"1.0\"?><person><name>Kalle</name></person>";
+
+		List<XmlViolation> expected = List
+				.of(new XmlViolation(1, 1, "Document must be: version 1.0 and UTF-8"));
+		assertEquals(parser.check(xml), expected);
+		assertEquals(parser.check(xml.getBytes(StandardCharsets.UTF_8)), expected);
+	}
+
+	@Test
+	public void testCheckMalformedXmlEndsCheck() {
+		List<XmlViolation> violations = parser
+				.check(XML_DECLARATION + "<person><name></name>\n<name>Kalle</person>");
+
+		assertEquals(violations.size(), 2);
+		XmlViolation malformed = violations.get(1);
+		assertEquals(malformed.lineNumber(), 2);
+		assertTrue(malformed.message().startsWith(
+				"Unable to convert from xml to dataElement due to malformed XML: "));
+	}
+
+	@Test
+	public void testParseThrowsAfterCheck() {
+		parser.check(XML_DECLARATION + "<person><name></name></person>");
+
+		assertParseThrows(XML_DECLARATION + "<person><name></name></person>",
+				"Unable to convert from xml to dataElement: Tag name has no value. "
+						+ "Tags without values are not allowed.");
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+public class CoraXmlReaderTest {
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String PERSON_XML = XML_DECLARATION + "<person gender=\"female\">"
+			+ "<name repeatId=\"0\" type=\"a\"><firstname> Kalle </firstname>"
+			+ "<lastname>Anka</lastname></name><link><linkedRecordType>someType</linkedRecordType>"
+			+ "<linkedRecordId>someId</linkedRecordId><actionLinks><read><url>someUrl</url></read>"
+			+ "</actionLinks></link><master repeatId=\"1\">"
+			+ "<linkedRecordType>binary</linkedRecordType><linkedRecordId>binaryId</linkedRecordId>"
+			+ "<mimeType>image/jpeg</mimeType></master></person>";
+
+	private CoraXmlParser parser;
+
+	@BeforeMethod
+	public void setUp() {
+		XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		parser = new CoraXmlParser(xmlInputFactory);
+	}
+
+	@Test
+	public void testReadAllDataElements() {
+		try (CoraXmlReader reader = parser.createReader(PERSON_XML)) {
+			assertNull(reader.currentKind());
+
+			assertEquals(reader.next(), CoraXmlKind.START_GROUP);
+			assertEquals(reader.nameInData(), "person");
+			assertEquals(reader.attributes(), Map.of("gender", "female"));
+			assertEquals(reader.repeatId(), "");
+
+			assertEquals(reader.next(), CoraXmlKind.START_GROUP);
+			assertEquals(reader.nameInData(), "name");
+			assertEquals(reader.attributes(), Map.of("type", "a"));
+			assertEquals(reader.repeatId(), "0");
+
+			assertEquals(reader.next(), CoraXmlKind.ATOMIC);
+			assertEquals(reader.nameInData(), "firstname");
+			assertEquals(reader.value(), "Kalle");
+
+			assertEquals(reader.next(), CoraXmlKind.ATOMIC);
+			assertEquals(reader.value(), "Anka");
+			assertEquals(reader.next(), CoraXmlKind.END_GROUP);
+			assertEquals(reader.nameInData(), "name");
+
+			assertEquals(reader.next(), CoraXmlKind.RECORD_LINK);
+			assertEquals(reader.nameInData(), "link");
+			assertEquals(reader.linkedRecordType(), "someType");
+			assertEquals(reader.linkedRecordId(), "someId");
+			assertNull(reader.value());
+
+			assertEquals(reader.next(), CoraXmlKind.RESOURCE_LINK);
+			assertEquals(reader.nameInData(), "master");
+			assertEquals(reader.repeatId(), "1");
+			assertEquals(reader.linkedRecordType(), "binary");
+			assertEquals(reader.linkedRecordId(), "binaryId");
+			assertEquals(reader.mimeType(), "image/jpeg");
+
+			assertEquals(reader.next(), CoraXmlKind.END_GROUP);
+			assertEquals(reader.nameInData(), "person");
+			assertFalse(reader.hasNext());
+		}
+	}
+
+	@Test(expectedExceptions = NoSuchElementException.class)
+	public void testNextAfterLastDataElement() {
+		CoraXmlReader reader = parser
+				.createReader(XML_DECLARATION + "<person><name>Kalle</name></person>");
+		readPastAll(reader);
+
+		reader.next();
+	}
+
+	private void readPastAll(CoraXmlReader reader) {
+		while (reader.hasNext()) {
+			reader.next();
+		}
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testReadDataBeforeNext() {
+		parser.createReader(PERSON_XML).nameInData();
+	}
+
+	@Test
+	public void testSkipGroup() {
+		CoraXmlReader reader = parser.createReader(PERSON_XML);
+		reader.next();
+		reader.next();
+
+		reader.skipGroup();
+
+		assertEquals(reader.currentKind(), CoraXmlKind.END_GROUP);
+		assertEquals(reader.nameInData(), "name");
+		assertEquals(reader.next(), CoraXmlKind.RECORD_LINK);
+	}
+
+	@Test
+	public void testSkipTopGroup() {
+		CoraXmlReader reader = parser.createReader(PERSON_XML);
+		reader.next();
+
+		reader.skipGroup();
+
+		assertEquals(reader.currentKind(), CoraXmlKind.END_GROUP);
+		assertEquals(reader.nameInData(), "person");
+		assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void testSkipGroupDoesNotClassifySkippedChildren() {
+		CoraXmlReader reader = parser.createReader(XML_DECLARATION
+				+ "<person><name><firstname> </firstname></name><age>7</age></person>");
+		reader.next();
+		reader.next();
+
+		reader.skipGroup();
+
+		assertEquals(reader.next(), CoraXmlKind.ATOMIC);
+		assertEquals(reader.value(), "7");
+	}
+
+	@Test
+	public void testSkipGroupWhereChildrenAreAlreadyRead() {
+		CoraXmlReader reader = parser.createReader(XML_DECLARATION + "<person><notALink>"
+				+ "<linkedRecordType><a>1</a></linkedRecordType><linkedRecordId>someId"
+				+ "</linkedRecordId><other>value</other></notALink><age>7</age></person>");
+		reader.next();
+		reader.next();
+		assertEquals(reader.nameInData(), "notALink");
+
+		reader.skipGroup();
+
+		assertEquals(reader.nameInData(), "notALink");
+		assertEquals(reader.next(), CoraXmlKind.ATOMIC);
+		assertEquals(reader.nameInData(), "age");
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testSkipGroupWhenNotAtStartOfGroup() {
+		CoraXmlReader reader = parser
+				.createReader(XML_DECLARATION + "<person><name>Kalle</name></person>");
+		reader.next();
+		reader.next();
+
+		reader.skipGroup();
+	}
+
+	@Test
+	public void testErrorInXmlIsReportedWhenReached() {
+		CoraXmlReader reader = parser
+				.createReader(XML_DECLARATION + "<person><name>Kalle</name><age> </age></person>");
+		reader.next();
+		reader.next();
+		try {
+			reader.next();
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException exception) {
+			assertEquals(exception.getMessage(), "Unable to convert from xml to dataElement: "
+					+ "Tag age has no value. Tags without values are not allowed.");
+		}
+	}
+
+	@Test
+	public void testMalformedXml() {
+		CoraXmlReader reader = parser
+				.createReader(XML_DECLARATION + "<person><name>Kalle</person>");
+		reader.next();
+		try {
+			readPastAll(reader);
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException exception) {
+			assertTrue(exception.getMessage().startsWith(
+					"Unable to convert from xml to dataElement due to malformed XML: "));
+		}
+	}
+
+	@Test
+	public void testCreateReaderFromStream() {
+		CoraXmlReader reader = parser.createReader(
+				new ByteArrayInputStream(PERSON_XML.getBytes(StandardCharsets.UTF_8)),
+				XmlCompression.NONE);
+
+		assertEquals(reader.next(), CoraXmlKind.START_GROUP);
+		assertEquals(reader.nameInData(), "person");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Document must be: version 1.0 and UTF-8")
+	public void testCreateReaderWithWrongXmlHeader() {
+		parser.createReader("<person><name>Kalle</name></person>");
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.TransformerFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.data.DataAtomic;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.xmlconverter.spy.OldDataAtomicSpy;
+import se.uu.ub.cora.xmlconverter.spy.OldDataGroupSpy;
+
+public class CoraXmlWriterTest {
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final Map<String, String> NO_ATTRIBUTES = Collections.emptyMap();
+
+	private StringWriter stringWriter;
+	private CoraXmlWriter writer;
+
+	@BeforeMethod
+	public void setUp() {
+		stringWriter = new StringWriter();
+		writer = new CoraXmlWriter(stringWriter);
+	}
+
+	@Test
+	public void testGroupWithAtomics() {
+		writer.startGroup("person", NO_ATTRIBUTES, "");
+		writer.atomic("firstname", "Kalle", NO_ATTRIBUTES, null);
+		writer.atomic("lastname", "<Anka & co>", NO_ATTRIBUTES, "1");
+		writer.endGroup();
+		writer.flush();
+
+		assertEquals(stringWriter.toString(), XML_DECLARATION + "<person><firstname>Kalle"
+				+ "</firstname><lastname repeatId=\"1\">&lt;Anka &amp; co&gt;</lastname></person>");
+	}
+
+	@Test
+	public void testAttributesAreWrittenSortedWithRepeatId() {
+		Map<String, String> attributes = new LinkedHashMap<>();
+		attributes.put("type", "a\"b");
+		attributes.put("gender", "female");
+
+		writer.startGroup("person", NO_ATTRIBUTES, null);
+		writer.startGroup("name", attributes, "0");
+		writer.atomic("firstname", "Kalle", NO_ATTRIBUTES, null);
+		writer.endGroup("name");
+		writer.endGroup("person");
+		writer.flush();
+
+		assertEquals(stringWriter.toString(),
+				XML_DECLARATION + "<person><name gender=\"female\" repeatId=\"0\" "
+						+ "type=\"a&quot;b\"><firstname>Kalle</firstname></name></person>");
+	}
+
+	@Test
+	public void testEmptyGroupAndEmptyAtomicAreWrittenAsEmptyElements() {
+		writer.startGroup("person", NO_ATTRIBUTES, null);
+		writer.startGroup("name", NO_ATTRIBUTES, null);
+		writer.endGroup();
+		writer.atomic("shoesize", "", NO_ATTRIBUTES, null);
+		writer.endGroup();
+		writer.flush();
+
+		assertEquals(stringWriter.toString(),
+				XML_DECLARATION + "<person><name/><shoesize/></person>");
+	}
+
+	@Test
+	public void testControlCharactersAreWrittenAsByConvert() {
+		String value = "a\tb\rc\u007Fd\u0085e<&>\"'";
+		DataGroup person = new OldDataGroupSpy("person");
+		DataAtomic firstName = new OldDataAtomicSpy("firstname", value);
+		firstName.addAttributeByIdWithValue("type", value);
+		person.addChild(firstName);
+
+		writer.startGroup("person", NO_ATTRIBUTES, null);
+		writer.atomic("firstname", value, Map.of("type", value), null);
+		writer.endGroup();
+		writer.flush();
+
+		ExternallyConvertibleToXml toXml = new ExternallyConvertibleToXml(
+				DocumentBuilderFactory.newInstance(), TransformerFactory.newInstance());
+		assertEquals(stringWriter.toString(), toXml.convert(person));
+	}
+
+	@Test
+	public void testLinks() {
+		writer.startGroup("person", NO_ATTRIBUTES, null);
+		writer.recordLink("link", "someType", "someId", Map.of("type", "x"), "2");
+		writer.resourceLink("master", "binary", "someId", "image/jpeg", "");
+		writer.resourceLink("thumb", "binary", "someId", null, Map.of("size", "small"), null);
+		writer.endGroup();
+		writer.flush();
+
+		assertEquals(stringWriter.toString(), XML_DECLARATION + "<person>"
+				+ "<link repeatId=\"2\" type=\"x\"><linkedRecordType>someType</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId></link>"
+				+ "<master><linkedRecordType>binary</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId><mimeType>image/jpeg</mimeType></master>"
+				+ "<thumb size=\"small\"><linkedRecordType>binary</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId><mimeType/></thumb></person>");
+	}
+
+	@Test
+	public void testDataListWithRecords() {
+		writer.startDataList("1", "2", "10", "mix");
+		writePersonRecord("Kalle");
+		writePersonRecord("Olle");
+		writer.endDataList();
+		writer.flush();
+
+		assertEquals(stringWriter.toString(), XML_DECLARATION + "<dataList><fromNo>1</fromNo>"
+				+ "<toNo>2</toNo><totalNo>10</totalNo><containDataOfType>mix</containDataOfType>"
+				+ "<data><record><data><person><name>Kalle</name></person></data></record>"
+				+ "<record><data><person><name>Olle</name></person></data></record></data>"
+				+ "</dataList>");
+	}
+
+	private void writePersonRecord(String name) {
+		writer.startRecord();
+		writer.startGroup("person", NO_ATTRIBUTES, null);
+		writer.atomic("name", name, NO_ATTRIBUTES, null);
+		writer.endGroup();
+		writer.endRecord();
+	}
+
+	@Test
+	public void testEmptyDataList() {
+		writer.startDataList("0", "", null, "person");
+		writer.endDataList();
+		writer.flush();
+
+		assertEquals(stringWriter.toString(), XML_DECLARATION + "<dataList><fromNo>0</fromNo>"
+				+ "<toNo/><totalNo/><containDataOfType>person</containDataOfType><data/>"
+				+ "</dataList>");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to write xml: person can not be ended as it is not started last")
+	public void testEndGroupWithOtherName() {
+		writer.startGroup("person", NO_ATTRIBUTES, null);
+		writer.startGroup("name", NO_ATTRIBUTES, null);
+
+		writer.endGroup("person");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to write xml: there is no started group to end")
+	public void testEndGroupCanNotEndRecord() {
+		writer.startRecord();
+
+		writer.endGroup();
+	}
+
+	@Test
+	public void testWriteParsedXmlGivesSameXml() {
+		String xml = XML_DECLARATION + "<person gender=\"female\"><name repeatId=\"0\">"
+				+ "<firstname>Kalle &amp; Olle</firstname></name>"
+				+ "<link><linkedRecordType>someType</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId></link></person>";
+		XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+
+		new CoraXmlParser(xmlInputFactory).parse(xml, writer);
+		writer.flush();
+
+		assertEquals(stringWriter.toString(), xml);
+	}
+}
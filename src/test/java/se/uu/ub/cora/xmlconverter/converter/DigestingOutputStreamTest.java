@@ -0,0 +1,77 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32C;
+
+import org.testng.annotations.Test;
+
+public class DigestingOutputStreamTest {
+
+	private static final byte[] XML = "<person><name>Kalle ᚠ</name></person>"
+			.getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	public void testBytesArePassedOnAndDigested() throws IOException, NoSuchAlgorithmException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		DigestingOutputStream digestingStream = new DigestingOutputStream(outputStream);
+
+		digestingStream.write(XML[0]);
+		digestingStream.write(XML, 1, XML.length - 1);
+		XmlDigest digest = digestingStream.toXmlDigest();
+
+		assertEquals(outputStream.toByteArray(), XML);
+		assertEquals(digest.getLength(), XML.length);
+		assertEquals(digest.getSha256(), MessageDigest.getInstance("SHA-256").digest(XML));
+		assertEquals(digest.getCrc32c(), calculateCrc32c(XML));
+	}
+
+	private long calculateCrc32c(byte[] bytes) {
+		CRC32C crc32c = new CRC32C();
+		crc32c.update(bytes);
+		return crc32c.getValue();
+	}
+
+	@Test
+	public void testDigestOfNothing() {
+		XmlDigest digest = new DigestingOutputStream(new ByteArrayOutputStream()).toXmlDigest();
+
+		assertEquals(digest.getLength(), 0);
+		assertEquals(digest.getCrc32c(), 0);
+		assertEquals(digest.getSha256Hex(),
+				"e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+		assertEquals(digest.getETag(),
+				"W/\"e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855\"");
+	}
+
+	@Test
+	public void testGetSha256ReturnsCopy() {
+		XmlDigest digest = new DigestingOutputStream(new ByteArrayOutputStream()).toXmlDigest();
+
+		assertNotSame(digest.getSha256(), digest.getSha256());
+	}
+}
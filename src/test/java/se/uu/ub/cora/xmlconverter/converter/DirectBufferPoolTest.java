@@ -0,0 +1,182 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.xmlconverter.spy.GatheringByteChannelSpy;
+
+public class DirectBufferPoolTest {
+
+	private DirectBufferPool pool;
+
+	@BeforeMethod
+	public void setUp() {
+		pool = new DirectBufferPool(1);
+	}
+
+	@Test
+	public void testAcquireAllocatesDirectBufferOfSizeClass() {
+		ByteBuffer buffer = pool.acquire(1);
+
+		assertTrue(buffer.isDirect());
+		assertEquals(buffer.capacity(), DirectBufferPool.SIZE_CLASSES[1]);
+		assertEquals(pool.getNumberOfBuffersInUse(), 1);
+		assertEquals(pool.getNumberOfPooledBuffers(), 0);
+	}
+
+	@Test
+	public void testReleasedBufferIsReusedCleared() {
+		ByteBuffer buffer = pool.acquire(0);
+		buffer.put((byte) 1);
+		pool.release(buffer);
+
+		assertEquals(pool.getNumberOfPooledBuffers(), 1);
+		ByteBuffer reusedBuffer = pool.acquire(0);
+		assertSame(reusedBuffer, buffer);
+		assertEquals(reusedBuffer.position(), 0);
+		assertEquals(pool.getNumberOfPooledBuffers(), 0);
+	}
+
+	@Test
+	public void testBuffersAreOnlyReusedWithinTheirSizeClass() {
+		ByteBuffer buffer = pool.acquire(0);
+		pool.release(buffer);
+
+		assertNotSame(pool.acquire(1), buffer);
+	}
+
+	@Test
+	public void testNoMoreThanMaxBuffersArePooledPerSizeClass() {
+		ByteBuffer buffer1 = pool.acquire(2);
+		ByteBuffer buffer2 = pool.acquire(2);
+		pool.release(buffer1);
+		pool.release(buffer2);
+
+		assertEquals(pool.getNumberOfPooledBuffers(), 1);
+		assertEquals(pool.getNumberOfBuffersInUse(), 0);
+	}
+
+	@Test
+	public void testReleasedBufferOfUnknownSizeIsNotPooled() {
+		pool.acquire(2);
+
+		pool.release(ByteBuffer.allocateDirect(DirectBufferPool.SIZE_CLASSES[2] * 2));
+
+		assertEquals(pool.getNumberOfPooledBuffers(), 0);
+		assertEquals(pool.getNumberOfBuffersInUse(), 0);
+	}
+
+	@Test
+	public void testReleasedHeapBufferIsNotPooled() {
+		pool.acquire(0);
+
+		pool.release(ByteBuffer.allocate(DirectBufferPool.SIZE_CLASSES[0]));
+
+		assertEquals(pool.getNumberOfPooledBuffers(), 0);
+		assertTrue(pool.acquire(0).isDirect());
+	}
+
+	@Test
+	public void testOutputStreamUsesGrowingSizeClasses() {
+		PooledBufferOutputStream outputStream = new PooledBufferOutputStream(pool);
+		byte[] bytes = new byte[DirectBufferPool.SIZE_CLASSES[0] + DirectBufferPool.SIZE_CLASSES[1]
+				+ 1];
+
+		outputStream.write(bytes, 0, bytes.length);
+		PooledXml pooledXml = outputStream.toPooledXml();
+
+		ByteBuffer[] buffers = pooledXml.getByteBuffers();
+		assertEquals(buffers.length, 3);
+		assertEquals(buffers[0].remaining(), DirectBufferPool.SIZE_CLASSES[0]);
+		assertEquals(buffers[1].remaining(), DirectBufferPool.SIZE_CLASSES[1]);
+		assertEquals(buffers[2].remaining(), 1);
+		assertEquals(pooledXml.getLength(), bytes.length);
+	}
+
+	@Test
+	public void testWriteToAndRelease() throws IOException {
+		PooledXml pooledXml = createPooledXml("<person>ᚠ</person>");
+		GatheringByteChannelSpy channel = new GatheringByteChannelSpy();
+
+		pooledXml.writeTo(channel);
+		pooledXml.release();
+		pooledXml.release();
+
+		assertEquals(channel.getWrittenAsString(), "<person>ᚠ</person>");
+		assertEquals(pool.getNumberOfBuffersInUse(), 0);
+		assertEquals(pool.getNumberOfPooledBuffers(), 1);
+		assertEquals(pool.getNumberOfLeakedBuffers(), 0);
+	}
+
+	private PooledXml createPooledXml(String xml) {
+		PooledBufferOutputStream outputStream = new PooledBufferOutputStream(pool);
+		byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+		outputStream.write(bytes, 0, bytes.length);
+		return outputStream.toPooledXml();
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = ""
+			+ "PooledXml has already been released")
+	public void testBuffersCanNotBeUsedAfterRelease() {
+		try (PooledXml pooledXml = createPooledXml("<person/>")) {
+			pooledXml.close();
+			pooledXml.getByteBuffers();
+		}
+	}
+
+	@Test
+	public void testReleaseBuffersAfterFailedWrite() {
+		PooledBufferOutputStream outputStream = new PooledBufferOutputStream(pool);
+		outputStream.write('<');
+
+		outputStream.releaseBuffers();
+
+		assertEquals(pool.getNumberOfBuffersInUse(), 0);
+		assertEquals(pool.getNumberOfPooledBuffers(), 1);
+	}
+
+	@Test
+	public void testUnreleasedPooledXmlIsDetectedAsLeak() throws InterruptedException {
+		createPooledXml("<person/>");
+
+		waitForLeakToBeDetected();
+
+		assertEquals(pool.getNumberOfLeakedBuffers(), 1);
+		assertEquals(pool.getNumberOfBuffersInUse(), 0);
+		assertEquals(pool.getNumberOfPooledBuffers(), 0);
+	}
+
+	private void waitForLeakToBeDetected() throws InterruptedException {
+		for (int i = 0; i < 100 && pool.getNumberOfLeakedBuffers() == 0; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+	}
+}
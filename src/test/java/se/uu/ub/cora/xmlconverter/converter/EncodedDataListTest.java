@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.xmlconverter.spy.GatheringByteChannelSpy;
+
+public class EncodedDataListTest {
+
+	private EncodedDataList encodedDataList;
+	private GatheringByteChannelSpy channel;
+
+	@BeforeMethod
+	public void setUp() {
+		encodedDataList = new EncodedDataList(new ByteBuffer[] { createBuffer("<header>"),
+				createBuffer("<data>ᚠ</data>"), createBuffer("</header>") });
+		channel = new GatheringByteChannelSpy();
+	}
+
+	private ByteBuffer createBuffer(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testGetLength() {
+		assertEquals(encodedDataList.getLength(), 33);
+	}
+
+	@Test
+	public void testWriteToUsesOneGatheringWrite() throws IOException {
+		long written = encodedDataList.writeTo(channel);
+
+		assertEquals(written, 33);
+		assertEquals(channel.numberOfGatheringWrites, 1);
+		assertEquals(channel.getWrittenAsString(), "<header><data>ᚠ</data></header>");
+	}
+
+	@Test
+	public void testWriteToContinuesUntilAllIsWritten() throws IOException {
+		channel.maxBytesPerWrite = 5;
+
+		long written = encodedDataList.writeTo(channel);
+
+		assertEquals(written, 33);
+		assertEquals(channel.numberOfGatheringWrites, 7);
+		assertEquals(channel.getWrittenAsString(), "<header><data>ᚠ</data></header>");
+	}
+
+	@Test
+	public void testCanBeWrittenMoreThanOnce() throws IOException {
+		encodedDataList.writeTo(channel);
+		encodedDataList.writeTo(channel);
+
+		assertEquals(channel.getWrittenAsString(),
+				"<header><data>ᚠ</data></header><header><data>ᚠ</data></header>");
+	}
+
+	@Test
+	public void testGetByteBuffersReturnsNewReadOnlyViews() {
+		ByteBuffer[] first = encodedDataList.getByteBuffers();
+		first[0].position(first[0].limit());
+
+		ByteBuffer[] second = encodedDataList.getByteBuffers();
+
+		assertNotSame(second[0], first[0]);
+		assertTrue(second[0].isReadOnly());
+		assertEquals(second[0].remaining(), 8);
+	}
+}
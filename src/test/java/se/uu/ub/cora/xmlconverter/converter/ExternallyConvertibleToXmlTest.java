@@ -1,5 +1,5 @@
 /*
- * Copyright 2019, 2021, 2024, 2025 Uppsala University Library
+ * Copyright 2019, 2021, 2024, 2025, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -19,8 +19,19 @@
 package se.uu.ub.cora.xmlconverter.converter;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
-
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,10 +39,15 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.OutputKeys;
 import javax.xml.transform.TransformerFactory;
 
 import org.testng.annotations.BeforeMethod;
@@ -55,13 +71,17 @@ import se.uu.ub.cora.data.spies.DataRecordLinkSpy;
 import se.uu.ub.cora.data.spies.DataRecordSpy;
 import se.uu.ub.cora.data.spies.DataResourceLinkSpy;
 import se.uu.ub.cora.xmlconverter.spy.DocumentBuilderFactorySpy;
+import se.uu.ub.cora.xmlconverter.spy.GatheringByteChannelSpy;
 import se.uu.ub.cora.xmlconverter.spy.OldDataAtomicSpy;
 import se.uu.ub.cora.xmlconverter.spy.OldDataGroupSpy;
 import se.uu.ub.cora.xmlconverter.spy.TransformerFactorySpy;
+import se.uu.ub.cora.xmlconverter.spy.TransformerSpy;
 
 public class ExternallyConvertibleToXmlTest {
 
 	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final XmlConversionOptions WITHOUT_LINKS = XmlConversionOptions.withoutLinks();
+	private static final XmlConversionOptions CANONICAL = WITHOUT_LINKS.canonical();
 	private static final String SOME_BASE_URL = "https://some.domain.now/rest/record/";
 	private static final String IIIF_URL = "someIiifFUrl";
 	private static final String APPLICATION_VND_CORA_RECORDGROUP_XML = "application/vnd.cora.recordgroup+xml";
@@ -69,6 +89,7 @@ public class ExternallyConvertibleToXmlTest {
 	private TransformerFactory transformerFactory;
 	private ExternallyConvertibleToXml extConvToXml;
 	private ExternalUrls externalUrls;
+	private XmlConversionOptions withLinks;
 	DataFactorySpy dataFactorySpy;
 
 	@BeforeMethod
@@ -87,6 +108,7 @@ public class ExternallyConvertibleToXmlTest {
 		externalUrls = new ExternalUrls();
 		externalUrls.setBaseUrl(SOME_BASE_URL);
 		externalUrls.setIfffUrl(IIIF_URL);
+		withLinks = XmlConversionOptions.withLinks(externalUrls);
 	}
 
 	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
@@ -166,6 +188,31 @@ public class ExternallyConvertibleToXmlTest {
 		return person;
 	}
 
+	@Test
+	public void testConvertDataRecordGroup() {
+		DataRecordGroupSpy dataRecordGroup = new DataRecordGroupSpy();
+		dataRecordGroup.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
+		dataRecordGroup.MRV.setDefaultReturnValuesSupplier("getAttributes",
+				() -> List.of(createAttribute("type", "author")));
+		dataRecordGroup.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(new OldDataAtomicSpy("firstname", "Kalle")));
+
+		String xml = extConvToXml.convert(dataRecordGroup);
+
+		String expectedXml = XML_DECLARATION
+				+ "<person type=\"author\"><firstname>Kalle</firstname></person>";
+		assertEquals(xml, expectedXml);
+	}
+
+	@Test
+	public void testConvertRecord_recordGroupIsNotCopiedToDataGroup() {
+		DataRecordSpy dataRecord = createDataRecordWithOneLink();
+
+		extConvToXml.convert(dataRecord);
+
+		dataFactorySpy.MCR.assertMethodNotCalled("factorGroupFromDataRecordGroup");
+	}
+
 	@Test
 	public void testConvertMultipleDataAtomicChildren() {
 		String expectedXml = XML_DECLARATION
@@ -601,11 +648,7 @@ public class ExternallyConvertibleToXmlTest {
 		dataRecord.MRV.setDefaultReturnValuesSupplier("getDataRecordGroup",
 				() -> personRecordGroup);
 
-		DataGroupSpy person = new DataGroupSpy();
-		dataFactorySpy.MRV.setSpecificReturnValuesSupplier("factorGroupFromDataRecordGroup",
-				() -> person, personRecordGroup);
-
-		person.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "binary");
+		personRecordGroup.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "binary");
 
 		DataRecordLinkSpy linkSpy = new DataRecordLinkSpy();
 		linkSpy.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "someLinkNameInData");
@@ -614,7 +657,7 @@ public class ExternallyConvertibleToXmlTest {
 
 		List<DataChild> personChildren = new ArrayList<>();
 		personChildren.add(link);
-		person.MRV.setDefaultReturnValuesSupplier("getChildren", () -> personChildren);
+		personRecordGroup.MRV.setDefaultReturnValuesSupplier("getChildren", () -> personChildren);
 		return dataRecord;
 	}
 
@@ -1074,6 +1117,48 @@ public class ExternallyConvertibleToXmlTest {
 		assertRecordCorrectWithSuppliedExpectedPart(xml, expectedActionLinksXml);
 	}
 
+	@Test
+	public void testConvertRecordWithLinks_actionsAreWrittenInFixedOrder() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.DELETE, Action.READ,
+				Action.DELETE);
+
+		String xml = extConvToXml.convertWithLinks(dataRecord, externalUrls);
+
+		String expectedActionLinksXml = "<actionLinks>";
+		expectedActionLinksXml += "<read>";
+		expectedActionLinksXml += "<requestMethod>GET</requestMethod>";
+		expectedActionLinksXml += "<rel>read</rel>";
+		expectedActionLinksXml += "<url>https://some.domain.now/rest/record/fakeType/fakeId</url>";
+		expectedActionLinksXml += "<accept>application/vnd.cora.record+xml</accept>";
+		expectedActionLinksXml += "</read>";
+		expectedActionLinksXml += "<delete>";
+		expectedActionLinksXml += "<requestMethod>DELETE</requestMethod>";
+		expectedActionLinksXml += "<rel>delete</rel>";
+		expectedActionLinksXml += "<url>https://some.domain.now/rest/record/fakeType/fakeId</url>";
+		expectedActionLinksXml += "</delete>";
+		expectedActionLinksXml += "</actionLinks>";
+		assertRecordCorrectWithSuppliedExpectedPart(xml, expectedActionLinksXml);
+	}
+
+	@Test
+	public void testConvertRecordWithLinks_otherBaseUrlAfterFirstConversion() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.DELETE);
+		extConvToXml.convertWithLinks(dataRecord, externalUrls);
+		ExternalUrls otherExternalUrls = new ExternalUrls();
+		otherExternalUrls.setBaseUrl("https://other.domain.now/rest/record/");
+
+		String xml = extConvToXml.convertWithLinks(dataRecord, otherExternalUrls);
+
+		String expectedActionLinksXml = "<actionLinks>";
+		expectedActionLinksXml += "<delete>";
+		expectedActionLinksXml += "<requestMethod>DELETE</requestMethod>";
+		expectedActionLinksXml += "<rel>delete</rel>";
+		expectedActionLinksXml += "<url>https://other.domain.now/rest/record/fakeType/fakeId</url>";
+		expectedActionLinksXml += "</delete>";
+		expectedActionLinksXml += "</actionLinks>";
+		assertRecordCorrectWithSuppliedExpectedPart(xml, expectedActionLinksXml);
+	}
+
 	private DataRecordSpy createRecordWithLinkAddRecordActions(Action... actions) {
 		DataRecordSpy dataRecord = new DataRecordSpy();
 		dataRecord.MRV.setDefaultReturnValuesSupplier("getType", () -> "fakeType");
@@ -1087,11 +1172,7 @@ public class ExternallyConvertibleToXmlTest {
 		dataRecord.MRV.setDefaultReturnValuesSupplier("getDataRecordGroup",
 				() -> personRecordGroup);
 
-		DataGroupSpy person = new DataGroupSpy();
-		dataFactorySpy.MRV.setSpecificReturnValuesSupplier("factorGroupFromDataRecordGroup",
-				() -> person, personRecordGroup);
-
-		person.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
+		personRecordGroup.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
 
 		DataRecordLinkSpy linkSpy = new DataRecordLinkSpy();
 		linkSpy.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "someLinkNameInData");
@@ -1100,8 +1181,7 @@ public class ExternallyConvertibleToXmlTest {
 
 		List<DataChild> personChildren = new ArrayList<>();
 		personChildren.add(linkSpy);
-		person.MRV.setDefaultReturnValuesSupplier("getChildren", () -> personChildren);
-		// TODO: make converter return dataGroup for this dataRecordGroup
+		personRecordGroup.MRV.setDefaultReturnValuesSupplier("getChildren", () -> personChildren);
 
 		return dataRecord;
 	}
@@ -1187,6 +1267,44 @@ public class ExternallyConvertibleToXmlTest {
 		assertRecordCorrectWithSuppliedExpectedPart(xml, expectedPermissionsXml);
 	}
 
+	@Test
+	public void testToXmlWithLinks_PermissionsAreWrittenSorted() {
+		DataRecordSpy dataRecord = createRecordWithReadAndWritePermissions(
+				List.of("readPermissionTwo", "readPermissionOne"),
+				List.of("writePermissionTwo", "writePermissionOne"));
+
+		String xml = extConvToXml.convertWithLinks(dataRecord, externalUrls);
+
+		assertRecordCorrectWithSuppliedExpectedPart(xml,
+				createReadAndWritePermissionsXml("One", "Two"));
+	}
+
+	@Test
+	public void testToXmlWithLinksCanonical_PermissionsAreWrittenSorted() {
+		DataRecordSpy dataRecord = createRecordWithReadAndWritePermissions(
+				List.of("readPermissionTwo", "readPermissionOne"),
+				List.of("writePermissionTwo", "writePermissionOne"));
+
+		String xml = extConvToXml.convert(dataRecord, withLinks.canonical());
+
+		assertRecordCorrectWithSuppliedExpectedPart(xml,
+				createReadAndWritePermissionsXml("One", "Two"));
+	}
+
+	private String createReadAndWritePermissionsXml(String first, String second) {
+		String expectedPermissionsXml = "<permissions>";
+		expectedPermissionsXml += "<read>";
+		expectedPermissionsXml += "<permission>readPermission" + first + "</permission>";
+		expectedPermissionsXml += "<permission>readPermission" + second + "</permission>";
+		expectedPermissionsXml += "</read>";
+		expectedPermissionsXml += "<write>";
+		expectedPermissionsXml += "<permission>writePermission" + first + "</permission>";
+		expectedPermissionsXml += "<permission>writePermission" + second + "</permission>";
+		expectedPermissionsXml += "</write>";
+		expectedPermissionsXml += "</permissions>";
+		return expectedPermissionsXml;
+	}
+
 	@Test
 	public void testToXmlWithoutLinks_ListOfReadAndWritePermissions() {
 		DataRecordSpy dataRecord = createRecordWithReadAndWritePermissions(
@@ -1209,15 +1327,12 @@ public class ExternallyConvertibleToXmlTest {
 		dataRecord.MRV.setDefaultReturnValuesSupplier("getDataRecordGroup",
 				() -> personRecordGroup);
 
-		DataGroupSpy person = new DataGroupSpy();
-		dataFactorySpy.MRV.setSpecificReturnValuesSupplier("factorGroupFromDataRecordGroup",
-				() -> person, personRecordGroup);
-
-		person.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
+		personRecordGroup.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
 
 		DataRecordLinkSpy dataRecordLink = createRecordLink("someLinkNameInData", "someType",
 				"someId");
-		person.MRV.setDefaultReturnValuesSupplier("getChildren", () -> List.of(dataRecordLink));
+		personRecordGroup.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(dataRecordLink));
 
 		LinkedHashSet<String> readSet = new LinkedHashSet<>();
 		readSet.addAll(readPermissions);
@@ -1365,15 +1480,12 @@ public class ExternallyConvertibleToXmlTest {
 		DataRecordGroupSpy dataRecordGroup = new DataRecordGroupSpy();
 		dataRecord.MRV.setDefaultReturnValuesSupplier("getDataRecordGroup", () -> dataRecordGroup);
 
-		DataGroupSpy dataGroup = new DataGroupSpy();
-		dataFactorySpy.MRV.setSpecificReturnValuesSupplier("factorGroupFromDataRecordGroup",
-				() -> dataGroup, dataRecordGroup);
-
-		dataGroup.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
+		dataRecordGroup.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
 
 		DataRecordLinkSpy dataRecordLink = createRecordLink("someLinkNameInData", "someType",
 				"someId");
-		dataGroup.MRV.setDefaultReturnValuesSupplier("getChildren", () -> List.of(dataRecordLink));
+		dataRecordGroup.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(dataRecordLink));
 		return dataRecord;
 	}
 
@@ -1400,4 +1512,726 @@ public class ExternallyConvertibleToXmlTest {
 		assertRecordCorrectWithSuppliedExpectedPart(xml, empty);
 
 	}
+
+	@Test
+	public void testConvertWithAndWithoutLinks() {
+		DataRecordSpy dataRecord = createRecordWithReadAndWritePermissions(List.of("readA"),
+				List.of("writeA"));
+		dataRecord.MRV.setDefaultReturnValuesSupplier("hasActions", () -> true);
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getActions",
+				() -> List.of(Action.READ, Action.DELETE));
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getProtocols", () -> Set.of("iiif"));
+
+		XmlWithAndWithoutLinks result = extConvToXml.convertWithAndWithoutLinks(dataRecord,
+				externalUrls);
+
+		assertRecordCorrectWithSuppliedExpectedPart(result.xml(), "");
+		assertEquals(result.xml(), extConvToXml.convert(dataRecord));
+		assertEquals(result.xmlWithLinks(),
+				extConvToXml.convertWithLinks(dataRecord, externalUrls));
+		assertTrue(result.xmlWithLinks().contains("<actionLinks><read>"));
+		assertTrue(result.xmlWithLinks().contains("<permissions><read>"));
+		assertTrue(result.xmlWithLinks().contains("<otherProtocols>"));
+	}
+
+	@Test
+	public void testConvertWithAndWithoutLinks_dataList() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord, dataRecord);
+
+		XmlWithAndWithoutLinks result = extConvToXml.convertWithAndWithoutLinks(dataList,
+				externalUrls);
+
+		assertEquals(result.xml(), extConvToXml.convert(dataList));
+		assertEquals(result.xmlWithLinks(), extConvToXml.convertWithLinks(dataList, externalUrls));
+	}
+
+	@Test
+	public void testConvertWithAndWithoutLinks_transformerFactoryWithoutSaxSupport() {
+		extConvToXml = setUpDataElementToXmlWithTransformerSpy();
+
+		try {
+			extConvToXml.convertWithAndWithoutLinks(new OldDataGroupSpy("someNameInData"),
+					externalUrls);
+			fail("A ConverterException should have been thrown");
+		} catch (Exception e) {
+			assertTrue(e instanceof ConverterException);
+			assertEquals(e.getMessage(), "Unable to convert from dataElement to xml");
+			assertTrue(e.getCause() instanceof TransformerConfigurationException);
+		}
+	}
+
+	@Test
+	public void testConvertDataListWithEncodedData() {
+		DataListSpy dataList = createDataList();
+		List<String> encodedData = List.of(XML_DECLARATION + "<person><name>Kalle</name></person>",
+				"<person><name>Olle</name></person>", "<empty/>");
+
+		String xml = extConvToXml.convertDataListWithEncodedData(dataList, encodedData);
+
+		String expectedXml = XML_DECLARATION;
+		expectedXml += "<dataList>";
+		expectedXml += "<fromNo>1</fromNo>";
+		expectedXml += "<toNo>99</toNo>";
+		expectedXml += "<totalNo>9999</totalNo>";
+		expectedXml += "<containDataOfType>mix</containDataOfType>";
+		expectedXml += "<data>";
+		expectedXml += "<person><name>Kalle</name></person>";
+		expectedXml += "<person><name>Olle</name></person>";
+		expectedXml += "<empty/>";
+		expectedXml += "</data>";
+		expectedXml += "</dataList>";
+		assertEquals(xml, expectedXml);
+	}
+
+	@Test
+	public void testConvertDataListWithEncodedData_sameAsConvertedDataList() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord, dataRecord);
+		String encodedRecord = extConvToXml.convertWithLinks(dataRecord, externalUrls);
+
+		String xml = extConvToXml.convertDataListWithCheckedEncodedData(dataList,
+				List.of(encodedRecord, encodedRecord));
+
+		assertEquals(xml, extConvToXml.convertWithLinks(dataList, externalUrls));
+	}
+
+	@Test
+	public void testConvertDataListWithEncodedData_noData() {
+		DataListSpy dataList = createDataList();
+
+		String xml = extConvToXml.convertDataListWithEncodedData(dataList, List.of());
+
+		assertEquals(xml, extConvToXml.convert(dataList));
+	}
+
+	@Test
+	public void testConvertDataListWithEncodedData_notCheckedIsCopiedAsIs() {
+		DataListSpy dataList = createDataList();
+
+		String xml = extConvToXml.convertDataListWithEncodedData(dataList,
+				List.of("<a/><b/>"));
+
+		assertTrue(xml.contains("<data><a/><b/></data>"));
+	}
+
+	@Test
+	public void testConvertDataListWithCheckedEncodedData_notOneElement() {
+		DataListSpy dataList = createDataList();
+		List<String> notOneElement = List.of("", "text", "<a>", "<a></b>", "<a/><b/>",
+				XML_DECLARATION);
+
+		for (String encodedData : notOneElement) {
+			try {
+				extConvToXml.convertDataListWithCheckedEncodedData(dataList,
+						List.of("<ok/>", encodedData));
+				fail("A ConverterException should have been thrown for: " + encodedData);
+			} catch (ConverterException e) {
+				assertEquals(e.getMessage(), "Encoded data at position 1 is not one xml element");
+			}
+		}
+	}
+
+	@Test
+	public void testConvertDataListToByteBuffers() throws IOException {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord, createPersonWithFirstname("Kalle"));
+
+		EncodedDataList encodedDataList = extConvToXml.convertDataListToByteBuffers(dataList,
+				WITHOUT_LINKS);
+
+		assertEquals(encodedDataList.getByteBuffers().length, 4);
+		assertEquals(writeToChannel(encodedDataList), extConvToXml.convert(dataList));
+	}
+
+	private String writeToChannel(EncodedDataList encodedDataList) throws IOException {
+		GatheringByteChannelSpy channel = new GatheringByteChannelSpy();
+		encodedDataList.writeTo(channel);
+		return channel.getWrittenAsString();
+	}
+
+	@Test
+	public void testConvertDataListWithLinksToByteBuffers() throws IOException {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord, dataRecord);
+
+		EncodedDataList encodedDataList = extConvToXml
+				.convertDataListToByteBuffers(dataList, withLinks);
+
+		assertEquals(writeToChannel(encodedDataList),
+				extConvToXml.convertWithLinks(dataList, externalUrls));
+	}
+
+	@Test
+	public void testConvertDataListToByteBuffersUsesOneTransformerForAllData() {
+		extConvToXml = setUpDataElementToXmlWithTransformerSpy();
+		DataListSpy dataList = createDataList(createPersonWithFirstname("Kalle"),
+				createPersonWithFirstname("Kajsa"), createPersonWithFirstname("Knatte"));
+
+		extConvToXml.convertDataListToByteBuffers(dataList, WITHOUT_LINKS);
+
+		TransformerFactorySpy transformerFactorySpy = (TransformerFactorySpy) transformerFactory;
+		assertEquals(transformerFactorySpy.numberOfNewTransformerCalls, 1);
+		assertEquals(transformerFactorySpy.transformerSpy.setOutputProperties
+				.getProperty(OutputKeys.OMIT_XML_DECLARATION), "yes");
+	}
+
+	@Test
+	public void testTransformerIsReusedAndResetBetweenConversions() {
+		extConvToXml = setUpDataElementToXmlWithTransformerSpy();
+
+		extConvToXml.convert(new OldDataGroupSpy("person"));
+		extConvToXml.convertToChunkedXml(new OldDataGroupSpy("person"), WITHOUT_LINKS, 100);
+		extConvToXml.convertDataListToByteBuffers(createDataList(), WITHOUT_LINKS);
+
+		TransformerFactorySpy transformerFactorySpy = (TransformerFactorySpy) transformerFactory;
+		assertEquals(transformerFactorySpy.numberOfNewTransformerCalls, 1);
+		assertEquals(transformerFactorySpy.transformerSpy.numberOfResetCalls, 2);
+	}
+
+	@Test
+	public void testConvertDataListToByteBuffers_noData() throws IOException {
+		DataListSpy dataList = createDataList();
+
+		EncodedDataList encodedDataList = extConvToXml.convertDataListToByteBuffers(dataList,
+				WITHOUT_LINKS);
+
+		assertEquals(encodedDataList.getByteBuffers().length, 2);
+		assertEquals(writeToChannel(encodedDataList), extConvToXml.convert(dataList));
+	}
+
+	@Test
+	public void testConvertDataListWithEncodedDataToByteBuffers() throws IOException {
+		DataListSpy dataList = createDataList();
+		String firstXml = XML_DECLARATION + "<person><name>Kalle</name></person>";
+		ByteBuffer first = ByteBuffer.wrap(firstXml.getBytes(StandardCharsets.UTF_8));
+		ByteBuffer second = ByteBuffer.wrap("<empty/>".getBytes(StandardCharsets.UTF_8));
+
+		EncodedDataList encodedDataList = extConvToXml
+				.convertDataListWithEncodedDataToByteBuffers(dataList, List.of(first, second));
+
+		String expectedXml = extConvToXml.convertDataListWithEncodedData(dataList,
+				List.of("<person><name>Kalle</name></person>", "<empty/>"));
+		assertEquals(writeToChannel(encodedDataList), expectedXml);
+		assertEquals(first.position(), 0);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from dataElement to xml")
+	public void testConvertDataListToByteBuffers_transformerException() {
+		extConvToXml = setUpDataElementToXmlWithTransformerSpy();
+		((TransformerFactorySpy) transformerFactory).throwTransformError = true;
+		DataListSpy dataList = createDataList(createPersonWithFirstname("Kalle"));
+
+		extConvToXml.convertDataListToByteBuffers(dataList, WITHOUT_LINKS);
+	}
+
+	@Test
+	public void testConvertToChunkedXml() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord, createPersonWithFirstname("Kalle"));
+
+		ChunkedXml chunkedXml = extConvToXml.convertToChunkedXml(dataList, WITHOUT_LINKS, 16);
+
+		String xml = extConvToXml.convert(dataList);
+		assertEquals(chunkedXml.toString(), xml);
+		assertEquals(chunkedXml.getNumberOfChunks(), (xml.length() + 15) / 16);
+		assertEquals(chunkedXml.getChunk(0).remaining(), 16);
+	}
+
+	@Test
+	public void testConvertWithLinksToChunkedXml() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord, dataRecord);
+
+		ChunkedXml chunkedXml = extConvToXml.convertToChunkedXml(dataList, withLinks,
+				ChunkedXml.DEFAULT_CHUNK_SIZE);
+
+		assertEquals(chunkedXml.toString(), extConvToXml.convertWithLinks(dataList, externalUrls));
+		assertEquals(chunkedXml.getNumberOfChunks(), 1);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Chunk size must be at least 1, was: 0")
+	public void testConvertToChunkedXml_chunkSizeMustBePositive() {
+		extConvToXml.convertToChunkedXml(createPersonWithFirstname("Kalle"), WITHOUT_LINKS, 0);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from dataElement to xml")
+	public void testConvertToChunkedXml_transformerException() {
+		extConvToXml = setUpDataElementToXmlWithTransformerSpy();
+		((TransformerFactorySpy) transformerFactory).throwTransformError = true;
+
+		extConvToXml.convertToChunkedXml(createPersonWithFirstname("Kalle"), WITHOUT_LINKS, 16);
+	}
+
+	@Test
+	public void testConvertToPooledXml() throws IOException {
+		DirectBufferPool pool = new DirectBufferPool(4);
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord, createPersonWithFirstname("Kalle"));
+
+		try (PooledXml pooledXml = extConvToXml.convertToPooledXml(dataList, WITHOUT_LINKS, pool)) {
+			assertEquals(writeToChannel(pooledXml), extConvToXml.convert(dataList));
+			assertEquals(pool.getNumberOfBuffersInUse(), 1);
+		}
+		assertEquals(pool.getNumberOfBuffersInUse(), 0);
+	}
+
+	private String writeToChannel(PooledXml pooledXml) throws IOException {
+		GatheringByteChannelSpy channel = new GatheringByteChannelSpy();
+		pooledXml.writeTo(channel);
+		return channel.getWrittenAsString();
+	}
+
+	@Test
+	public void testConvertWithLinksToPooledXml() throws IOException {
+		DirectBufferPool pool = new DirectBufferPool(4);
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+
+		try (PooledXml pooledXml = extConvToXml.convertToPooledXml(dataRecord, withLinks, pool)) {
+			assertEquals(writeToChannel(pooledXml),
+					extConvToXml.convertWithLinks(dataRecord, externalUrls));
+		}
+	}
+
+	@Test
+	public void testConvertToPooledXmlWritesAttributesSortedAsConvert() throws IOException {
+		DirectBufferPool pool = new DirectBufferPool(4);
+		DataGroup person = createPersonWithFirstname("Kalle");
+		person.addAttributeByIdWithValue("type", "authorized");
+		person.addAttributeByIdWithValue("shoeSize", "43");
+
+		try (PooledXml pooledXml = extConvToXml.convertToPooledXml(person, WITHOUT_LINKS, pool)) {
+			String xml = writeToChannel(pooledXml);
+			assertEquals(xml, extConvToXml.convert(person));
+			assertTrue(xml.contains("<person shoeSize=\"43\" type=\"authorized\">"));
+		}
+	}
+
+	@Test
+	public void testConvertToPooledXmlDoesNotUseDomOrTransformer() throws IOException {
+		DirectBufferPool pool = new DirectBufferPool(4);
+		setUpDataElementToXmlWithDocumentBuilderFactorySpy();
+		((DocumentBuilderFactorySpy) documentBuilderFactory).throwParserError = true;
+
+		try (PooledXml pooledXml = extConvToXml.convertToPooledXml(
+				createPersonWithFirstname("Kalle"), WITHOUT_LINKS, pool)) {
+			assertEquals(writeToChannel(pooledXml),
+					XML_DECLARATION + "<person><firstname>Kalle</firstname></person>");
+		}
+	}
+
+	@Test
+	public void testConvertToPooledXml_writeErrorReleasesBuffers() {
+		DirectBufferPool pool = new DirectBufferPool(4);
+
+		try {
+			extConvToXml.convertToPooledXml(createPersonWithFirstname("Kalle\uD83D"),
+					WITHOUT_LINKS, pool);
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException exception) {
+			assertEquals(exception.getMessage(),
+					"Unable to write xml: lone surrogate d83d at index 5");
+		}
+		assertEquals(pool.getNumberOfBuffersInUse(), 0);
+	}
+
+	@Test
+	public void testConvertRegistersOutputSizePerKindOfData() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord);
+
+		String xml = extConvToXml.convert(dataRecord);
+		String xmlWithLinks = extConvToXml.convertWithLinks(dataRecord, externalUrls);
+		String listXml = extConvToXml.convert(dataList);
+		String groupXml = extConvToXml.convert(createPersonWithFirstname("Kalle"));
+
+		OutputSizeEstimates estimates = extConvToXml.getOutputSizeEstimates();
+		assertEquals(estimates.getEstimate("record/fakeType"), xml.length());
+		assertEquals(estimates.getEstimate("record/fakeType/withLinks"), xmlWithLinks.length());
+		assertEquals(estimates.getEstimate("dataList/mix"), listXml.length());
+		assertEquals(estimates.getEstimate("group/person"), groupXml.length());
+	}
+
+	@Test
+	public void testConvertUsesGivenOutputSizeEstimates() {
+		OutputSizeEstimates estimates = new OutputSizeEstimates();
+		estimates.registerSize("group/person", 4000);
+		extConvToXml = new ExternallyConvertibleToXml(documentBuilderFactory, transformerFactory,
+				estimates);
+
+		String xml = extConvToXml.convert(createPersonWithFirstname("Kalle"));
+
+		assertSame(extConvToXml.getOutputSizeEstimates(), estimates);
+		assertTrue(estimates.getEstimate("group/person") < 4000);
+		assertEquals(xml, XML_DECLARATION + "<person><firstname>Kalle</firstname></person>");
+	}
+
+	@Test
+	public void testConvertToStream() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		extConvToXml.convertToStream(dataRecord, WITHOUT_LINKS, outputStream, XmlCompression.NONE,
+				9);
+
+		assertEquals(outputStream.toString(StandardCharsets.UTF_8),
+				extConvToXml.convert(dataRecord));
+	}
+
+	@Test
+	public void testConvertToGzipStream() throws IOException {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		extConvToXml.convertToStream(dataRecord, WITHOUT_LINKS, outputStream, XmlCompression.GZIP,
+				9);
+
+		InputStream inflated = new GZIPInputStream(
+				new ByteArrayInputStream(outputStream.toByteArray()));
+		assertEquals(new String(inflated.readAllBytes(), StandardCharsets.UTF_8),
+				extConvToXml.convert(dataRecord));
+	}
+
+	@Test
+	public void testConvertWithLinksToDeflateStream() throws IOException {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		extConvToXml.convertToStream(dataRecord, withLinks, outputStream, XmlCompression.DEFLATE,
+				1);
+
+		InputStream inflated = new InflaterInputStream(
+				new ByteArrayInputStream(outputStream.toByteArray()));
+		assertEquals(new String(inflated.readAllBytes(), StandardCharsets.UTF_8),
+				extConvToXml.convertWithLinks(dataRecord, externalUrls));
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Compression level must be between 0 and 9, or -1 for the default level, was: 10")
+	public void testConvertToStream_invalidCompressionLevel() {
+		extConvToXml.convertToStream(createPersonWithFirstname("Kalle"), WITHOUT_LINKS,
+				new ByteArrayOutputStream(), XmlCompression.GZIP, 10);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from dataElement to xml")
+	public void testConvertToStream_transformerException() {
+		extConvToXml = setUpDataElementToXmlWithTransformerSpy();
+		((TransformerFactorySpy) transformerFactory).throwTransformError = true;
+
+		extConvToXml.convertToStream(createPersonWithFirstname("Kalle"), WITHOUT_LINKS,
+				new ByteArrayOutputStream(), XmlCompression.GZIP, 9);
+	}
+
+	@Test
+	public void testConvertWithLinksToStreamWithDigest() throws NoSuchAlgorithmException {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		XmlDigest digest = extConvToXml.convertToStreamWithDigest(dataRecord, withLinks,
+				outputStream, XmlCompression.NONE, 9);
+
+		byte[] written = outputStream.toByteArray();
+		assertEquals(written, extConvToXml.convertWithLinks(dataRecord, externalUrls)
+				.getBytes(StandardCharsets.UTF_8));
+		assertDigestOfBytes(digest, written);
+	}
+
+	private void assertDigestOfBytes(XmlDigest digest, byte[] written)
+			throws NoSuchAlgorithmException {
+		assertEquals(digest.getLength(), written.length);
+		assertEquals(digest.getSha256(), MessageDigest.getInstance("SHA-256").digest(written));
+		CRC32C crc32c = new CRC32C();
+		crc32c.update(written);
+		assertEquals(digest.getCrc32c(), crc32c.getValue());
+	}
+
+	@Test
+	public void testConvertToGzipStreamWithDigestIsDigestOfUncompressedXml()
+			throws NoSuchAlgorithmException, IOException {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		XmlDigest digest = extConvToXml.convertToStreamWithDigest(dataRecord, WITHOUT_LINKS,
+				outputStream, XmlCompression.GZIP, 9);
+
+		InputStream inflated = new GZIPInputStream(
+				new ByteArrayInputStream(outputStream.toByteArray()));
+		byte[] xml = inflated.readAllBytes();
+		assertEquals(xml, extConvToXml.convert(dataRecord).getBytes(StandardCharsets.UTF_8));
+		assertDigestOfBytes(digest, xml);
+	}
+
+	@Test
+	public void testDigestDoesNotDependOnCompression() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+
+		XmlDigest uncompressed = extConvToXml.convertToStreamWithDigest(dataRecord, WITHOUT_LINKS,
+				new ByteArrayOutputStream(), XmlCompression.NONE, 9);
+		XmlDigest deflated = extConvToXml.convertToStreamWithDigest(dataRecord, WITHOUT_LINKS,
+				new ByteArrayOutputStream(), XmlCompression.DEFLATE, 1);
+
+		assertEquals(deflated.getETag(), uncompressed.getETag());
+		assertTrue(deflated.getETag().startsWith("W/\""));
+		assertEquals(deflated.getCrc32c(), uncompressed.getCrc32c());
+		assertEquals(deflated.getLength(), uncompressed.getLength());
+	}
+
+	@Test
+	public void testConvertCanonicalSortsAttributesIndependentOfInsertionOrder() {
+		OldDataGroupSpy person = new OldDataGroupSpy("person");
+		person.addAttributeByIdWithValue("zType", "z");
+		person.addAttributeByIdWithValue("aType", "a");
+		OldDataGroupSpy sameAttributesOtherOrder = new OldDataGroupSpy("person");
+		sameAttributesOtherOrder.addAttributeByIdWithValue("aType", "a");
+		sameAttributesOtherOrder.addAttributeByIdWithValue("zType", "z");
+
+		String xml = extConvToXml.convert(person, CANONICAL);
+
+		assertEquals(xml, XML_DECLARATION + "<person aType=\"a\" zType=\"z\"/>");
+		assertEquals(extConvToXml.convert(sameAttributesOtherOrder, CANONICAL), xml);
+	}
+
+	@Test
+	public void testConvertCanonicalSortsRepeatIdAmongAttributes() {
+		OldDataGroupSpy person = new OldDataGroupSpy("person");
+		DataAtomic shoeSize = new OldDataAtomicSpy("shoesize", "14");
+		shoeSize.setRepeatId("6");
+		shoeSize.addAttributeByIdWithValue("unit", "eu");
+		shoeSize.addAttributeByIdWithValue("accuracy", "exact");
+		person.addChild(shoeSize);
+
+		String xml = extConvToXml.convert(person, CANONICAL);
+
+		assertEquals(xml, XML_DECLARATION + "<person><shoesize accuracy=\"exact\" "
+				+ "repeatId=\"6\" unit=\"eu\">14</shoesize></person>");
+	}
+
+	@Test
+	public void testConvertWithLinksCanonical() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+
+		String xml = extConvToXml.convert(dataRecord, withLinks.canonical());
+
+		assertEquals(xml, extConvToXml.convertWithLinks(dataRecord, externalUrls));
+	}
+
+	@Test
+	public void testConvertCanonicalDoesNotUseTransformer() {
+		extConvToXml = setUpDataElementToXmlWithTransformerSpy();
+
+		String xml = extConvToXml.convert(new OldDataGroupSpy("person"), CANONICAL);
+
+		assertFalse(((TransformerFactorySpy) transformerFactory).newTransformerWasCalled);
+		assertEquals(xml, XML_DECLARATION + "<person/>");
+	}
+
+	@Test
+	public void testConvertWithLinksCanonicalIsSameAsConvertWithLinksForAllKindsOfData() {
+		DataListSpy dataList = createDataList(
+				createDataRecordWithOneLinkWithReadActionAndLinkedRecordWithAttributes(),
+				createDataRecordWithOneLinkWithReadActionAndLinkedRecordWithChildren(),
+				createRecordWithDataResourceLink(createResourceLinkWithReadAction()),
+				createRecordWithLinkAddRecordActions(Action.READ, Action.DELETE),
+				createPersonWithAttributesAndFirstnameInNameGroupWithTwoAttributes("Kalle",
+						"authorized"));
+
+		String xml = extConvToXml.convert(dataList, withLinks.canonical());
+
+		assertEquals(xml, extConvToXml.convertWithLinks(dataList, externalUrls));
+	}
+
+	@Test
+	public void testConvertDoesNotSetOutputPropertiesAfterCanonicalConversion() {
+		extConvToXml = setUpDataElementToXmlWithTransformerSpy();
+		extConvToXml.convert(new OldDataGroupSpy("person"), CANONICAL);
+
+		extConvToXml.convert(new OldDataGroupSpy("person"));
+
+		TransformerSpy transformerSpy = ((TransformerFactorySpy) transformerFactory).transformerSpy;
+		assertTrue(transformerSpy.setOutputProperties.isEmpty());
+	}
+
+	@Test
+	public void testConvertWithProjectionWritesOnlySelectedParts() {
+		DataGroup person = createPersonWithAttributesAndFirstnameInNameGroupWithTwoAttributes(
+				"Kalle", "authorized");
+		person.addChild(new OldDataAtomicSpy("lastname", "Anka"));
+
+		String xml = extConvToXml.convert(person, projectedTo("lastname"));
+
+		assertEquals(xml, XML_DECLARATION + "<person someAttributeName=\"someAttributeValue\""
+				+ " someAttributeName2=\"someAttributeValue2\"><lastname>Anka</lastname></person>");
+	}
+
+	private XmlConversionOptions projectedTo(String... paths) {
+		return WITHOUT_LINKS.projectedTo(XmlPathProjection.compile(paths));
+	}
+
+	@Test
+	public void testConvertWithProjectionKeepsGroupsOnTheWayToSelectedParts() {
+		DataGroup person = createPersonWithFirstnameInNameGroupWithAttribute("Kalle",
+				"authorized");
+		person.addChild(new OldDataAtomicSpy("lastname", "Anka"));
+
+		String xml = extConvToXml.convert(person, projectedTo("name/firstname"));
+
+		assertEquals(xml, XML_DECLARATION
+				+ "<person><name type=\"authorized\"><firstname>Kalle</firstname></name></person>");
+	}
+
+	@Test
+	public void testConvertWithProjectionDropsGroupsWithoutSelectedParts() {
+		DataGroup person = createPersonWithFirstnameInNameGroupWithAttribute("Kalle",
+				"authorized");
+
+		String xml = extConvToXml.convert(person, projectedTo("name/lastname"));
+
+		assertEquals(xml, XML_DECLARATION + "<person/>");
+	}
+
+	@Test
+	public void testConvertWithProjectionMatchesAttributes() {
+		OldDataGroupSpy person = new OldDataGroupSpy("person");
+		DataAtomic swedishName = new OldDataAtomicSpy("name", "Kalle");
+		swedishName.setRepeatId("0");
+		swedishName.addAttributeByIdWithValue("lang", "sv");
+		person.addChild(swedishName);
+		DataAtomic englishName = new OldDataAtomicSpy("name", "Donald");
+		englishName.setRepeatId("1");
+		englishName.addAttributeByIdWithValue("lang", "en");
+		person.addChild(englishName);
+
+		String xml = extConvToXml.convert(person, projectedTo("name[lang=en]"));
+
+		assertEquals(xml, XML_DECLARATION
+				+ "<person><name lang=\"en\" repeatId=\"1\">Donald</name></person>");
+	}
+
+	@Test
+	public void testConvertWithLinksWithProjectionKeepsRecordEnvelope() {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+
+		String projectedXml = extConvToXml.convert(dataRecord,
+				withLinks.projectedTo(XmlPathProjection.compile("nothingMatches")));
+
+		String fullXml = extConvToXml.convertWithLinks(dataRecord, externalUrls);
+		String actionLinksAndRest = fullXml.substring(fullXml.indexOf("<actionLinks>"));
+		assertTrue(projectedXml.startsWith(XML_DECLARATION + "<record><data>"));
+		assertTrue(projectedXml.endsWith("</data>" + actionLinksAndRest));
+	}
+
+	@Test
+	public void testConvertWithProjectionProjectsEachGroupInDataList() {
+		DataListSpy dataList = createDataList(createPersonWithFirstname("Kalle"),
+				createPersonWithFirstname("Kajsa"));
+
+		String xml = extConvToXml.convert(dataList, projectedTo("firstname"));
+
+		assertEquals(xml, extConvToXml.convert(dataList));
+		String xmlWithoutData = extConvToXml.convert(dataList, projectedTo("lastname"));
+		assertTrue(xmlWithoutData.contains("<data><person/><person/></data>"));
+	}
+
+	@Test
+	public void testConvertWithProjectionRegistersOwnOutputSize() {
+		DataGroup person = createPersonWithFirstname("Kalle");
+		String xml = extConvToXml.convert(person);
+
+		String projectedXml = extConvToXml.convert(person, projectedTo("other"));
+
+		OutputSizeEstimates estimates = extConvToXml.getOutputSizeEstimates();
+		assertEquals(estimates.getEstimate("group/person"), xml.length());
+		assertEquals(estimates.getEstimate("group/person/projected"), projectedXml.length());
+	}
+
+	@Test
+	public void testConvertAfterProjectedConversionIsNotProjected() {
+		DataGroup person = createPersonWithFirstname("Kalle");
+		extConvToXml.convert(person, projectedTo("other"));
+
+		String xml = extConvToXml.convert(person);
+
+		assertEquals(xml, XML_DECLARATION + "<person><firstname>Kalle</firstname></person>");
+	}
+
+	@Test
+	public void testMixedCallsGiveSameXmlAsCallsOnNewConverters() {
+		DataListSpy dataList = createDataList(
+				createRecordWithReadAndWritePermissions(List.of("read2", "read1"),
+						List.of("write1")),
+				createPersonWithAttributesAndFirstnameInNameGroupWithTwoAttributes("Kalle",
+						"authorized"));
+		List<XmlConversionOptions> optionsInCallOrder = List.of(withLinks, CANONICAL,
+				projectedTo("name"), WITHOUT_LINKS, withLinks.canonical(),
+				withLinks.projectedTo(XmlPathProjection.compile("someLinkNameInData")), withLinks,
+				CANONICAL.projectedTo(XmlPathProjection.compile("name/firstname")), WITHOUT_LINKS);
+
+		for (XmlConversionOptions options : optionsInCallOrder) {
+			assertEquals(extConvToXml.convert(dataList, options),
+					createConverter().convert(dataList, options));
+		}
+	}
+
+	private ExternallyConvertibleToXml createConverter() {
+		return new ExternallyConvertibleToXml(DocumentBuilderFactory.newInstance(),
+				TransformerFactory.newInstance());
+	}
+
+	@Test
+	public void testMixedCallsWithAndWithoutLinksOnOtherKindsOfOutput() throws IOException {
+		DataRecordSpy dataRecord = createRecordWithLinkAddRecordActions(Action.READ);
+		DataListSpy dataList = createDataList(dataRecord);
+
+		String chunkedXml = extConvToXml.convertToChunkedXml(dataRecord, withLinks, 16)
+				.toString();
+		String encodedDataList = writeToChannel(
+				extConvToXml.convertDataListToByteBuffers(dataList, WITHOUT_LINKS));
+		String xmlWithLinks = extConvToXml.convertWithLinks(dataRecord, externalUrls);
+		String xml = extConvToXml.convert(dataList);
+
+		assertEquals(chunkedXml, xmlWithLinks);
+		assertEquals(encodedDataList, xml);
+		assertEquals(xml, createConverter().convert(dataList));
+		assertEquals(xmlWithLinks, createConverter().convertWithLinks(dataRecord, externalUrls));
+	}
+
+	@Test
+	public void testCanonicalOptionsAreUsedByAllKindsOfOutput() throws IOException {
+		DataRecordSpy dataRecord = createRecordWithReadAndWritePermissions(
+				List.of("read2", "read1"), List.of("write2", "write1"));
+		DataListSpy dataList = createDataList(dataRecord, createPersonWithFirstname("Kalle"));
+		XmlConversionOptions options = withLinks.canonical();
+		String xml = extConvToXml.convert(dataList, options);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		DirectBufferPool pool = new DirectBufferPool(4);
+
+		extConvToXml.convertToStream(dataList, options, outputStream, XmlCompression.NONE, 9);
+
+		assertEquals(outputStream.toString(StandardCharsets.UTF_8), xml);
+		assertEquals(extConvToXml.convertToChunkedXml(dataList, options, 16).toString(), xml);
+		assertEquals(writeToChannel(extConvToXml.convertDataListToByteBuffers(dataList, options)),
+				xml);
+		try (PooledXml pooledXml = extConvToXml.convertToPooledXml(dataList, options, pool)) {
+			assertEquals(writeToChannel(pooledXml), xml);
+		}
+		assertTrue(xml.contains("<permission>read1</permission><permission>read2</permission>"));
+	}
+
+	@Test
+	public void testCanonicalDigestIsDigestOfCanonicalXml() {
+		DataRecordSpy dataRecord = createRecordWithReadAndWritePermissions(
+				List.of("read2", "read1"), List.of());
+		XmlConversionOptions options = withLinks.canonical();
+
+		XmlDigest digest = extConvToXml.convertToStreamWithDigest(dataRecord, options,
+				new ByteArrayOutputStream(), XmlCompression.GZIP, 9);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		extConvToXml.convertToStream(dataRecord, options, outputStream, XmlCompression.NONE, 9);
+		assertEquals(digest.getLength(), outputStream.size());
+	}
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+public class HashingXmlOutputTest {
+
+	@Test
+	public void testDigestOfNothingIsSha256OfNothing() throws Exception {
+		byte[] expected = MessageDigest.getInstance("SHA-256").digest();
+
+		assertEquals(new HashingXmlOutput().digest(), expected);
+	}
+
+	@Test
+	public void testEmptyAndNullTextAreIgnored() {
+		HashingXmlOutput output = createOutputWithElement("name");
+		HashingXmlOutput outputWithEmptyText = new HashingXmlOutput();
+		outputWithEmptyText.startElement("name");
+		outputWithEmptyText.text("");
+		outputWithEmptyText.text(null);
+		outputWithEmptyText.endElement("name");
+
+		assertEquals(outputWithEmptyText.digest(), output.digest());
+	}
+
+	private HashingXmlOutput createOutputWithElement(String name) {
+		HashingXmlOutput output = new HashingXmlOutput();
+		output.startElement(name);
+		output.endElement(name);
+		return output;
+	}
+
+	@Test
+	public void testTextIsNotTakenForAttribute() {
+		HashingXmlOutput output = new HashingXmlOutput();
+		output.startElement("name");
+		output.attribute("type", "a");
+		output.endElement("name");
+		HashingXmlOutput otherOutput = new HashingXmlOutput();
+		otherOutput.startElement("name");
+		otherOutput.text("type");
+		otherOutput.text("a");
+		otherOutput.endElement("name");
+
+		assertNotEquals(output.digest(), otherOutput.digest());
+	}
+
+	@Test
+	public void testNullValueDiffersFromEmptyValue() {
+		assertNotEquals(createOutputWithFragmentValues(Arrays.asList((String) null)).digest(),
+				createOutputWithFragmentValues(List.of("")).digest());
+	}
+
+	private HashingXmlOutput createOutputWithFragmentValues(List<String> values) {
+		HashingXmlOutput output = new HashingXmlOutput();
+		output.preEncoded(new PreEncodedFragment(() -> "<notEncoded/>", () -> values));
+		return output;
+	}
+
+	@Test
+	public void testFragmentIsNotEncoded() {
+		AtomicBoolean encoded = new AtomicBoolean(false);
+		HashingXmlOutput output = new HashingXmlOutput();
+
+		output.preEncoded(new PreEncodedFragment(() -> {
+			encoded.set(true);
+			return "<read/>";
+		}, () -> List.of("read")));
+
+		assertFalse(encoded.get());
+	}
+
+	@Test
+	public void testLongValuesAreFedInFull() {
+		String longName = "a".repeat(10000);
+
+		String digest = HexFormat.of().formatHex(createOutputWithElement(longName + "b").digest());
+
+		assertNotEquals(digest,
+				HexFormat.of().formatHex(createOutputWithElement(longName + "c").digest()));
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class OutputSizeEstimatesTest {
+
+	private OutputSizeEstimates estimates;
+
+	@BeforeMethod
+	public void setUp() {
+		estimates = new OutputSizeEstimates();
+	}
+
+	@Test
+	public void testNoEstimateForUnknownKey() {
+		assertEquals(estimates.getEstimate("record/person"), 0);
+	}
+
+	@Test
+	public void testFirstSizeIsTheEstimate() {
+		estimates.registerSize("record/person", 1000);
+
+		assertEquals(estimates.getEstimate("record/person"), 1000);
+	}
+
+	@Test
+	public void testEstimateMovesFasterUpThanDown() {
+		estimates.registerSize("up", 1000);
+		estimates.registerSize("up", 2000);
+		estimates.registerSize("down", 1000);
+		estimates.registerSize("down", 0);
+
+		assertEquals(estimates.getEstimate("up"), 1090);
+		assertEquals(estimates.getEstimate("down"), 990);
+	}
+
+	@Test
+	public void testEstimateSettlesCloseToNinetiethPercentile() {
+		for (int i = 0; i < 2000; i++) {
+			registerSizeBetween1000And2000(i);
+		}
+		long estimateSum = 0;
+		for (int i = 2000; i < 3000; i++) {
+			registerSizeBetween1000And2000(i);
+			estimateSum += estimates.getEstimate("record/person");
+		}
+
+		long averageEstimate = estimateSum / 1000;
+		assertTrue(averageEstimate > 1800 && averageEstimate < 1950,
+				"average estimate was " + averageEstimate);
+	}
+
+	private void registerSizeBetween1000And2000(int i) {
+		estimates.registerSize("record/person", 1000 + (i * 7919) % 1000);
+	}
+
+	@Test
+	public void testEstimateFollowsChangedSizes() {
+		for (int i = 0; i < 100; i++) {
+			estimates.registerSize("record/person", 100_000);
+		}
+		for (int i = 0; i < 1000; i++) {
+			estimates.registerSize("record/person", 1000);
+		}
+
+		int estimate = estimates.getEstimate("record/person");
+		assertTrue(estimate < 1100, "estimate was " + estimate);
+	}
+
+	@Test
+	public void testEstimateIsLimitedToFourChunks() {
+		estimates.registerSize("dataList/person", Integer.MAX_VALUE);
+
+		assertEquals(estimates.getEstimate("dataList/person"),
+				4 * ChunkedXml.DEFAULT_CHUNK_SIZE);
+	}
+
+	@Test
+	public void testLimitedEstimateMovesDownFromLimit() {
+		estimates.registerSize("dataList/person", Integer.MAX_VALUE);
+		estimates.registerSize("dataList/person", Integer.MAX_VALUE);
+		estimates.registerSize("dataList/person", 0);
+
+		assertEquals(estimates.getEstimate("dataList/person"),
+				(int) Math.ceil(4 * ChunkedXml.DEFAULT_CHUNK_SIZE * 0.99));
+	}
+
+	@Test
+	public void testSizesRegisteredConcurrentlyAreNotLost() throws InterruptedException {
+		OutputSizeEstimates sequentialEstimates = new OutputSizeEstimates();
+		estimates.registerSize("record/person", 1);
+		sequentialEstimates.registerSize("record/person", 1);
+		for (int i = 0; i < 4 * 15; i++) {
+			sequentialEstimates.registerSize("record/person", Integer.MAX_VALUE);
+		}
+
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(this::registerLargeSize15Times);
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(estimates.getEstimate("record/person"),
+				sequentialEstimates.getEstimate("record/person"));
+	}
+
+	private void registerLargeSize15Times() {
+		for (int i = 0; i < 15; i++) {
+			estimates.registerSize("record/person", Integer.MAX_VALUE);
+		}
+	}
+
+	@Test
+	public void testGetEstimatesIsSortedSnapshot() {
+		estimates.registerSize("record/place", 200);
+		estimates.registerSize("record/person", 100);
+
+		Map<String, Integer> snapshot = estimates.getEstimates();
+		estimates.registerSize("record/other", 300);
+
+		assertEquals(snapshot.toString(), "{record/person=100, record/place=200}");
+	}
+}
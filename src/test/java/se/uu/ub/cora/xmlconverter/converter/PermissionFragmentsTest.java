@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PermissionFragmentsTest {
+
+	private PermissionFragments permissionFragments;
+
+	@BeforeMethod
+	public void setUp() {
+		permissionFragments = new PermissionFragments();
+	}
+
+	@Test
+	public void testReadAndWritePermissionsAreSorted() {
+		String xml = permissionFragments.encode(createSet("readB", "readA"),
+				createSet("writeB", "writeA"));
+
+		String expectedXml = "<permissions>";
+		expectedXml += "<read>";
+		expectedXml += "<permission>readA</permission>";
+		expectedXml += "<permission>readB</permission>";
+		expectedXml += "</read>";
+		expectedXml += "<write>";
+		expectedXml += "<permission>writeA</permission>";
+		expectedXml += "<permission>writeB</permission>";
+		expectedXml += "</write>";
+		expectedXml += "</permissions>";
+		assertEquals(xml, expectedXml);
+	}
+
+	@Test
+	public void testOnlyReadPermissions() {
+		String xml = permissionFragments.encode(createSet("read&A"), null);
+
+		assertEquals(xml, "<permissions><read><permission>read&amp;A</permission></read>"
+				+ "</permissions>");
+	}
+
+	@Test
+	public void testOnlyWritePermissions() {
+		String xml = permissionFragments.encode(null, createSet("writeA"));
+
+		assertEquals(xml, "<permissions><write><permission>writeA</permission></write>"
+				+ "</permissions>");
+	}
+
+	@Test
+	public void testSamePermissionsInSameOrderReturnsSameFragment() {
+		String first = permissionFragments.encode(createSet("readA", "readB"),
+				createSet("writeA"));
+		String second = permissionFragments.encode(createSet("readA", "readB"),
+				createSet("writeA"));
+
+		assertSame(second, first);
+	}
+
+	@Test
+	public void testSamePermissionsInOtherOrderReturnsSameFragment() {
+		String first = permissionFragments.encode(createSet("readA", "readB"),
+				createSet("writeA"));
+		String second = permissionFragments.encode(createSet("readB", "readA"),
+				createSet("writeA"));
+
+		assertSame(second, first);
+	}
+
+	@Test
+	public void testChangedSetAfterEncodeDoesNotChangeRememberedFragment() {
+		Set<String> read = createSet("readA");
+		String first = permissionFragments.encode(read, null);
+		read.add("readB");
+
+		String second = permissionFragments.encode(read, null);
+		String sameAsFirst = permissionFragments.encode(createSet("readA"), null);
+
+		assertEquals(second, "<permissions><read><permission>readA</permission>"
+				+ "<permission>readB</permission></read></permissions>");
+		assertSame(sameAsFirst, first);
+	}
+
+	@Test
+	public void testSamePermissionsAsReadAndWriteAreNotMixedUp() {
+		String readOnly = permissionFragments.encode(createSet("permissionA"), null);
+		String writeOnly = permissionFragments.encode(null, createSet("permissionA"));
+
+		assertNotSame(writeOnly, readOnly);
+		assertEquals(writeOnly,
+				"<permissions><write><permission>permissionA</permission></write></permissions>");
+	}
+
+	private Set<String> createSet(String... permissions) {
+		return new LinkedHashSet<>(List.of(permissions));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedFragmentIsForgottenWhenLimitIsReached() {
+		String first = permissionFragments.encode(createSet("permission0"), null);
+		String second = permissionFragments.encode(createSet("permission1"), null);
+		for (int i = 2; i < PermissionFragments.MAX_ENCODED_FRAGMENTS; i++) {
+			permissionFragments.encode(createSet("permission" + i), null);
+		}
+		String sameAsFirstBeforeLimit = permissionFragments.encode(createSet("permission0"),
+				null);
+
+		permissionFragments.encode(createSet("overLimit"), null);
+		String sameAsFirstAfterLimit = permissionFragments.encode(createSet("permission0"), null);
+		String sameAsSecondAfterLimit = permissionFragments.encode(createSet("permission1"),
+				null);
+
+		assertSame(sameAsFirstBeforeLimit, first);
+		assertSame(sameAsFirstAfterLimit, first);
+		assertNotSame(sameAsSecondAfterLimit, second);
+		assertEquals(sameAsSecondAfterLimit, second);
+	}
+}
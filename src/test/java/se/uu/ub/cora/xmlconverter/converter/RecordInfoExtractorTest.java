@@ -0,0 +1,157 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.spies.DataAtomicSpy;
+import se.uu.ub.cora.data.spies.DataFactorySpy;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordLinkSpy;
+
+public class RecordInfoExtractorTest {
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String BOOK_XML = XML_DECLARATION + "<book type=\"novel\">"
+			+ "<title><main>someTitle</main></title><recordInfo><id>someId</id><type>"
+			+ "<linkedRecordType>recordType</linkedRecordType>"
+			+ "<linkedRecordId>book</linkedRecordId></type><dataDivider>"
+			+ "<linkedRecordType>system</linkedRecordType><linkedRecordId>cora</linkedRecordId>"
+			+ "</dataDivider></recordInfo><author>someAuthor</author></book>";
+
+	private DataFactorySpy dataFactorySpy;
+	private XMLInputFactory xmlInputFactory;
+	private RecordInfoExtractor extractor;
+
+	@BeforeMethod
+	public void setUp() {
+		dataFactorySpy = new DataFactorySpy();
+		DataProvider.onlyForTestSetDataFactory(dataFactorySpy);
+		xmlInputFactory = XMLInputFactory.newInstance();
+		extractor = new RecordInfoExtractor(xmlInputFactory);
+	}
+
+	@Test
+	public void testGetXmlInputFactoryOnlyForTest() {
+		assertSame(extractor.getXmlInputFactoryOnlyForTest(), xmlInputFactory);
+	}
+
+	@Test
+	public void testExtractRecordInfo() {
+		DataRecordGroupSpy dataRecordGroup = (DataRecordGroupSpy) extractor
+				.extractRecordInfo(BOOK_XML);
+
+		dataFactorySpy.MCR.assertReturn("factorRecordGroupUsingNameInData", 0, dataRecordGroup);
+		dataFactorySpy.MCR.assertParameters("factorRecordGroupUsingNameInData", 0, "book");
+		dataRecordGroup.MCR.assertParameters("addAttributeByIdWithValue", 0, "type", "novel");
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 1);
+		DataGroupSpy recordInfo = (DataGroupSpy) dataFactorySpy.MCR.assertCalledParametersReturn(
+				"factorGroupUsingNameInData", "recordInfo");
+		dataRecordGroup.MCR.assertNumberOfCallsToMethod("addChild", 1);
+		dataRecordGroup.MCR.assertParameters("addChild", 0, recordInfo);
+		assertRecordInfoChildren(recordInfo);
+	}
+
+	private void assertRecordInfoChildren(DataGroupSpy recordInfo) {
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorAtomicUsingNameInDataAndValue", 1);
+		DataAtomicSpy id = (DataAtomicSpy) dataFactorySpy.MCR.assertCalledParametersReturn(
+				"factorAtomicUsingNameInDataAndValue", "id", "someId");
+		DataRecordLinkSpy type = (DataRecordLinkSpy) dataFactorySpy.MCR
+				.assertCalledParametersReturn("factorRecordLinkUsingNameInDataAndTypeAndId", "type",
+						"recordType", "book");
+		DataRecordLinkSpy dataDivider = (DataRecordLinkSpy) dataFactorySpy.MCR
+				.assertCalledParametersReturn("factorRecordLinkUsingNameInDataAndTypeAndId",
+						"dataDivider", "system", "cora");
+		recordInfo.MCR.assertParameters("addChild", 0, id);
+		recordInfo.MCR.assertParameters("addChild", 1, type);
+		recordInfo.MCR.assertParameters("addChild", 2, dataDivider);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: No recordInfo found in top group")
+	public void testNoRecordInfo() {
+		extractor.extractRecordInfo(
+				XML_DECLARATION + "<book><title><main>someTitle</main></title></book>");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Tag id has no value. "
+			+ "Tags without values are not allowed.")
+	public void testRecordInfoIsConvertedUsingTheSameRules() {
+		extractor.extractRecordInfo(
+				XML_DECLARATION + "<book><recordInfo><id> </id></recordInfo></book>");
+	}
+
+	@Test
+	public void testXmlAfterRecordInfoIsNotRead() {
+		byte[] xml = (BOOK_XML.replace("</book>", "")
+				+ "<author>someAuthor</author>".repeat(100000) + "<broken></book>")
+				.getBytes(StandardCharsets.UTF_8);
+		CountingInputStream inputStream = new CountingInputStream(xml);
+
+		extractor.extractRecordInfo(inputStream, XmlCompression.NONE);
+
+		dataFactorySpy.MCR.assertParameters("factorRecordGroupUsingNameInData", 0, "book");
+		assertTrue(inputStream.numOfBytesRead < xml.length / 10);
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+		private int numOfBytesRead = 0;
+
+		CountingInputStream(byte[] bytes) {
+			super(new ByteArrayInputStream(bytes));
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int numRead = super.read(buffer, offset, length);
+			numOfBytesRead += Math.max(numRead, 0);
+			return numRead;
+		}
+	}
+
+	@Test
+	public void testExtractRecordInfoFromGzipStream() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+			gzipStream.write(BOOK_XML.getBytes(StandardCharsets.UTF_8));
+		}
+
+		extractor.extractRecordInfo(new ByteArrayInputStream(compressed.toByteArray()),
+				XmlCompression.GZIP);
+
+		dataFactorySpy.MCR.assertParameters("factorRecordGroupUsingNameInData", 0, "book");
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0, "recordInfo");
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SlicingByteArrayOutputStreamTest {
+
+	private SlicingByteArrayOutputStream outputStream;
+
+	@BeforeMethod
+	public void setUp() {
+		outputStream = new SlicingByteArrayOutputStream();
+	}
+
+	@Test
+	public void testNoEndedSlicesGivesNoSlices() {
+		write("<person/>");
+
+		assertEquals(outputStream.toSlices().size(), 0);
+	}
+
+	@Test
+	public void testEachEndedSliceHoldsItsOwnBytes() {
+		write("<person/>");
+		outputStream.endSlice();
+		outputStream.endSlice();
+		write("<place>ᚠ</place>");
+		outputStream.endSlice();
+
+		List<ByteBuffer> slices = outputStream.toSlices();
+
+		assertEquals(slices.size(), 3);
+		assertEquals(toString(slices.get(0)), "<person/>");
+		assertEquals(toString(slices.get(1)), "");
+		assertEquals(toString(slices.get(2)), "<place>ᚠ</place>");
+	}
+
+	@Test
+	public void testSlicesAreTakenFromTheGrownArray() {
+		String largeText = "a".repeat(1000);
+		write("<person/>");
+		outputStream.endSlice();
+		write(largeText);
+		outputStream.endSlice();
+
+		List<ByteBuffer> slices = outputStream.toSlices();
+
+		assertEquals(toString(slices.get(0)), "<person/>");
+		assertEquals(toString(slices.get(1)), largeText);
+	}
+
+	private void write(String text) {
+		outputStream.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private String toString(ByteBuffer slice) {
+		return StandardCharsets.UTF_8.decode(slice.duplicate()).toString();
+	}
+}
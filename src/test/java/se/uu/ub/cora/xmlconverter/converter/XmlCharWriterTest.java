@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+public class XmlCharWriterTest {
+
+	private StringWriter stringWriter;
+	private XmlCharWriter writer;
+
+	@BeforeMethod
+	public void setUp() {
+		stringWriter = new StringWriter();
+		writer = new XmlCharWriter(stringWriter);
+	}
+
+	@Test
+	public void testDeclarationAndEmptyElement() {
+		writer.writeDeclaration();
+		writer.startElement("person");
+		writer.endElement("person");
+		writer.flush();
+
+		assertEquals(stringWriter.toString(), XmlCharWriter.XML_DECLARATION + "<person/>");
+	}
+
+	@Test
+	public void testAttributesAreWrittenInGivenOrderAndEscaped() {
+		writer.startElement("person");
+		writer.attribute("type", "a<\"b\"&c");
+		writer.attribute("gender", "\u0085");
+		writer.endElement("person");
+		writer.flush();
+
+		assertEquals(stringWriter.toString(),
+				"<person type=\"a&lt;&quot;b&quot;&amp;c\" gender=\"\u0085\"/>");
+	}
+
+	@Test
+	public void testTextIsEscapedAndEmptyTextGivesEmptyElement() {
+		writer.startElement("person");
+		writer.startElement("firstname");
+		writer.text("<Kalle & Anka>");
+		writer.endElement("firstname");
+		writer.startElement("lastname");
+		writer.text("");
+		writer.text(null);
+		writer.endElement("lastname");
+		writer.endElement("person");
+		writer.flush();
+
+		assertEquals(stringWriter.toString(), "<person><firstname>&lt;Kalle &amp; Anka&gt;"
+				+ "</firstname><lastname/></person>");
+	}
+
+	@Test
+	public void testPreEncodedXmlIsWrittenAsIs() {
+		writer.startElement("record");
+		writer.preEncoded(new PreEncodedFragment(() -> "<read>&amp;</read>", List::of));
+		writer.endElement("record");
+		writer.flush();
+
+		assertEquals(stringWriter.toString(), "<record><read>&amp;</read></record>");
+	}
+
+	@Test
+	public void testNothingIsWrittenBeforeFlushForSmallXml() {
+		writer.startElement("person");
+		writer.endElement("person");
+
+		assertEquals(stringWriter.toString(), "");
+	}
+
+	@Test
+	public void testLargeXmlIsWrittenInPieces() {
+		String text = "a".repeat(10000);
+		writer.startElement("person");
+		writer.text(text);
+		writer.endElement("person");
+
+		assertEquals(stringWriter.toString(), "<person>" + text + "</person>");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to write xml: failed to write")
+	public void testFailingWriterGivesConverterException() {
+		writer = new XmlCharWriter(createFailingWriter());
+		writer.startElement("person");
+		writer.endElement("person");
+
+		writer.flush();
+	}
+
+	private Writer createFailingWriter() {
+		return new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int length) throws IOException {
+				throw new IOException("failed to write");
+			}
+
+			@Override
+			public void flush() {
+				// nothing to flush
+			}
+
+			@Override
+			public void close() {
+				// nothing to close
+			}
+		};
+	}
+}
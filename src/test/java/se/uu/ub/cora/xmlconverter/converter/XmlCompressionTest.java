@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+public class XmlCompressionTest {
+
+	private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><person>"
+			+ "<name>Kalle ᚠ</name><name>Kalle ᚠ</name><name>Kalle ᚠ</name></person>";
+
+	@Test
+	public void testNoneUsesStreamsAsTheyAre() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[0]);
+
+		assertSame(XmlCompression.NONE.compress(outputStream, 9), outputStream);
+		assertSame(XmlCompression.NONE.decompress(inputStream), inputStream);
+	}
+
+	@Test
+	public void testGzipRoundTrip() throws IOException {
+		assertRoundTrip(XmlCompression.GZIP, 9);
+	}
+
+	@Test
+	public void testDeflateRoundTrip() throws IOException {
+		assertRoundTrip(XmlCompression.DEFLATE, 1);
+	}
+
+	private void assertRoundTrip(XmlCompression compression, int compressionLevel)
+			throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		OutputStream compressingStream = compression.compress(outputStream, compressionLevel);
+		compressingStream.write(XML.getBytes(StandardCharsets.UTF_8));
+		compression.finish(compressingStream);
+
+		byte[] compressed = outputStream.toByteArray();
+		assertTrue(compressed.length < XML.length());
+		InputStream inflated = compression.decompress(new ByteArrayInputStream(compressed));
+		assertEquals(new String(inflated.readAllBytes(), StandardCharsets.UTF_8), XML);
+	}
+
+	@Test
+	public void testCompressionLevelChangesOutput() throws IOException {
+		assertTrue(compressWithLevel(0).length > compressWithLevel(9).length);
+	}
+
+	private byte[] compressWithLevel(int compressionLevel) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		OutputStream compressingStream = XmlCompression.GZIP.compress(outputStream,
+				compressionLevel);
+		compressingStream.write(XML.getBytes(StandardCharsets.UTF_8));
+		XmlCompression.GZIP.finish(compressingStream);
+		return outputStream.toByteArray();
+	}
+
+	@Test
+	public void testGzipEndReleasesDeflater() throws IOException {
+		assertEndReleasesDeflater(XmlCompression.GZIP);
+	}
+
+	@Test
+	public void testDeflateEndReleasesDeflater() throws IOException {
+		assertEndReleasesDeflater(XmlCompression.DEFLATE);
+	}
+
+	private void assertEndReleasesDeflater(XmlCompression compression) throws IOException {
+		OutputStream compressingStream = compression.compress(new ByteArrayOutputStream(), 9);
+		compressingStream.write(XML.getBytes(StandardCharsets.UTF_8));
+
+		compression.end(compressingStream);
+
+		try {
+			compression.finish(compressingStream);
+			fail("The deflater should have been released");
+		} catch (NullPointerException exception) {
+			assertEquals(exception.getMessage(), "Deflater has been closed");
+		}
+	}
+
+	@Test
+	public void testEndAfterFinishKeepsCompressedXml() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		OutputStream compressingStream = XmlCompression.GZIP.compress(outputStream, 9);
+		compressingStream.write(XML.getBytes(StandardCharsets.UTF_8));
+		XmlCompression.GZIP.finish(compressingStream);
+
+		XmlCompression.GZIP.end(compressingStream);
+		XmlCompression.GZIP.end(compressingStream);
+
+		InputStream inflated = XmlCompression.GZIP
+				.decompress(new ByteArrayInputStream(outputStream.toByteArray()));
+		assertEquals(new String(inflated.readAllBytes(), StandardCharsets.UTF_8), XML);
+	}
+
+	@Test
+	public void testNoneEndDoesNothing() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		XmlCompression.NONE.end(outputStream);
+		outputStream.write(1);
+
+		assertEquals(outputStream.size(), 1);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Compression level must be between 0 and 9, or -1 for the default level, was: -2")
+	public void testInvalidCompressionLevel() throws IOException {
+		XmlCompression.DEFLATE.compress(new ByteArrayOutputStream(), -2);
+	}
+}
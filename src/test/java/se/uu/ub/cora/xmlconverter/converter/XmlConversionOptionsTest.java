@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ExternalUrls;
+
+public class XmlConversionOptionsTest {
+
+	@Test
+	public void testWithoutLinks() {
+		XmlConversionOptions options = XmlConversionOptions.withoutLinks();
+
+		assertFalse(options.linksMustBeAdded());
+		assertNull(options.getExternalUrls());
+		assertFalse(options.isCanonical());
+		assertFalse(options.isProjected());
+		assertSame(XmlConversionOptions.withoutLinks(), options);
+	}
+
+	@Test
+	public void testWithLinks() {
+		ExternalUrls externalUrls = new ExternalUrls();
+
+		XmlConversionOptions options = XmlConversionOptions.withLinks(externalUrls);
+
+		assertTrue(options.linksMustBeAdded());
+		assertSame(options.getExternalUrls(), externalUrls);
+		assertFalse(options.isCanonical());
+		assertFalse(options.isProjected());
+	}
+
+	@Test
+	public void testRefinedOptionsAreCopiesKeepingEarlierOptions() {
+		ExternalUrls externalUrls = new ExternalUrls();
+		XmlPathProjection projection = XmlPathProjection.compile("name");
+		XmlConversionOptions withLinks = XmlConversionOptions.withLinks(externalUrls);
+
+		XmlConversionOptions projected = withLinks.projectedTo(projection);
+		XmlConversionOptions canonical = projected.canonical();
+
+		assertFalse(withLinks.isProjected());
+		assertFalse(projected.isCanonical());
+		assertTrue(canonical.isCanonical());
+		assertSame(canonical.getProjection(), projection);
+		assertSame(canonical.getExternalUrls(), externalUrls);
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.TransformerFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.converter.ExternalUrls;
+import se.uu.ub.cora.converter.StringToExternallyConvertibleConverter;
+import se.uu.ub.cora.data.Action;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.spies.DataAtomicSpy;
+import se.uu.ub.cora.data.spies.DataFactorySpy;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataListSpy;
+import se.uu.ub.cora.data.spies.DataRecordGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordSpy;
+import se.uu.ub.cora.xmlconverter.spy.OldDataAtomicSpy;
+
+public class XmlEnvelopeToExternallyConvertibleTest {
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String RECORD_DATA = "<data><person gender=\"female\">"
+			+ "<name repeatId=\"0\">Kalle</name></person></data>";
+
+	private DataFactorySpy dataFactorySpy;
+	private XMLInputFactory xmlInputFactory;
+	private XmlEnvelopeToExternallyConvertible converter;
+
+	@BeforeMethod
+	public void setUp() {
+		dataFactorySpy = new DataFactorySpy();
+		DataProvider.onlyForTestSetDataFactory(dataFactorySpy);
+		xmlInputFactory = XMLInputFactory.newInstance();
+		converter = new XmlEnvelopeToExternallyConvertible(xmlInputFactory);
+	}
+
+	@Test
+	public void testImplementsStringToExternallyConvertibleConverter() {
+		assertTrue(converter instanceof StringToExternallyConvertibleConverter);
+	}
+
+	@Test
+	public void testGetXmlInputFactoryOnlyForTest() {
+		assertSame(converter.getXmlInputFactoryOnlyForTest(), xmlInputFactory);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Document must be: version 1.0 and UTF-8")
+	public void testNotCorrectVersionAndEncoding() {
+		converter.convert("<?xml version=\"1.0\" encoding=\"notUTF-8\"?><record/>");
+	}
+
+	@Test
+	public void testRecord() {
+		DataRecordSpy dataRecord = (DataRecordSpy) converter
+				.convert(XML_DECLARATION + "<record>" + RECORD_DATA + "</record>");
+
+		dataFactorySpy.MCR.assertParameters("factorRecordGroupUsingNameInData", 0, "person");
+		DataRecordGroupSpy dataRecordGroup = (DataRecordGroupSpy) dataFactorySpy.MCR
+				.getReturnValue("factorRecordGroupUsingNameInData", 0);
+		dataRecordGroup.MCR.assertParameters("addAttributeByIdWithValue", 0, "gender", "female");
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0, "name",
+				"Kalle");
+		DataAtomicSpy atomic = (DataAtomicSpy) dataFactorySpy.MCR
+				.getReturnValue("factorAtomicUsingNameInDataAndValue", 0);
+		dataRecordGroup.MCR.assertParameters("addChild", 0, atomic);
+		dataFactorySpy.MCR.assertParameters("factorRecordUsingDataRecordGroup", 0,
+				dataRecordGroup);
+		dataFactorySpy.MCR.assertReturn("factorRecordUsingDataRecordGroup", 0, dataRecord);
+		dataRecord.MCR.assertMethodNotCalled("addAction");
+		dataRecord.MCR.assertMethodNotCalled("addReadPermissions");
+		dataRecord.MCR.assertMethodNotCalled("addProtocol");
+	}
+
+	@Test
+	public void testRecordWithActionLinks() {
+		DataRecordSpy dataRecord = (DataRecordSpy) converter.convert(XML_DECLARATION + "<record>"
+				+ RECORD_DATA + "<actionLinks><read><requestMethod>GET</requestMethod>"
+				+ "<url>someUrl</url></read><read_incoming_links/></actionLinks></record>");
+
+		dataRecord.MCR.assertNumberOfCallsToMethod("addAction", 2);
+		dataRecord.MCR.assertParameters("addAction", 0, Action.READ);
+		dataRecord.MCR.assertParameters("addAction", 1, Action.READ_INCOMING_LINKS);
+	}
+
+	@Test
+	public void testRecordWithSearchActionLinkReadsSearchId() {
+		DataRecordSpy dataRecord = (DataRecordSpy) converter.convert(XML_DECLARATION + "<record>"
+				+ RECORD_DATA + "<actionLinks><read><url>someUrl</url></read><search>"
+				+ "<requestMethod>GET</requestMethod><rel>search</rel>"
+				+ "<url>https://some.domain/rest/record/searchResult/personSearch</url>"
+				+ "<accept>application/vnd.cora.recordList+xml</accept></search>"
+				+ "</actionLinks></record>");
+
+		dataRecord.MCR.assertParameters("addAction", 1, Action.SEARCH);
+		dataRecord.MCR.assertNumberOfCallsToMethod("setSearchId", 1);
+		dataRecord.MCR.assertParameters("setSearchId", 0, "personSearch");
+	}
+
+	@Test
+	public void testRecordWithSearchActionLinkRoundTrip() {
+		ExternalUrls externalUrls = new ExternalUrls();
+		externalUrls.setBaseUrl("https://some.domain/rest/record/");
+		DataRecordSpy writtenRecord = createRecordWithActions("personSearch", Action.READ,
+				Action.SEARCH);
+		String xml = createXmlConverter().convertWithLinks(writtenRecord, externalUrls);
+
+		DataRecordSpy readRecord = (DataRecordSpy) converter.convert(xml);
+
+		readRecord.MCR.assertParameters("addAction", 0, Action.READ);
+		readRecord.MCR.assertParameters("addAction", 1, Action.SEARCH);
+		readRecord.MCR.assertParameters("setSearchId", 0, "personSearch");
+		DataRecordSpy rewrittenRecord = createRecordWithActions("personSearch", Action.READ,
+				Action.SEARCH);
+		assertEquals(createXmlConverter().convertWithLinks(rewrittenRecord, externalUrls), xml);
+	}
+
+	private ExternallyConvertibleToXml createXmlConverter() {
+		return new ExternallyConvertibleToXml(DocumentBuilderFactory.newInstance(),
+				TransformerFactory.newInstance());
+	}
+
+	private DataRecordSpy createRecordWithActions(String searchId, Action... actions) {
+		DataRecordSpy dataRecord = new DataRecordSpy();
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getType", () -> "person");
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getId", () -> "person:1");
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getSearchId", () -> searchId);
+		dataRecord.MRV.setDefaultReturnValuesSupplier("hasActions", () -> true);
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getActions", () -> List.of(actions));
+		DataRecordGroupSpy dataRecordGroup = new DataRecordGroupSpy();
+		dataRecordGroup.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
+		dataRecordGroup.MRV.setDefaultReturnValuesSupplier("getChildren",
+				() -> List.of(new OldDataAtomicSpy("name", "Kalle")));
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getDataRecordGroup",
+				() -> dataRecordGroup);
+		return dataRecord;
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Unknown action fly")
+	public void testRecordWithUnknownAction() {
+		converter.convert(XML_DECLARATION + "<record>" + RECORD_DATA
+				+ "<actionLinks><fly/></actionLinks></record>");
+	}
+
+	@Test
+	public void testRecordWithPermissions() {
+		DataRecordSpy dataRecord = (DataRecordSpy) converter.convert(XML_DECLARATION + "<record>"
+				+ RECORD_DATA + "<permissions><read><permission>readA</permission>"
+				+ "<permission>readB</permission></read><write/></permissions></record>");
+
+		dataRecord.MCR.assertParameters("addReadPermissions", 0, List.of("readA", "readB"));
+		dataRecord.MCR.assertParameters("addWritePermissions", 0, List.of());
+	}
+
+	@Test
+	public void testRecordWithOtherProtocols() {
+		DataRecordSpy dataRecord = (DataRecordSpy) converter.convert(XML_DECLARATION + "<record>"
+				+ RECORD_DATA + "<otherProtocols><iiif><server>someServer</server>"
+				+ "<identifier>someId</identifier></iiif></otherProtocols></record>");
+
+		dataRecord.MCR.assertParameters("addProtocol", 0, "iiif");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Expected data in record but found "
+			+ "actionLinks")
+	public void testRecordMustStartWithData() {
+		converter.convert(XML_DECLARATION + "<record><actionLinks/>" + RECORD_DATA + "</record>");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Unexpected element other in record")
+	public void testRecordWithUnexpectedElement() {
+		converter.convert(XML_DECLARATION + "<record>" + RECORD_DATA + "<other/></record>");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Root element must be record or dataList")
+	public void testRootElementMustBeRecordOrDataList() {
+		converter.convert(XML_DECLARATION + "<person><name>Kalle</name></person>");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Tag name has no value. "
+			+ "Tags without values are not allowed.")
+	public void testDataIsConvertedUsingTheSameRules() {
+		converter.convert(
+				XML_DECLARATION + "<record><data><person><name/></person></data></record>");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement due to malformed XML: (?s).*")
+	public void testMalformedXml() {
+		converter.convert(XML_DECLARATION + "<record>" + RECORD_DATA);
+	}
+
+	@Test
+	public void testDataList() {
+		DataListSpy dataList = (DataListSpy) converter.convert(XML_DECLARATION + "<dataList>"
+				+ "<fromNo>1</fromNo><toNo>2</toNo><totalNo>3</totalNo>"
+				+ "<containDataOfType>person</containDataOfType><data><record>" + RECORD_DATA
+				+ "</record><person><name>Olle</name></person></data></dataList>");
+
+		dataFactorySpy.MCR.assertParameters("factorListUsingNameOfDataType", 0, "person");
+		dataFactorySpy.MCR.assertReturn("factorListUsingNameOfDataType", 0, dataList);
+		dataList.MCR.assertParameters("setFromNo", 0, "1");
+		dataList.MCR.assertParameters("setToNo", 0, "2");
+		dataList.MCR.assertParameters("setTotalNo", 0, "3");
+		DataRecordSpy dataRecord = (DataRecordSpy) dataFactorySpy.MCR
+				.getReturnValue("factorRecordUsingDataRecordGroup", 0);
+		dataList.MCR.assertParameters("addData", 0, dataRecord);
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0, "person");
+		DataGroupSpy dataGroup = (DataGroupSpy) dataFactorySpy.MCR
+				.getReturnValue("factorGroupUsingNameInData", 0);
+		dataList.MCR.assertParameters("addData", 1, dataGroup);
+		dataList.MCR.assertNumberOfCallsToMethod("addData", 2);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Expected fromNo in dataList but found "
+			+ "toNo")
+	public void testDataListMustHaveListInfo() {
+		converter.convert(XML_DECLARATION + "<dataList><toNo>2</toNo></dataList>");
+	}
+
+	@Test
+	public void testGzipStream() throws IOException {
+		String xml = XML_DECLARATION + "<record>" + RECORD_DATA
+				+ "<otherProtocols><iiif/></otherProtocols></record>";
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+			gzipStream.write(xml.getBytes(StandardCharsets.UTF_8));
+		}
+
+		DataRecordSpy dataRecord = (DataRecordSpy) converter.convert(
+				new ByteArrayInputStream(compressed.toByteArray()), XmlCompression.GZIP);
+
+		dataFactorySpy.MCR.assertParameters("factorRecordGroupUsingNameInData", 0, "person");
+		dataRecord.MCR.assertParameters("addProtocol", 0, "iiif");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Document must be: version 1.0 and UTF-8")
+	public void testStreamNotCorrectVersionAndEncoding() {
+		converter.convert(new ByteArrayInputStream("<record/>".getBytes(StandardCharsets.UTF_8)),
+				XmlCompression.NONE);
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+public class XmlEscaperTest {
+
+	@Test
+	public void testEscapeTextPlainTextIsUnchanged() {
+		assertEquals(XmlEscaper.escapeText("Kalle ᚠᚢᚦᚮᚱᚴ 'quoted' \"double\""),
+				"Kalle ᚠᚢᚦᚮᚱᚴ 'quoted' \"double\"");
+	}
+
+	@Test
+	public void testEscapeTextMarkupCharacters() {
+		assertEquals(XmlEscaper.escapeText("<a>&b"), "&lt;a&gt;&amp;b");
+	}
+
+	@Test
+	public void testEscapeTextMarkupAtStartMiddleAndEnd() {
+		assertEquals(XmlEscaper.escapeText("&Kalle<Anka>"), "&amp;Kalle&lt;Anka&gt;");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to write xml: lone surrogate d83d at index 1")
+	public void testEscapeTextLoneHighSurrogateIsRejected() {
+		XmlEscaper.escapeText("a\uD83Db");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to write xml: lone surrogate d83d at index 1")
+	public void testEscapeTextHighSurrogateLastIsRejected() {
+		XmlEscaper.escapeText("a\uD83D");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to write xml: lone surrogate de00 at index 2")
+	public void testEscapeTextLoneLowSurrogateIsRejected() {
+		XmlEscaper.escapeText("ab\uDE00");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to write xml: lone surrogate de00 at index 0")
+	public void testEscapeAttributeValueLoneSurrogateIsRejected() {
+		XmlEscaper.escapeAttributeValue("\uDE00\uD83D");
+	}
+
+	@Test
+	public void testEscapeTextControlCharacters() {
+		assertEquals(XmlEscaper.escapeText("a\tb\nc\rd\u0001e\u0085f"),
+				"a\tb\nc&#13;d&#1;e&#133;f");
+	}
+
+	@Test
+	public void testEscapeTextSupplementaryCharacter() {
+		assertEquals(XmlEscaper.escapeText("a😀b"), "a&#128512;b");
+	}
+
+	@Test
+	public void testEscapeAttributeValue() {
+		assertEquals(XmlEscaper.escapeAttributeValue("<\"a\"&'b'>"),
+				"&lt;&quot;a&quot;&amp;'b'&gt;");
+	}
+
+	@Test
+	public void testEscapeAttributeValueMarkupAtStartMiddleAndEnd() {
+		assertEquals(XmlEscaper.escapeAttributeValue("\"Kalle&Anka\""),
+				"&quot;Kalle&amp;Anka&quot;");
+	}
+
+	@Test
+	public void testEscapeAttributeValueControlCharacters() {
+		assertEquals(XmlEscaper.escapeAttributeValue("a\tb\nc\rd\u0001e"),
+				"a&#9;b&#10;c&#13;d&#1;e");
+	}
+
+	@Test
+	public void testEscapeAttributeValueKeepsC1ControlsAndDelete() {
+		assertEquals(XmlEscaper.escapeAttributeValue("a\u007Fb\u0080c\u0085d\u009Fe"),
+				"a\u007Fb\u0080c\u0085d\u009Fe");
+	}
+
+	@Test
+	public void testEscapeIsAsWrittenByTransformer() throws Exception {
+		String value = "a\tb\nc\rd\u0001e\u007Ff\u0085g\u009Fh😀i<&>\"'";
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.newDocument();
+		Element element = document.createElement("element");
+		document.appendChild(element);
+		element.setAttribute("attribute", value);
+		element.setTextContent(value);
+
+		String expected = "<element attribute=\"" + XmlEscaper.escapeAttributeValue(value)
+				+ "\">" + XmlEscaper.escapeText(value) + "</element>";
+		assertEquals(serializeWithTransformer(document), expected);
+	}
+
+	private String serializeWithTransformer(Document document) throws TransformerException {
+		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		StringWriter writer = new StringWriter();
+		transformer.transform(new DOMSource(document), new StreamResult(writer));
+		return writer.toString();
+	}
+
+	@Test
+	public void testEscapedAttributeValueIsParsedToOriginalValue() throws Exception {
+		String value = "a\tb\nc\rd\u0085e😀f<&\"'";
+		String xml = "<element attribute=\"" + XmlEscaper.escapeAttributeValue(value) + "\"/>";
+
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new InputSource(new StringReader(xml)));
+
+		assertEquals(document.getDocumentElement().getAttribute("attribute"), value);
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ExternalUrls;
+import se.uu.ub.cora.data.Action;
+import se.uu.ub.cora.data.Data;
+import se.uu.ub.cora.data.DataAtomic;
+import se.uu.ub.cora.data.DataChild;
+import se.uu.ub.cora.data.DataGroup;
+import se.uu.ub.cora.data.spies.DataListSpy;
+import se.uu.ub.cora.data.spies.DataRecordGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordLinkSpy;
+import se.uu.ub.cora.data.spies.DataRecordSpy;
+import se.uu.ub.cora.data.spies.DataResourceLinkSpy;
+import se.uu.ub.cora.xmlconverter.spy.OldDataAtomicSpy;
+import se.uu.ub.cora.xmlconverter.spy.OldDataGroupSpy;
+
+public class XmlFingerprinterTest {
+	private static final XmlConversionOptions CANONICAL = XmlConversionOptions.withoutLinks()
+			.canonical();
+
+	private XmlFingerprinter fingerprinter;
+	private ExternallyConvertibleToXml extConvToXml;
+	private ExternalUrls externalUrls;
+	private XmlConversionOptions withLinks;
+
+	@BeforeMethod
+	public void setUp() {
+		fingerprinter = new XmlFingerprinter();
+		extConvToXml = new ExternallyConvertibleToXml(DocumentBuilderFactory.newInstance(),
+				TransformerFactory.newInstance());
+		externalUrls = new ExternalUrls();
+		externalUrls.setBaseUrl("https://some.domain.now/rest/record/?a=1&b=2");
+		externalUrls.setIfffUrl("someIiifUrl");
+		withLinks = XmlConversionOptions.withLinks(externalUrls);
+	}
+
+	@Test
+	public void testFingerprintDoesNotDependOnAttributeOrder() {
+		DataGroup person = createPerson("Kalle ᚠ😀 <&> \r\n\t \u0085");
+		DataGroup samePerson = new OldDataGroupSpy("person");
+		samePerson.addAttributeByIdWithValue("gender", "<man>");
+		samePerson.addAttributeByIdWithValue("type", "au\"thor");
+		for (DataChild child : person.getChildren()) {
+			samePerson.addChild(child);
+		}
+
+		assertEquals(fingerprinter.fingerprint(person), fingerprinter.fingerprint(samePerson));
+	}
+
+	private DataGroup createPerson(String firstName) {
+		DataGroup person = new OldDataGroupSpy("person");
+		person.addAttributeByIdWithValue("type", "au\"thor");
+		person.addAttributeByIdWithValue("gender", "<man>");
+		DataAtomic firstNameAtomic = new OldDataAtomicSpy("firstname", firstName);
+		firstNameAtomic.setRepeatId("0");
+		firstNameAtomic.addAttributeByIdWithValue("lang", "sv");
+		person.addChild(firstNameAtomic);
+		person.addChild(new OldDataAtomicSpy("lastname", ""));
+		person.addChild(new OldDataAtomicSpy("nickname", null));
+		DataGroup emptyGroup = new OldDataGroupSpy("empty");
+		emptyGroup.setRepeatId("1");
+		person.addChild(emptyGroup);
+		return person;
+	}
+
+	@Test
+	public void testFingerprintOfLargeGroupDependsOnEveryChild() {
+		DataGroup person = createLargePerson("name999");
+		DataGroup otherPerson = createLargePerson("name99");
+
+		assertEquals(fingerprinter.fingerprint(person),
+				fingerprinter.fingerprint(createLargePerson("name999")));
+		assertNotEquals(fingerprinter.fingerprint(person), fingerprinter.fingerprint(otherPerson));
+	}
+
+	private DataGroup createLargePerson(String lastName) {
+		DataGroup person = new OldDataGroupSpy("person");
+		for (int i = 0; i < 1000; i++) {
+			person.addChild(createPerson("name" + i));
+		}
+		person.addChild(createPerson(lastName));
+		return person;
+	}
+
+	@Test
+	public void testEqualXmlGivesEqualFingerprint() {
+		DataGroup person = createPerson("Kalle");
+		DataGroup samePerson = createPerson("Kalle");
+
+		assertEquals(fingerprinter.fingerprint(person), fingerprinter.fingerprint(samePerson));
+	}
+
+	@Test
+	public void testDifferentXmlGivesDifferentFingerprint() {
+		assertNotEquals(fingerprinter.fingerprint(createPerson("Kalle")),
+				fingerprinter.fingerprint(createPerson("Kalla")));
+		assertNotEquals(fingerprinter.fingerprint(createPerson("")),
+				fingerprinter.fingerprint(createPerson(" ")));
+		assertNotEquals(fingerprinter.fingerprint(createPerson("<")),
+				fingerprinter.fingerprint(createPerson("&lt;")));
+	}
+
+	@Test
+	public void testDifferentSplitOfNamesAndValuesGivesDifferentFingerprint() {
+		DataGroup person = new OldDataGroupSpy("person");
+		person.addChild(new OldDataAtomicSpy("ab", "c"));
+		DataGroup otherPerson = new OldDataGroupSpy("person");
+		otherPerson.addChild(new OldDataAtomicSpy("a", "bc"));
+
+		assertNotEquals(fingerprinter.fingerprint(person), fingerprinter.fingerprint(otherPerson));
+	}
+
+	@Test
+	public void testEmptyAndMissingValueGiveEqualFingerprintAsTheXmlIsEqual() {
+		DataGroup person = new OldDataGroupSpy("person");
+		person.addChild(new OldDataAtomicSpy("name", ""));
+		DataGroup samePerson = new OldDataGroupSpy("person");
+		samePerson.addChild(new OldDataAtomicSpy("name", null));
+
+		assertEquals(extConvToXml.convert(person, CANONICAL),
+				extConvToXml.convert(samePerson, CANONICAL));
+		assertEquals(fingerprinter.fingerprint(person), fingerprinter.fingerprint(samePerson));
+	}
+
+	@Test
+	public void testFingerprintIsSixtyFourHexChars() {
+		String fingerprint = fingerprinter.fingerprint(createPerson("Kalle"));
+
+		assertEquals(fingerprint.length(), 64);
+		assertEquals(fingerprint.replaceAll("[0-9a-f]", ""), "");
+	}
+
+	@Test
+	public void testFingerprintWithLinksDependsOnLinks() {
+		DataRecordSpy dataRecord = createRecord(Action.READ, Action.UPDATE, Action.SEARCH);
+		String withLinksFingerprint = fingerprinter.fingerprint(dataRecord, withLinks);
+
+		assertEquals(withLinksFingerprint, fingerprinter.fingerprint(
+				createRecord(Action.READ, Action.UPDATE, Action.SEARCH), withLinks));
+		assertNotEquals(withLinksFingerprint, fingerprinter.fingerprint(dataRecord));
+		assertNotEquals(withLinksFingerprint,
+				fingerprinter.fingerprint(createRecord(Action.READ, Action.UPDATE), withLinks));
+	}
+
+	@Test
+	public void testFingerprintWithLinksDependsOnSearchId() {
+		DataRecordSpy dataRecord = createRecord(Action.SEARCH);
+		DataRecordSpy otherRecord = createRecord(Action.SEARCH);
+		otherRecord.MRV.setDefaultReturnValuesSupplier("getSearchId", () -> "otherSearch");
+
+		assertNotEquals(fingerprinter.fingerprint(dataRecord, withLinks),
+				fingerprinter.fingerprint(otherRecord, withLinks));
+	}
+
+	@Test
+	public void testFingerprintWithLinksDependsOnBaseUrl() {
+		DataRecordSpy dataRecord = createRecord(Action.READ);
+		ExternalUrls otherUrls = new ExternalUrls();
+		otherUrls.setBaseUrl("https://other.domain.now/rest/record/");
+		otherUrls.setIfffUrl("someIiifUrl");
+
+		assertNotEquals(fingerprinter.fingerprint(dataRecord, withLinks), fingerprinter
+				.fingerprint(dataRecord, XmlConversionOptions.withLinks(otherUrls)));
+	}
+
+	@Test
+	public void testFingerprintWithLinksDependsOnWhichPermissionsAreRead() {
+		DataRecordSpy dataRecord = createRecord(Action.READ);
+		DataRecordSpy otherRecord = createRecord(Action.READ);
+		otherRecord.MRV.setDefaultReturnValuesSupplier("hasReadPermissions", () -> false);
+		otherRecord.MRV.setDefaultReturnValuesSupplier("hasWritePermissions", () -> true);
+		otherRecord.MRV.setDefaultReturnValuesSupplier("getWritePermissions",
+				() -> Set.of("read2", "read1"));
+
+		assertNotEquals(fingerprinter.fingerprint(dataRecord, withLinks),
+				fingerprinter.fingerprint(otherRecord, withLinks));
+	}
+
+	private DataRecordSpy createRecord(Action... actions) {
+		DataRecordSpy dataRecord = new DataRecordSpy();
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getType", () -> "person");
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getId", () -> "person:1");
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getSearchId", () -> "personSearch");
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getActions", () -> Arrays.asList(actions));
+		dataRecord.MRV.setDefaultReturnValuesSupplier("hasActions", () -> actions.length > 0);
+		dataRecord.MRV.setDefaultReturnValuesSupplier("hasReadPermissions", () -> true);
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getReadPermissions",
+				() -> Set.of("read2", "read1"));
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getProtocols", () -> Set.of("iiif"));
+
+		DataRecordGroupSpy personRecordGroup = new DataRecordGroupSpy();
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getDataRecordGroup",
+				() -> personRecordGroup);
+		personRecordGroup.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "person");
+		List<DataChild> personChildren = new ArrayList<>();
+		personChildren.add(createRecordLink());
+		personChildren.add(createResourceLink());
+		personRecordGroup.MRV.setDefaultReturnValuesSupplier("getChildren", () -> personChildren);
+		return dataRecord;
+	}
+
+	private DataRecordLinkSpy createRecordLink() {
+		DataRecordLinkSpy recordLink = new DataRecordLinkSpy();
+		recordLink.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "someLink");
+		recordLink.MRV.setDefaultReturnValuesSupplier("getRepeatId", () -> "3");
+		recordLink.MRV.setDefaultReturnValuesSupplier("getLinkedRecordType", () -> "someType");
+		recordLink.MRV.setDefaultReturnValuesSupplier("getLinkedRecordId", () -> "someId");
+		recordLink.MRV.setDefaultReturnValuesSupplier("hasReadAction", () -> true);
+		return recordLink;
+	}
+
+	private DataResourceLinkSpy createResourceLink() {
+		DataResourceLinkSpy resourceLink = new DataResourceLinkSpy();
+		resourceLink.MRV.setDefaultReturnValuesSupplier("getNameInData", () -> "master");
+		resourceLink.MRV.setDefaultReturnValuesSupplier("getType", () -> "binary");
+		resourceLink.MRV.setDefaultReturnValuesSupplier("getId", () -> "binary:1");
+		resourceLink.MRV.setDefaultReturnValuesSupplier("getMimeType", () -> "image/jpeg");
+		resourceLink.MRV.setDefaultReturnValuesSupplier("hasReadAction", () -> true);
+		return resourceLink;
+	}
+
+	@Test
+	public void testPermissionsInOtherIterationOrderGiveEqualFingerprint() {
+		DataRecordSpy dataRecord = createRecord(Action.READ);
+		DataRecordSpy sameRecord = createRecord(Action.READ);
+		sameRecord.MRV.setDefaultReturnValuesSupplier("getReadPermissions",
+				() -> new LinkedHashSet<>(List.of("read1", "read2")));
+		dataRecord.MRV.setDefaultReturnValuesSupplier("getReadPermissions",
+				() -> new LinkedHashSet<>(List.of("read2", "read1")));
+
+		assertEquals(fingerprinter.fingerprint(dataRecord, withLinks),
+				fingerprinter.fingerprint(sameRecord, withLinks));
+	}
+
+	@Test
+	public void testFingerprintOfDataListDependsOnItsContent() {
+		DataListSpy dataList = createDataList(createRecord(Action.READ), createPerson("Kalle"));
+		DataListSpy otherDataList = createDataList(createRecord(Action.READ),
+				createPerson("Kalla"));
+
+		assertEquals(fingerprinter.fingerprint(dataList, withLinks), fingerprinter.fingerprint(
+				createDataList(createRecord(Action.READ), createPerson("Kalle")), withLinks));
+		assertNotEquals(fingerprinter.fingerprint(dataList, withLinks),
+				fingerprinter.fingerprint(otherDataList, withLinks));
+	}
+
+	private DataListSpy createDataList(Data... data) {
+		DataListSpy dataList = new DataListSpy();
+		dataList.MRV.setDefaultReturnValuesSupplier("getFromNo", () -> "1");
+		dataList.MRV.setDefaultReturnValuesSupplier("getToNo", () -> "2");
+		dataList.MRV.setDefaultReturnValuesSupplier("getTotalNumberOfTypeInStorage", () -> "2");
+		dataList.MRV.setDefaultReturnValuesSupplier("getContainDataOfType", () -> "mix");
+		dataList.MRV.setDefaultReturnValuesSupplier("getDataList", () -> List.of(data));
+		return dataList;
+	}
+
+	@Test
+	public void testFingerprintOfEmptyDataListDiffersFromDataListWithData() {
+		assertNotEquals(fingerprinter.fingerprint(createDataList()),
+				fingerprinter.fingerprint(createDataList(createPerson("Kalle"))));
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+
+public class XmlLinkExtractorTest {
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String BOOK_XML = XML_DECLARATION + "<book type=\"novel\">"
+			+ "<recordInfo><id>someId</id><type>"
+			+ "<linkedRecordType>recordType</linkedRecordType>"
+			+ "<linkedRecordId>book</linkedRecordId></type></recordInfo>"
+			+ "<author repeatId=\"0\"><person repeatId=\"1\">"
+			+ "<linkedRecordType>person</linkedRecordType>"
+			+ "<linkedRecordId>somePerson</linkedRecordId></person><role>writer</role></author>"
+			+ "<cover><linkedRecordType>binary</linkedRecordType>"
+			+ "<linkedRecordId>someBinary</linkedRecordId><mimeType>image/png</mimeType></cover>"
+			+ "</book>";
+
+	private XMLInputFactory xmlInputFactory;
+	private XmlLinkExtractor extractor;
+
+	@BeforeMethod
+	public void setUp() {
+		xmlInputFactory = XMLInputFactory.newInstance();
+		extractor = new XmlLinkExtractor(xmlInputFactory);
+	}
+
+	@Test
+	public void testGetXmlInputFactoryOnlyForTest() {
+		assertSame(extractor.getXmlInputFactoryOnlyForTest(), xmlInputFactory);
+	}
+
+	@Test
+	public void testExtractLinks() {
+		List<LinkReference> links = extractor.extractLinks(BOOK_XML);
+
+		assertEquals(links, List.of(new LinkReference("recordInfo/type", "recordType", "book", ""),
+				new LinkReference("author/person", "person", "somePerson", "1"),
+				new LinkReference("cover", "binary", "someBinary", "")));
+	}
+
+	@Test
+	public void testExtractLinksNoLinks() {
+		String xml = XML_DECLARATION + "<book><title><main>someTitle</main></title></book>";
+
+		assertTrue(extractor.extractLinks(xml).isEmpty());
+	}
+
+	@Test
+	public void testExtractLinksGroupWithOtherChildrenIsNotALink() {
+		String xml = XML_DECLARATION + "<book><notLink>"
+				+ "<linkedRecordType>person</linkedRecordType>"
+				+ "<linkedRecordId>somePerson</linkedRecordId><other>x</other></notLink></book>";
+
+		assertTrue(extractor.extractLinks(xml).isEmpty());
+	}
+
+	@Test
+	public void testExtractLinksSkipsActionLinks() {
+		String xml = XML_DECLARATION + "<book><person><linkedRecordType>person</linkedRecordType>"
+				+ "<linkedRecordId>somePerson</linkedRecordId><actionLinks><read>"
+				+ "<requestMethod>GET</requestMethod></read></actionLinks></person></book>";
+
+		assertEquals(extractor.extractLinks(xml),
+				List.of(new LinkReference("person", "person", "somePerson", "")));
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Tag title has no value. "
+			+ "Tags without values are not allowed.")
+	public void testExtractLinksInvalidXmlIsReported() {
+		extractor.extractLinks(XML_DECLARATION + "<book><title> </title></book>");
+	}
+
+	@Test
+	public void testExtractLinksFromGzipStream() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+			gzipStream.write(BOOK_XML.getBytes(StandardCharsets.UTF_8));
+		}
+
+		List<LinkReference> links = extractor.extractLinks(
+				new ByteArrayInputStream(compressed.toByteArray()), XmlCompression.GZIP);
+
+		assertEquals(links, extractor.extractLinks(BOOK_XML));
+	}
+}
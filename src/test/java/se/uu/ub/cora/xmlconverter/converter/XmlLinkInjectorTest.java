@@ -0,0 +1,259 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.converter.ExternalUrls;
+import se.uu.ub.cora.data.Action;
+
+public class XmlLinkInjectorTest {
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String SOME_BASE_URL = "https://some.domain.now/rest/record/";
+	private static final String IIIF_URL = "someIiifUrl";
+	private static final BiPredicate<String, String> NO_READ_ACTION = (type, id) -> false;
+	private static final BiPredicate<String, String> READ_ACTION_EXCEPT_RECORD_TYPE = //
+			(type, id) -> !"recordType".equals(type);
+
+	private XmlLinkInjector linkInjector;
+	private ExternalUrls externalUrls;
+	private XMLInputFactory xmlInputFactory;
+
+	@BeforeMethod
+	public void setUp() {
+		xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		linkInjector = new XmlLinkInjector(xmlInputFactory);
+		externalUrls = new ExternalUrls();
+		externalUrls.setBaseUrl(SOME_BASE_URL);
+		externalUrls.setIfffUrl(IIIF_URL);
+	}
+
+	@Test
+	public void testNoLinksToAdd() {
+		String recordXml = createRecordXml("<someLink><linkedRecordType>someType</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId></someLink>");
+
+		String xml = linkInjector.injectLinks(recordXml, createLinkData(NO_READ_ACTION),
+				externalUrls);
+
+		assertEquals(xml, recordXml);
+	}
+
+	@Test
+	public void testTextAndAttributesAreKeptAsConverted() {
+		String recordXml = createRecordXml(
+				"<name a=\"1\" b=\"&quot;&amp;&lt;&#10;\" repeatId=\"0\">&lt;Kalle&amp;&gt;&#13;</name>"
+						+ "<empty/>");
+
+		String xml = linkInjector.injectLinks(recordXml, createLinkData(NO_READ_ACTION),
+				externalUrls);
+
+		assertEquals(xml, recordXml);
+	}
+
+	@Test
+	public void testControlCharactersAreKeptAsConverted() {
+		String recordXml = createRecordXml(
+				"<name a=\"\u007F\u0085&#9;\">&#127;&#133;\t</name>");
+
+		String xml = linkInjector.injectLinks(recordXml, createLinkData(NO_READ_ACTION),
+				externalUrls);
+
+		assertEquals(xml, recordXml);
+	}
+
+	@Test
+	public void testRecordLinkWithReadAction() {
+		String recordXml = createRecordXml("<someLink repeatId=\"1\">"
+				+ "<linkedRecordType>someType</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId></someLink>");
+
+		String xml = linkInjector.injectLinks(recordXml,
+				createLinkData(READ_ACTION_EXCEPT_RECORD_TYPE), externalUrls);
+
+		String expectedXml = createRecordXml("<someLink repeatId=\"1\">"
+				+ "<linkedRecordType>someType</linkedRecordType>"
+				+ "<linkedRecordId>someId</linkedRecordId>" + "<actionLinks><read>"
+				+ "<requestMethod>GET</requestMethod><rel>read</rel>"
+				+ "<url>https://some.domain.now/rest/record/someType/someId</url>"
+				+ "<accept>application/vnd.cora.record+xml</accept>"
+				+ "</read></actionLinks></someLink>");
+		assertEquals(xml, expectedXml);
+	}
+
+	@Test
+	public void testReadActionIsCheckedForEachLink() {
+		String recordXml = createRecordXml(
+				"<link><linkedRecordType>typeA</linkedRecordType><linkedRecordId>idA</linkedRecordId>"
+						+ "</link><link><linkedRecordType>typeB</linkedRecordType>"
+						+ "<linkedRecordId>idB</linkedRecordId></link>");
+
+		String xml = linkInjector.injectLinks(recordXml,
+				createLinkData((type, id) -> "typeB".equals(type) && "idB".equals(id)),
+				externalUrls);
+
+		assertTrue(xml.contains("<linkedRecordId>idA</linkedRecordId></link>"));
+		assertTrue(xml.contains("<linkedRecordId>idB</linkedRecordId><actionLinks><read>"));
+	}
+
+	@Test
+	public void testGroupWithOtherChildrenIsNotALink() {
+		String recordXml = createRecordXml(
+				"<group><linkedRecordType>someType</linkedRecordType><linkedRecordId>someId"
+						+ "</linkedRecordId><other>value</other></group>");
+
+		String xml = linkInjector.injectLinks(recordXml,
+				createLinkData(READ_ACTION_EXCEPT_RECORD_TYPE), externalUrls);
+
+		assertEquals(xml, recordXml);
+	}
+
+	@Test
+	public void testResourceLinkWithReadAction() {
+		String recordXml = createRecordXml(
+				"<master><linkedRecordType>binary</linkedRecordType><linkedRecordId>someId"
+						+ "</linkedRecordId><mimeType>image/jpeg</mimeType></master>");
+
+		String xml = linkInjector.injectLinks(recordXml,
+				createLinkData(READ_ACTION_EXCEPT_RECORD_TYPE), externalUrls);
+
+		String expectedXml = createRecordXml(
+				"<master><linkedRecordType>binary</linkedRecordType><linkedRecordId>someId"
+						+ "</linkedRecordId><mimeType>image/jpeg</mimeType><actionLinks><read>"
+						+ "<requestMethod>GET</requestMethod><rel>read</rel>"
+						+ "<url>https://some.domain.now/rest/record/binary/someId/master</url>"
+						+ "<accept>image/jpeg</accept></read></actionLinks></master>");
+		assertEquals(xml, expectedXml);
+	}
+
+	@Test
+	public void testRecordActionsPermissionsAndOtherProtocols() {
+		String recordXml = createRecordXml("");
+		RecordLinkData linkData = new RecordLinkData(EnumSet.of(Action.DELETE), "someSearch",
+				createSet("readB", "readA"), Set.of("writeA"), Set.of("iiif"), NO_READ_ACTION);
+
+		String xml = linkInjector.injectLinks(recordXml, linkData, externalUrls);
+
+		String expectedEnd = "</data><actionLinks><delete>"
+				+ "<requestMethod>DELETE</requestMethod><rel>delete</rel>"
+				+ "<url>https://some.domain.now/rest/record/someRecordType/someRecordId</url>"
+				+ "</delete></actionLinks>"
+				+ "<permissions><read><permission>readA</permission><permission>readB</permission>"
+				+ "</read><write><permission>writeA</permission></write></permissions>"
+				+ "<otherProtocols><iiif><server>someIiifUrl</server>"
+				+ "<identifier>someRecordId</identifier></iiif></otherProtocols></record>";
+		assertTrue(xml.endsWith(expectedEnd), xml);
+	}
+
+	@Test
+	public void testOnlyWritePermissions() {
+		String recordXml = createRecordXml("");
+		RecordLinkData linkData = new RecordLinkData(Collections.emptySet(), null,
+				Collections.emptySet(), Set.of("writeA"), Collections.emptySet(), NO_READ_ACTION);
+
+		String xml = linkInjector.injectLinks(recordXml, linkData, externalUrls);
+
+		assertTrue(xml.endsWith("</data><permissions><write><permission>writeA</permission>"
+				+ "</write></permissions></record>"));
+	}
+
+	@Test
+	public void testPermissionsAreInjectedForEachRecord() {
+		String recordXml = createRecordXml("");
+
+		String firstXml = linkInjector.injectLinks(recordXml, createPermissionData("readA"),
+				externalUrls);
+		String secondXml = linkInjector.injectLinks(recordXml, createPermissionData("readB"),
+				externalUrls);
+		String thirdXml = linkInjector.injectLinks(recordXml, createPermissionData("readA"),
+				externalUrls);
+
+		assertTrue(firstXml.endsWith("<read><permission>readA</permission></read>"
+				+ "</permissions></record>"));
+		assertTrue(secondXml.endsWith("<read><permission>readB</permission></read>"
+				+ "</permissions></record>"));
+		assertEquals(thirdXml, firstXml);
+	}
+
+	private RecordLinkData createPermissionData(String readPermission) {
+		return new RecordLinkData(Collections.emptySet(), null, Set.of(readPermission),
+				Collections.emptySet(), Collections.emptySet(), NO_READ_ACTION);
+	}
+
+	private Set<String> createSet(String... values) {
+		return new LinkedHashSet<>(List.of(values));
+	}
+
+	@Test
+	public void testRootIsNotRecord() {
+		String xml = XML_DECLARATION + "<person><name>Kalle</name></person>";
+
+		assertInjectThrowsWithMessage(xml,
+				"Unable to inject links into xml: root element must be record");
+	}
+
+	@Test
+	public void testMalformedXml() {
+		String xml = XML_DECLARATION + "<record><data>";
+
+		try {
+			linkInjector.injectLinks(xml, createLinkData(NO_READ_ACTION), externalUrls);
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException e) {
+			assertTrue(e.getMessage().startsWith("Unable to inject links into xml: "));
+		}
+	}
+
+	private void assertInjectThrowsWithMessage(String xml, String message) {
+		try {
+			linkInjector.injectLinks(xml, createLinkData(NO_READ_ACTION), externalUrls);
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException e) {
+			assertEquals(e.getMessage(), message);
+		}
+	}
+
+	private RecordLinkData createLinkData(BiPredicate<String, String> readActionOnLink) {
+		return new RecordLinkData(Collections.emptySet(), null, Collections.emptySet(),
+				Collections.emptySet(), Collections.emptySet(), readActionOnLink);
+	}
+
+	private String createRecordXml(String extraChildren) {
+		return XML_DECLARATION + "<record><data><person><recordInfo><id>someRecordId</id>"
+				+ "<type><linkedRecordType>recordType</linkedRecordType>"
+				+ "<linkedRecordId>someRecordType</linkedRecordId></type></recordInfo>"
+				+ extraChildren + "</person></data></record>";
+	}
+}
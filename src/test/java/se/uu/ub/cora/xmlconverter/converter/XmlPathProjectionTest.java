@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.xmlconverter.converter.XmlPathProjection.Step;
+
+public class XmlPathProjectionTest {
+
+	@Test
+	public void testCompileOnePath() {
+		XmlPathProjection projection = XmlPathProjection.compile("recordInfo/id");
+
+		List<Step> topSteps = projection.getTopSteps();
+		assertEquals(topSteps.size(), 1);
+		Step recordInfo = topSteps.get(0);
+		assertTrue(recordInfo.matches("recordInfo", Map.of()));
+		assertFalse(recordInfo.selectsWholeBranch());
+		Step id = recordInfo.getChildren().get(0);
+		assertTrue(id.matches("id", Map.of()));
+		assertTrue(id.selectsWholeBranch());
+		assertEquals(id.getChildren(), List.of());
+	}
+
+	@Test
+	public void testPathsWithSameStartShareSteps() {
+		XmlPathProjection projection = XmlPathProjection.compile("recordInfo/id",
+				"recordInfo/type", "recordInfo");
+
+		List<Step> topSteps = projection.getTopSteps();
+		assertEquals(topSteps.size(), 1);
+		Step recordInfo = topSteps.get(0);
+		assertTrue(recordInfo.selectsWholeBranch());
+		assertEquals(recordInfo.getChildren().size(), 2);
+	}
+
+	@Test
+	public void testStepWithAttributes() {
+		XmlPathProjection projection = XmlPathProjection.compile("name[type=given][lang=en]");
+
+		Step name = projection.getTopSteps().get(0);
+		assertTrue(name.matches("name", Map.of("type", "given", "lang", "en", "other", "x")));
+		assertFalse(name.matches("name", Map.of("type", "given")));
+		assertFalse(name.matches("name", Map.of("type", "family", "lang", "en")));
+		assertFalse(name.matches("other", Map.of("type", "given", "lang", "en")));
+	}
+
+	@Test
+	public void testStepsWithDifferentAttributesAreNotShared() {
+		XmlPathProjection projection = XmlPathProjection.compile("title[lang=sv]",
+				"title[lang=en]", "title");
+
+		assertEquals(projection.getTopSteps().size(), 3);
+	}
+
+	@Test
+	public void testAttributeWithEmptyValue() {
+		XmlPathProjection projection = XmlPathProjection.compile("title[lang=]");
+
+		Step title = projection.getTopSteps().get(0);
+		assertTrue(title.matches("title", Map.of("lang", "")));
+		assertFalse(title.matches("title", Map.of()));
+	}
+
+	@Test
+	public void testNoPaths() {
+		XmlPathProjection projection = XmlPathProjection.compile();
+
+		assertEquals(projection.getTopSteps(), List.of());
+	}
+
+	@Test
+	public void testInvalidPaths() {
+		for (String path : List.of("", "a//b", "a/", "/a", "a[b]", "a[=1]", "a[b=1", "[a=1]")) {
+			assertInvalidPath(path);
+		}
+	}
+
+	private void assertInvalidPath(String path) {
+		try {
+			XmlPathProjection.compile("title", path);
+			fail("Path should be invalid: " + path);
+		} catch (IllegalArgumentException exception) {
+			assertEquals(exception.getMessage(), "Invalid path: " + path);
+		}
+	}
+}
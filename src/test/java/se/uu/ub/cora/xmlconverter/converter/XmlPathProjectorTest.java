@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.converter;
+
+import static org.testng.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLInputFactory;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.converter.ConverterException;
+import se.uu.ub.cora.data.DataProvider;
+import se.uu.ub.cora.data.spies.DataAtomicSpy;
+import se.uu.ub.cora.data.spies.DataFactorySpy;
+import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordLinkSpy;
+
+public class XmlPathProjectorTest {
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	private static final String BOOK_XML = XML_DECLARATION + "<book type=\"novel\">"
+			+ "<recordInfo><id>someId</id><tsCreated>2026-01-01</tsCreated></recordInfo>"
+			+ "<title lang=\"sv\"><main>svTitle</main></title>"
+			+ "<title lang=\"en\" repeatId=\"1\"><main>enTitle</main><sub>enSub</sub></title>"
+			+ "<author><link><linkedRecordType>person</linkedRecordType>"
+			+ "<linkedRecordId>somePerson</linkedRecordId></link><note>someNote</note></author>"
+			+ "<other><deep><deeper>someValue</deeper></deep></other></book>";
+
+	private DataFactorySpy dataFactorySpy;
+	private XMLInputFactory xmlInputFactory;
+	private XmlPathProjector projector;
+
+	@BeforeMethod
+	public void setUp() {
+		dataFactorySpy = new DataFactorySpy();
+		DataProvider.onlyForTestSetDataFactory(dataFactorySpy);
+		xmlInputFactory = XMLInputFactory.newInstance();
+		projector = new XmlPathProjector(xmlInputFactory);
+	}
+
+	@Test
+	public void testGetXmlInputFactoryOnlyForTest() {
+		assertSame(projector.getXmlInputFactoryOnlyForTest(), xmlInputFactory);
+	}
+
+	@Test
+	public void testNoPathsGivesOnlyTopGroup() {
+		DataGroupSpy book = (DataGroupSpy) projector.project(BOOK_XML,
+				XmlPathProjection.compile());
+
+		dataFactorySpy.MCR.assertReturn("factorGroupUsingNameInData", 0, book);
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0, "book");
+		book.MCR.assertParameters("addAttributeByIdWithValue", 0, "type", "novel");
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 1);
+		book.MCR.assertMethodNotCalled("addChild");
+	}
+
+	@Test
+	public void testProjectAtomicInGroup() {
+		DataGroupSpy book = (DataGroupSpy) projector.project(BOOK_XML,
+				XmlPathProjection.compile("recordInfo/id"));
+
+		DataGroupSpy recordInfo = (DataGroupSpy) dataFactorySpy.MCR
+				.assertCalledParametersReturn("factorGroupUsingNameInData", "recordInfo");
+		book.MCR.assertNumberOfCallsToMethod("addChild", 1);
+		book.MCR.assertParameters("addChild", 0, recordInfo);
+		DataAtomicSpy id = (DataAtomicSpy) dataFactorySpy.MCR.assertCalledParametersReturn(
+				"factorAtomicUsingNameInDataAndValue", "id", "someId");
+		recordInfo.MCR.assertNumberOfCallsToMethod("addChild", 1);
+		recordInfo.MCR.assertParameters("addChild", 0, id);
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorAtomicUsingNameInDataAndValue", 1);
+	}
+
+	@Test
+	public void testProjectWholeBranchWithAttributePredicate() {
+		projector.project(BOOK_XML, XmlPathProjection.compile("title[lang=en]"));
+
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 2);
+		DataGroupSpy title = (DataGroupSpy) dataFactorySpy.MCR
+				.assertCalledParametersReturn("factorGroupUsingNameInData", "title");
+		title.MCR.assertParameters("addAttributeByIdWithValue", 0, "lang", "en");
+		title.MCR.assertParameters("setRepeatId", 0, "1");
+		title.MCR.assertNumberOfCallsToMethod("addChild", 2);
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0, "main",
+				"enTitle");
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 1, "sub",
+				"enSub");
+	}
+
+	@Test
+	public void testProjectLink() {
+		projector.project(BOOK_XML, XmlPathProjection.compile("author/link"));
+
+		DataGroupSpy author = (DataGroupSpy) dataFactorySpy.MCR
+				.assertCalledParametersReturn("factorGroupUsingNameInData", "author");
+		DataRecordLinkSpy link = (DataRecordLinkSpy) dataFactorySpy.MCR
+				.assertCalledParametersReturn("factorRecordLinkUsingNameInDataAndTypeAndId",
+						"link", "person", "somePerson");
+		author.MCR.assertNumberOfCallsToMethod("addChild", 1);
+		author.MCR.assertParameters("addChild", 0, link);
+		dataFactorySpy.MCR.assertMethodNotCalled("factorAtomicUsingNameInDataAndValue");
+	}
+
+	@Test
+	public void testGroupsWithoutSelectedElementsAreNotKept() {
+		DataGroupSpy book = (DataGroupSpy) projector.project(BOOK_XML,
+				XmlPathProjection.compile("other/deep/missing", "recordInfo/missing"));
+
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 1);
+		book.MCR.assertMethodNotCalled("addChild");
+	}
+
+	@Test
+	public void testSkippedPartsAreNotConverted() {
+		projector.project(XML_DECLARATION + "<book><skipped><empty></empty></skipped>"
+				+ "<title>someTitle</title></book>", XmlPathProjection.compile("title"));
+
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0, "title",
+				"someTitle");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Tag title has no value. "
+			+ "Tags without values are not allowed.")
+	public void testSelectedPartsAreConvertedUsingTheSameRules() {
+		projector.project(XML_DECLARATION + "<book><title> </title></book>",
+				XmlPathProjection.compile("title"));
+	}
+
+	@Test
+	public void testProjectFromStream() {
+		projector.project(new ByteArrayInputStream(BOOK_XML.getBytes(StandardCharsets.UTF_8)),
+				XmlCompression.NONE, XmlPathProjection.compile("recordInfo/id"));
+
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0, "id",
+				"someId");
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorAtomicUsingNameInDataAndValue", 1);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2019, 2025 Uppsala University Library
+ * Copyright 2019, 2025, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -19,20 +19,30 @@
 package se.uu.ub.cora.xmlconverter.converter;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
-import org.xml.sax.SAXException;
 
 import se.uu.ub.cora.converter.ConverterException;
 import se.uu.ub.cora.data.DataProvider;
 import se.uu.ub.cora.data.spies.DataAtomicSpy;
 import se.uu.ub.cora.data.spies.DataFactorySpy;
 import se.uu.ub.cora.data.spies.DataGroupSpy;
+import se.uu.ub.cora.data.spies.DataRecordGroupSpy;
 import se.uu.ub.cora.data.spies.DataRecordLinkSpy;
 import se.uu.ub.cora.data.spies.DataResourceLinkSpy;
 import se.uu.ub.cora.xmlconverter.spy.DocumentBuilderFactorySpy;
@@ -49,7 +59,58 @@ public class XmlToExternallyConvertibleTest {
 		DataProvider.onlyForTestSetDataFactory(dataFactorySpy);
 
 		documentBuilderFactory = DocumentBuilderFactory.newInstance();
-		xmlToDataElement = new XmlToExternallyConvertible(documentBuilderFactory);
+		xmlToDataElement = new XmlToExternallyConvertible(documentBuilderFactory,
+				XMLInputFactory.newInstance());
+	}
+
+	@Test
+	public void testConstructorWithOnlyDocumentBuilderFactory() {
+		XmlToExternallyConvertible converter = new XmlToExternallyConvertible(
+				documentBuilderFactory);
+
+		assertSame(converter.getDocumentBuilderFactoryOnlyForTest(), documentBuilderFactory);
+		XMLInputFactory xmlInputFactory = converter.getXmlInputFactoryOnlyForTest();
+		assertEquals(xmlInputFactory.getProperty(XMLInputFactory.SUPPORT_DTD), false);
+		assertEquals(
+				xmlInputFactory.getProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES),
+				false);
+		assertEquals(xmlInputFactory.getProperty(XMLInputFactory.IS_NAMESPACE_AWARE), false);
+		DataGroupSpy convertedDataElement = (DataGroupSpy) converter.convert("""
+				<?xml version="1.0" encoding="UTF-8"?>
+				<person><firstname>Kalle</firstname></person>""");
+		assertConvertedPersonWithFirstname(convertedDataElement);
+	}
+
+	@Test
+	public void testStringAndStreamAreRejectedWithTheSameErrors() {
+		assertSameErrorForStringAndStream("<person><firstname>Kalle</firstname></person>");
+		assertSameErrorForStringAndStream("""
+				<?xml version="1.0" encoding="UTF-8"?><person></person>""");
+		assertSameErrorForStringAndStream("""
+				<?xml version="1.0" encoding="UTF-8"?><person><firstname/></person>""");
+		assertSameErrorForStringAndStream("""
+				<?xml version="1.0" encoding="UTF-8"?><person repeatId="1"><a>b</a></person>""");
+		assertSameErrorForStringAndStream("""
+				<?xml version="1.0" encoding="UTF-8"?><person><a>b</person>""");
+	}
+
+	private void assertSameErrorForStringAndStream(String xml) {
+		String stringError = getErrorMessage(() -> xmlToDataElement.convert(xml));
+		String streamError = getErrorMessage(
+				() -> xmlToDataElement.convert(createStream(xml), XmlCompression.NONE));
+
+		assertTrue(stringError.startsWith("Unable to convert from xml to dataElement"));
+		assertEquals(streamError, stringError);
+	}
+
+	private String getErrorMessage(Runnable conversion) {
+		try {
+			conversion.run();
+		} catch (ConverterException e) {
+			return e.getMessage();
+		}
+		fail("A ConverterException should have been thrown");
+		return null;
 	}
 
 	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
@@ -62,92 +123,56 @@ public class XmlToExternallyConvertibleTest {
 		xmlToDataElement.convert(xmlToConvert);
 	}
 
-	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
-			+ "Unable to convert from xml to dataElement: some message from DocumentBuilderFactorySpy")
-	public void testParseExceptionOnCreateDocument() {
-		String xmlToConvert = """
-				<?xml version="1.0" encoding="UTF-8"?>" + "<person></person>""";
-
+	@Test
+	public void testConvertDoesNotUseDocumentBuilder() {
 		setUpXmlToDataElementWithDocumentFactorySpy();
 		((DocumentBuilderFactorySpy) documentBuilderFactory).throwParserError = true;
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<person><firstname>Kalle</firstname></person>""";
 
-		xmlToDataElement.convert(xmlToConvert);
+		DataGroupSpy convertedDataElement = (DataGroupSpy) xmlToDataElement.convert(xmlToConvert);
+
+		assertConvertedPersonWithFirstname(convertedDataElement);
 	}
 
 	private void setUpXmlToDataElementWithDocumentFactorySpy() {
 		documentBuilderFactory = new DocumentBuilderFactorySpy();
-		xmlToDataElement = new XmlToExternallyConvertible(documentBuilderFactory);
-	}
-
-	@Test
-	public void testParseExceptionOriginalExceptionIsSentAlong() {
-		String xmlToConvert = """
-				<?xml version="1.0" encoding="UTF-8"?><person></person>""";
-		setUpXmlToDataElementWithDocumentFactorySpy();
-		((DocumentBuilderFactorySpy) documentBuilderFactory).throwParserError = true;
-
-		try {
-			xmlToDataElement.convert(xmlToConvert);
-		} catch (Exception e) {
-			assertTrue(e.getCause() instanceof ParserConfigurationException);
-		}
+		xmlToDataElement = new XmlToExternallyConvertible(documentBuilderFactory,
+				XMLInputFactory.newInstance());
 	}
 
 	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
-			+ "Unable to convert from xml to dataElement due to malformed XML: noXML")
-	public void testSaxExceptionOnParseMalformedXML() {
-		String xmlToConvert = "noXML";
+			+ "Unable to convert from xml to dataElement due to malformed XML: .*")
+	public void testExceptionOnParseMalformedXML() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>noXML""";
 		xmlToDataElement.convert(xmlToConvert);
 	}
 
 	@Test
-	public void testSaxExceptionOnParseMalformedXMLOriginalExceptionIsSentAlong() {
-		String xmlToConvert = "noXML";
+	public void testExceptionOnParseMalformedXMLOriginalExceptionIsSentAlong() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>noXML""";
 
 		try {
 			xmlToDataElement.convert(xmlToConvert);
-		} catch (Exception e) {
-			assertTrue(e.getCause() instanceof SAXException);
+			fail("A ConverterException should have been thrown");
+		} catch (ConverterException e) {
+			assertTrue(e.getCause() instanceof XMLStreamException);
 		}
 	}
 
-	@Test
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Document must be: version 1.0 and UTF-8")
 	public void testExceptionOnNullXML() {
-		String xmlToConvert = null;
-		setUpXmlToDataElementWithDocumentFactorySpy();
-		((DocumentBuilderFactorySpy) documentBuilderFactory).throwIOException = true;
-		Exception expectedException = null;
-		try {
-			xmlToDataElement.convert(xmlToConvert);
-		} catch (Exception e) {
-			expectedException = e;
-		}
-		assertTrue(expectedException instanceof ConverterException);
-
-		assertMessageIsCorrectForJava14or15(expectedException);
-	}
-
-	private void assertMessageIsCorrectForJava14or15(Exception expectedException) {
-		String exceptionMessage = expectedException.getMessage();
-		String errorStartsWith = "Unable to convert from xml to dataElement: ";
-		assertTrue(exceptionMessage.startsWith(errorStartsWith));
+		xmlToDataElement.convert(null);
 	}
 
 	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
-			+ "Unable to convert from xml to dataElement due to malformed XML: ")
-	public void testSaxExceptionOnParseEmptyXML() {
-		String xmlToConvert = "";
-		xmlToDataElement.convert(xmlToConvert);
-	}
-
-	@Test
-	public void testSaxExceptionOnParseEmptyXMLOriginalExceptionIsSentAlong() {
-
-		try {
-			xmlToDataElement.convert("");
-		} catch (Exception e) {
-			assertTrue(e.getCause() instanceof SAXException);
-		}
+			+ "Unable to convert from xml to dataElement: Document must be: version 1.0 and UTF-8")
+	public void testExceptionOnParseEmptyXML() {
+		xmlToDataElement.convert("");
 	}
 
 	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
@@ -504,9 +529,8 @@ public class XmlToExternallyConvertibleTest {
 			xmlToDataElement.convert(xmlToConvert);
 			makeSureErrorIsThrown();
 		} catch (Exception e) {
-			assertEquals(e.getMessage(),
-					"Unable to convert from xml to dataElement due to malformed XML: "
-							+ xmlToConvert);
+			assertTrue(e.getMessage().startsWith(
+					"Unable to convert from xml to dataElement due to malformed XML: "));
 		}
 	}
 
@@ -759,6 +783,146 @@ public class XmlToExternallyConvertibleTest {
 				"factorRecordLinkUsingNameInDataAndTypeAndId", "type", "recordType", "demo");
 	}
 
+	@Test
+	public void testSkipLinkOnlySubtreesInRecordEnvelope() {
+		String xmlRecord = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<record>
+				    <data>
+				        <book>
+				            <title>someTitle</title>
+				        </book>
+				    </data>
+				    <actionLinks>
+				        <read>
+				            <url>http://localhost:38080/systemone/rest/record/book/someId</url>
+				        </read>
+				    </actionLinks>
+				    <permissions>
+				        <read>
+				            <permission>title</permission>
+				        </read>
+				    </permissions>
+				    <otherProtocols>
+				        <iiif>
+				            <server>someServer</server>
+				        </iiif>
+				    </otherProtocols>
+				</record>
+				 """;
+
+		xmlToDataElement.convert(xmlRecord);
+
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 3);
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0, "record");
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 1, "data");
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 2, "book");
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorAtomicUsingNameInDataAndValue", 1);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement due to malformed XML: .*")
+	public void testMalformedXmlInsideLinkOnlySubtreeIsRejected() {
+		String xmlRecord = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<record>
+				    <data>
+				        <book>
+				            <title>someTitle</title>
+				        </book>
+				    </data>
+				    <actionLinks>
+				        <read><url>someUrl</read></url>
+				    </actionLinks>
+				</record>""";
+
+		xmlToDataElement.convert(xmlRecord);
+	}
+
+	@Test
+	public void testActionLinksOutsideLinkIsKeptAsData() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<person><name><actionLinks>someValue</actionLinks></name></person>""";
+
+		xmlToDataElement.convert(xmlToConvert);
+
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 1, "name");
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0,
+				"actionLinks", "someValue");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Tag actionLinks has no value. "
+			+ "Tags without values are not allowed.")
+	public void testEmptyActionLinksOutsideLinkIsAnAtomicWithoutValue() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<person><name><actionLinks/></name></person>""";
+
+		xmlToDataElement.convert(xmlToConvert);
+	}
+
+	@Test
+	public void testActionLinksAfterOtherChildThanLinkChildrenIsKeptAsData() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<person>
+				    <type>
+				        <linkedRecordType>recordType</linkedRecordType>
+				        <linkedRecordId>demo</linkedRecordId>
+				        <note>someNote</note>
+				        <actionLinks>someValue</actionLinks>
+				    </type>
+				</person>""";
+
+		xmlToDataElement.convert(xmlToConvert);
+
+		dataFactorySpy.MCR.assertMethodNotCalled("factorRecordLinkUsingNameInDataAndTypeAndId");
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorAtomicUsingNameInDataAndValue", 4);
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 3,
+				"actionLinks", "someValue");
+	}
+
+	@Test
+	public void testPermissionsAndOtherProtocolsInRecordWithoutDataFirstAreKept() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<record>
+				    <permissions>somePermission</permissions>
+				    <otherProtocols>someProtocol</otherProtocols>
+				    <actionLinks>someValue</actionLinks>
+				</record>""";
+
+		xmlToDataElement.convert(xmlToConvert);
+
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorAtomicUsingNameInDataAndValue", 3);
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0,
+				"permissions", "somePermission");
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 1,
+				"otherProtocols", "someProtocol");
+	}
+
+	@Test
+	public void testPermissionsInsideDataOfRecordAreKept() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<record>
+				    <data>
+				        <book>
+				            <permissions>somePermission</permissions>
+				        </book>
+				    </data>
+				    <permissions><read><permission>title</permission></read></permissions>
+				</record>""";
+
+		xmlToDataElement.convert(xmlToConvert);
+
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorAtomicUsingNameInDataAndValue", 1);
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0,
+				"permissions", "somePermission");
+	}
+
 	@Test
 	public void testResourceLink() {
 		String xmlWithActionLinks = """
@@ -839,4 +1003,162 @@ public class XmlToExternallyConvertibleTest {
 				"factorResourceLinkUsingNameInDataAndTypeAndIdAndMimeType", "medium", "recordType",
 				"recordId", "image/jpeg");
 	}
+
+	@Test
+	public void testConvertToDataRecordGroup() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+					<person gender="man">
+						<name><firstname>Kalle</firstname></name>
+					</person>
+				""";
+
+		DataRecordGroupSpy convertedDataElement = (DataRecordGroupSpy) xmlToDataElement
+				.convertToDataRecordGroup(xmlToConvert);
+
+		dataFactorySpy.MCR.assertReturn("factorRecordGroupUsingNameInData", 0,
+				convertedDataElement);
+		dataFactorySpy.MCR.assertParameters("factorRecordGroupUsingNameInData", 0, "person");
+		convertedDataElement.MCR.assertParameters("addAttributeByIdWithValue", 0, "gender",
+				"man");
+		DataGroupSpy factoredGroup = (DataGroupSpy) dataFactorySpy.MCR
+				.assertCalledParametersReturn("factorGroupUsingNameInData", "name");
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 1);
+		convertedDataElement.MCR.assertCalledParameters("addChild", factoredGroup);
+		dataFactorySpy.MCR.assertMethodNotCalled("factorRecordGroupFromDataGroup");
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Top dataGroup can not have repeatId")
+	public void testConvertToDataRecordGroupRepeatIdOnParentGroup() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+					<person repeatId="someRepeatId">
+						<firstname>Janne</firstname>
+					</person>
+				""";
+
+		xmlToDataElement.convertToDataRecordGroup(xmlToConvert);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement due to malformed XML: .*")
+	public void testConvertToDataRecordGroupMalformedXml() {
+		xmlToDataElement.convertToDataRecordGroup("""
+				<?xml version="1.0" encoding="UTF-8"?>noXML""");
+	}
+
+	@Test
+	public void testConvertStream() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?><person><firstname>Kalle</firstname></person>""";
+
+		DataGroupSpy convertedDataElement = (DataGroupSpy) xmlToDataElement
+				.convert(createStream(xmlToConvert), XmlCompression.NONE);
+
+		assertConvertedPersonWithFirstname(convertedDataElement);
+	}
+
+	private ByteArrayInputStream createStream(String xml) {
+		return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void assertConvertedPersonWithFirstname(DataGroupSpy convertedDataElement) {
+		dataFactorySpy.MCR.assertParameters("factorGroupUsingNameInData", 0, "person");
+		dataFactorySpy.MCR.assertReturn("factorGroupUsingNameInData", 0, convertedDataElement);
+		dataFactorySpy.MCR.assertParameters("factorAtomicUsingNameInDataAndValue", 0,
+				"firstname", "Kalle");
+	}
+
+	@Test
+	public void testConvertGzipStream() throws IOException {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?><person><firstname>Kalle</firstname></person>""";
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+			gzipStream.write(xmlToConvert.getBytes(StandardCharsets.UTF_8));
+		}
+
+		DataGroupSpy convertedDataElement = (DataGroupSpy) xmlToDataElement.convert(
+				new ByteArrayInputStream(compressed.toByteArray()), XmlCompression.GZIP);
+
+		assertConvertedPersonWithFirstname(convertedDataElement);
+	}
+
+	@Test
+	public void testConvertDeflateStream() throws IOException {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?><person><firstname>Kalle</firstname></person>""";
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (DeflaterOutputStream deflateStream = new DeflaterOutputStream(compressed)) {
+			deflateStream.write(xmlToConvert.getBytes(StandardCharsets.UTF_8));
+		}
+
+		DataGroupSpy convertedDataElement = (DataGroupSpy) xmlToDataElement.convert(
+				new ByteArrayInputStream(compressed.toByteArray()), XmlCompression.DEFLATE);
+
+		assertConvertedPersonWithFirstname(convertedDataElement);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Document must be: version 1.0 and UTF-8")
+	public void testConvertStreamNotCorrectVersionAndEncoding() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="notUTF-8"?>
+				<person><firstname/></person>""";
+
+		xmlToDataElement.convert(createStream(xmlToConvert), XmlCompression.NONE);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement due to malformed XML: .*")
+	public void testConvertStreamMalformedXml() {
+		xmlToDataElement.convert(createStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?><a>"),
+				XmlCompression.NONE);
+	}
+
+	@Test(expectedExceptions = ConverterException.class, expectedExceptionsMessageRegExp = ""
+			+ "Unable to convert from xml to dataElement: Not in GZIP format")
+	public void testConvertStreamNotCompressedAsGiven() {
+		xmlToDataElement.convert(createStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?><a/>"),
+				XmlCompression.GZIP);
+	}
+
+	@Test
+	public void testConvertStreamDoesNotUseDocumentBuilder() {
+		setUpXmlToDataElementWithDocumentFactorySpy();
+		((DocumentBuilderFactorySpy) documentBuilderFactory).throwParserError = true;
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?><person><firstname>Kalle</firstname></person>""";
+
+		DataGroupSpy convertedDataElement = (DataGroupSpy) xmlToDataElement
+				.convert(createStream(xmlToConvert), XmlCompression.NONE);
+
+		assertConvertedPersonWithFirstname(convertedDataElement);
+	}
+
+	@Test
+	public void testConvertStreamSkipsLinkOnlySubtrees() {
+		String xmlToConvert = """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<record>
+				    <data>
+				        <book>
+				            <type>
+				                <linkedRecordType>recordType</linkedRecordType>
+				                <linkedRecordId>book</linkedRecordId>
+				                <actionLinks><read><url>someUrl</url></read></actionLinks>
+				            </type>
+				        </book>
+				    </data>
+				    <permissions><read><permission>title</permission></read></permissions>
+				</record>""";
+
+		xmlToDataElement.convert(createStream(xmlToConvert), XmlCompression.NONE);
+
+		dataFactorySpy.MCR.assertNumberOfCallsToMethod("factorGroupUsingNameInData", 3);
+		dataFactorySpy.MCR.assertCalledParameters("factorRecordLinkUsingNameInDataAndTypeAndId",
+				"type", "recordType", "book");
+		dataFactorySpy.MCR.assertMethodNotCalled("factorAtomicUsingNameInDataAndValue");
+	}
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.spy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import se.uu.ub.cora.xmlconverter.converter.CoraXmlVisitor;
+
+public class CoraXmlVisitorSpy implements CoraXmlVisitor {
+
+	public List<String> events = new ArrayList<>();
+
+	@Override
+	public void startGroup(String nameInData, Map<String, String> attributes, String repeatId) {
+		events.add("startGroup " + nameInData + " " + attributes + " " + repeatId);
+	}
+
+	@Override
+	public void atomic(String nameInData, String value, Map<String, String> attributes,
+			String repeatId) {
+		events.add("atomic " + nameInData + " " + value + " " + attributes + " " + repeatId);
+	}
+
+	@Override
+	public void recordLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			Map<String, String> attributes, String repeatId) {
+		events.add("recordLink " + nameInData + " " + linkedRecordType + " " + linkedRecordId + " "
+				+ attributes + " " + repeatId);
+	}
+
+	@Override
+	public void resourceLink(String nameInData, String linkedRecordType, String linkedRecordId,
+			String mimeType, String repeatId) {
+		events.add("resourceLink " + nameInData + " " + linkedRecordType + " " + linkedRecordId
+				+ " " + mimeType + " " + repeatId);
+	}
+
+	@Override
+	public void endGroup(String nameInData) {
+		events.add("endGroup " + nameInData);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.spy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class GatheringByteChannelSpy implements GatheringByteChannel {
+
+	public int maxBytesPerWrite = Integer.MAX_VALUE;
+	public int numberOfGatheringWrites = 0;
+	private ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) {
+		numberOfGatheringWrites++;
+		long writtenInCall = 0;
+		for (int i = offset; i < offset + length; i++) {
+			writtenInCall += writeAsMuchAsAllowed(srcs[i], writtenInCall);
+		}
+		return writtenInCall;
+	}
+
+	private int writeAsMuchAsAllowed(ByteBuffer src, long writtenInCall) {
+		int toWrite = (int) Math.min(src.remaining(), maxBytesPerWrite - writtenInCall);
+		for (int i = 0; i < toWrite; i++) {
+			written.write(src.get());
+		}
+		return toWrite;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) {
+		return (int) write(new ByteBuffer[] { src });
+	}
+
+	@Override
+	public boolean isOpen() {
+		return true;
+	}
+
+	@Override
+	public void close() {
+		// not implemented for test
+	}
+
+	public String getWrittenAsString() {
+		return written.toString(StandardCharsets.UTF_8);
+	}
+}
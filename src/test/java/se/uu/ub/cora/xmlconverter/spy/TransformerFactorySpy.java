@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -31,6 +31,8 @@ public class TransformerFactorySpy extends TransformerFactory {
 	public boolean throwTransformError = false;
 	public boolean throwRuntimeException = false;
 	public boolean newTransformerWasCalled = false;
+	public int numberOfNewTransformerCalls = 0;
+	public TransformerSpy transformerSpy;
 
 	@Override
 	public Source getAssociatedStylesheet(Source arg0, String arg1, String arg2, String arg3)
@@ -72,7 +74,8 @@ public class TransformerFactorySpy extends TransformerFactory {
 	@Override
 	public Transformer newTransformer() throws TransformerConfigurationException {
 		newTransformerWasCalled = true;
-		TransformerSpy transformerSpy = new TransformerSpy();
+		numberOfNewTransformerCalls++;
+		transformerSpy = new TransformerSpy();
 		if (throwTransformError) {
 			transformerSpy.throwTransformerError = true;
 		}
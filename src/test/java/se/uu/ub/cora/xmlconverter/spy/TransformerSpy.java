@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -30,6 +30,8 @@ import javax.xml.transform.URIResolver;
 public class TransformerSpy extends Transformer {
 
 	public boolean throwTransformerError = false;
+	public Properties setOutputProperties = new Properties();
+	public int numberOfResetCalls = 0;
 
 	@Override
 	public void clearParameters() {
@@ -81,8 +83,7 @@ public class TransformerSpy extends Transformer {
 
 	@Override
 	public void setOutputProperty(String arg0, String arg1) throws IllegalArgumentException {
-		// TODO Auto-generated method stub
-
+		setOutputProperties.setProperty(arg0, arg1);
 	}
 
 	@Override
@@ -97,6 +98,12 @@ public class TransformerSpy extends Transformer {
 
 	}
 
+	@Override
+	public void reset() {
+		numberOfResetCalls++;
+		setOutputProperties.clear();
+	}
+
 	@Override
 	public void transform(Source arg0, Result arg1) throws TransformerException {
 		if (throwTransformerError) {
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.xmlconverter.spy;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+import javax.xml.stream.EventFilter;
+import javax.xml.stream.StreamFilter;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLReporter;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.XMLEventAllocator;
+import javax.xml.transform.Source;
+
+public class XmlInputFactorySpy extends XMLInputFactory {
+
+	public boolean throwRuntimeException = false;
+
+	@Override
+	public XMLStreamReader createXMLStreamReader(Reader arg0) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLStreamReader createXMLStreamReader(Source arg0) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLStreamReader createXMLStreamReader(InputStream arg0) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLStreamReader createXMLStreamReader(InputStream arg0, String arg1) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLStreamReader createXMLStreamReader(String arg0, InputStream arg1) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLStreamReader createXMLStreamReader(String arg0, Reader arg1) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLEventReader createXMLEventReader(Reader arg0) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLEventReader createXMLEventReader(String arg0, Reader arg1) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLEventReader createXMLEventReader(XMLStreamReader arg0) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLEventReader createXMLEventReader(Source arg0) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLEventReader createXMLEventReader(InputStream arg0) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLEventReader createXMLEventReader(InputStream arg0, String arg1) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLEventReader createXMLEventReader(String arg0, InputStream arg1) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLStreamReader createFilteredReader(XMLStreamReader arg0, StreamFilter arg1) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLEventReader createFilteredReader(XMLEventReader arg0, EventFilter arg1) throws XMLStreamException {
+		return null;
+	}
+
+	@Override
+	public XMLResolver getXMLResolver() {
+		return null;
+	}
+
+	@Override
+	public void setXMLResolver(XMLResolver arg0) {
+		// not implemented for test
+	}
+
+	@Override
+	public XMLReporter getXMLReporter() {
+		return null;
+	}
+
+	@Override
+	public void setXMLReporter(XMLReporter arg0) {
+		// not implemented for test
+	}
+
+	@Override
+	public void setProperty(String arg0, Object arg1) throws IllegalArgumentException {
+		if (throwRuntimeException) {
+			throw new RuntimeException();
+		}
+	}
+
+	@Override
+	public Object getProperty(String arg0) throws IllegalArgumentException {
+		return null;
+	}
+
+	@Override
+	public boolean isPropertySupported(String arg0) {
+		return false;
+	}
+
+	@Override
+	public void setEventAllocator(XMLEventAllocator arg0) {
+		// not implemented for test
+	}
+
+	@Override
+	public XMLEventAllocator getEventAllocator() {
+		return null;
+	}
+}